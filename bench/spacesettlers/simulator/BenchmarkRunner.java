@@ -0,0 +1,140 @@
+package spacesettlers.simulator;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * A small benchmark harness.  Each benchmark is run for a number of warmup iterations
+ * (so the JIT has compiled the hot code) and then for a number of timed iterations.  Each
+ * iteration calls the operation over and over for a fixed amount of time and the result
+ * is the average time per call.  The mean and standard deviation over the timed iterations
+ * are reported.
+ *
+ * @author amy
+ */
+public class BenchmarkRunner {
+	/**
+	 * An operation to be measured.  Whatever it returns is consumed so the JIT can't
+	 * remove the work.
+	 */
+	public interface Operation {
+		public Object run() throws Exception;
+	}
+
+	/**
+	 * Number of untimed and timed iterations
+	 */
+	int warmupIterations, measurementIterations;
+
+	/**
+	 * How long each iteration runs (in milliseconds)
+	 */
+	long iterationMillis;
+
+	/**
+	 * Results as lines of comma separated values
+	 */
+	ArrayList<String> results;
+
+	/**
+	 * Everything the operations return is folded into this so it can't be optimized away
+	 */
+	int sink;
+
+	/**
+	 * Make a new runner
+	 *
+	 * @param warmupIterations
+	 * @param measurementIterations
+	 * @param iterationMillis
+	 */
+	public BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = Math.max(1, measurementIterations);
+		this.iterationMillis = iterationMillis;
+		results = new ArrayList<String>();
+		results.add("benchmark,objects,teams,nsPerOp,stdDev");
+	}
+
+	/**
+	 * Print the header for the results table
+	 */
+	public void printHeader() {
+		System.out.println(String.format("%-45s %8s %6s %15s %12s", "Benchmark", "objects", "teams", "ns/op", "stddev"));
+	}
+
+	/**
+	 * Measure an operation and print the result
+	 *
+	 * @param name name of the benchmark
+	 * @param numObjects number of objects in the world being measured
+	 * @param numTeams number of teams in the world being measured
+	 * @param operation the operation to time
+	 * @throws Exception
+	 */
+	public void measure(String name, int numObjects, int numTeams, Operation operation) throws Exception {
+		for (int i = 0; i < warmupIterations; i++) {
+			runIteration(operation);
+		}
+
+		double[] nsPerOp = new double[measurementIterations];
+		double mean = 0;
+		for (int i = 0; i < measurementIterations; i++) {
+			nsPerOp[i] = runIteration(operation);
+			mean += nsPerOp[i];
+		}
+		mean /= measurementIterations;
+
+		double variance = 0;
+		for (int i = 0; i < measurementIterations; i++) {
+			variance += (nsPerOp[i] - mean) * (nsPerOp[i] - mean);
+		}
+		double stdDev = Math.sqrt(variance / measurementIterations);
+
+		System.out.println(String.format("%-45s %8d %6d %15.1f %12.1f", name, numObjects, numTeams, mean, stdDev));
+		results.add(name + "," + numObjects + "," + numTeams + "," + mean + "," + stdDev);
+	}
+
+	/**
+	 * Call the operation repeatedly for one iteration
+	 *
+	 * @param operation
+	 * @return the average time per call in nanoseconds
+	 * @throws Exception
+	 */
+	private double runIteration(Operation operation) throws Exception {
+		long numOps = 0;
+		long start = System.nanoTime();
+		long end = start + iterationMillis * 1000000L;
+		long now;
+
+		do {
+			Object result = operation.run();
+			if (result != null) {
+				sink += result.hashCode();
+			}
+			numOps++;
+			now = System.nanoTime();
+		} while (now < end);
+
+		return (double) (now - start) / numOps;
+	}
+
+	/**
+	 * Write the results out as comma separated values (so runs can be compared)
+	 *
+	 * @param fileName
+	 * @throws IOException
+	 */
+	public void writeResults(String fileName) throws IOException {
+		FileWriter writer = new FileWriter(fileName);
+		try {
+			for (String line : results) {
+				writer.write(line + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+}
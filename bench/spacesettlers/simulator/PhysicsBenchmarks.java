@@ -0,0 +1,207 @@
+package spacesettlers.simulator;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Ship;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.utilities.Position;
+import spacesettlers.utilities.Vector2D;
+
+/**
+ * Benchmarks for the physics hot paths in Toroidal2DPhysics, CollisionNarrowPhase and CollisionHandler.  Each
+ * benchmark gets a freshly made world (asteroids plus one ship for every 10 objects) that
+ * is created from the random seed in the config so every run measures the same world.
+ *
+ * @author amy
+ */
+public class PhysicsBenchmarks {
+	/**
+	 * Number of random positions used for the distance and path queries
+	 */
+	static final int NUM_QUERY_POSITIONS = 1024;
+
+	/**
+	 * Used for the size, time step and random seed of the worlds
+	 */
+	SpaceSettlersConfig simConfig;
+
+	/**
+	 * Random positions for the distance and path queries
+	 */
+	Position[] queryPositions;
+
+	/**
+	 * Make the physics benchmarks for the specified config
+	 *
+	 * @param simConfig
+	 */
+	public PhysicsBenchmarks(SpaceSettlersConfig simConfig) {
+		this.simConfig = simConfig;
+
+		Random random = new Random(simConfig.getRandomSeed());
+		queryPositions = new Position[NUM_QUERY_POSITIONS];
+		for (int i = 0; i < NUM_QUERY_POSITIONS; i++) {
+			queryPositions[i] = new Position(random.nextDouble() * simConfig.getWidth(),
+					random.nextDouble() * simConfig.getHeight());
+		}
+	}
+
+	/**
+	 * Make a world with the specified number of objects.  The same number of objects
+	 * always makes the same world.
+	 *
+	 * @param numObjects
+	 * @return
+	 */
+	Toroidal2DPhysics createWorld(int numObjects) {
+		Random random = new Random(simConfig.getRandomSeed() + numObjects);
+		Toroidal2DPhysics space = new Toroidal2DPhysics(simConfig);
+
+		int numShips = Math.max(1, numObjects / 10);
+		for (int i = 0; i < numShips; i++) {
+			Position location = space.getRandomFreeLocation(random, Ship.SHIP_RADIUS);
+			space.addObject(new Ship("BenchmarkTeam", Color.WHITE, location));
+		}
+
+		double maxVelocity = simConfig.getRandomAsteroids().getMaxInitialVelocity();
+		for (int i = numShips; i < numObjects; i++) {
+			int radius = random.nextInt(Asteroid.MAX_ASTEROID_RADIUS - Asteroid.MIN_ASTEROID_RADIUS) + Asteroid.MIN_ASTEROID_RADIUS;
+			boolean mineable = random.nextBoolean();
+			boolean moveable = random.nextBoolean();
+			Position location = space.getRandomFreeLocation(random, radius);
+			Asteroid asteroid = new Asteroid(location, mineable, radius, moveable, 0.2, 0.5, 0.3);
+			if (moveable) {
+				asteroid.getPosition().setTranslationalVelocity(Vector2D.getRandom(random, maxVelocity));
+			}
+			space.addObject(asteroid);
+		}
+
+		return space;
+	}
+
+	/**
+	 * Run all of the physics benchmarks for a world of the specified size
+	 *
+	 * @param runner
+	 * @param numObjects
+	 * @throws Exception
+	 */
+	public void run(BenchmarkRunner runner, int numObjects) throws Exception {
+		final Toroidal2DPhysics advancingSpace = createWorld(numObjects);
+		final Map<UUID, SpaceSettlersPowerupEnum> noPowerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+		runner.measure("Toroidal2DPhysics.advanceTime", numObjects, 0, new BenchmarkRunner.Operation() {
+			int timestep = 0;
+			public Object run() {
+				advancingSpace.advanceTime(timestep++, noPowerups);
+				return null;
+			}
+		});
+
+		final Toroidal2DPhysics gridSpace = createWorld(numObjects);
+		runner.measure("Toroidal2DPhysics.detectCollisions", numObjects, 0, new BenchmarkRunner.Operation() {
+			public Object run() {
+				gridSpace.detectCollisions();
+				return null;
+			}
+		});
+
+		final Toroidal2DPhysics pairwiseSpace = createWorld(numObjects);
+		pairwiseSpace.setPairwiseCollisionDetection(true);
+		runner.measure("Toroidal2DPhysics.detectCollisions(pairwise)", numObjects, 0, new BenchmarkRunner.Operation() {
+			public Object run() {
+				pairwiseSpace.detectCollisions();
+				return null;
+			}
+		});
+
+		final Toroidal2DPhysics space = createWorld(numObjects);
+		runner.measure("Toroidal2DPhysics.findShortestDistanceVector", numObjects, 0, new BenchmarkRunner.Operation() {
+			int index = 0;
+			public Object run() {
+				index = (index + 1) % NUM_QUERY_POSITIONS;
+				return space.findShortestDistanceVector(queryPositions[index], queryPositions[NUM_QUERY_POSITIONS - 1 - index]);
+			}
+		});
+
+		runner.measure("Toroidal2DPhysics.deepClone", numObjects, 0, new BenchmarkRunner.Operation() {
+			public Object run() {
+				return space.deepClone();
+			}
+		});
+
+		// the narrow phase against the distance comparison it replaced, cycling through every pair of objects
+		final AbstractObject[] objects = space.getAllObjects().toArray(new AbstractObject[0]);
+		final CollisionNarrowPhase narrowPhase = new CollisionNarrowPhase(simConfig.getWidth(), simConfig.getHeight());
+		runner.measure("CollisionNarrowPhase.isColliding", numObjects, 0, new BenchmarkRunner.Operation() {
+			int first = 0, second = 0;
+			public Object run() {
+				if (++second == objects.length) {
+					second = 0;
+					first = (first + 1) % objects.length;
+				}
+				return narrowPhase.isColliding(objects[first], objects[second]);
+			}
+		});
+
+		runner.measure("CollisionNarrowPhase.isColliding(distance)", numObjects, 0, new BenchmarkRunner.Operation() {
+			int first = 0, second = 0;
+			public Object run() {
+				if (++second == objects.length) {
+					second = 0;
+					first = (first + 1) % objects.length;
+				}
+				return objects[first] != objects[second] && space.findShortestDistance(objects[first].getPosition(),
+						objects[second].getPosition()) < objects[first].getRadius() + objects[second].getRadius();
+			}
+		});
+
+		final Set<AbstractObject> obstructions = new HashSet<AbstractObject>(space.getAsteroids());
+		runner.measure("Toroidal2DPhysics.isPathClearOfObstructions", numObjects, 0, new BenchmarkRunner.Operation() {
+			int index = 0;
+			public Object run() {
+				index = (index + 1) % NUM_QUERY_POSITIONS;
+				return space.isPathClearOfObstructions(queryPositions[index],
+						queryPositions[NUM_QUERY_POSITIONS - 1 - index], obstructions, Ship.SHIP_RADIUS * 2);
+			}
+		});
+	}
+
+	/**
+	 * Benchmark an elastic collision between two asteroids (the positions are reset each
+	 * time so every call does the same work).  This only depends on the two objects
+	 * so it is run once rather than for every world size.
+	 *
+	 * @param runner
+	 * @throws Exception
+	 */
+	public void runCollisionBenchmark(BenchmarkRunner runner) throws Exception {
+		final Toroidal2DPhysics space = new Toroidal2DPhysics(simConfig);
+		final CollisionHandler handler = new CollisionHandler();
+		final Asteroid asteroid1 = new Asteroid(new Position(100, 100), false, 10, true, 0.2, 0.5, 0.3);
+		final Asteroid asteroid2 = new Asteroid(new Position(115, 100), false, 10, true, 0.2, 0.5, 0.3);
+		final Position start1 = new Position(100, 100);
+		start1.setTranslationalVelocity(new Vector2D(10, 0));
+		final Position start2 = new Position(115, 100);
+		start2.setTranslationalVelocity(new Vector2D(-10, 0));
+		space.addObject(asteroid1);
+		space.addObject(asteroid2);
+
+		runner.measure("CollisionHandler.collide", 2, 0, new BenchmarkRunner.Operation() {
+			public Object run() {
+				asteroid1.setPosition(start1.deepCopy());
+				asteroid2.setPosition(start2.deepCopy());
+				handler.collide(asteroid1, asteroid2, space);
+				return null;
+			}
+		});
+	}
+}
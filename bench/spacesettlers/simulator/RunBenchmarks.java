@@ -0,0 +1,170 @@
+package spacesettlers.simulator;
+
+import java.io.IOException;
+
+import spacesettlers.configs.SpaceSettlersConfig;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+
+/**
+ * Runs the benchmarks for the physics and simulator hot paths (ant benchmark).  The number of
+ * objects and teams to measure are given as comma separated lists on the command line and the
+ * random seed comes from the simulator config file so every run measures the same worlds.
+ *
+ * @author amy
+ */
+public class RunBenchmarks {
+	JSAPResult config;
+
+	/**
+	 * Parse the command line arguments.  If they fail to parse, this will die
+	 * before moving on.
+	 * @param args
+	 */
+	public RunBenchmarks(String[] args) {
+		SimpleJSAP parser = initializeParser();
+		config = parser.parse(args);
+		if (parser.messagePrinted()) {
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Initialize the parser with all of the command line arguments
+	 * @return
+	 */
+	private SimpleJSAP initializeParser() {
+		SimpleJSAP parser = null;
+
+		try {
+			parser = new SimpleJSAP(
+					"Benchmarks",
+					"Benchmarks for the Space Settlers simulator",
+					new Parameter[] {
+						new FlaggedOption("simulatorConfigFile",
+								JSAP.STRING_PARSER, null, JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "simulatorConfigFile",
+								"configuration file for the simulator (xml)"),
+						new FlaggedOption("configPath",
+								JSAP.STRING_PARSER, null, JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "configPath",
+								"path to the configuration files"),
+						new FlaggedOption("objects",
+								JSAP.STRING_PARSER, "50,200,800", JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "objects",
+								"comma separated list of the number of objects in the worlds"),
+						new FlaggedOption("teams",
+								JSAP.STRING_PARSER, "1,2,4", JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "teams",
+								"comma separated list of the number of teams for the simulator benchmark"),
+						new FlaggedOption("warmupIterations",
+								JSAP.INTEGER_PARSER, "3", JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "warmupIterations",
+								"number of untimed iterations before measuring"),
+						new FlaggedOption("iterations",
+								JSAP.INTEGER_PARSER, "5", JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "iterations",
+								"number of timed iterations"),
+						new FlaggedOption("iterationMillis",
+								JSAP.INTEGER_PARSER, "1000", JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "iterationMillis",
+								"length of each iteration in milliseconds"),
+						new FlaggedOption("turbo",
+								JSAP.BOOLEAN_PARSER, "false", JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "turbo",
+								"boolean stating if the simulator benchmark uses turbo mode (true) or not (false)"),
+						new FlaggedOption("outputFile",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "outputFile",
+								"optional file to write the results to (csv)"),
+					});
+		} catch (JSAPException e) {
+			e.printStackTrace();
+			System.err.println("Error in the parser - exiting");
+			System.exit(-1);
+		}
+		return parser;
+	}
+
+	/**
+	 * Turn a comma separated list into numbers
+	 * @param list
+	 * @return
+	 */
+	private int[] parseList(String list) {
+		String[] values = list.split(",");
+		int[] numbers = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			numbers[i] = Integer.parseInt(values[i].trim());
+		}
+		return numbers;
+	}
+
+	/**
+	 * Run all of the benchmarks
+	 * @throws Exception
+	 */
+	public void run() throws Exception {
+		// the simulator needs its own command line arguments (graphics and debug are always off)
+		RunSimulator runSim = new RunSimulator(new String[] {
+				"--configPath", config.getString("configPath"),
+				"--simulatorConfigFile", config.getString("simulatorConfigFile"),
+				"--turbo", Boolean.toString(config.getBoolean("turbo"))});
+
+		SimulatorBenchmarks simulatorBenchmarks = new SimulatorBenchmarks(runSim.config);
+		SpaceSettlersConfig simConfig = simulatorBenchmarks.loadConfig();
+		if (simConfig.getRandomSeed() == 0) {
+			System.out.println("Warning: the random seed in the config is 0 so the simulator worlds will change from run to run");
+		}
+
+		PhysicsBenchmarks physicsBenchmarks = new PhysicsBenchmarks(simConfig);
+		BenchmarkRunner runner = new BenchmarkRunner(config.getInt("warmupIterations"),
+				config.getInt("iterations"), config.getInt("iterationMillis"));
+
+		int[] objectCounts = parseList(config.getString("objects"));
+		int[] teamCounts = parseList(config.getString("teams"));
+
+		// the simulator prints a lot while it is set up so the results are printed again at the end
+		runner.printHeader();
+		physicsBenchmarks.runCollisionBenchmark(runner);
+		for (int numObjects : objectCounts) {
+			physicsBenchmarks.run(runner, numObjects);
+		}
+		for (int numObjects : objectCounts) {
+			for (int numTeams : teamCounts) {
+				simulatorBenchmarks.run(runner, numObjects, numTeams);
+			}
+		}
+
+		System.out.println();
+		for (String line : runner.results) {
+			System.out.println(line);
+		}
+
+		if (config.getString("outputFile") != null) {
+			try {
+				runner.writeResults(config.getString("outputFile"));
+			} catch (IOException e) {
+				System.err.println("Error writing the benchmark results to " + config.getString("outputFile"));
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Run the benchmarks
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		RunBenchmarks benchmarks = new RunBenchmarks(args);
+		benchmarks.run();
+		System.exit(0);
+	}
+}
@@ -0,0 +1,96 @@
+package spacesettlers.simulator;
+
+import java.io.File;
+import java.util.Arrays;
+
+import spacesettlers.configs.BaseConfig;
+import spacesettlers.configs.FixedAsteroidConfig;
+import spacesettlers.configs.FlagConfig;
+import spacesettlers.configs.HighLevelTeamConfig;
+import spacesettlers.configs.RandomAsteroidConfig;
+import spacesettlers.configs.SpaceSettlersConfig;
+
+import com.martiansoftware.jsap.JSAPResult;
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Benchmark for a full step of the simulator (all of the team calls, the physics, purchases,
+ * respawning and scoring).  The world is made from the benchmark config with the number of
+ * asteroids and the number of teams changed for each run.
+ *
+ * @author amy
+ */
+public class SimulatorBenchmarks {
+	/**
+	 * Command line arguments for the simulator (graphics, debug, config path, ...)
+	 */
+	JSAPResult parserConfig;
+
+	/**
+	 * Make the simulator benchmarks
+	 *
+	 * @param parserConfig the simulator command line arguments
+	 */
+	public SimulatorBenchmarks(JSAPResult parserConfig) {
+		this.parserConfig = parserConfig;
+	}
+
+	/**
+	 * Load in the simulator config file (a new copy each time since the benchmarks change it)
+	 *
+	 * @return
+	 * @throws SimulatorException
+	 */
+	public SpaceSettlersConfig loadConfig() throws SimulatorException {
+		String configFile = parserConfig.getString("configPath") + parserConfig.getString("simulatorConfigFile");
+
+		XStream xstream = new XStream();
+		xstream.alias("SpaceSettlersConfig", SpaceSettlersConfig.class);
+		xstream.alias("HighLevelTeamConfig", HighLevelTeamConfig.class);
+		xstream.alias("BaseConfig", BaseConfig.class);
+		xstream.alias("AsteroidConfig", RandomAsteroidConfig.class);
+		xstream.alias("FixedAsteroidConfig", FixedAsteroidConfig.class);
+		xstream.alias("FlagConfig", FlagConfig.class);
+
+		try {
+			return (SpaceSettlersConfig) xstream.fromXML(new File(configFile));
+		} catch (Exception e) {
+			throw new SimulatorException("Error parsing config file at string " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Benchmark SpaceSettlersSimulator.advanceTime with the specified number of asteroids and teams
+	 *
+	 * @param runner
+	 * @param numObjects number of asteroids at the start of the game
+	 * @param numTeams number of teams (the first ones in the config file are used)
+	 * @throws Exception
+	 */
+	public void run(BenchmarkRunner runner, int numObjects, int numTeams) throws Exception {
+		SpaceSettlersConfig simConfig = loadConfig();
+		if (numTeams > simConfig.getTeams().length || numTeams > simConfig.getBases().length) {
+			System.out.println("Skipping " + numTeams + " teams: the benchmark config only has " +
+					simConfig.getTeams().length + " teams");
+			return;
+		}
+
+		simConfig.setTeams(Arrays.copyOf(simConfig.getTeams(), numTeams));
+		simConfig.setBases(Arrays.copyOf(simConfig.getBases(), numTeams));
+		simConfig.getRandomAsteroids().setNumberInitialAsteroids(numObjects);
+		simConfig.getRandomAsteroids().setMaximumNumberAsteroids(numObjects);
+
+		final SpaceSettlersSimulator simulator = new SpaceSettlersSimulator(simConfig, parserConfig);
+		try {
+			runner.measure("SpaceSettlersSimulator.advanceTime", numObjects, numTeams, new BenchmarkRunner.Operation() {
+				public Object run() {
+					simulator.advanceTime();
+					simulator.timestep++;
+					return null;
+				}
+			});
+		} finally {
+			simulator.shutdownTeams();
+		}
+	}
+}
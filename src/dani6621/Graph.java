@@ -10,7 +10,8 @@ import java.util.*;
  * path cost calculations that the A* algorithm 
  * utilizes. For now, the graph is implemented 
  * as an undirected, but it DOES have weights. The 
- * weights will NOT be negative
+ * weights will NOT be negative. One way edges can
+ * be added with <code>addDirectedEdge</code>.
  */
 public class Graph<K, V> {
 	
@@ -174,6 +175,60 @@ public class Graph<K, V> {
 		graph.get(endKey).edges.add(new Edge(startVertex, weight));
 	}
 	
+	/**
+	 * Function will add an <code>Edge</code> that only goes from
+	 * the start vertex to the end vertex
+	 * 
+	 * @param startKey the key to the start vertex
+	 * @param endKey the key to the end vertex
+	 * @param weight the weight of the edge
+	 */
+	public void addDirectedEdge(K startKey, K endKey, int weight) {
+		graph.get(startKey).edges.add(new Edge(graph.get(endKey), weight));
+	}
+	
+	/**
+	 * Function will remove the <code>Edge</code> from the start
+	 * vertex to the end vertex (the edge back, if any, is kept)
+	 * 
+	 * @param startKey the key to the start vertex
+	 * @param endKey the key to the end vertex
+	 */
+	public void removeEdge(K startKey, K endKey) {
+		Vertex endVertex = graph.get(endKey);
+		Iterator<Edge> iterator = graph.get(startKey).edges.iterator();
+		
+		while(iterator.hasNext()) {
+			if(iterator.next().endVertex == endVertex) { // Check if reference is same
+				iterator.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Function will remove every <code>Edge</code> connected to the
+	 * vertex specified by the key. Since the graph is undirected the
+	 * edges pointing back at the vertex are removed as well.
+	 * 
+	 * @param key the key to the vertex whose edges are removed
+	 */
+	public void removeEdges(K key) {
+		Vertex vertex = graph.get(key);
+		
+		// Remove the edge on the other end first
+		for(Edge edge : vertex.edges) {
+			if(edge.endVertex == vertex) // Self connection is cleared below
+				continue;
+			Iterator<Edge> iterator = edge.endVertex.edges.iterator();
+			while(iterator.hasNext()) {
+				if(iterator.next().endVertex == vertex) { // Check if reference is same
+					iterator.remove();
+				}
+			}
+		}
+		vertex.edges.clear();
+	}
+	
 	/**
 	 * Function will retrieve edges from vertex specified 
 	 * by the key
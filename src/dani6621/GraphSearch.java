@@ -197,59 +197,80 @@ public class GraphSearch {
 	 * 										a multitude of reasons
 	 */
 	public Stack<GraphSearchNode> aStarSearch(Toroidal2DPhysics space, Set<AbstractObject> obstacles) throws SearchFailureException {
-		Set<GraphSearchNode> closed = new HashSet<GraphSearchNode>(); // Set of explored nodes
-		Map<GraphSearchNode, Integer> costMap = new HashMap<GraphSearchNode, Integer>(); // Access cost in O(1)
-		Queue<GraphSearchNode> open = new PriorityQueue<GraphSearchNode>(new Comparator<GraphSearchNode>() {
-			@Override
-			public int compare(GraphSearchNode nodeOne, GraphSearchNode nodeTwo) {
-				return Integer.compare(nodeOne.fCost, nodeTwo.fCost);
-			}
-		});
+		map.update(space, obstacles); // Only changes the map around obstacles that moved
 		
-		map.setObstacles(obstacles);
+		// Search runs on the grid arrays of the map (see 'GridSearchEngine')
+		GridSearchEngine engine = map.getSearchEngine();
+		int foundIndex = engine.aStarSearch(map, map.getVertexIndex(initialNode.node), 
+				map.getVertexIndex(goalNode.node), WITHIN_SUFFICIENT_RANGE, MAX_SEARCH_LIMIT);
 		
-		GraphSearchNode currentNode; // Reference to node that was just popped from queue
-		GraphSearchNode newNode; // Reference to potenial neighbor nodes
-		List<Graph<NavigationVertexKey, NavigationVertex>.Edge> neighbors; // List containing neighbors of node
-		int tentativeGScore = 0; // Hold the potenial cost of node, in case better path is found
-		int searchLimit = 0;
+		if(foundIndex < 0)
+			throw new SearchFailureException("Error, A* search failed! The open set became empty!");
+		return generatePath(engine, foundIndex); // Retrace path and return it
+	}
+	
+	
+	/**
+	 * Function will look for a path through the start vertex to the same goal
+	 * vertex found by an earlier search (possibly by another ship sharing the map)
+	 * that is still clear of the obstacles. 
+	 * 
+	 * @param space	a reference to space
+	 * @param obstacles the obstacles the path should avoid
+	 * @return a Stack of GraphSearchNode which can generate a path, or <code>null</code> if 
+	 * 			there is no such path and a search is needed
+	 */
+	public Stack<GraphSearchNode> findCachedPath(Toroidal2DPhysics space, Set<AbstractObject> obstacles) {
+		map.update(space, obstacles); // Drops the connections the obstacles changed
 		
-		open.add(initialNode); // Insert start node into open queue
-		costMap.put(initialNode, initialNode.gCost); // Put cost so far
-		while(!(open.isEmpty()) && searchLimit < MAX_SEARCH_LIMIT) { // Continue until open queue is empty
-			currentNode = open.poll(); // Remove lowest 'fCost' node from queue
-			
-			if(currentNode.equals(goalNode) || 
-					space.findShortestDistance(currentNode.node.position, goalNode.node.position) < WITHIN_SUFFICIENT_RANGE) 
-				return generatePath(currentNode); // Recursivly generate path and return it
-			
-			closed.add(currentNode); // Add node to the explored set
-			map.formConnections(map.getNavigationVertexKey(currentNode.node)); // Generate connections as needed
-			neighbors = map.getNeighbors(currentNode.node); // Get neighbors of current node
-			
-			// Iterate through each neighbor of the current node
-			for(Graph<NavigationVertexKey, NavigationVertex>.Edge edge : neighbors) {
-				newNode = new GraphSearchNode(edge.endVertex.data); // Create new graph search node
-				if(closed.contains(newNode)) // Skip nodes that have been explored
-					continue;
-				tentativeGScore = currentNode.gCost + 
-								map.calculateCost(currentNode.node, newNode.node); // Calculate path cost
-				if(!(open.contains(newNode))) {
-					newNode.parent = currentNode;
-					newNode.gCost = tentativeGScore;
-					newNode.hCost = map.calculateHeuristic(newNode.node, goalNode.node);
-					newNode.fCost = newNode.hCost + newNode.gCost;
-					costMap.put(newNode, newNode.gCost);
-					open.add(newNode);
-				}
-				else if(tentativeGScore >= costMap.get(newNode)) // Path cost is NOT better
-					continue;
-			}
-			++searchLimit;
+		int[] vertexPath = map.getPathCache().get(map.getVertexIndex(initialNode.node), 
+				map.getVertexIndex(goalNode.node));
+		
+		if(vertexPath == null)
+			return null;
+		return generatePath(vertexPath);
+	}
+	
+	/**
+	 * Function will remember a path found by this search so other searches 
+	 * from any vertex on it to the same goal vertex can use it
+	 * 
+	 * @param path the path found (must be called before the map is updated again)
+	 */
+	public void cachePath(Stack<GraphSearchNode> path) {
+		if(path.isEmpty()) // Nothing worth remembering
+			return;
+		
+		// Top of the stack is the first step after the initial node
+		int[] vertexPath = new int[path.size() + 1];
+		vertexPath[0] = map.getVertexIndex(initialNode.node);
+		for(int i = 1; i < vertexPath.length; ++i) {
+			vertexPath[i] = map.getVertexIndex(path.get(path.size() - i).node);
 		}
-		throw new SearchFailureException("Error, A* search failed! The open set became empty!");
+		map.getPathCache().put(map.getVertexIndex(goalNode.node), vertexPath);
 	}
 	
+	/**
+	 * Function will search for a solution (i.e a path) using the hierarchical
+	 * search (see 'HierarchicalSearchEngine'). It expands far fewer nodes than
+	 * 'aStarSearch' on long trips, but the path may be a little longer.
+	 * 
+	 * @param space	a reference to space
+	 * @param obstacles the obstacles the search should avoid
+	 * @return a Stack of GraphSearchNode which can generate a path
+	 * @throws SearchFailureException any instance where the search fails due to
+	 * 										a multitude of reasons
+	 */
+	public Stack<GraphSearchNode> hierarchicalSearch(Toroidal2DPhysics space, Set<AbstractObject> obstacles) throws SearchFailureException {
+		map.update(space, obstacles); // Only changes the map around obstacles that moved
+		
+		int[] vertexPath = map.getHierarchicalSearchEngine().search(map.getVertexIndex(initialNode.node), 
+				map.getVertexIndex(goalNode.node));
+		
+		if(vertexPath == null)
+			throw new SearchFailureException("Error, hierarchical search failed! No portals lead to the goal!");
+		return generatePath(vertexPath);
+	}
 	
 	/**
 	 * Function will search for a solution (i.e a path) given the data members. Method is
@@ -302,6 +323,67 @@ public class GraphSearch {
 		throw new SearchFailureException("Error, Greedy Best First search failed! The open set became empty!");
 	}
 	
+	/**
+	 * Function acts as a helper when the grid search completes. It will take
+	 * the vertex the search ended at (i.e goal) and retrace the path to the
+	 * initial node using the parents the search recorded
+	 * 
+	 * @param engine the search that found the path
+	 * @param index the vertex the search ended at
+	 * @return a path of nodes starting with initial node at top of stack
+	 */
+	private Stack<GraphSearchNode> generatePath(GridSearchEngine engine, int index) {
+		Stack<GraphSearchNode> path = new Stack<GraphSearchNode>();
+		GraphSearchNode childNode = null;
+		GraphSearchNode currentNode;
+		int currentIndex = index;
+		
+		// Iterate until the initial vertex (which isn't part of the path)
+		while(engine.getParent(currentIndex) >= 0) {
+			currentNode = new GraphSearchNode(map.getVertex(currentIndex));
+			currentNode.gCost = engine.getGCost(currentIndex);
+			currentNode.hCost = engine.getHCost(currentIndex);
+			currentNode.fCost = currentNode.gCost + currentNode.hCost;
+			if(childNode != null)
+				childNode.parent = currentNode;
+			path.push(currentNode);
+			childNode = currentNode;
+			currentIndex = engine.getParent(currentIndex);
+		}
+		if(childNode != null)
+			childNode.parent = initialNode;
+		return path;
+	}
+	
+	/**
+	 * Function acts as a helper when the hierarchical search completes. It 
+	 * will turn the vertices of the path into <code>GraphSearchNode</code> 
+	 * objects linked back to the initial node
+	 * 
+	 * @param vertexPath the vertices of the path starting with the initial node
+	 * @return a path of nodes starting with initial node at top of stack
+	 */
+	private Stack<GraphSearchNode> generatePath(int[] vertexPath) {
+		Stack<GraphSearchNode> path = new Stack<GraphSearchNode>();
+		GraphSearchNode[] nodes = new GraphSearchNode[vertexPath.length];
+		int goalIndex = vertexPath[vertexPath.length - 1];
+		
+		nodes[0] = initialNode;
+		for(int i = 1; i < vertexPath.length; ++i) {
+			nodes[i] = new GraphSearchNode(map.getVertex(vertexPath[i]));
+			nodes[i].parent = nodes[i - 1];
+			nodes[i].gCost = nodes[i - 1].gCost + map.calculateHeuristic(vertexPath[i - 1], vertexPath[i]);
+			nodes[i].hCost = map.calculateHeuristic(vertexPath[i], goalIndex);
+			nodes[i].fCost = nodes[i].gCost + nodes[i].hCost;
+		}
+		
+		// Push goal first so the initial node's successor is on top
+		for(int i = vertexPath.length - 1; i > 0; --i) {
+			path.push(nodes[i]);
+		}
+		return path;
+	}
+	
 	/**
 	 * Function acts as a helper when search function completes search. It
 	 * will take a given <code>GraphSearchNode</code> (i.e goal node) and retrace
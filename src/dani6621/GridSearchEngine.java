@@ -0,0 +1,256 @@
+package dani6621;
+
+import java.util.Arrays;
+
+/**
+ * A* search over the grid of a <code>NavigationMap</code>. Everything the
+ * search keeps track of is stored in flat arrays indexed by vertex and the
+ * open set is an indexed binary heap (so a better path to an open vertex
+ * just moves it up the heap). The arrays are created once for the map and
+ * reused by every search, a stamp tells which entries belong to the current
+ * search, so expanding a vertex doesn't create any objects.
+ *
+ * Like the map it belongs to, it is NOT thread safe.
+ */
+class GridSearchEngine {
+
+	/**
+	 * Cost to each vertex so far
+	 */
+	private final int[] gCost;
+	
+	/**
+	 * Heuristic cost of each vertex
+	 */
+	private final int[] hCost;
+	
+	/**
+	 * The vertex each vertex was reached from (-1 for the start)
+	 */
+	private final int[] parent;
+	
+	/**
+	 * Stamp of the search that last reached and closed each vertex
+	 */
+	private final int[] reachedStamp;
+	private final int[] closedStamp;
+	
+	/**
+	 * The open set as a binary heap of vertices ordered by total cost
+	 */
+	private final int[] heap;
+	
+	/**
+	 * Where each vertex is in the heap (only valid for open vertices)
+	 */
+	private final int[] heapPosition;
+	
+	/**
+	 * Number of vertices in the heap
+	 */
+	private int heapSize;
+	
+	/**
+	 * Stamp of the current search
+	 */
+	private int stamp;
+	
+	/**
+	 * Creates the arrays for a map
+	 *
+	 * @param vertexCount the number of vertices in the map
+	 */
+	GridSearchEngine(int vertexCount) {
+		gCost = new int[vertexCount];
+		hCost = new int[vertexCount];
+		parent = new int[vertexCount];
+		reachedStamp = new int[vertexCount];
+		closedStamp = new int[vertexCount];
+		heap = new int[vertexCount];
+		heapPosition = new int[vertexCount];
+		stamp = 0;
+	}
+	
+	/**
+	 * Function will search for a path using f(n) = g(n) + h(n) as cost. The
+	 * connections of a vertex are formed when it is expanded, the same as the
+	 * graph search did.
+	 *
+	 * @param map the map to search
+	 * @param startIndex the index of the start vertex
+	 * @param goalIndex the index of the goal vertex
+	 * @param sufficientRange the search ends at any vertex closer than this to the goal
+	 * @param expansionLimit the number of vertices that can be expanded before giving up
+	 * @return the index of the vertex the search ended at, or -1 if the search failed
+	 */
+	int aStarSearch(NavigationMap map, int startIndex, int goalIndex, double sufficientRange, int expansionLimit) {
+		int currentIndex; // Vertex that was just removed from the heap
+		int neighborIndex; // Potential neighbor vertex
+		int tentativeGScore; // Potential cost of neighbor, in case better path is found
+		int expansions = 0;
+		
+		if(++stamp == 0) { // Stamps wrapped around, start over so old entries can't match
+			Arrays.fill(reachedStamp, 0);
+			Arrays.fill(closedStamp, 0);
+			stamp = 1;
+		}
+		heapSize = 0;
+		
+		reach(startIndex, -1, 0, map.calculateHeuristic(startIndex, goalIndex));
+		while(heapSize > 0 && expansions < expansionLimit) {
+			currentIndex = poll();
+			
+			if(currentIndex == goalIndex || map.calculateDistance(currentIndex, goalIndex) < sufficientRange)
+				return currentIndex;
+			
+			closedStamp[currentIndex] = stamp; // Add vertex to the explored set
+			map.formConnections(currentIndex); // Generate connections as needed
+			
+			for(int direction = 0; direction < NavigationMap.DIRECTIONS; ++direction) {
+				if(!(map.isConnected(currentIndex, direction)))
+					continue;
+				neighborIndex = map.getNeighborIndex(currentIndex, direction);
+				if(closedStamp[neighborIndex] == stamp) // Skip vertices that have been explored
+					continue;
+				
+				tentativeGScore = gCost[currentIndex] + map.getConnectionWeight(currentIndex, direction);
+				if(reachedStamp[neighborIndex] != stamp) {
+					reach(neighborIndex, currentIndex, tentativeGScore, map.calculateHeuristic(neighborIndex, goalIndex));
+				}
+				else if(tentativeGScore < gCost[neighborIndex]) { // Better path to open vertex
+					gCost[neighborIndex] = tentativeGScore;
+					parent[neighborIndex] = currentIndex;
+					siftUp(heapPosition[neighborIndex]);
+				}
+			}
+			++expansions;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Function retrieves the vertex the vertex was reached from by the
+	 * last search
+	 *
+	 * @param index the index of the vertex
+	 * @return the index of the parent, -1 for the start vertex
+	 */
+	int getParent(int index) {
+		return parent[index];
+	}
+	
+	/**
+	 * Function retrieves the cost to the vertex found by the last search
+	 *
+	 * @param index the index of the vertex
+	 * @return the cost to the vertex
+	 */
+	int getGCost(int index) {
+		return gCost[index];
+	}
+	
+	/**
+	 * Function retrieves the heuristic cost of the vertex in the last search
+	 *
+	 * @param index the index of the vertex
+	 * @return the heuristic cost of the vertex
+	 */
+	int getHCost(int index) {
+		return hCost[index];
+	}
+	
+	/**
+	 * Function will add a vertex reached for the first time to the open set
+	 *
+	 * @param index the index of the vertex
+	 * @param parentIndex the vertex it was reached from
+	 * @param g the cost to the vertex
+	 * @param h the heuristic cost of the vertex
+	 */
+	private void reach(int index, int parentIndex, int g, int h) {
+		reachedStamp[index] = stamp;
+		parent[index] = parentIndex;
+		gCost[index] = g;
+		hCost[index] = h;
+		heap[heapSize] = index;
+		heapPosition[index] = heapSize;
+		siftUp(heapSize++);
+	}
+	
+	/**
+	 * Function removes the lowest cost vertex from the open set
+	 *
+	 * @return the index of the vertex
+	 */
+	private int poll() {
+		int index = heap[0];
+		heap[0] = heap[--heapSize];
+		heapPosition[heap[0]] = 0;
+		siftDown(0);
+		return index;
+	}
+	
+	/**
+	 * Function moves the vertex at the heap position up until its
+	 * parent costs less
+	 *
+	 * @param position the position in the heap
+	 */
+	private void siftUp(int position) {
+		int index = heap[position];
+		int parentPosition;
+		
+		while(position > 0) {
+			parentPosition = (position - 1) / 2;
+			if(!(isBefore(index, heap[parentPosition])))
+				break;
+			heap[position] = heap[parentPosition];
+			heapPosition[heap[position]] = position;
+			position = parentPosition;
+		}
+		heap[position] = index;
+		heapPosition[index] = position;
+	}
+	
+	/**
+	 * Function moves the vertex at the heap position down until its
+	 * children cost more
+	 *
+	 * @param position the position in the heap
+	 */
+	private void siftDown(int position) {
+		int index = heap[position];
+		int childPosition;
+		
+		while((childPosition = position * 2 + 1) < heapSize) {
+			if(childPosition + 1 < heapSize && isBefore(heap[childPosition + 1], heap[childPosition]))
+				++childPosition;
+			if(!(isBefore(heap[childPosition], index)))
+				break;
+			heap[position] = heap[childPosition];
+			heapPosition[heap[position]] = position;
+			position = childPosition;
+		}
+		heap[position] = index;
+		heapPosition[index] = position;
+	}
+	
+	/**
+	 * Orders vertices by total cost, then by heuristic cost (closer to
+	 * the goal first), then by index so searches are repeatable
+	 *
+	 * @param indexOne the first vertex
+	 * @param indexTwo the second vertex
+	 * @return <code>true</code> if the first vertex comes first
+	 */
+	private boolean isBefore(int indexOne, int indexTwo) {
+		int fOne = gCost[indexOne] + hCost[indexOne];
+		int fTwo = gCost[indexTwo] + hCost[indexTwo];
+		
+		if(fOne != fTwo)
+			return fOne < fTwo;
+		if(hCost[indexOne] != hCost[indexTwo])
+			return hCost[indexOne] < hCost[indexTwo];
+		return indexOne < indexTwo;
+	}
+}
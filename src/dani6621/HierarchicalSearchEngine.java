@@ -0,0 +1,706 @@
+package dani6621;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical (HPA*-style) search over the grid of a <code>NavigationMap</code>
+ * for long trips. The grid is split into square clusters of vertices. Where two
+ * clusters touch, each run of connected vertex pairs across the border is an
+ * entrance and its middle pair (and both ends of long runs) becomes a transition.
+ * The vertices of the transitions are the portals of a cluster, and the cost
+ * between each pair of portals in a cluster is found once by searching inside
+ * the cluster.
+ *
+ * A search connects the start and goal to the portals of their clusters, runs
+ * A* over the portals only (a few per cluster instead of every vertex) and then
+ * fills in the vertices between portals with small searches inside a cluster.
+ * Paths can be slightly longer than the grid search finds.
+ *
+ * The map tells the engine which vertices lost their connections, and only
+ * those clusters (and the portals of the clusters next to them) are built
+ * again on the next search. Like the map, it is NOT thread safe.
+ */
+class HierarchicalSearchEngine {
+
+	/**
+	 * Number of vertices along each side of a cluster
+	 */
+	public static final int CLUSTER_SIZE = 8;
+	
+	/**
+	 * Trips shorter than this are left to the grid search
+	 */
+	public static final double LONG_TRIP_DISTANCE = CLUSTER_SIZE * NavigationMap.SPACING;
+	
+	/**
+	 * Entrances at least this long get a transition at each end
+	 * instead of one in the middle
+	 */
+	private static final int LONG_ENTRANCE = 6;
+	
+	/**
+	 * Directions that cross the border to the next cluster row
+	 * and the next cluster column
+	 */
+	private static final int NEXT_ROW_DIRECTION = 6;
+	private static final int NEXT_COLUMN_DIRECTION = 4;
+	
+	/**
+	 * The map the engine searches
+	 */
+	private final NavigationMap map;
+	
+	/**
+	 * Number of clusters along the rows and columns of the map
+	 */
+	private final int clusterRows;
+	private final int clusterColumns;
+	
+	/**
+	 * The cluster of each vertex and the vertices of each cluster
+	 */
+	private final int[] vertexCluster;
+	private final int[][] clusterVertices;
+	
+	/**
+	 * Flags clusters whose connections changed and clusters whose
+	 * portals may have changed since they were built
+	 */
+	private final boolean[] clusterChanged;
+	private final boolean[] portalsChanged;
+	
+	/**
+	 * Transitions on the border with the next cluster row and column,
+	 * stored as (vertex in cluster, vertex across border, weight) triples
+	 */
+	private final int[][] rowSideTransitions;
+	private final int[][] columnSideTransitions;
+	
+	/**
+	 * The portals of each cluster and the cost between each pair
+	 * of them (portal count squared, -1 if not reachable in the cluster)
+	 */
+	private final int[][] clusterPortals;
+	private final int[][] portalCost;
+	
+	/**
+	 * Position of each vertex in the portals of its cluster (-1 if
+	 * it isn't a portal)
+	 */
+	private final int[] portalIndex;
+	
+	/**
+	 * Search inside a cluster: costs, parents, stamps telling which
+	 * vertices were reached and finished by the current cluster search,
+	 * and the vertices reached but not finished
+	 */
+	private final int[] clusterCost;
+	private final int[] clusterParent;
+	private final int[] clusterReached;
+	private final int[] clusterDone;
+	private final int[] clusterFrontier;
+	private int clusterStamp;
+	
+	/**
+	 * Search over the portals: costs, parents, stamps, and the open list
+	 */
+	private final int[] portalG;
+	private final int[] portalParent;
+	private final int[] portalReached;
+	private final int[] portalClosed;
+	private final int[] openList;
+	private int openSize;
+	private int portalStamp;
+	
+	/**
+	 * Scratch space for collecting entrances and the path
+	 */
+	private final int[] scratch;
+	
+	/**
+	 * Creates the clusters for a map. Every cluster is built on the
+	 * first search.
+	 *
+	 * @param navigationMap the map to search
+	 */
+	HierarchicalSearchEngine(NavigationMap navigationMap) {
+		map = navigationMap;
+		clusterRows = (map.rowNodeNumber + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+		clusterColumns = (map.columnNodeNumber + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+		int clusterCount = clusterRows * clusterColumns;
+		int vertexCount = map.getVertexCount();
+		
+		vertexCluster = new int[vertexCount];
+		clusterVertices = new int[clusterCount][];
+		for(int clusterRow = 0; clusterRow < clusterRows; ++clusterRow) {
+			for(int clusterColumn = 0; clusterColumn < clusterColumns; ++clusterColumn) {
+				int cluster = clusterRow * clusterColumns + clusterColumn;
+				int rowEnd = Math.min((clusterRow + 1) * CLUSTER_SIZE, map.rowNodeNumber);
+				int columnEnd = Math.min((clusterColumn + 1) * CLUSTER_SIZE, map.columnNodeNumber);
+				int count = 0;
+				
+				clusterVertices[cluster] = new int[(rowEnd - clusterRow * CLUSTER_SIZE) * (columnEnd - clusterColumn * CLUSTER_SIZE)];
+				for(int row = clusterRow * CLUSTER_SIZE; row < rowEnd; ++row) {
+					for(int column = clusterColumn * CLUSTER_SIZE; column < columnEnd; ++column) {
+						vertexCluster[map.getVertexIndex(row, column)] = cluster;
+						clusterVertices[cluster][count++] = map.getVertexIndex(row, column);
+					}
+				}
+			}
+		}
+		
+		clusterChanged = new boolean[clusterCount];
+		portalsChanged = new boolean[clusterCount];
+		rowSideTransitions = new int[clusterCount][];
+		columnSideTransitions = new int[clusterCount][];
+		clusterPortals = new int[clusterCount][];
+		portalCost = new int[clusterCount][];
+		for(int cluster = 0; cluster < clusterCount; ++cluster) {
+			clusterChanged[cluster] = true;
+			rowSideTransitions[cluster] = new int[0];
+			columnSideTransitions[cluster] = new int[0];
+			clusterPortals[cluster] = new int[0];
+		}
+		
+		portalIndex = new int[vertexCount];
+		clusterCost = new int[vertexCount];
+		clusterParent = new int[vertexCount];
+		clusterReached = new int[vertexCount];
+		clusterDone = new int[vertexCount];
+		clusterFrontier = new int[vertexCount];
+		portalG = new int[vertexCount];
+		portalParent = new int[vertexCount];
+		portalReached = new int[vertexCount];
+		portalClosed = new int[vertexCount];
+		openList = new int[vertexCount];
+		scratch = new int[vertexCount];
+		for(int i = 0; i < vertexCount; ++i) {
+			portalIndex[i] = -1;
+		}
+	}
+	
+	/**
+	 * Function is called by the map when a vertex loses its connections
+	 *
+	 * @param index the index of the vertex
+	 */
+	void markChanged(int index) {
+		clusterChanged[vertexCluster[index]] = true;
+	}
+	
+	/**
+	 * Function will search for a path from the start to the goal
+	 *
+	 * @param startIndex the index of the start vertex
+	 * @param goalIndex the index of the goal vertex
+	 * @return the vertices of the path from start to goal, or <code>null</code>
+	 * 			if no path was found
+	 */
+	int[] search(int startIndex, int goalIndex) {
+		refresh();
+		
+		// Costs to the goal are found from the goal outward, which is only the same both ways when
+		// the goal isn't blocked (no connection can end at a blocked goal anyway)
+		if(map.isBlocked(goalIndex))
+			return null;
+		
+		int startCluster = vertexCluster[startIndex];
+		int goalCluster = vertexCluster[goalIndex];
+		int[] goalPortals = clusterPortals[goalCluster];
+		int[] startPortals = clusterPortals[startCluster];
+		int[] goalPortalCost = new int[goalPortals.length];
+		int[] startPortalCost = new int[startPortals.length];
+		int directCost = -1;
+		
+		// Connect goal and start to the portals of their clusters
+		searchCluster(goalIndex);
+		for(int i = 0; i < goalPortals.length; ++i) {
+			goalPortalCost[i] = costInCluster(goalPortals[i]);
+		}
+		searchCluster(startIndex);
+		for(int i = 0; i < startPortals.length; ++i) {
+			startPortalCost[i] = costInCluster(startPortals[i]);
+		}
+		if(startCluster == goalCluster)
+			directCost = costInCluster(goalIndex);
+		
+		// A* over the portals
+		nextPortalStamp();
+		openSize = 0;
+		open(startIndex, -1, 0);
+		int currentIndex;
+		while(openSize > 0) {
+			currentIndex = pollOpen(goalIndex);
+			if(currentIndex == goalIndex)
+				return generatePath(startIndex, goalIndex);
+			portalClosed[currentIndex] = portalStamp;
+			
+			if(currentIndex == startIndex) {
+				for(int i = 0; i < startPortals.length; ++i) {
+					if(startPortalCost[i] >= 0 && startPortals[i] != startIndex)
+						relax(currentIndex, startPortals[i], startPortalCost[i]);
+				}
+				if(directCost >= 0)
+					relax(currentIndex, goalIndex, directCost);
+			}
+			if(portalIndex[currentIndex] >= 0)
+				expandPortal(currentIndex, goalIndex, goalPortalCost);
+		}
+		return null;
+	}
+	
+	/**
+	 * Function will relax the neighbors of a portal: the other portals of its
+	 * cluster, the portals across the border, and the goal
+	 *
+	 * @param index the portal
+	 * @param goalIndex the index of the goal vertex
+	 * @param goalPortalCost the cost from each portal of the goal cluster to the goal
+	 */
+	private void expandPortal(int index, int goalIndex, int[] goalPortalCost) {
+		int cluster = vertexCluster[index];
+		int[] portals = clusterPortals[cluster];
+		int[] costs = portalCost[cluster];
+		int position = portalIndex[index];
+		
+		for(int i = 0; i < portals.length; ++i) {
+			if(i != position && costs[position * portals.length + i] >= 0)
+				relax(index, portals[i], costs[position * portals.length + i]);
+		}
+		if(cluster == vertexCluster[goalIndex] && goalPortalCost[position] >= 0)
+			relax(index, goalIndex, goalPortalCost[position]);
+		
+		// Transitions on the four borders of the cluster
+		relaxTransitions(index, rowSideTransitions[cluster]);
+		relaxTransitions(index, columnSideTransitions[cluster]);
+		relaxTransitions(index, rowSideTransitions[previousCluster(cluster, true)]);
+		relaxTransitions(index, columnSideTransitions[previousCluster(cluster, false)]);
+	}
+	
+	/**
+	 * Function will relax the other end of every transition the portal is on
+	 *
+	 * @param index the portal
+	 * @param transitions the transitions of one border
+	 */
+	private void relaxTransitions(int index, int[] transitions) {
+		for(int i = 0; i < transitions.length; i += 3) {
+			if(transitions[i] == index)
+				relax(index, transitions[i + 1], transitions[i + 2]);
+			else if(transitions[i + 1] == index)
+				relax(index, transitions[i], transitions[i + 2]);
+		}
+	}
+	
+	/**
+	 * Function will update the cost of a vertex if it is cheaper
+	 * to reach from the parent
+	 *
+	 * @param parentIndex the vertex being expanded
+	 * @param index the vertex reached
+	 * @param cost the cost from the parent to the vertex
+	 */
+	private void relax(int parentIndex, int index, int cost) {
+		if(portalClosed[index] == portalStamp)
+			return;
+		int g = portalG[parentIndex] + cost;
+		if(portalReached[index] != portalStamp) {
+			open(index, parentIndex, g);
+		}
+		else if(g < portalG[index]) {
+			portalG[index] = g;
+			portalParent[index] = parentIndex;
+		}
+	}
+	
+	/**
+	 * Function adds a vertex to the open list
+	 *
+	 * @param index the vertex
+	 * @param parentIndex the vertex it was reached from
+	 * @param g the cost to the vertex
+	 */
+	private void open(int index, int parentIndex, int g) {
+		portalReached[index] = portalStamp;
+		portalParent[index] = parentIndex;
+		portalG[index] = g;
+		openList[openSize++] = index;
+	}
+	
+	/**
+	 * Function removes the vertex with the lowest total cost from the
+	 * open list (there are only a few portals, so the list is scanned)
+	 *
+	 * @param goalIndex the goal used for the heuristic
+	 * @return the vertex removed
+	 */
+	private int pollOpen(int goalIndex) {
+		int best = 0;
+		int bestCost = Integer.MAX_VALUE;
+		int cost;
+		
+		for(int i = 0; i < openSize; ++i) {
+			cost = portalG[openList[i]] + map.calculateHeuristic(openList[i], goalIndex);
+			if(cost < bestCost || (cost == bestCost && openList[i] < openList[best])) {
+				best = i;
+				bestCost = cost;
+			}
+		}
+		int index = openList[best];
+		openList[best] = openList[--openSize];
+		return index;
+	}
+	
+	/**
+	 * Function will turn the portals of the search into the vertices of the
+	 * path by searching inside the cluster between portals
+	 *
+	 * @param startIndex the start vertex
+	 * @param goalIndex the goal vertex
+	 * @return the vertices of the path from start to goal, or <code>null</code>
+	 * 			if a part of the path couldn't be filled in
+	 */
+	private int[] generatePath(int startIndex, int goalIndex) {
+		// Portals from goal back to start
+		int portalCount = 0;
+		for(int index = goalIndex; index != -1; index = portalParent[index]) {
+			scratch[portalCount++] = index;
+		}
+		int[] portals = new int[portalCount];
+		for(int i = 0; i < portalCount; ++i) {
+			portals[i] = scratch[portalCount - 1 - i];
+		}
+		
+		int pathLength = 0;
+		int[] path = new int[map.getVertexCount()];
+		path[pathLength++] = startIndex;
+		for(int i = 1; i < portals.length; ++i) {
+			int from = portals[i - 1];
+			int to = portals[i];
+			
+			if(isNeighbor(from, to)) { // Transition (or portals right next to each other)
+				path = append(path, pathLength, to);
+				++pathLength;
+				continue;
+			}
+			
+			// Vertices between the portals inside their cluster
+			searchCluster(from);
+			if(costInCluster(to) < 0) // Portal costs were found on the same connections, so this shouldn't happen
+				return null;
+			int stepCount = 0;
+			for(int index = to; index != from; index = clusterParent[index]) {
+				scratch[stepCount++] = index;
+			}
+			for(int step = stepCount - 1; step >= 0; --step) {
+				path = append(path, pathLength, scratch[step]);
+				++pathLength;
+			}
+		}
+		
+		int[] trimmedPath = new int[pathLength];
+		System.arraycopy(path, 0, trimmedPath, 0, pathLength);
+		return trimmedPath;
+	}
+	
+	/**
+	 * Function will add a vertex to the path, making room if needed
+	 *
+	 * @param path the path so far
+	 * @param length the number of vertices in the path
+	 * @param index the vertex to add
+	 * @return the path with the vertex added
+	 */
+	private static int[] append(int[] path, int length, int index) {
+		if(length == path.length) {
+			int[] longerPath = new int[path.length * 2];
+			System.arraycopy(path, 0, longerPath, 0, length);
+			path = longerPath;
+		}
+		path[length] = index;
+		return path;
+	}
+	
+	/**
+	 * Function checks if two vertices are connected directly
+	 *
+	 * @param index the first vertex
+	 * @param otherIndex the second vertex
+	 * @return a <code>boolean</code> of the result
+	 */
+	private boolean isNeighbor(int index, int otherIndex) {
+		for(int direction = 0; direction < NavigationMap.DIRECTIONS; ++direction) {
+			if(map.isConnected(index, direction) && map.getNeighborIndex(index, direction) == otherIndex)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Function will build the clusters whose connections changed and
+	 * the portals of the clusters next to them
+	 */
+	private void refresh() {
+		int clusterCount = clusterVertices.length;
+		
+		for(int cluster = 0; cluster < clusterCount; ++cluster) {
+			if(clusterChanged[cluster]) {
+				for(int index : clusterVertices[cluster]) {
+					map.formConnections(index);
+				}
+			}
+		}
+		
+		// The borders of a changed cluster are shared with the clusters next to it
+		for(int cluster = 0; cluster < clusterCount; ++cluster) {
+			if(clusterChanged[cluster]) {
+				int previousRow = previousCluster(cluster, true);
+				int previousColumn = previousCluster(cluster, false);
+				
+				rowSideTransitions[cluster] = findTransitions(cluster, true);
+				columnSideTransitions[cluster] = findTransitions(cluster, false);
+				rowSideTransitions[previousRow] = findTransitions(previousRow, true);
+				columnSideTransitions[previousColumn] = findTransitions(previousColumn, false);
+				portalsChanged[cluster] = true;
+				portalsChanged[nextCluster(cluster, true)] = true;
+				portalsChanged[nextCluster(cluster, false)] = true;
+				portalsChanged[previousRow] = true;
+				portalsChanged[previousColumn] = true;
+			}
+		}
+		
+		for(int cluster = 0; cluster < clusterCount; ++cluster) {
+			if(portalsChanged[cluster]) { // Connections are formed (a reset vertex marks its cluster changed)
+				buildPortals(cluster);
+				portalsChanged[cluster] = false;
+			}
+			clusterChanged[cluster] = false;
+		}
+	}
+	
+	/**
+	 * Function will find the transitions on the border between a cluster
+	 * and the next cluster row (or column)
+	 *
+	 * @param cluster the cluster
+	 * @param rowSide <code>true</code> for the border with the next cluster row
+	 * @return the transitions as (vertex in cluster, vertex across border, weight) triples
+	 */
+	private int[] findTransitions(int cluster, boolean rowSide) {
+		int clusterRow = cluster / clusterColumns;
+		int clusterColumn = cluster % clusterColumns;
+		int direction = rowSide ? NEXT_ROW_DIRECTION : NEXT_COLUMN_DIRECTION;
+		int borderRow = Math.min((clusterRow + 1) * CLUSTER_SIZE, map.rowNodeNumber) - 1;
+		int borderColumn = Math.min((clusterColumn + 1) * CLUSTER_SIZE, map.columnNodeNumber) - 1;
+		int first = rowSide ? clusterColumn * CLUSTER_SIZE : clusterRow * CLUSTER_SIZE;
+		int end = rowSide ? borderColumn + 1 : borderRow + 1;
+		int count = 0;
+		int runStart = -1;
+		
+		// Scan along the border one past the end so the last run is closed
+		for(int position = first; position <= end; ++position) {
+			boolean crossing = false;
+			if(position < end) {
+				int index = rowSide ? map.getVertexIndex(borderRow, position) : map.getVertexIndex(position, borderColumn);
+				// Both ways, since the portal costs are used in either direction
+				crossing = map.isConnected(index, direction) && 
+						map.isConnected(map.getNeighborIndex(index, direction), (NavigationMap.DIRECTIONS - 1) - direction);
+			}
+			
+			if(crossing && runStart < 0) {
+				runStart = position;
+			}
+			else if(!crossing && runStart >= 0) { // End of an entrance
+				int runEnd = position - 1;
+				if(runEnd - runStart + 1 >= LONG_ENTRANCE) {
+					count = addTransition(count, rowSide, borderRow, borderColumn, runStart, direction);
+					count = addTransition(count, rowSide, borderRow, borderColumn, runEnd, direction);
+				}
+				else {
+					count = addTransition(count, rowSide, borderRow, borderColumn, (runStart + runEnd) / 2, direction);
+				}
+				runStart = -1;
+			}
+		}
+		
+		int[] transitions = new int[count];
+		System.arraycopy(scratch, 0, transitions, 0, count);
+		return transitions;
+	}
+	
+	/**
+	 * Function adds a transition to the scratch space
+	 *
+	 * @param count the number of values in the scratch space
+	 * @param rowSide <code>true</code> for the border with the next cluster row
+	 * @param borderRow the last row of the cluster
+	 * @param borderColumn the last column of the cluster
+	 * @param position the column (or row) along the border
+	 * @param direction the direction across the border
+	 * @return the number of values in the scratch space
+	 */
+	private int addTransition(int count, boolean rowSide, int borderRow, int borderColumn, int position, int direction) {
+		int index = rowSide ? map.getVertexIndex(borderRow, position) : map.getVertexIndex(position, borderColumn);
+		scratch[count++] = index;
+		scratch[count++] = map.getNeighborIndex(index, direction);
+		scratch[count++] = map.getConnectionWeight(index, direction);
+		return count;
+	}
+	
+	/**
+	 * Function will collect the portals of a cluster from the transitions
+	 * on its borders and find the cost between each pair of them
+	 *
+	 * @param cluster the cluster
+	 */
+	private void buildPortals(int cluster) {
+		for(int index : clusterPortals[cluster]) {
+			portalIndex[index] = -1;
+		}
+		
+		int count = 0;
+		count = collectPortals(cluster, rowSideTransitions[cluster], count);
+		count = collectPortals(cluster, columnSideTransitions[cluster], count);
+		count = collectPortals(cluster, rowSideTransitions[previousCluster(cluster, true)], count);
+		count = collectPortals(cluster, columnSideTransitions[previousCluster(cluster, false)], count);
+		
+		int[] portals = new int[count];
+		System.arraycopy(scratch, 0, portals, 0, count);
+		int[] costs = new int[count * count];
+		for(int i = 0; i < count; ++i) {
+			searchCluster(portals[i]);
+			for(int j = 0; j < count; ++j) {
+				costs[i * count + j] = costInCluster(portals[j]);
+			}
+		}
+		clusterPortals[cluster] = portals;
+		portalCost[cluster] = costs;
+	}
+	
+	/**
+	 * Function adds the vertices of the transitions that are in the
+	 * cluster to its portals
+	 *
+	 * @param cluster the cluster
+	 * @param transitions the transitions of a border
+	 * @param count the number of portals so far
+	 * @return the number of portals
+	 */
+	private int collectPortals(int cluster, int[] transitions, int count) {
+		for(int i = 0; i < transitions.length; i += 3) {
+			for(int end = 0; end < 2; ++end) {
+				int index = transitions[i + end];
+				if(vertexCluster[index] == cluster && portalIndex[index] < 0) {
+					portalIndex[index] = count;
+					scratch[count++] = index;
+				}
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Function will find the cost from a vertex to every vertex of its
+	 * cluster without leaving the cluster (the frontier of a search inside
+	 * a cluster is small, so the cheapest vertex is found by scanning it)
+	 *
+	 * @param sourceIndex the vertex to search from
+	 */
+	private void searchCluster(int sourceIndex) {
+		int cluster = vertexCluster[sourceIndex];
+		int frontierSize = 0;
+		int best;
+		
+		if(++clusterStamp == 0) { // Stamps wrapped around, start over so old entries can't match
+			Arrays.fill(clusterReached, 0);
+			Arrays.fill(clusterDone, 0);
+			clusterStamp = 1;
+		}
+		clusterReached[sourceIndex] = clusterStamp;
+		clusterCost[sourceIndex] = 0;
+		clusterParent[sourceIndex] = -1;
+		clusterFrontier[frontierSize++] = sourceIndex;
+		
+		while(frontierSize > 0) {
+			best = 0;
+			for(int i = 1; i < frontierSize; ++i) {
+				if(clusterCost[clusterFrontier[i]] < clusterCost[clusterFrontier[best]])
+					best = i;
+			}
+			int currentIndex = clusterFrontier[best];
+			clusterFrontier[best] = clusterFrontier[--frontierSize];
+			clusterDone[currentIndex] = clusterStamp;
+			
+			for(int direction = 0; direction < NavigationMap.DIRECTIONS; ++direction) {
+				if(!(map.isConnected(currentIndex, direction)))
+					continue;
+				int neighborIndex = map.getNeighborIndex(currentIndex, direction);
+				if(vertexCluster[neighborIndex] != cluster || clusterDone[neighborIndex] == clusterStamp)
+					continue;
+				int cost = clusterCost[currentIndex] + map.getConnectionWeight(currentIndex, direction);
+				if(clusterReached[neighborIndex] != clusterStamp) { // Joins the frontier
+					clusterReached[neighborIndex] = clusterStamp;
+					clusterFrontier[frontierSize++] = neighborIndex;
+				}
+				else if(cost >= clusterCost[neighborIndex]) {
+					continue;
+				}
+				clusterCost[neighborIndex] = cost;
+				clusterParent[neighborIndex] = currentIndex;
+			}
+		}
+	}
+	
+	/**
+	 * Function retrieves the cost found by the last cluster search
+	 *
+	 * @param index the vertex
+	 * @return the cost to the vertex, -1 if it wasn't reached
+	 */
+	private int costInCluster(int index) {
+		return clusterReached[index] == clusterStamp ? clusterCost[index] : -1;
+	}
+	
+	/**
+	 * Function moves on to the next portal search
+	 */
+	private void nextPortalStamp() {
+		if(++portalStamp == 0) { // Stamps wrapped around, start over so old entries can't match
+			Arrays.fill(portalReached, 0);
+			Arrays.fill(portalClosed, 0);
+			portalStamp = 1;
+		}
+	}
+	
+	/**
+	 * Function retrieves the cluster before this one (wraps around,
+	 * as this is a torus space)
+	 *
+	 * @param cluster the cluster
+	 * @param row <code>true</code> for the previous cluster row, otherwise the previous column
+	 * @return the previous cluster
+	 */
+	private int previousCluster(int cluster, boolean row) {
+		int clusterRow = cluster / clusterColumns;
+		int clusterColumn = cluster % clusterColumns;
+		if(row)
+			return ((clusterRow + clusterRows - 1) % clusterRows) * clusterColumns + clusterColumn;
+		return clusterRow * clusterColumns + (clusterColumn + clusterColumns - 1) % clusterColumns;
+	}
+	
+	/**
+	 * Function retrieves the cluster after this one (wraps around,
+	 * as this is a torus space)
+	 *
+	 * @param cluster the cluster
+	 * @param row <code>true</code> for the next cluster row, otherwise the next column
+	 * @return the next cluster
+	 */
+	private int nextCluster(int cluster, boolean row) {
+		int clusterRow = cluster / clusterColumns;
+		int clusterColumn = cluster % clusterColumns;
+		if(row)
+			return ((clusterRow + 1) % clusterRows) * clusterColumns + clusterColumn;
+		return clusterRow * clusterColumns + (clusterColumn + 1) % clusterColumns;
+	}
+}
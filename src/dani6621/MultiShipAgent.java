@@ -18,6 +18,7 @@ import spacesettlers.objects.Ship;
 import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
 import spacesettlers.objects.resources.ResourcePile;
 import spacesettlers.objects.resources.ResourceTypes;
+import spacesettlers.simulator.SpaceSettlersSimulator;
 import spacesettlers.simulator.Toroidal2DPhysics;
 import spacesettlers.utilities.Position;
 
@@ -43,6 +44,17 @@ public class MultiShipAgent extends TeamClient {
 	 */
 	public static final boolean DEBUG_MODE = false;
 	
+	/**
+	 * Plan long trips (i.e flag runs) with the hierarchical search
+	 */
+	public static final boolean HIERARCHICAL_NAVIGATION = true;
+	
+	/**
+	 * The planner gets this fraction (one over it) of the team action timeout 
+	 * each step, navigation needs the rest
+	 */
+	public static final int PLANNING_TIMEOUT_SHARE = 4;
+	
 	/**
 	 * Helps to do first initialization of team member
 	 * navigation
@@ -80,6 +92,12 @@ public class MultiShipAgent extends TeamClient {
 	 * were bought at a particular base
 	 */
 	private Integer[] doubleBaseHealpowerUpAmount;
+	
+	/**
+	 * Navigation map shared by the navigators of every ship
+	 * (ships plan one after another, so it is never used at once)
+	 */
+	private NavigationMap navigationMap;
 
 	@Override
 	public Map<UUID, AbstractAction> getMovementStart(Toroidal2DPhysics space,
@@ -89,7 +107,7 @@ public class MultiShipAgent extends TeamClient {
 			System.out.println("Performing Initialization");
 			WorldKnowledge.setTeamName(TEAM_NAME);
 			for(Ship ship : WorldKnowledge.getTeamShips(space)) {
-				planner.assignShipToNavigator(ship.getId(), new Navigator(DEBUG_MODE));
+				planner.assignShipToNavigator(ship.getId(), createNavigator());
 				planner.assignShipToActionQueue(ship.getId());
 			}
 			state.assignBaseBuildingLocations(space, WorldKnowledge.getOtherTeamFlag(space));
@@ -99,7 +117,7 @@ public class MultiShipAgent extends TeamClient {
 		if(BOUGHT_SHIP) { // When ship is bought it must be assigned a navigator and action queue
 			for(Ship ship : WorldKnowledge.getTeamShips(space)) {
 				if(!(planner.shipAssignedNavigator(ship))) {
-					planner.assignShipToNavigator(ship.getId(), new Navigator(DEBUG_MODE));
+					planner.assignShipToNavigator(ship.getId(), createNavigator());
 					planner.assignShipToActionQueue(ship.getId());
 				}
 			}
@@ -112,6 +130,9 @@ public class MultiShipAgent extends TeamClient {
 			REPLAN_TRIGGER = false;
 		}
 		
+		planner.startPlanningStep();
+		planner.resumeUnfinishedPlans(space); // Refine plans that ran out of time last step
+		
 		Map<UUID, AbstractAction> actions = new HashMap<UUID, AbstractAction>();
 
         for (AbstractObject actionable : actionableObjects) { // Find ships and assign each an action to perform
@@ -129,6 +150,7 @@ public class MultiShipAgent extends TeamClient {
 
 	@Override
 	public void getMovementEnd(Toroidal2DPhysics space, Set<AbstractActionableObject> actionableObjects) {
+		planner.startPlanningStep(); // Checking actions can trigger replans
 		
 		for (AbstractObject actionable : actionableObjects) { // Find ships and assign each an action to perform
             if (actionable instanceof Ship) {
@@ -256,11 +278,24 @@ public class MultiShipAgent extends TeamClient {
 		
 		return purchases;
 	}
+	
+	/**
+	 * Creates a navigator for a ship that plans on the shared map
+	 * 
+	 * @return the navigator
+	 */
+	private Navigator createNavigator() {
+		Navigator navigator = new Navigator(DEBUG_MODE, navigationMap);
+		navigator.setHierarchicalSearch(HIERARCHICAL_NAVIGATION);
+		return navigator;
+	}
 
 	@Override
 	public void initialize(Toroidal2DPhysics space) {
 		state = new StateRepresentation(); // Representation that contains important doman knowledge
 		planner = new Planner(state); // Create planner to direct other ships
+		planner.setPlanningBudget(SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT / PLANNING_TIMEOUT_SHARE);
+		navigationMap = new NavigationMap(space, DEBUG_MODE); // Kept for the whole game, updated as ships plan
 		TEAM_NAME = super.getTeamName();
 		System.out.println("Initialized: " + TEAM_NAME);
 		doubleBaseHealpowerUpAmount = new Integer[2]; // Only two convient locations
@@ -278,6 +313,7 @@ public class MultiShipAgent extends TeamClient {
 		BOUGHT_SHIP = false;
 		state = new StateRepresentation(); // Representation that contains important doman knowledge
 		planner = new Planner(state); // Create planner to direct other ships
+		planner.setPlanningBudget(SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT / PLANNING_TIMEOUT_SHARE);
 		TEAM_NAME = super.getTeamName();
 		System.out.println("Shutting Down: " + TEAM_NAME);
 		doubleBaseHealpowerUpAmount = new Integer[2]; // Only two convient locations
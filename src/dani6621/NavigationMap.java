@@ -2,10 +2,14 @@ package dani6621;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 import spacesettlers.graphics.LineGraphics;
 import spacesettlers.graphics.SpacewarGraphics;
@@ -24,6 +28,13 @@ import spacesettlers.utilities.Position;
  * include: ship position and goal object (i.e AbstractObject) as 
  * parameters. The branching factor of any given point will be eight
  * at the maximum and in RARE occurrences zero.
+ * 
+ * The map is meant to be kept between searches (the ships of a team
+ * can share one). Each search calls <code>update</code> with its
+ * obstacles and only the vertices around obstacles that appeared,
+ * disappeared, or moved since the last search lose their connections.
+ * Everything else keeps the connections formed by earlier searches.
+ * The map is NOT thread safe.
  *
  */
 public class NavigationMap {
@@ -116,6 +127,69 @@ public class NavigationMap {
 		}
 	}
 	
+	/**
+	 * Where an obstacle was when the map was last updated. The map
+	 * only needs to change around obstacles whose footprint changed.
+	 */
+	private static class ObstacleFootprint {
+		
+		/**
+		 * Actual position of the obstacle (edges near it were checked 
+		 * for clearance against it)
+		 */
+		final Position position;
+		
+		/**
+		 * Position used to decide which vertices are too close to the 
+		 * obstacle (projected for moving obstacles)
+		 */
+		final Position projectedPosition;
+		
+		/**
+		 * Radius of the obstacle
+		 */
+		final int radius;
+		
+		/**
+		 * The obstacle (as it was when the footprint was recorded)
+		 */
+		final AbstractObject obstacle;
+		
+		/**
+		 * Record where the obstacle is now
+		 * 
+		 * @param obj the obstacle
+		 */
+		ObstacleFootprint(AbstractObject obj) {
+			Position objPosition = obj.getPosition();
+			position = new Position(objPosition.getX(), objPosition.getY());
+			
+			// Same projection as 'isCloseToObstacle'
+			if(obj.isMoveable()) {
+				projectedPosition = new Position(objPosition.getX() + objPosition.getxVelocity(), 
+						objPosition.getY() + objPosition.getyVelocity());
+			}
+			else {
+				projectedPosition = position;
+			}
+			radius = obj.getRadius();
+			obstacle = obj;
+		}
+		
+		/**
+		 * Checks if two footprints affect the map the same way
+		 * 
+		 * @param other the footprint to compare to
+		 * @return a <code>boolean</code> of the result
+		 */
+		boolean sameAs(ObstacleFootprint other) {
+			return radius == other.radius && 
+					position.getX() == other.position.getX() && position.getY() == other.position.getY() &&
+					projectedPosition.getX() == other.projectedPosition.getX() &&
+					projectedPosition.getY() == other.projectedPosition.getY();
+		}
+	}
+	
 	/**
 	 * The spacing between each node in the graph
 	 */
@@ -131,6 +205,26 @@ public class NavigationMap {
 	 */
 	public static final int CLOSE_DISTANCE = (int) (Ship.SHIP_RADIUS * 2.5);
 	
+	/**
+	 * Obstacles further than this from a vertex can't block any of its
+	 * edges ('isPathClearOfObstructions' ignores obstacles further away 
+	 * than the end of the path, which is at most a diagonal away). This
+	 * is also how far the obstacles near a vertex are tracked.
+	 */
+	private static final double CLEARANCE_REACH = SPACING * 1.5;
+	
+	/**
+	 * Number of neighbors a vertex can be connected to
+	 */
+	public static final int DIRECTIONS = 8;
+	
+	/**
+	 * Row and column offsets of the neighbor in each direction. The
+	 * opposite of direction 'd' is '(DIRECTIONS - 1) - d'.
+	 */
+	private static final int[] DIRECTION_ROW_OFFSET = {-1, -1, -1, 0, 0, 1, 1, 1};
+	private static final int[] DIRECTION_COLUMN_OFFSET = {-1, 0, 1, -1, 1, -1, 0, 1};
+	
 	/**
 	 * Set value for graphcis debugging
 	 */
@@ -155,6 +249,95 @@ public class NavigationMap {
 	 */
 	private Set<AbstractObject> obstacles;
 	
+	/**
+	 * The obstacles the map was last updated with by id
+	 */
+	private Map<UUID, ObstacleFootprint> footprints;
+	
+	/**
+	 * The keys of the vertices by row and column. Created once so
+	 * lookups don't need a new key.
+	 */
+	private NavigationVertexKey[][] keys;
+	
+	/**
+	 * The vertices by index (i.e row * columnNodeNumber + column)
+	 */
+	private NavigationVertex[] vertices;
+	
+	/**
+	 * Index of the neighbor in each direction for every vertex
+	 * (index * DIRECTIONS + direction)
+	 */
+	private int[] neighborIndex;
+	
+	/**
+	 * The connections of each vertex as a bit per direction. Kept
+	 * alongside the edges in the graph so the grid search can check
+	 * a connection without looking through the edge list.
+	 */
+	private byte[] connections;
+	
+	/**
+	 * Weight of the connection in each direction for every vertex
+	 * (index * DIRECTIONS + direction)
+	 */
+	private int[] connectionWeight;
+	
+	/**
+	 * The A* search for the map, created when first needed
+	 */
+	private GridSearchEngine searchEngine;
+	
+	/**
+	 * The hierarchical search for the map, created when first needed
+	 */
+	private HierarchicalSearchEngine hierarchicalSearchEngine;
+	
+	/**
+	 * Paths found on the map, created when first needed
+	 */
+	private PathCache pathCache;
+	
+	/**
+	 * Number of times the map was updated and the update each 
+	 * vertex last lost its connections in
+	 */
+	private int updateCount;
+	private int[] lastReset;
+	
+	/**
+	 * The obstacles within 'CLEARANCE_REACH' of each vertex by index 
+	 * (<code>null</code> if there are none). Edges only need to be 
+	 * checked against these.
+	 */
+	private List<Set<AbstractObject>> nearbyObstacles;
+	
+	/**
+	 * Number of obstacles too close to each vertex. Connections
+	 * can only be formed to vertices with a count of zero.
+	 */
+	private int[][] blockingCount;
+	
+	/**
+	 * Flags the vertices whose connections have been formed
+	 * for the current obstacles
+	 */
+	private boolean[][] connectionsFormed;
+	
+	/**
+	 * Vertices that will lose their connections at the end of an 
+	 * update (the flags keep the list free of duplicates)
+	 */
+	private List<NavigationVertexKey> changedVertices;
+	private boolean[][] changed;
+	
+	/**
+	 * Dimensions of the space the map was built for
+	 */
+	private final int spaceWidth;
+	private final int spaceHeight;
+	
 	/**
 	 * Number of nodes in each row
 	 */
@@ -184,6 +367,8 @@ public class NavigationMap {
 		// Get dimensions of environment
 		int height = spaceRef.getHeight();
 		int width = spaceRef.getWidth();
+		spaceWidth = width;
+		spaceHeight = height;
 		
 		// Calculate number of row points and column points
 		rowNodeNumber = width / SPACING;
@@ -194,6 +379,20 @@ public class NavigationMap {
 		
 		// Initialize graph to hold correct number of vertices
 		dataPoints = new Graph<NavigationVertexKey, NavigationVertex>(numberOfVertices);
+		keys = new NavigationVertexKey[rowNodeNumber][columnNodeNumber];
+		vertices = new NavigationVertex[numberOfVertices];
+		neighborIndex = new int[numberOfVertices * DIRECTIONS];
+		connections = new byte[numberOfVertices];
+		connectionWeight = new int[numberOfVertices * DIRECTIONS];
+		lastReset = new int[numberOfVertices];
+		nearbyObstacles = new ArrayList<Set<AbstractObject>>(numberOfVertices);
+		for(int i = 0; i < numberOfVertices; ++i) {
+			nearbyObstacles.add(null);
+		}
+		blockingCount = new int[rowNodeNumber][columnNodeNumber];
+		connectionsFormed = new boolean[rowNodeNumber][columnNodeNumber];
+		changed = new boolean[rowNodeNumber][columnNodeNumber];
+		changedVertices = new ArrayList<NavigationVertexKey>();
 		
 		Position nodePosition;
 		NavigationVertexKey key;
@@ -206,13 +405,33 @@ public class NavigationMap {
 				nodePosition = new Position((double) i * SPACING, (double) j * SPACING);
 				vertex = new NavigationVertex(nodePosition);
 				key = new NavigationVertexKey(i, j);
+				keys[i][j] = key;
+				vertices[getVertexIndex(i, j)] = vertex;
 				dataPoints.addVertex(key, vertex);
 				if(DEBUG_MODE)
 					graphDrawing.add(new StarGraphics(Color.RED, nodePosition));
+				
+				for(int direction = 0; direction < DIRECTIONS; ++direction) {
+					neighborIndex[getVertexIndex(i, j) * DIRECTIONS + direction] = 
+							getVertexIndex(wrap(i + DIRECTION_ROW_OFFSET[direction], rowNodeNumber), 
+									wrap(j + DIRECTION_COLUMN_OFFSET[direction], columnNodeNumber));
+				}
 			}
 		}
 		
 		obstacles = new HashSet<AbstractObject>(); // Instantiate
+		footprints = new HashMap<UUID, ObstacleFootprint>();
+	}
+	
+	/**
+	 * Function checks if the map was built for a space with
+	 * the same dimensions (i.e it can be reused for the space)
+	 * 
+	 * @param space the space to check
+	 * @return a <code>boolean</code> of the result
+	 */
+	public boolean fits(Toroidal2DPhysics space) {
+		return space.getWidth() == spaceWidth && space.getHeight() == spaceHeight;
 	}
 	
 	/**
@@ -224,7 +443,7 @@ public class NavigationMap {
 	 * @return a <code>Position</code> object of the vertex location
 	 */
 	public Position getPositionOfVertex(int row, int column) {
-		return dataPoints.getVertex(new NavigationVertexKey(row, column)).data.position;
+		return dataPoints.getVertex(keys[row][column]).data.position;
 	}
 	
 	/**
@@ -238,7 +457,7 @@ public class NavigationMap {
 	 */
 	public List<Position> getNeighborPosition(int row, int column) {
 		List<Graph<NavigationVertexKey, NavigationVertex>.Edge> edges = 
-				dataPoints.getEdges(new NavigationVertexKey(row, column));
+				dataPoints.getEdges(keys[row][column]);
 		List<Position> positions = new LinkedList<Position>();
 		
 		for(Graph<NavigationVertexKey, NavigationVertex>.Edge edge : edges) {
@@ -260,66 +479,269 @@ public class NavigationMap {
 	}
 	
 	/**
-	 * Function will create an edge between two vertices at 
-	 * specified row and column locations. The function will
-	 * find the vertices based on the row and columns passed (i.e
-	 * they are used as keys)
+	 * Function will create an edge between the vertex at the specified
+	 * row and column and its neighbor in the direction passed. The edge
+	 * is added to the graph and to the connection bits of both vertices.
+	 * An edge can only end at a vertex that isn't blocked and has to be
+	 * clear from where it starts, so it may only go one way (e.g. from a
+	 * blocked vertex where a ship starts).
 	 * 
 	 * @param startRow the row position of the start vertex
 	 * @param startColumn the column position of the start vertex
-	 * @param endRow the row position of the end vertex
-	 * @param endColumn the column position of the end vertex
+	 * @param direction the direction of the end vertex
 	 */
-	private void addConnection(int startRow, int startColumn, int endRow, int endColumn) {
+	private void addConnection(int startRow, int startColumn, int direction) {
+		int startIndex = getVertexIndex(startRow, startColumn);
+		int endIndex = neighborIndex[startIndex * DIRECTIONS + direction];
+		int endRow = endIndex / columnNodeNumber;
+		int endColumn = endIndex % columnNodeNumber;
+		
+		if(isConnected(startIndex, direction)) // Already formed from the other vertex
+			return;
 		
-		NavigationVertexKey startKey = new NavigationVertexKey(startRow, startColumn);
-		NavigationVertexKey endKey = new NavigationVertexKey(endRow, endColumn);
+		NavigationVertexKey startKey = keys[startRow][startColumn];
+		NavigationVertexKey endKey = keys[endRow][endColumn];
+		Position startPos = vertices[startIndex].position;
+		Position endPos = vertices[endIndex].position;
 		
-		if(dataPoints.containVertex(startKey) && dataPoints.containVertex(endKey)) {
-			NavigationVertex startVertex = dataPoints.getVertex(startKey).data;
-			NavigationVertex endVertex = dataPoints.getVertex(endKey).data;
+		// If there are no obstacles along edge or no obstacles are too close to end node then it can be added
+		// (the blocking count is 'isCloseToObstacle' kept up to date by 'update')
+		if(blockingCount[endRow][endColumn] == 0 && 
+				spaceRef.isPathClearOfObstructions(startPos, endPos, getNearbyObstacles(startIndex), CLOSE_DISTANCE)) {
+			int weight = (int) Math.ceil(spaceRef.findShortestDistance(startPos, endPos));
+			int opposite = (DIRECTIONS - 1) - direction;
 			
-			if(startVertex != null && endVertex != null) {
-				Position startPos = startVertex.position;
-				Position endPos = endVertex.position;
-				
-				// If there are no obstacles along edge or no obstacles are too close to end node then it can be added
-				if(spaceRef.isPathClearOfObstructions(startPos, endPos, obstacles, CLOSE_DISTANCE) && !(isCloseToObstacle(endVertex))) {
-					dataPoints.addEdge(startKey, endKey, (int) Math.ceil(spaceRef.findShortestDistance(startPos, endPos)));
-					if(DEBUG_MODE)
-						graphDrawing.add(new LineGraphics(startPos, endPos, spaceRef.findShortestDistanceVector(startPos, endPos)));
-				}
+			connections[startIndex] |= 1 << direction;
+			connectionWeight[startIndex * DIRECTIONS + direction] = weight;
+			// Can come back to the start (checked from the end too, the obstacles an edge is checked
+			// against depend on where it starts, so the edge doesn't depend on which vertex formed it)
+			if(blockingCount[startRow][startColumn] == 0 && 
+					spaceRef.isPathClearOfObstructions(endPos, startPos, getNearbyObstacles(endIndex), CLOSE_DISTANCE)) {
+				dataPoints.addEdge(startKey, endKey, weight);
+				connections[endIndex] |= 1 << opposite;
+				connectionWeight[endIndex * DIRECTIONS + opposite] = weight;
+			}
+			else {
+				dataPoints.addDirectedEdge(startKey, endKey, weight);
 			}
+			if(DEBUG_MODE)
+				graphDrawing.add(new LineGraphics(startPos, endPos, spaceRef.findShortestDistanceVector(startPos, endPos)));
 		}
 	}	
 	
 	/**
-	 * This function will create connections to the vertex
+	 * Function will retrieve the index of the vertex at the row and column
+	 * 
+	 * @param row the row of the vertex
+	 * @param column the column of the vertex
+	 * @return the index of the vertex
+	 */
+	int getVertexIndex(int row, int column) {
+		return row * columnNodeNumber + column;
+	}
+	
+	/**
+	 * Function will retrieve the index of the vertex
+	 * 
+	 * @param vertex the vertex
+	 * @return the index of the vertex
+	 */
+	int getVertexIndex(NavigationVertex vertex) {
+		NavigationVertexKey key = getNavigationVertexKey(vertex);
+		return getVertexIndex(key.vertexRowNumber, key.vertexColumnNumber);
+	}
+	
+	/**
+	 * Function will retrieve the vertex at the index
+	 * 
+	 * @param index the index of the vertex
+	 * @return the vertex
+	 */
+	NavigationVertex getVertex(int index) {
+		return vertices[index];
+	}
+	
+	/**
+	 * Function will retrieve the number of vertices in the map
+	 * 
+	 * @return the number of vertices
+	 */
+	int getVertexCount() {
+		return vertices.length;
+	}
+	
+	/**
+	 * Function will retrieve the index of the neighbor in the direction
+	 * 
+	 * @param index the index of the vertex
+	 * @param direction the direction of the neighbor
+	 * @return the index of the neighbor
+	 */
+	int getNeighborIndex(int index, int direction) {
+		return neighborIndex[index * DIRECTIONS + direction];
+	}
+	
+	/**
+	 * Function checks if the vertex is connected to its neighbor in
+	 * the direction
+	 * 
+	 * @param index the index of the vertex
+	 * @param direction the direction of the neighbor
+	 * @return a <code>boolean</code> of the result
+	 */
+	boolean isConnected(int index, int direction) {
+		return (connections[index] & (1 << direction)) != 0;
+	}
+	
+	/**
+	 * Function checks if an obstacle is too close to the vertex
+	 * (no connection can end at it)
+	 * 
+	 * @param index the index of the vertex
+	 * @return a <code>boolean</code> of the result
+	 */
+	boolean isBlocked(int index) {
+		return blockingCount[index / columnNodeNumber][index % columnNodeNumber] != 0;
+	}
+	
+	/**
+	 * Function will retrieve the weight of the connection to the
+	 * neighbor in the direction (only valid if they are connected)
+	 * 
+	 * @param index the index of the vertex
+	 * @param direction the direction of the neighbor
+	 * @return the weight of the connection
+	 */
+	int getConnectionWeight(int index, int direction) {
+		return connectionWeight[index * DIRECTIONS + direction];
+	}
+	
+	/**
+	 * Function will calculate the straight line distance between two 
+	 * vertices without creating any objects (same result as 
+	 * <code>findShortestDistance</code>)
+	 * 
+	 * @param startIndex the index of the first vertex
+	 * @param endIndex the index of the second vertex
+	 * @return the toroidal distance between the vertices
+	 */
+	double calculateDistance(int startIndex, int endIndex) {
+		Position start = vertices[startIndex].position;
+		Position end = vertices[endIndex].position;
+		double x = end.getX() - start.getX();
+		double y = end.getY() - start.getY();
+		float halfWidth = spaceWidth / 2.0f;
+		float halfHeight = spaceHeight / 2.0f;
+		
+		if(x > halfWidth)
+			x -= spaceWidth;
+		else if(x < -halfWidth)
+			x += spaceWidth;
+		if(y > halfHeight)
+			y -= spaceHeight;
+		else if(y < -halfHeight)
+			y += spaceHeight;
+		return Math.sqrt(x * x + y * y);
+	}
+	
+	/**
+	 * Function will calculate the heuristic value between two vertices
+	 * (same as <code>calculateHeuristic</code>)
+	 * 
+	 * @param index the index of the vertex
+	 * @param goalIndex the index of the goal vertex
+	 * @return the heuristic value
+	 */
+	int calculateHeuristic(int index, int goalIndex) {
+		return (int) Math.ceil(calculateDistance(index, goalIndex));
+	}
+	
+	/**
+	 * Function will retrieve the A* search for the map. The search
+	 * reuses its memory between searches, so like the map it can only
+	 * be used for one search at a time.
+	 * 
+	 * @return the search engine of the map
+	 */
+	GridSearchEngine getSearchEngine() {
+		if(searchEngine == null)
+			searchEngine = new GridSearchEngine(getVertexCount());
+		return searchEngine;
+	}
+	
+	/**
+	 * Function will retrieve the hierarchical search for the map. It
+	 * keeps its clusters between searches and, like the map, can only
+	 * be used for one search at a time.
+	 * 
+	 * @return the hierarchical search engine of the map
+	 */
+	HierarchicalSearchEngine getHierarchicalSearchEngine() {
+		if(hierarchicalSearchEngine == null)
+			hierarchicalSearchEngine = new HierarchicalSearchEngine(this);
+		return hierarchicalSearchEngine;
+	}
+	
+	/**
+	 * Function will retrieve the paths found on the map. Every 
+	 * navigator sharing the map shares the paths.
+	 * 
+	 * @return the path cache of the map
+	 */
+	public PathCache getPathCache() {
+		if(pathCache == null)
+			pathCache = new PathCache(this);
+		return pathCache;
+	}
+	
+	/**
+	 * Function will retrieve the number of times the map was updated
+	 * 
+	 * @return the current update
+	 */
+	int getUpdateCount() {
+		return updateCount;
+	}
+	
+	/**
+	 * Function will retrieve the update the vertex last lost its
+	 * connections in
+	 * 
+	 * @param index the index of the vertex
+	 * @return the update (zero if it never did)
+	 */
+	int getLastReset(int index) {
+		return lastReset[index];
+	}
+	
+	/**
+	 * This function will create connections to the vertex. Nothing
+	 * is done if the connections were already formed and no obstacle
+	 * near the vertex changed since.
 	 * 
 	 * @param key the key of the vertex to form connections
-	 * @param vertex the actual vertex object to add connections to
 	 */
 	public void formConnections(NavigationVertexKey key) {
 		int vertexRow = key.vertexRowNumber;
 		int vertexColumn = key.vertexColumnNumber;
 		
-		// Goto neighbor next to node by offset
-		for(int i = vertexRow - 1; i < vertexRow + 2; ++i) {
-			for(int j = vertexColumn - 1; j < vertexColumn + 2; ++j) {
-				if(i == vertexRow && j == vertexColumn) { // Skip 'vertex' itself, don't want to form connection to self
-					continue;
-				}
-				else {
-					// Use modulus to perform wrap around, as this is a torus space
-					addConnection(vertexRow, vertexColumn, ((i + rowNodeNumber) % rowNodeNumber), 
-							((j + columnNodeNumber) % (columnNodeNumber))); // Create a connection
-				}
-			}
-		}
+		if(connectionsFormed[vertexRow][vertexColumn])
+			return;
+		connectionsFormed[vertexRow][vertexColumn] = true;
 		
-		addConnection(vertexRow, vertexColumn, ((vertexRow + 1) % rowNodeNumber), 
-				((vertexColumn - 1) % columnNodeNumber));
-				
+		// Goto neighbor next to node by offset (wraps around, as this is a torus space)
+		for(int direction = 0; direction < DIRECTIONS; ++direction) {
+			addConnection(vertexRow, vertexColumn, direction); // Create a connection
+		}
+	}
+	
+	/**
+	 * This function will create connections to the vertex at the index
+	 * 
+	 * @param index the index of the vertex to form connections
+	 */
+	void formConnections(int index) {
+		formConnections(keys[index / columnNodeNumber][index % columnNodeNumber]);
 	}
 	
 	/** 
@@ -337,8 +759,7 @@ public class NavigationMap {
 		int rowNumber = ((int)Math.round(xCoord / SPACING) % rowNodeNumber);
 		int columnNumber = ((int)Math.round(yCoord / SPACING) % columnNodeNumber);
 		
-		NavigationVertexKey key = new NavigationVertexKey(rowNumber, columnNumber);
-		NavigationVertex candidate = dataPoints.getVertex(key).data;
+		NavigationVertex candidate = dataPoints.getVertex(keys[rowNumber][columnNumber]).data;
 		
 		return candidate;
 	}
@@ -360,7 +781,7 @@ public class NavigationMap {
 		int rowNumber = ((int)Math.round(xCoord / SPACING) % rowNodeNumber);
 		int columnNumber = ((int)Math.round(yCoord / SPACING) % columnNodeNumber);
 		
-		return new NavigationVertexKey(rowNumber, columnNumber);
+		return keys[rowNumber][columnNumber];
 	}
 	
 	/**
@@ -432,6 +853,232 @@ public class NavigationMap {
 	 * @param obst	the obstacles that will be tracked
 	 */
 	public void setObstacles(Set<AbstractObject> obst) {
+		update(spaceRef, obst);
+	}
+	
+	/**
+	 * Method will bring the map up to date with the current space and
+	 * obstacles. Obstacles are matched to the last update by id and only 
+	 * the vertices around the ones that appeared, disappeared, or moved
+	 * lose their connections (they are formed again as the search reaches
+	 * them), so the work depends on how much changed and not on the size 
+	 * of the map.
+	 * 
+	 * @param space	the current space
+	 * @param obst	the obstacles that will be tracked
+	 */
+	public void update(Toroidal2DPhysics space, Set<AbstractObject> obst) {
+		spaceRef = space;
 		obstacles = obst;
+		++updateCount;
+		
+		Map<UUID, ObstacleFootprint> currentFootprints = new HashMap<UUID, ObstacleFootprint>();
+		ObstacleFootprint footprint;
+		ObstacleFootprint previousFootprint;
+		
+		for(AbstractObject obj : obst) {
+			footprint = new ObstacleFootprint(obj);
+			currentFootprints.put(obj.getId(), footprint);
+			previousFootprint = footprints.remove(obj.getId());
+			
+			if(previousFootprint == null) { // New obstacle
+				applyFootprint(footprint, 1);
+			}
+			else if(!(previousFootprint.sameAs(footprint))) { // Obstacle moved
+				applyFootprint(previousFootprint, -1);
+				applyFootprint(footprint, 1);
+			}
+			else { // Keep the footprint whose obstacle is tracked by the vertices
+				currentFootprints.put(obj.getId(), previousFootprint);
+			}
+		}
+		
+		// Whatever is left is no longer an obstacle
+		for(ObstacleFootprint removedFootprint : footprints.values()) {
+			applyFootprint(removedFootprint, -1);
+		}
+		footprints = currentFootprints;
+		
+		for(NavigationVertexKey key : changedVertices) {
+			resetConnections(key);
+			changed[key.vertexRowNumber][key.vertexColumnNumber] = false;
+		}
+		changedVertices.clear();
+		
+		if(DEBUG_MODE) // Only draw the connections formed after this update
+			graphDrawing.subList(rowNodeNumber * columnNodeNumber, graphDrawing.size()).clear();
+	}
+	
+	/**
+	 * Function will add (or take away) an obstacle from the blocking
+	 * counts and flag every vertex whose connections it could affect
+	 * 
+	 * @param footprint where the obstacle is
+	 * @param delta one to add the obstacle, negative one to take it away
+	 */
+	private void applyFootprint(ObstacleFootprint footprint, int delta) {
+		int reach = footprint.radius + CLOSE_DISTANCE + 1;
+		int firstRow = firstIndex(footprint.projectedPosition.getX(), reach);
+		int rowCount = indexCount(footprint.projectedPosition.getX(), reach, rowNodeNumber);
+		int firstColumn = firstIndex(footprint.projectedPosition.getY(), reach);
+		int columnCount = indexCount(footprint.projectedPosition.getY(), reach, columnNodeNumber);
+		int row;
+		int column;
+		int candidate;
+		int before;
+		
+		// Vertices too close to the obstacle (same test as 'isCloseToObstacle')
+		for(int i = 0; i < rowCount; ++i) {
+			row = wrap(firstRow + i, rowNodeNumber);
+			for(int j = 0; j < columnCount; ++j) {
+				column = wrap(firstColumn + j, columnNodeNumber);
+				candidate = (int) spaceRef.findShortestDistance(getPositionOfVertex(row, column), 
+						footprint.projectedPosition) - footprint.radius;
+				if(candidate < CLOSE_DISTANCE) {
+					before = blockingCount[row][column];
+					blockingCount[row][column] += delta;
+					if((before == 0) != (blockingCount[row][column] == 0)) // Vertex became blocked or free
+						markChanged(row, column);
+				}
+			}
+		}
+		
+		// Vertices whose edges may pass by the obstacle (they track it as nearby)
+		firstRow = firstIndex(footprint.position.getX(), CLEARANCE_REACH);
+		rowCount = indexCount(footprint.position.getX(), CLEARANCE_REACH, rowNodeNumber);
+		firstColumn = firstIndex(footprint.position.getY(), CLEARANCE_REACH);
+		columnCount = indexCount(footprint.position.getY(), CLEARANCE_REACH, columnNodeNumber);
+		for(int i = 0; i < rowCount; ++i) {
+			row = wrap(firstRow + i, rowNodeNumber);
+			for(int j = 0; j < columnCount; ++j) {
+				column = wrap(firstColumn + j, columnNodeNumber);
+				if(spaceRef.findShortestDistance(getPositionOfVertex(row, column), footprint.position) <= CLEARANCE_REACH) {
+					markChanged(row, column);
+					trackNearbyObstacle(getVertexIndex(row, column), footprint.obstacle, delta > 0);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Function will add (or remove) an obstacle from the obstacles
+	 * near a vertex
+	 * 
+	 * @param index the index of the vertex
+	 * @param obj the obstacle
+	 * @param nearby <code>true</code> to add the obstacle, <code>false</code> to remove it
+	 */
+	private void trackNearbyObstacle(int index, AbstractObject obj, boolean nearby) {
+		Set<AbstractObject> nearbySet = nearbyObstacles.get(index);
+		
+		if(nearby) {
+			if(nearbySet == null) {
+				nearbySet = new HashSet<AbstractObject>();
+				nearbyObstacles.set(index, nearbySet);
+			}
+			nearbySet.add(obj);
+		}
+		else if(nearbySet != null) {
+			nearbySet.remove(obj);
+			if(nearbySet.isEmpty())
+				nearbyObstacles.set(index, null);
+		}
+	}
+	
+	/**
+	 * Function will retrieve the obstacles near a vertex
+	 * 
+	 * @param index the index of the vertex
+	 * @return the obstacles within 'CLEARANCE_REACH' of the vertex
+	 */
+	private Set<AbstractObject> getNearbyObstacles(int index) {
+		Set<AbstractObject> nearbySet = nearbyObstacles.get(index);
+		if(nearbySet == null)
+			return Collections.<AbstractObject>emptySet();
+		return nearbySet;
+	}
+	
+	/**
+	 * Function will flag the vertex to lose its connections at the
+	 * end of the update
+	 * 
+	 * @param row the row of the vertex
+	 * @param column the column of the vertex
+	 */
+	private void markChanged(int row, int column) {
+		if(!(changed[row][column])) {
+			changed[row][column] = true;
+			changedVertices.add(keys[row][column]);
+		}
+	}
+	
+	/**
+	 * Function will remove the connections of the vertex. The vertex
+	 * and its neighbors (who lost their connection to it) will form 
+	 * their connections again when they are searched.
+	 * 
+	 * @param key the key of the vertex
+	 */
+	private void resetConnections(NavigationVertexKey key) {
+		int vertexRow = key.vertexRowNumber;
+		int vertexColumn = key.vertexColumnNumber;
+		
+		int index = getVertexIndex(vertexRow, vertexColumn);
+		
+		dataPoints.removeEdges(key);
+		lastReset[index] = updateCount;
+		for(int direction = 0; direction < DIRECTIONS; ++direction) {
+			int neighbor = neighborIndex[index * DIRECTIONS + direction];
+			int opposite = (DIRECTIONS - 1) - direction;
+			if(isConnected(neighbor, opposite)) { // Neighbor loses its connection (a blocked neighbor's only goes one way)
+				connections[neighbor] &= ~(1 << opposite);
+				dataPoints.removeEdge(keys[neighbor / columnNodeNumber][neighbor % columnNodeNumber], key);
+			}
+		}
+		connections[index] = 0;
+		for(int i = vertexRow - 1; i < vertexRow + 2; ++i) {
+			for(int j = vertexColumn - 1; j < vertexColumn + 2; ++j) {
+				connectionsFormed[wrap(i, rowNodeNumber)][wrap(j, columnNodeNumber)] = false;
+				if(hierarchicalSearchEngine != null) // Cluster has to be built again
+					hierarchicalSearchEngine.markChanged(getVertexIndex(wrap(i, rowNodeNumber), wrap(j, columnNodeNumber)));
+			}
+		}
+	}
+	
+	/**
+	 * Function will retrieve the first row (or column) that could be 
+	 * within reach of the coordinate. It may be negative, use 'wrap'.
+	 * 
+	 * @param coordinate the x (or y) coordinate
+	 * @param reach the distance from the coordinate
+	 * @return the first index
+	 */
+	private static int firstIndex(double coordinate, double reach) {
+		return (int) Math.floor((coordinate - reach) / SPACING);
+	}
+	
+	/**
+	 * Function will retrieve the number of rows (or columns) that could 
+	 * be within reach of the coordinate
+	 * 
+	 * @param coordinate the x (or y) coordinate
+	 * @param reach the distance from the coordinate
+	 * @param nodeNumber the number of rows (or columns)
+	 * @return the number of indices starting at 'firstIndex'
+	 */
+	private static int indexCount(double coordinate, double reach, int nodeNumber) {
+		int lastIndex = (int) Math.ceil((coordinate + reach) / SPACING);
+		return Math.min(lastIndex - firstIndex(coordinate, reach) + 1, nodeNumber);
+	}
+	
+	/**
+	 * Use modulus to perform wrap around, as this is a torus space
+	 * 
+	 * @param index the row (or column) that may be outside the map
+	 * @param nodeNumber the number of rows (or columns)
+	 * @return the index inside the map
+	 */
+	private static int wrap(int index, int nodeNumber) {
+		return ((index % nodeNumber) + nodeNumber) % nodeNumber;
 	}
  }
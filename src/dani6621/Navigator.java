@@ -31,7 +31,9 @@ public class Navigator {
 	
 	/**
 	 * Abstraction of the navigation problem as 
-	 * a graph data structure
+	 * a graph data structure. It is kept between
+	 * plans (and may be shared by the team) so
+	 * that replanning only updates what changed.
 	 */
 	private NavigationMap map;
 	
@@ -58,6 +60,11 @@ public class Navigator {
 	 */
 	private Position goalPosition;
 	
+	/**
+	 * Flags if long trips are planned with the hierarchical search
+	 */
+	private boolean hierarchicalSearch;
+	
 	/**
 	 * Exception designed when navigation fails (i.e search fails)
 	 */
@@ -90,8 +97,34 @@ public class Navigator {
 	 * @param debug	allow graphcis display for debug
 	 */
 	public Navigator(boolean debug) {
+		this(debug, null);
+	}
+	
+	/**
+	 * Initializes the object with a navigation map shared with
+	 * other navigators (i.e the other ships on the team). The 
+	 * navigators must plan one at a time.
+	 * 
+	 * @param debug	allow graphcis display for debug
+	 * @param sharedMap	the map to plan on, if <code>null</code> the
+	 * 					navigator creates its own when it first plans
+	 */
+	public Navigator(boolean debug, NavigationMap sharedMap) {
 		currentTargetNode = null;
 		DEBUG_MODE = debug;
+		map = sharedMap;
+	}
+	
+	/**
+	 * Function will make sure there is a map that fits the space. The
+	 * map is only created on the first plan (or if space changes size),
+	 * afterwards the search updates it with the obstacles.
+	 * 
+	 * @param space the reference to game space
+	 */
+	private void prepareMap(Toroidal2DPhysics space) {
+		if(map == null || !(map.fits(space)))
+			map = new NavigationMap(space, DEBUG_MODE); // Generate graph for problem
 	}
 	
 	/**
@@ -205,7 +238,7 @@ public class Navigator {
 			AbstractObject goal, Set<AbstractObject> obstacles) {
 		
 		currentTargetNode = null;
-		map = new NavigationMap(space, DEBUG_MODE); // Generate graph for problem
+		prepareMap(space);
 		goalObject = goal;
 		
 		if(goalObject == null) {
@@ -216,7 +249,7 @@ public class Navigator {
 		GraphSearch graphSearch = new GraphSearch(map, ship, goal.getPosition()); // Give search parameters
 		
 		try {
-			path = graphSearch.aStarSearch(space, obstacles); // Generate a path
+			path = searchPath(graphSearch, space, ship.getPosition(), goal.getPosition(), obstacles); // Generate a path
 		}
 		catch(GraphSearch.SearchFailureException e) {
 			path = new Stack<GraphSearchNode>();
@@ -237,20 +270,63 @@ public class Navigator {
 			Position goal, Set<AbstractObject> obstacles) {
 		
 		currentTargetNode = null;
-		map = new NavigationMap(space, DEBUG_MODE); // Generate graph for problem
+		prepareMap(space);
 		goalObject = null;
 		goalPosition = goal;
 		
 		GraphSearch graphSearch = new GraphSearch(map, ship, goal); // Give search parameters
 		
 		try {
-			path = graphSearch.aStarSearch(space, obstacles); // Generate a path
+			path = searchPath(graphSearch, space, ship.getPosition(), goal, obstacles); // Generate a path
 		}
 		catch(GraphSearch.SearchFailureException e) {
 			path = new Stack<GraphSearchNode>();
 		}
 	}
 	
+	/**
+	 * Function will run the search for a path. A path found earlier (by any
+	 * navigator sharing the map) that is still clear is used without a search.
+	 * Otherwise long trips use the hierarchical search when it is turned on, 
+	 * falling back to 'A*' if it finds nothing.
+	 * 
+	 * @param graphSearch the search set up with the start and goal
+	 * @param space the reference to game space used for utility functions
+	 * @param start where the ship is
+	 * @param goal where the ship needs to go
+	 * @param obstacles the obstacles to avoid
+	 * @return the path found
+	 * @throws GraphSearch.SearchFailureException if no path was found
+	 */
+	private Stack<GraphSearchNode> searchPath(GraphSearch graphSearch, Toroidal2DPhysics space, 
+			Position start, Position goal, Set<AbstractObject> obstacles) {
+		Stack<GraphSearchNode> foundPath = graphSearch.findCachedPath(space, obstacles);
+		if(foundPath != null)
+			return foundPath;
+		
+		if(hierarchicalSearch && space.findShortestDistance(start, goal) > HierarchicalSearchEngine.LONG_TRIP_DISTANCE) {
+			try {
+				foundPath = graphSearch.hierarchicalSearch(space, obstacles);
+			}
+			catch(GraphSearch.SearchFailureException e) {
+				// Portals can miss narrow gaps, let 'A*' have a try
+			}
+		}
+		if(foundPath == null)
+			foundPath = graphSearch.aStarSearch(space, obstacles);
+		graphSearch.cachePath(foundPath);
+		return foundPath;
+	}
+	
+	/**
+	 * Function will turn the hierarchical search on or off for long trips
+	 * 
+	 * @param hierarchical <code>true</code> to plan long trips with the hierarchical search
+	 */
+	public void setHierarchicalSearch(boolean hierarchical) {
+		hierarchicalSearch = hierarchical;
+	}
+	
 	/**
 	 * Function will generate a path to the objective using a 
 	 * <code>GraphSearch</code> object that can employ graph search
@@ -262,9 +338,10 @@ public class Navigator {
 	 */
 	public void generateGreedyBFPath(Toroidal2DPhysics space, AbstractObject ship, AbstractObject goal) {
 		currentTargetNode = null;
-		map = new NavigationMap(space, DEBUG_MODE); // Generate graph for problem
+		// Greedy search doesn't avoid obstacles, so it gets a map of its own rather than clearing the shared one
+		NavigationMap greedyMap = new NavigationMap(space, DEBUG_MODE);
 		goalObject = goal;
-		GraphSearch graphSearch = new GraphSearch(map, ship, goal.getPosition()); // Give search parameters
+		GraphSearch graphSearch = new GraphSearch(greedyMap, ship, goal.getPosition()); // Give search parameters
 		
 		try {
 			path = graphSearch.greedyBFSearch(); // Generate a path
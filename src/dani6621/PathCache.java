@@ -0,0 +1,190 @@
+package dani6621;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the paths found on a <code>NavigationMap</code> by start vertex
+ * and goal vertex. Every vertex along a path is remembered as a start, since
+ * the rest of the path is a path from it to the same goal. Since the ships of
+ * a team share the map, a path found by one ship is used by any ship that plans
+ * from a vertex on it to the same goal (i.e a ship replanning along its own path
+ * or several ships heading back to a base). A path is only used while none of its
+ * remaining edges were lost or it passes a blocked vertex. Only edges to or from vertices 
+ * that lost their connections since it was found (an obstacle near them appeared, disappeared,
+ * or moved) are checked again. A path that is still clear may not be the shortest anymore, but it is safe to follow.
+ *
+ * Only the most recently used vertices are kept. Like the map, it is NOT thread safe.
+ */
+public class PathCache {
+
+	/**
+	 * Maximum number of start vertices remembered
+	 */
+	public static final int MAX_STARTS = 4096;
+	
+	/**
+	 * A path, where along it the start vertex is, and when it was found
+	 */
+	private static class CachedPath {
+		
+		/**
+		 * The vertices of the whole path found (shared by every start along it)
+		 */
+		final int[] vertexPath;
+		
+		/**
+		 * Position of the start vertex in the path
+		 */
+		final int offset;
+		
+		/**
+		 * The update of the map the path was found after
+		 */
+		final int update;
+		
+		/**
+		 * Initialize with the path
+		 *
+		 * @param path the vertices of the path
+		 * @param startOffset the position of the start vertex in the path
+		 * @param mapUpdate the current update of the map
+		 */
+		CachedPath(int[] path, int startOffset, int mapUpdate) {
+			vertexPath = path;
+			offset = startOffset;
+			update = mapUpdate;
+		}
+	}
+	
+	/**
+	 * The map the paths were found on
+	 */
+	private final NavigationMap map;
+	
+	/**
+	 * Paths by start and goal vertex, least recently used first
+	 */
+	private final Map<Long, CachedPath> paths;
+	
+	/**
+	 * Number of paths that were found in the cache and that had to be searched for
+	 */
+	private int hits;
+	private int misses;
+	
+	/**
+	 * Initialize an empty cache for the map
+	 *
+	 * @param navigationMap the map the paths are found on
+	 */
+	PathCache(NavigationMap navigationMap) {
+		map = navigationMap;
+		paths = new LinkedHashMap<Long, CachedPath>(MAX_STARTS, 0.75f, true) {
+			private static final long serialVersionUID = 8312590458318209641L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CachedPath> eldest) {
+				return size() > MAX_STARTS;
+			}
+		};
+	}
+	
+	/**
+	 * Function will retrieve the path between the vertices if one was
+	 * found and it is still clear
+	 *
+	 * @param startIndex the index of the start vertex
+	 * @param goalIndex the index of the goal vertex
+	 * @return the vertices of the path starting with the start vertex, or
+	 * 			<code>null</code> if a search is needed
+	 */
+	int[] get(int startIndex, int goalIndex) {
+		Long key = getKey(startIndex, goalIndex);
+		CachedPath cachedPath = paths.get(key);
+		
+		if(cachedPath == null) {
+			++misses;
+			return null;
+		}
+		
+		// A vertex that lost its connections may have lost the edges of the path, form them again to see
+		// (resetting a vertex also removes its neighbors' edges into it, so either end of an edge counts)
+		int[] vertexPath = cachedPath.vertexPath;
+		for(int i = cachedPath.offset; i < vertexPath.length - 1; ++i) {
+			boolean reset = map.getLastReset(vertexPath[i]) > cachedPath.update || 
+					map.getLastReset(vertexPath[i + 1]) > cachedPath.update;
+			if(map.isBlocked(vertexPath[i + 1]) || (reset && !(isStillConnected(vertexPath[i], vertexPath[i + 1])))) {
+				paths.remove(key);
+				++misses;
+				return null;
+			}
+		}
+		++hits;
+		return Arrays.copyOfRange(vertexPath, cachedPath.offset, vertexPath.length);
+	}
+	
+	/**
+	 * Function will remember a path found by a search. The map must not
+	 * have been updated since the search.
+	 *
+	 * @param goalIndex the index of the goal vertex searched for (the path
+	 * 			may end at a vertex close to it)
+	 * @param vertexPath the vertices of the path starting with the start vertex
+	 */
+	void put(int goalIndex, int[] vertexPath) {
+		int update = map.getUpdateCount();
+		
+		// The end of the path is not worth a lookup, it's already close to the goal
+		for(int i = vertexPath.length - 2; i >= 0; --i) {
+			paths.put(getKey(vertexPath[i], goalIndex), new CachedPath(vertexPath, i, update));
+		}
+	}
+	
+	/**
+	 * Function will check that the edge of a path between two vertices is 
+	 * there once the connections of the first vertex are formed
+	 *
+	 * @param index the index of the vertex the edge leaves
+	 * @param nextIndex the index of the vertex the edge reaches
+	 * @return <code>true</code> if the edge can still be followed
+	 */
+	private boolean isStillConnected(int index, int nextIndex) {
+		map.formConnections(index);
+		for(int direction = 0; direction < NavigationMap.DIRECTIONS; ++direction) {
+			if(map.getNeighborIndex(index, direction) == nextIndex)
+				return map.isConnected(index, direction);
+		}
+		return false;
+	}
+	
+	/**
+	 * Function will retrieve the number of paths found in the cache
+	 *
+	 * @return the number of paths that didn't need a search
+	 */
+	public int getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Function will retrieve the number of paths not found in the cache
+	 *
+	 * @return the number of paths that needed a search
+	 */
+	public int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Function will create the key of a start and goal vertex
+	 *
+	 * @param startIndex the index of the start vertex
+	 * @param goalIndex the index of the goal vertex
+	 * @return the key
+	 */
+	private Long getKey(int startIndex, int goalIndex) {
+		return Long.valueOf(((long) startIndex << 32) | goalIndex);
+	}
+}
@@ -0,0 +1,267 @@
+package dani6621;
+
+/**
+ * An immutable map that is changed by creating a new map. The new map
+ * shares everything but the path to the changed key with the old one, so
+ * changing a key costs O(log n) objects and copying a map costs nothing.
+ * This is what lets a <code>StateRepresentation</code> be copied for every
+ * node of the plan search.
+ *
+ * The map is a treap, a binary search tree kept balanced by giving each key
+ * a priority (here taken from its hash code) and keeping higher priorities
+ * above lower ones.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class PersistentMap<K extends Comparable<K>, V> {
+	
+	/**
+	 * A node of the tree, never changed once created
+	 */
+	private static final class Node<K, V> {
+		
+		/**
+		 * The key and its value
+		 */
+		final K key;
+		final V value;
+		
+		/**
+		 * Priority of the key, higher priorities are closer to the root
+		 */
+		final int priority;
+		
+		/**
+		 * Subtrees with the smaller and larger keys
+		 */
+		final Node<K, V> left;
+		final Node<K, V> right;
+		
+		/**
+		 * Number of keys in the subtree
+		 */
+		final int size;
+		
+		/**
+		 * Basic constructor
+		 *
+		 * @param k	the key
+		 * @param v	the value
+		 * @param p	the priority of the key
+		 * @param l	the left subtree
+		 * @param r	the right subtree
+		 */
+		Node(K k, V v, int p, Node<K, V> l, Node<K, V> r) {
+			key = k;
+			value = v;
+			priority = p;
+			left = l;
+			right = r;
+			size = 1 + sizeOf(l) + sizeOf(r);
+		}
+	}
+	
+	/**
+	 * The map with no keys
+	 */
+	private static final PersistentMap<?, ?> EMPTY = new PersistentMap<String, Object>(null);
+	
+	/**
+	 * Root of the tree (<code>null</code> when empty)
+	 */
+	private final Node<K, V> root;
+	
+	/**
+	 * Creates a map from a tree
+	 *
+	 * @param r	the root
+	 */
+	private PersistentMap(Node<K, V> r) {
+		root = r;
+	}
+	
+	/**
+	 * Function will retrieve the map with no keys
+	 *
+	 * @return	the empty map
+	 */
+	@SuppressWarnings("unchecked")
+	static <K extends Comparable<K>, V> PersistentMap<K, V> empty() {
+		return (PersistentMap<K, V>) EMPTY;
+	}
+	
+	/**
+	 * Function will retrieve the value of a key
+	 *
+	 * @param key	the key to look for
+	 * @return	the value, or <code>null</code> if the key isn't in the map
+	 */
+	V get(K key) {
+		Node<K, V> node = find(key);
+		return node == null ? null : node.value;
+	}
+	
+	/**
+	 * Function checks if the key is in the map
+	 *
+	 * @param key	the key to look for
+	 * @return	a boolean of result
+	 */
+	boolean containsKey(K key) {
+		return find(key) != null;
+	}
+	
+	/**
+	 * Function retrieves the number of keys in the map
+	 *
+	 * @return	the number of keys
+	 */
+	int size() {
+		return sizeOf(root);
+	}
+	
+	/**
+	 * Function will create the map with the key set to the value
+	 *
+	 * @param key	the key to set
+	 * @param value	the value of the key
+	 * @return	the new map (this map if the key already had the value)
+	 */
+	PersistentMap<K, V> put(K key, V value) {
+		Node<K, V> node = find(key);
+		
+		if(node != null && node.value == value)
+			return this;
+		return new PersistentMap<K, V>(insert(root, key, value, priorityOf(key)));
+	}
+	
+	/**
+	 * Function will create the map without the key
+	 *
+	 * @param key	the key to remove
+	 * @return	the new map (this map if the key wasn't in it)
+	 */
+	PersistentMap<K, V> remove(K key) {
+		if(find(key) == null)
+			return this;
+		return new PersistentMap<K, V>(delete(root, key));
+	}
+	
+	/**
+	 * Function will find the node of a key
+	 *
+	 * @param key	the key to look for
+	 * @return	the node, or <code>null</code> if the key isn't in the map
+	 */
+	private Node<K, V> find(K key) {
+		Node<K, V> node = root;
+		int comparison;
+		
+		while(node != null) {
+			comparison = key.compareTo(node.key);
+			if(comparison == 0)
+				return node;
+			node = comparison < 0 ? node.left : node.right;
+		}
+		return null;
+	}
+	
+	/**
+	 * Function will copy the path to the key, setting its value and
+	 * rotating it up while its priority is higher than its parent's
+	 *
+	 * @param node	the subtree to insert into
+	 * @param key	the key to set
+	 * @param value	the value of the key
+	 * @param priority	the priority of the key
+	 * @return	the new subtree
+	 */
+	private static <K extends Comparable<K>, V> Node<K, V> insert(Node<K, V> node, K key, V value, int priority) {
+		if(node == null)
+			return new Node<K, V>(key, value, priority, null, null);
+		
+		int comparison = key.compareTo(node.key);
+		if(comparison == 0)
+			return new Node<K, V>(key, value, node.priority, node.left, node.right);
+		
+		if(comparison < 0) {
+			Node<K, V> left = insert(node.left, key, value, priority);
+			if(left.priority > node.priority) // Rotate right
+				return new Node<K, V>(left.key, left.value, left.priority, left.left,
+						new Node<K, V>(node.key, node.value, node.priority, left.right, node.right));
+			return new Node<K, V>(node.key, node.value, node.priority, left, node.right);
+		}
+		
+		Node<K, V> right = insert(node.right, key, value, priority);
+		if(right.priority > node.priority) // Rotate left
+			return new Node<K, V>(right.key, right.value, right.priority,
+					new Node<K, V>(node.key, node.value, node.priority, node.left, right.left), right.right);
+		return new Node<K, V>(node.key, node.value, node.priority, node.left, right);
+	}
+	
+	/**
+	 * Function will copy the path to the key, replacing its node with
+	 * the merge of its subtrees
+	 *
+	 * @param node	the subtree containing the key
+	 * @param key	the key to remove
+	 * @return	the new subtree
+	 */
+	private static <K extends Comparable<K>, V> Node<K, V> delete(Node<K, V> node, K key) {
+		int comparison = key.compareTo(node.key);
+		
+		if(comparison == 0)
+			return merge(node.left, node.right);
+		if(comparison < 0)
+			return new Node<K, V>(node.key, node.value, node.priority, delete(node.left, key), node.right);
+		return new Node<K, V>(node.key, node.value, node.priority, node.left, delete(node.right, key));
+	}
+	
+	/**
+	 * Function will merge two subtrees where every key of the first is
+	 * smaller than every key of the second
+	 *
+	 * @param first	the subtree with the smaller keys
+	 * @param second	the subtree with the larger keys
+	 * @return	the merged subtree
+	 */
+	private static <K, V> Node<K, V> merge(Node<K, V> first, Node<K, V> second) {
+		if(first == null)
+			return second;
+		if(second == null)
+			return first;
+		
+		if(first.priority > second.priority)
+			return new Node<K, V>(first.key, first.value, first.priority, first.left, merge(first.right, second));
+		return new Node<K, V>(second.key, second.value, second.priority, merge(first, second.left), second.right);
+	}
+	
+	/**
+	 * Function retrieves the number of keys in a subtree
+	 *
+	 * @param node	the subtree
+	 * @return	the number of keys
+	 */
+	private static int sizeOf(Node<?, ?> node) {
+		return node == null ? 0 : node.size;
+	}
+	
+	/**
+	 * Function will derive the priority of a key from its hash code, mixed
+	 * so keys with similar hash codes still get unrelated priorities
+	 *
+	 * @param key	the key
+	 * @return	the priority
+	 */
+	private static int priorityOf(Object key) {
+		int hash = key.hashCode();
+		
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+}
@@ -1,7 +1,9 @@
 package dani6621;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
@@ -83,6 +85,22 @@ public class Planner {
 	 */
 	private HashMap<UUID, Navigator> shipToNavigator;
 	
+	/**
+	 * Searches that ran out of time, by ship, resumed on the next step
+	 */
+	private Map<UUID, PlanSearch> shipToUnfinishedSearch;
+	
+	/**
+	 * Time (in milliseconds) planning may take each step, zero means
+	 * searches always run until they finish
+	 */
+	private int planningBudget;
+	
+	/**
+	 * When (in 'System.nanoTime()') planning has to stop for the current step
+	 */
+	private long planningDeadline;
+	
 	/**
 	 * Basic constructor
 	 * @param teamInfo
@@ -91,6 +109,8 @@ public class Planner {
 		state = teamInfo;
 		shipToActionQueue = new HashMap<UUID, Queue<HighLevelAction>>();
 		shipToNavigator = new HashMap<UUID, Navigator>();
+		shipToUnfinishedSearch = new HashMap<UUID, PlanSearch>();
+		planningBudget = 0;
 	}
 	
 	/**
@@ -103,19 +123,15 @@ public class Planner {
 	 */
 	public void formulatePlan(Toroidal2DPhysics space, UUID shipID) {
 		Ship ship = (Ship) space.getObjectById(shipID);
-		PlanSearchNode root = null; // Hold reference to root
-		PlanSearchNode currentNode = null; // Hold reference to current node
+		boolean isFlagGathering = false; // Which search the ship plans with
 		
 		// System.out.println("-----------------------------------------");
 		
+		shipToUnfinishedSearch.remove(shipID); // A new plan replaces one still being searched for
 		state.assignShipToResourceCount(ship.getId(), ship.getResources().getTotal()); // Initialize intial resource count to ship current cargo state
 		emptyShipActionQueue(shipID);
 		
-		if(ASTEROID_GATHERING_PHASE) { // Gather asteroids to get items that optimize flag gathering
-			root = new PlanSearchNode(state); // Create a 'root' of the tree with state as initial state...
-			currentNode = asteroidGathering(space, shipID, root); // Hold reference to current node in search
-		}
-		else { // Flag gathering phase
+		if(!(ASTEROID_GATHERING_PHASE)) { // Flag gathering phase
 			// Where we assign flag gathering and base building to optimize flag count
 			if(state.getFlagCarrierOneID() == null) { // Need to give state flag carrier ID
 				Ship flagCarrier = WorldKnowledge.getFlagCarrier(space, state);
@@ -132,25 +148,151 @@ public class Planner {
 				}
 			}
 			
-			root = new PlanSearchNode(state); // Create a 'root' of the tree with state as initial state... 
+			// Flag carriers get flags, every other ship keeps gathering asteroids
+			isFlagGathering = ship.isCarryingFlag() || shipID.equals(state.getFlagCarrierOneID()) || 
+					shipID.equals(state.getFlagCarrierTwoID());
+		}
+		
+		// Create a 'root' of the tree with state as initial state...
+		runPlanSearch(space, new PlanSearch(shipID, new PlanSearchNode(state), isFlagGathering));
+		
+		// System.out.println("-----------------------------------------");
+	}
+	
+	/**
+	 * Function will set how long planning may take each step. When a search
+	 * runs out of time the ship follows the best partial plan found so far and
+	 * the search picks up from its frontier on the next step. 
+	 * 
+	 * @param milliseconds	the time planning may take, zero to always finish searches
+	 */
+	public void setPlanningBudget(int milliseconds) {
+		planningBudget = milliseconds;
+	}
+	
+	/**
+	 * Function will start the clock on the planning budget, must be
+	 * called at the start of each step the team plans in
+	 */
+	public void startPlanningStep() {
+		planningDeadline = System.nanoTime() + planningBudget * 1000000L;
+	}
+	
+	/**
+	 * Function will continue the searches that ran out of time on an earlier
+	 * step. A search is started over if another plan changed the state since.
+	 * 
+	 * @param space	a reference to space
+	 */
+	public void resumeUnfinishedPlans(Toroidal2DPhysics space) {
+		// Copy since searches that finish (or start over) change the map
+		for(PlanSearch search : new ArrayList<PlanSearch>(shipToUnfinishedSearch.values())) {
+			AbstractObject ship = space.getObjectById(search.shipID);
 			
-			if(ship.isCarryingFlag() || shipID.equals(state.getFlagCarrierOneID()) || shipID.equals(state.getFlagCarrierTwoID())) { // Flag carriers
-				currentNode = flagGathering(space, shipID, root);
+			if(ship == null || !(ship.isAlive())) { // Ship is gone, nothing to plan for
+				shipToUnfinishedSearch.remove(search.shipID);
+			}
+			else if(state != search.publishedState) { // Frontier was built from a state that is out of date
+				formulatePlan(space, search.shipID);
 			}
-			else { // Non-flag carrier
-				currentNode = asteroidGathering(space, shipID, root); // Hold reference to current node in search
+			else {
+				shipToUnfinishedSearch.remove(search.shipID);
+				runPlanSearch(space, search);
 			}
 		}
+	}
+	
+	/**
+	 * Function will run a plan search until it finishes or the planning
+	 * budget runs out. A finished search replaces the ship's action queue, 
+	 * otherwise the ship gets the best partial plan and the search is kept.
+	 * Either way the actions the ship completed from an earlier partial plan
+	 * are skipped.
+	 * 
+	 * @param space	a reference to space
+	 * @param search	the search to run
+	 */
+	private void runPlanSearch(Toroidal2DPhysics space, PlanSearch search) {
+		PlanSearchNode currentNode; // Hold reference to current node
+		List<HighLevelAction> plan;
+		Queue<HighLevelAction> actionQueue = shipToActionQueue.get(search.shipID);
+		
+		if(search.isFlagGathering) {
+			currentNode = flagGathering(space, search);
+		}
+		else {
+			currentNode = asteroidGathering(space, search); // Hold reference to current node in search
+		}
+		
+		if(currentNode == null) { // Ran out of time, follow the best plan so far
+			state = search.bestNode.internalState; // Other ships plan around the partial plan
+			search.publishedState = state;
+			shipToUnfinishedSearch.put(search.shipID, search);
+			plan = getPlanActions(search.bestNode);
+		}
+		else {
+			plan = getPlanActions(currentNode);
+		}
 		
-		while(currentNode.parent != null) {
-			if(shipID.equals(state.getFlagCarrierOneID()) || shipID.equals(state.getFlagCarrierTwoID())) {
-				// System.out.println(currentNode.edge.edgeValue.actionType);
+		List<HighLevelAction> remainingPlan = skipCompletedActions(search.issuedPlan, plan, actionQueue);
+		search.issuedPlan = plan;
+		actionQueue.clear();
+		actionQueue.addAll(remainingPlan);
+	}
+	
+	/**
+	 * Function will remove the actions the ship already completed from the
+	 * start of a plan found by a search that handed out a partial plan before
+	 * 
+	 * @param issuedPlan	the partial plan handed to the ship (<code>null</code> if none was)
+	 * @param plan	the plan found
+	 * @param actionQueue	the actions the ship has left, completed actions are removed from it
+	 * @return	the actions of the plan the ship still has to do
+	 */
+	private List<HighLevelAction> skipCompletedActions(List<HighLevelAction> issuedPlan, 
+			List<HighLevelAction> plan, Queue<HighLevelAction> actionQueue) {
+		if(issuedPlan == null)
+			return plan;
+		
+		int completedActions = 0;
+		for(HighLevelAction action : issuedPlan) {
+			if(!(actionQueue.contains(action))) { // Actions are removed once completed
+				++completedActions;
 			}
-			((LinkedList<HighLevelAction>) shipToActionQueue.get(shipID)).addFirst(currentNode.edge.edgeValue);
-			currentNode = currentNode.parent;
 		}
 		
-		// System.out.println("-----------------------------------------");
+		// Only skip ahead if the plan found still starts with what was completed
+		if(completedActions <= plan.size() && 
+				plan.subList(0, completedActions).equals(issuedPlan.subList(0, completedActions))) {
+			return plan.subList(completedActions, plan.size());
+		}
+		return plan;
+	}
+	
+	/**
+	 * Function will collect the actions that lead from the root of the
+	 * search tree to the node
+	 * 
+	 * @param node	the last node of the plan
+	 * @return	the actions in the order they are performed
+	 */
+	private List<HighLevelAction> getPlanActions(PlanSearchNode node) {
+		LinkedList<HighLevelAction> actions = new LinkedList<HighLevelAction>();
+		
+		while(node.parent != null) {
+			actions.addFirst(node.edge.edgeValue);
+			node = node.parent;
+		}
+		return actions;
+	}
+	
+	/**
+	 * Function will check if the planning budget for the step is used up
+	 * 
+	 * @return	<code>true</code> if searches have to stop
+	 */
+	private boolean isOutOfPlanningTime() {
+		return planningBudget > 0 && System.nanoTime() - planningDeadline > 0;
 	}
 	
 	/**
@@ -203,21 +345,21 @@ public class Planner {
 			}
 			else if(highLevelAction.actionType == ActionEnum.RETURN_TO_BASE) { // Return to base
 				goalObject = space.getObjectById(highLevelAction.goalObject);
-				if(space.getCurrentTimestep() % MultiShipAgent.NAVIGATION_REPLAN_TIMESTEP == 0) {
+				if(space.getCurrentTimestep() % MultiShipAgent.NAVIGATION_REPLAN_TIMESTEP == 0 && goalObject != null) {
 					generateTeamMemberPath(space, ship, goalObject.getPosition(), WorldKnowledge.getAllObstaclesExceptTeamBases(space, ship));
 				}
 				action = getTeamMemberAction(space, ship, false);
 			}
 			else if(highLevelAction.actionType == ActionEnum.GET_ENERGY) { // Got to get energy
 				goalObject = space.getObjectById(highLevelAction.goalObject);
-				if(space.getCurrentTimestep() % MultiShipAgent.NAVIGATION_REPLAN_TIMESTEP == 0) {
+				if(space.getCurrentTimestep() % MultiShipAgent.NAVIGATION_REPLAN_TIMESTEP == 0 && goalObject != null) {
 					generateTeamMemberPath(space, ship, goalObject.getPosition(), WorldKnowledge.getAllObstacles(space, ship));
 				}
 				action = getTeamMemberAction(space, ship, false);
 			}
 			else if(highLevelAction.actionType == ActionEnum.GET_FLAG) { // Getting a flag
 				goalObject = space.getObjectById(highLevelAction.goalObject);
-				if(space.getCurrentTimestep() % MultiShipAgent.NAVIGATION_REPLAN_TIMESTEP == 0) {
+				if(space.getCurrentTimestep() % MultiShipAgent.NAVIGATION_REPLAN_TIMESTEP == 0 && goalObject != null) {
 					generateTeamMemberPath(space, ship, goalObject.getPosition(), WorldKnowledge.getAllObstacles(space, ship));
 				}
 				action = getTeamMemberAction(space, ship, false);
@@ -230,13 +372,34 @@ public class Planner {
 				action = getTeamMemberAction(space, ship, true); // 'True' means target velocity is 0
 			}
 		}
-		else {
+		else if(!(shipToUnfinishedSearch.containsKey(shipID))) {
 			formulatePlan(space, shipID); // Need to create a new plan since we ran out of actions
 		}
 		
 		return action;
 	}
 	
+	/**
+	 * Function will retrieve the actions the ship has left in its plan
+	 * 
+	 * @param shipID	the UUID of the ship
+	 * @return	a copy of the actions in the order they are performed
+	 */
+	List<HighLevelAction> getPlannedActions(UUID shipID) {
+		return new ArrayList<HighLevelAction>(shipToActionQueue.get(shipID));
+	}
+	
+	/**
+	 * Function checks if the search for the ship's plan ran out of time
+	 * and is continued on the next step
+	 * 
+	 * @param shipID	the UUID of the ship
+	 * @return	a boolean of the result
+	 */
+	boolean isPlanUnfinished(UUID shipID) {
+		return shipToUnfinishedSearch.containsKey(shipID);
+	}
+	
 	/**
 	 * Assigns a navigator to ship
 	 * 
@@ -356,6 +519,7 @@ public class Planner {
 	 */
 	public void clear() {
 		state.clear();
+		shipToUnfinishedSearch.clear(); // Their frontiers hold the assignments being undone
 	}
 	
 	/**
@@ -466,21 +630,25 @@ public class Planner {
 	 * Helper function that will assign ship to a flag gathering plan
 	 * 
 	 * @param space	a reference to space
-	 * @param shipID	ID of the ship that will be assigned plan
-	 * @param root	the root of the search tree
-	 * @return	a goal node that allows recurivly reconstruct action plan
+	 * @param search	the search, holding the ship, the root, and the frontier
+	 * @return	a goal node that allows recurivly reconstruct action plan, or <code>null</code> 
+	 * 			if the planning budget ran out first
 	 */
-	private PlanSearchNode flagGathering(Toroidal2DPhysics space, UUID shipID, PlanSearchNode root) {
-		int iterations = 0;
+	private PlanSearchNode flagGathering(Toroidal2DPhysics space, PlanSearch search) {
 		StateRepresentation stateCopy;
 		PlanSearchNode currentNode;
+		UUID shipID = search.shipID;
+		PlanSearchNode root = search.root;
 		Ship ship = (Ship) space.getObjectById(shipID);
 		Flag otherTeamFlag = WorldKnowledge.getOtherTeamFlag(space);
-		Stack<PlanSearchNode> frontier = new Stack<PlanSearchNode>();
-		frontier.push(root);
+		Stack<PlanSearchNode> frontier = search.frontier;
+		int expansions = 0; // Expansions since the search was (re)started this step
 		
-		while(iterations < MAX_ITERATIONS) {
-			++iterations;
+		while(search.iterations < MAX_ITERATIONS) {
+			if(expansions > 0 && isOutOfPlanningTime()) // Always expand something so searches progress
+				return null;
+			++expansions;
+			++search.iterations;
 			
 			if(frontier.isEmpty()) {
 				// System.out.println("Frontier is empty..."); // No solution found... Something odd happened
@@ -489,6 +657,7 @@ public class Planner {
 			}
 			
 			currentNode = frontier.pop();
+			search.considerPartialPlan(currentNode);
 			
 			if(currentNode != null) {
 				// System.out.println("Parent copy");
@@ -555,20 +724,24 @@ public class Planner {
 	 * Helper function that will assign ship to a asteroid gathering plan
 	 * 
 	 * @param space	a reference to space
-	 * @param shipID	ID of the ship that will be assigned plan
-	 * @param root	the root of the search tree
-	 * @return	a goal node that allows recurivly reconstruct action plan
+	 * @param search	the search, holding the ship, the root, and the frontier
+	 * @return	a goal node that allows recurivly reconstruct action plan, or <code>null</code> 
+	 * 			if the planning budget ran out first
 	 */
-	private PlanSearchNode asteroidGathering(Toroidal2DPhysics space, UUID shipID, PlanSearchNode root) {
-		int iterations = 0;
+	private PlanSearchNode asteroidGathering(Toroidal2DPhysics space, PlanSearch search) {
 		StateRepresentation stateCopy;
 		PlanSearchNode currentNode;
+		UUID shipID = search.shipID;
+		PlanSearchNode root = search.root;
 		Ship ship = (Ship) space.getObjectById(shipID);
-		Stack<PlanSearchNode> frontier = new Stack<PlanSearchNode>();
-		frontier.push(root);
+		Stack<PlanSearchNode> frontier = search.frontier;
+		int expansions = 0; // Expansions since the search was (re)started this step
 		
-		while(iterations < MAX_ITERATIONS) {
-			++iterations;
+		while(search.iterations < MAX_ITERATIONS) {
+			if(expansions > 0 && isOutOfPlanningTime()) // Always expand something so searches progress
+				return null;
+			++expansions;
+			++search.iterations;
 			if(frontier.isEmpty()) {
 				// System.out.println("Frontier is empty..."); // No solution found... Something odd happened
 				return new PlanSearchNode(root, state, 
@@ -576,6 +749,7 @@ public class Planner {
 			}
 			
 			currentNode = frontier.pop();
+			search.considerPartialPlan(currentNode);
 			
 			if(currentNode != null) {
 				// System.out.println("Parent copy");
@@ -935,4 +1109,90 @@ public class Planner {
 			edgeValue = v;
 		}
 	}
+	
+	/**
+	 * A plan search for a ship that can be stopped when the planning
+	 * budget runs out and picked up again from its frontier
+	 *
+	 */
+	private class PlanSearch {
+		
+		/**
+		 * The ship being planned for
+		 */
+		public final UUID shipID;
+		
+		/**
+		 * The root of the search tree
+		 */
+		public final PlanSearchNode root;
+		
+		/**
+		 * Whether the ship plans with the flag gathering search
+		 */
+		public final boolean isFlagGathering;
+		
+		/**
+		 * The nodes left to expand (DFS)
+		 */
+		public final Stack<PlanSearchNode> frontier;
+		
+		/**
+		 * Number of nodes expanded over every step
+		 */
+		public int iterations;
+		
+		/**
+		 * The expanded node with the longest plan, the best partial plan
+		 */
+		public PlanSearchNode bestNode;
+		
+		/**
+		 * Number of actions in the best partial plan
+		 */
+		public int bestPlanLength;
+		
+		/**
+		 * The partial plan handed to the ship and the state 
+		 * published with it (<code>null</code> until then)
+		 */
+		public List<HighLevelAction> issuedPlan;
+		public StateRepresentation publishedState;
+		
+		/**
+		 * Basic constructor
+		 * 
+		 * @param ship	the ship ID
+		 * @param r	the root
+		 * @param flagGathering	whether the flag gathering search is used
+		 */
+		public PlanSearch(UUID ship, PlanSearchNode r, boolean flagGathering) {
+			shipID = ship;
+			root = r;
+			isFlagGathering = flagGathering;
+			frontier = new Stack<PlanSearchNode>();
+			frontier.push(root);
+			iterations = 0;
+			bestNode = root;
+			bestPlanLength = 0;
+		}
+		
+		/**
+		 * Function will keep the node as the best partial plan if
+		 * it plans further ahead than the best so far
+		 * 
+		 * @param node	the node being expanded
+		 */
+		public void considerPartialPlan(PlanSearchNode node) {
+			int planLength = 0;
+			
+			for(PlanSearchNode current = node; current.parent != null; current = current.parent) {
+				++planLength;
+			}
+			if(planLength > bestPlanLength) {
+				bestNode = node;
+				bestPlanLength = planLength;
+			}
+		}
+	}
 }
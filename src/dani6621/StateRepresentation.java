@@ -1,7 +1,5 @@
 package dani6621;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
 import spacesettlers.objects.Asteroid;
@@ -54,25 +52,27 @@ public class StateRepresentation {
 	/**
 	 * Stores the amount of resources in ship when executing instance
 	 * of a plan
+	 * NOTE: The maps are persistent, so copies of the state share them
+	 * and an effect only replaces the map it changes
 	 */
-	private Map<UUID, Integer> shipToResourceCount;
+	private PersistentMap<UUID, Integer> shipToResourceCount;
 	
 	/**
 	 * Stores the asteroid to ship assignment... Useful for 
 	 * precondition application... It is also helps to mutate
 	 * the state by applying an effect as well...
 	 */
-	private Map<UUID, UUID> asteroidToShip;
+	private PersistentMap<UUID, UUID> asteroidToShip;
 	
 	/**
 	 * Stores the ship to beacon assignment...
 	 */
-	private Map<UUID, UUID> beaconToShip;
+	private PersistentMap<UUID, UUID> beaconToShip;
 	
 	/**
 	 * Store the ship to base assignment
 	 */
-	private Map<UUID, UUID> baseToShip;
+	private PersistentMap<UUID, UUID> baseToShip;
 	
 	/**
 	 * Store the ID for the first flag carrier
@@ -116,10 +116,10 @@ public class StateRepresentation {
 	public StateRepresentation() {
 		convientBaseLocations = new Position[2];
 		loiterLocations = new Position[2];
-		shipToResourceCount = new HashMap<UUID, Integer>();
-		asteroidToShip = new HashMap<UUID, UUID>();
-		beaconToShip = new HashMap<UUID, UUID>();
-		baseToShip = new HashMap<UUID, UUID>();
+		shipToResourceCount = PersistentMap.empty();
+		asteroidToShip = PersistentMap.empty();
+		beaconToShip = PersistentMap.empty();
+		baseToShip = PersistentMap.empty();
 		flagCarrierOneID = null;
 		flagCarrierTwoID = null;
 		totalResources = 0;
@@ -130,17 +130,18 @@ public class StateRepresentation {
 	}
 	
 	/**
-	 * Copy constructor
+	 * Copy constructor, which costs the same however many assignments 
+	 * the state holds since the maps are shared
 	 * 
 	 * @param state	the state to create a copy 
 	 */
 	public StateRepresentation(StateRepresentation state) {
 		convientBaseLocations = state.convientBaseLocations;
 		loiterLocations = state.loiterLocations;
-		shipToResourceCount = new HashMap<UUID, Integer>(state.shipToResourceCount);
-		asteroidToShip = new HashMap<UUID, UUID>(state.asteroidToShip);
-		beaconToShip = new HashMap<UUID, UUID>(state.beaconToShip);
-		baseToShip = new HashMap<UUID, UUID>(state.baseToShip);
+		shipToResourceCount = state.shipToResourceCount;
+		asteroidToShip = state.asteroidToShip;
+		beaconToShip = state.beaconToShip;
+		baseToShip = state.baseToShip;
 		flagCarrierOneID = state.flagCarrierOneID;
 		flagCarrierTwoID = state.flagCarrierTwoID;
 		currentFlagCarrier = state.currentFlagCarrier;
@@ -158,7 +159,7 @@ public class StateRepresentation {
 	 * @param resources	the number of resources ship will have
 	 */
 	public void assignShipToResourceCount(UUID shipID, int resources) {
-		shipToResourceCount.put(shipID, resources);
+		shipToResourceCount = shipToResourceCount.put(shipID, resources);
 	}
 	
 	/**
@@ -180,7 +181,7 @@ public class StateRepresentation {
 	 * @return
 	 */
 	public void addResourceCount(UUID shipID, int resources) {
-		shipToResourceCount.put(shipID, shipToResourceCount.get(shipID) + resources);
+		shipToResourceCount = shipToResourceCount.put(shipID, shipToResourceCount.get(shipID) + resources);
 	}
 	
 	/**
@@ -195,7 +196,7 @@ public class StateRepresentation {
 	 */
 	public void assignAsteroidToShip(Toroidal2DPhysics space, UUID shipID, UUID asteroidID) {
 		if(!(isAsteroidAssigned(asteroidID))) {
-			asteroidToShip.put(asteroidID, shipID);
+			asteroidToShip = asteroidToShip.put(asteroidID, shipID);
 			addResourceCount(shipID, ((Asteroid) space.getObjectById(asteroidID)).getResources().getTotal()); 
 		}
 	}
@@ -215,7 +216,7 @@ public class StateRepresentation {
 	 * @param asteroidID
 	 */
 	public void unassignAsteroidToShip(UUID asteroidID) {
-		asteroidToShip.remove(asteroidID);
+		asteroidToShip = asteroidToShip.remove(asteroidID);
 	}
 	
 	/**
@@ -232,7 +233,7 @@ public class StateRepresentation {
 	 * @param beaconID
 	 */
 	public void assignBeaconToShip(UUID shipID, UUID beaconID) {
-		beaconToShip.put(shipID, beaconID);
+		beaconToShip = beaconToShip.put(shipID, beaconID);
 	}
 	
 	/**
@@ -249,7 +250,7 @@ public class StateRepresentation {
 	 * @param beaconID
 	 */
 	public void unassignBeaconToShip(UUID beaconID) {
-		beaconToShip.remove(beaconID);
+		beaconToShip = beaconToShip.remove(beaconID);
 	}
 	
 	/**
@@ -258,11 +259,11 @@ public class StateRepresentation {
 	 * @param baseID
 	 */
 	public void assignBaseToShip(UUID shipID, UUID baseID) {
-		baseToShip.put(baseID, shipID);
+		baseToShip = baseToShip.put(baseID, shipID);
 		if(shipToResourceCount.get(shipID) != null) {
 			totalResources += shipToResourceCount.get(shipID); // Add ship resource in cargo to total
 		}
-		shipToResourceCount.put(shipID, 0); // Returning to base empties resources
+		shipToResourceCount = shipToResourceCount.put(shipID, 0); // Returning to base empties resources
 	}
 	
 	/**
@@ -279,7 +280,7 @@ public class StateRepresentation {
 	 * @param baseID
 	 */
 	public void unassignBaseToShip(UUID baseID) {
-		baseToShip.remove(baseID);
+		baseToShip = baseToShip.remove(baseID);
 	}
 
 	/**
@@ -318,9 +319,9 @@ public class StateRepresentation {
 	 * Clears all the mapping relations
 	 */
 	public void clear() {
-		asteroidToShip.clear();
-		beaconToShip.clear();
-		baseToShip.clear();
+		asteroidToShip = PersistentMap.empty();
+		beaconToShip = PersistentMap.empty();
+		baseToShip = PersistentMap.empty();
 		totalResources = 0;
 		lastTotalResources = 0;
 		totalFlags = 0;
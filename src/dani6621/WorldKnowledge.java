@@ -72,17 +72,10 @@ public class WorldKnowledge {
 	 * Function retrieves all mineable asteroids in the space currently
 	 * 
 	 * @param space	a reference to space
-	 * @return	a <code>Set</code> containing mineable asteroids
+	 * @return	an unmodifiable <code>Set</code> containing mineable asteroids
 	 */
 	public static Set<Asteroid> getMineableAsteroids(Toroidal2DPhysics space) {
-		Set<Asteroid> mineableAsteroids = new HashSet<Asteroid>();
-		for(Asteroid asteroid : space.getAsteroids()) {
-			if(asteroid.isMineable()) {
-				mineableAsteroids.add(asteroid);
-			}
-		}
-		
-		return mineableAsteroids;
+		return space.getMineableAsteroids();
 	}
 	
 	/**
@@ -135,16 +128,10 @@ public class WorldKnowledge {
 	 * 
 	 * @param space	a reference to space
 	 * @param teamName	the team name that will be used to compare team
-	 * @return	a <code>Set</code> of bases on same team as ship
+	 * @return	an unmodifiable <code>Set</code> of bases on same team as ship
 	 */
 	public static Set<Base> getTeamBases(Toroidal2DPhysics space) {
-		Set<Base> bases = new HashSet<Base>();
-		for(Base base : space.getBases()) {
-			if(base.getTeam().getTeamName().equalsIgnoreCase(teamName)) {
-				bases.add(base);
-			}
-		}
-		return bases;
+		return space.getTeamBases(teamName);
 	}
 	
 	/**
@@ -170,7 +157,7 @@ public class WorldKnowledge {
 	public static Set<Base> getNonTeamBases(Toroidal2DPhysics space, Ship ship) {
 		Set<Base> bases = new HashSet<Base>();
 		for(Base base : space.getBases()) {
-			if(!(base.getTeam().getTeamName().equalsIgnoreCase(ship.getTeamName()))) {
+			if(!(base.getTeamName().equalsIgnoreCase(ship.getTeamName()))) {
 				bases.add(base);
 			}
 		}
@@ -199,16 +186,10 @@ public class WorldKnowledge {
 	 * Function will retrieve all ships on team
 	 * 
 	 * @param space	a reference to space
-	 * @return	a <code>Set</code> of all team ships in game
+	 * @return	an unmodifiable <code>Set</code> of all team ships in game
 	 */
 	public static Set<Ship> getTeamShips(Toroidal2DPhysics space) {
-		Set<Ship> ships = new HashSet<Ship>();
-		for(Ship ship : space.getShips()) {
-			if(ship.getTeamName().equalsIgnoreCase(teamName)) {
-				ships.add(ship);
-			}
-		}
-		return ships;
+		return space.getTeamShips(teamName);
 	}
 	
 	/**
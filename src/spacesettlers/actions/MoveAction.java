@@ -214,8 +214,8 @@ public class MoveAction extends AbstractAction {
 	 * @return
 	 */
 	private double getOrientationError(Toroidal2DPhysics space, Position goalLoc, Position currentLoc) {
-		Vector2D shortdist = space.findShortestDistanceVector(currentLoc, goalLoc);
-		double angle = shortdist.getAngle();
+		// same as the angle of the shortest distance vector
+		double angle = Math.atan2(space.findShortestDeltaY(currentLoc, goalLoc), space.findShortestDeltaX(currentLoc, goalLoc));
 
 		double error = (angle - currentLoc.getOrientation());
 
@@ -258,11 +258,24 @@ public class MoveAction extends AbstractAction {
 	 */
 	public Vector2D pdControlMoveToGoal(Toroidal2DPhysics space, Position goalLoc,
 			Position currentLoc, Vector2D goalVelocity) {
+		return pdControlMoveToGoal(space, goalLoc, currentLoc, goalVelocity, new Vector2D());
+	}
+
+	/**
+	 * Same as pdControlMoveToGoal but writes the acceleration into the destination instead
+	 * of making a new vector.
+	 * 
+	 * @param goalLoc location that you are trying to get to
+	 * @param currentLoc your current location
+	 * @param goalVelocity velocity you want to be at when you reach the goal location
+	 * @param destination the vector to write the acceleration into
+	 * @return the destination
+	 */
+	public Vector2D pdControlMoveToGoal(Toroidal2DPhysics space, Position goalLoc,
+			Position currentLoc, Vector2D goalVelocity, Vector2D destination) {
 		// take care of wrap-around
-		Vector2D shortestDist = space.findShortestDistanceVector(currentLoc, goalLoc);
-		
-		double xError = shortestDist.getXValue();
-		double yError = shortestDist.getYValue();
+		double xError = space.findShortestDeltaX(currentLoc, goalLoc);
+		double yError = space.findShortestDeltaY(currentLoc, goalLoc);
 		//System.out.println("xerror is " + xError + " yError is " + yError);
 		
 		double velocityErrorX = (goalVelocity.getXValue() - currentLoc.getTranslationalVelocityX());
@@ -273,7 +286,8 @@ public class MoveAction extends AbstractAction {
 		double yAccel = pdControlTranslate(yError, velocityErrorY);
 		
 		//System.out.println("Translation accel is " + xAccel + ", " + yAccel);
-		return new Vector2D(xAccel, yAccel);
+		destination.set(xAccel, yAccel);
+		return destination;
 	}
 
 
@@ -292,8 +306,10 @@ public class MoveAction extends AbstractAction {
 		// set the angular and translational velocity at the same time
 		double angularAccel = pdControlOrientToGoal(space, targetLocation, ship.getPosition(), 0);
 		movement.setAngularAccleration(angularAccel);
-		Vector2D goalAccel = pdControlMoveToGoal(space, targetLocation, ship.getPosition(), targetVelocity);
-		movement.setTranslationalAcceleration(goalAccel);
+		// the movement's own vector is used so nothing else is made
+		Vector2D goalAccel = pdControlMoveToGoal(space, targetLocation, ship.getPosition(), targetVelocity, 
+				movement.getTranslationalAcceleration());
+		movement.setTranslationalAcceleration(goalAccel.getXValue(), goalAccel.getYValue());
 
 		// figure out if it has reached the goal
 		if ((goalAccel.getMagnitude() < TARGET_REACHED_ACCEL) ||
@@ -2,6 +2,7 @@ package spacesettlers.clients;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -169,22 +170,16 @@ public class AggressiveHeuristicAsteroidCollectorSingletonTeamClient extends Tea
 	 * @return
 	 */
 	private Ship pickNearestEnemyShip(Toroidal2DPhysics space, Ship ship) {
-		double minDistance = Double.POSITIVE_INFINITY;
-		Ship nearestShip = null;
-		for (Ship otherShip : space.getShips()) {
+		// only our own ships can be nearer than the nearest enemy (ties go to the ship added to space first)
+		int k = space.getTeamShips(ship.getTeamName()).size() + 1;
+		for (Ship otherShip : space.getNearestObjects(ship.getPosition(), Ship.class, k)) {
 			// don't aim for our own team (or ourself)
-			if (otherShip.getTeamName().equals(ship.getTeamName())) {
-				continue;
-			}
-			
-			double distance = space.findShortestDistance(ship.getPosition(), otherShip.getPosition());
-			if (distance < minDistance) {
-				minDistance = distance;
-				nearestShip = otherShip;
+			if (!otherShip.getTeamName().equals(ship.getTeamName())) {
+				return otherShip;
 			}
 		}
 		
-		return nearestShip;
+		return null;
 	}
 
 	/**
@@ -198,44 +193,52 @@ public class AggressiveHeuristicAsteroidCollectorSingletonTeamClient extends Tea
 		double minDistance = Double.MAX_VALUE;
 		Base nearestBase = null;
 
-		for (Base base : space.getBases()) {
-			if (base.getTeamName().equalsIgnoreCase(ship.getTeamName())) {
-				double dist = space.findShortestDistance(ship.getPosition(), base.getPosition());
-				if (dist < minDistance) {
-					minDistance = dist;
-					nearestBase = base;
-				}
+		for (Base base : space.getTeamBases(ship.getTeamName())) {
+			double dist = space.findShortestDistance(ship.getPosition(), base.getPosition());
+			if (dist < minDistance) {
+				minDistance = dist;
+				nearestBase = base;
 			}
 		}
 		return nearestBase;
 	}
 
 	/**
-	 * Returns the asteroid of highest value that isn't already being chased by this team
+	 * Returns the nearest asteroid that isn't already being chased by this team (of the ones
+	 * equally near, the one of highest value)
 	 * 
 	 * @return
 	 */
 	private Asteroid pickHighestValueNearestFreeAsteroid(Toroidal2DPhysics space, Ship ship) {
-		Set<Asteroid> asteroids = space.getAsteroids();
-		int bestMoney = Integer.MIN_VALUE;
-		Asteroid bestAsteroid = null;
-		double minDistance = Double.MAX_VALUE;
-
-		for (Asteroid asteroid : asteroids) {
-			if (!asteroidToShipMap.containsKey(asteroid.getId())) {
-				if (asteroid.isMineable() && asteroid.getResources().getTotal() > bestMoney) {
-					double dist = space.findShortestDistance(asteroid.getPosition(), ship.getPosition());
-					if (dist < minDistance) {
-						bestMoney = asteroid.getResources().getTotal();
-						//System.out.println("Considering asteroid " + asteroid.getId() + " as a best one");
-						bestAsteroid = asteroid;
-						minDistance = dist;
-					}
+		// widen the search until it holds a free asteroid and every asteroid as near as it
+		int k = asteroidToShipMap.size() + 1;
+		while (true) {
+			List<Asteroid> asteroids = space.getNearestObjects(ship.getPosition(), Asteroid.class, k);
+			Asteroid bestAsteroid = null;
+			double minDistance = Double.MAX_VALUE;
+
+			// nearest first, so the first free asteroid is the nearest (of the ones just as near,
+			// the highest value wins and then the one added to space first)
+			for (Asteroid asteroid : asteroids) {
+				if (asteroidToShipMap.containsKey(asteroid.getId()) || !asteroid.isMineable()) {
+					continue;
+				}
+				double dist = space.findShortestDistance(asteroid.getPosition(), ship.getPosition());
+				if (dist > minDistance) {
+					return bestAsteroid;
+				}
+				if (bestAsteroid == null || asteroid.getResources().getTotal() > bestAsteroid.getResources().getTotal()) {
+					bestAsteroid = asteroid;
+					minDistance = dist;
 				}
 			}
+
+			// every asteroid has been looked at
+			if (asteroids.size() < k) {
+				return bestAsteroid;
+			}
+			k *= 2;
 		}
-		//System.out.println("Best asteroid has " + bestMoney);
-		return bestAsteroid;
 	}
 
 
@@ -0,0 +1,111 @@
+package spacesettlers.clients;
+
+/**
+ * Latency and failure counts for one kind of call (e.g. getMovementStart) into a team client.
+ * Used by the simulator profiler to see which teams use up the time in a game.
+ *
+ * @author amy
+ */
+public class ClientCallStats {
+	/**
+	 * The method being called
+	 */
+	String methodName;
+
+	/**
+	 * Number of calls that were made (including ones that timed out or threw an exception)
+	 */
+	int numCalls;
+
+	/**
+	 * Total and maximum time waiting on the client (in nanoseconds)
+	 */
+	long totalNanos, maxNanos;
+
+	/**
+	 * Number of calls that ran past their timeout
+	 */
+	int numTimeouts;
+
+	/**
+	 * Number of calls that were skipped because the client was still busy with an earlier call
+	 */
+	int numSkipped;
+
+	/**
+	 * Number of calls where the client threw an exception
+	 */
+	int numErrors;
+
+	public ClientCallStats(String methodName) {
+		this.methodName = methodName;
+	}
+
+	/**
+	 * Make a copy (so the stats can be read while the game keeps running)
+	 *
+	 * @return
+	 */
+	public ClientCallStats deepCopy() {
+		ClientCallStats copy = new ClientCallStats(methodName);
+		copy.numCalls = numCalls;
+		copy.totalNanos = totalNanos;
+		copy.maxNanos = maxNanos;
+		copy.numTimeouts = numTimeouts;
+		copy.numSkipped = numSkipped;
+		copy.numErrors = numErrors;
+		return copy;
+	}
+
+	/**
+	 * Record a call that was made to the client
+	 *
+	 * @param nanos how long the caller waited for the client
+	 */
+	void recordCall(long nanos) {
+		numCalls++;
+		totalNanos += nanos;
+		if (nanos > maxNanos) {
+			maxNanos = nanos;
+		}
+	}
+
+	public String getMethodName() {
+		return methodName;
+	}
+
+	public int getNumCalls() {
+		return numCalls;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	/**
+	 * Average latency of a call
+	 * @return the average in nanoseconds (0 if there were no calls)
+	 */
+	public double getAverageNanos() {
+		if (numCalls == 0) {
+			return 0;
+		}
+		return (double) totalNanos / numCalls;
+	}
+
+	public int getNumTimeouts() {
+		return numTimeouts;
+	}
+
+	public int getNumSkipped() {
+		return numSkipped;
+	}
+
+	public int getNumErrors() {
+		return numErrors;
+	}
+}
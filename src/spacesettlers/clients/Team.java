@@ -4,19 +4,13 @@ import java.awt.Color;
 import java.awt.event.KeyAdapter;
 import java.awt.event.MouseAdapter;
 import java.awt.geom.AffineTransform;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import spacesettlers.actions.AbstractAction;
 import spacesettlers.actions.PurchaseCosts;
@@ -56,6 +50,12 @@ public class Team {
 	 */
 	Set<UUID> teamIDs;
 
+	/**
+	 * Descriptor shared by the copies of the team's bases and flags (made when first
+	 * asked for and again after the team changes)
+	 */
+	TeamDescriptor descriptor;
+
 	/**
 	 * The team color (used by the GUI)
 	 */
@@ -128,9 +128,15 @@ public class Team {
 	int maxNumberShips;
 	
 	/**
-	 * Thread for this team
+	 * Long-lived thread that runs all calls into the client for this team
+	 */
+	TeamWorker worker;
+
+	/**
+	 * The graphics the client handed back the last time it was asked (null until then).  They
+	 * are asked for on a background thread and read by the GUI on the simulation thread.
 	 */
-	ExecutorService executor;
+	volatile Set<SpacewarGraphics> latestGraphics;
 	
 	/**
 	 * Initialize the team client to have an empty list of ships.
@@ -154,7 +160,7 @@ public class Team {
 		this.totalDamageInflicted = 0;
 		this.totalDamageReceived = 0;
 		this.totalFlagsCollected = 0;
-		executor = null;
+		worker = new TeamWorker(teamName);
 	}
 	
 	/**
@@ -199,22 +205,45 @@ public class Team {
 
 	
 	/**
-	 * Make a cloned list of the team's actionable objects (ships and bases)
+	 * Get the team's actionable objects (ships and bases) out of a read-only snapshot of space.
+	 * These are the snapshot's copies so the client can't change the simulator objects.
 	 * 
+	 * @param snapshot read-only snapshot of space
 	 * @return
 	 */
-	private Set<AbstractActionableObject> getTeamActionableObjectsClone(Toroidal2DPhysics space) {
-		Set<AbstractActionableObject> clones = new HashSet<AbstractActionableObject>();
+	private Set<AbstractActionableObject> getTeamActionableObjects(Toroidal2DPhysics snapshot) {
+		Set<AbstractActionableObject> actionableObjects = new HashSet<AbstractActionableObject>();
 		
 		for (Ship ship : teamShips) {
-			clones.add(ship.deepClone());
+			AbstractActionableObject shipCopy = (AbstractActionableObject) snapshot.getObjectById(ship.getId());
+			if (shipCopy != null) {
+				actionableObjects.add(shipCopy);
+			}
 		}
 		
 		for (UUID baseId : teamBaseIDs) {
-			clones.add((Base)space.getObjectById(baseId).deepClone());
+			AbstractActionableObject baseCopy = (AbstractActionableObject) snapshot.getObjectById(baseId);
+			if (baseCopy != null) {
+				actionableObjects.add(baseCopy);
+			}
 		}
 		
-		return clones;
+		return Collections.unmodifiableSet(actionableObjects);
+	}
+
+	/**
+	 * Return a read-only snapshot of space.  The simulator makes a snapshot for each team in
+	 * each phase but anything else gets its own snapshot.
+	 * 
+	 * @param space
+	 * @return
+	 */
+	private Toroidal2DPhysics getReadOnlySpace(Toroidal2DPhysics space) {
+		if (space.isReadOnly()) {
+			return space;
+		} else {
+			return space.createReadOnlySnapshot();
+		}
 	}
 
 	
@@ -244,6 +273,7 @@ public class Team {
 	public void addBase(Base base) {
 		teamBaseIDs.add(base.getId());
 		addTeamID(base.getId());
+		descriptor = null;
 	}
 	
 	/**
@@ -253,6 +283,20 @@ public class Team {
 	public void removeBase(Base base) {
 		teamBaseIDs.remove(base.getId());
 		removeTeamID(base.getId());
+		descriptor = null;
+	}
+
+	/**
+	 * Returns an immutable description of the team (name, color, ladder name, and base ids)
+	 * for the copies of the team's bases and flags to share
+	 * 
+	 * @return
+	 */
+	public TeamDescriptor getDescriptor() {
+		if (descriptor == null) {
+			descriptor = new TeamDescriptor(this);
+		}
+		return descriptor;
 	}
 	
 	/**
@@ -298,6 +342,7 @@ public class Team {
 	 */
 	public void setTeamColor(Color teamColor) {
 		this.teamColor = teamColor;
+		descriptor = null;
 	}
 
 	/**
@@ -312,6 +357,7 @@ public class Team {
 	 */
 	public void setTeamName(String teamName) {
 		this.teamName = teamName;
+		descriptor = null;
 	}
 
 	/**
@@ -333,128 +379,46 @@ public class Team {
 	/**
 	 * Ask the team client for actions
 	 * 
-	 * @param simulator
-	 * @param random
+	 * @param space read-only snapshot of space (made for this team)
 	 * @return
 	 */
 	public Map<UUID, AbstractAction> getTeamMovementStart(Toroidal2DPhysics space) {
-        Map<UUID, AbstractAction> teamActions = new HashMap<UUID, AbstractAction>();
-
 		// ask the client for its movement
-		final Toroidal2DPhysics clonedSpace = space.deepClone();
-		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjectsClone(space);
+		final Toroidal2DPhysics clonedSpace = getReadOnlySpace(space);
+		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjects(clonedSpace);
 		
-		// if the previous thread call hasn't finished, then just return default
-		if (executor == null || executor.isTerminated()) {
-			executor = Executors.newSingleThreadExecutor();
-		} else {
-			return teamActions;
+		Map<UUID, AbstractAction> teamActions = worker.call(
+				new Callable<Map<UUID, AbstractAction>>(){
+					public Map<UUID, AbstractAction> call() {
+						return teamClient.getMovementStart(clonedSpace, clonedActionableObjects);
+					}
+				}, SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT, "getTeamMovementStart");
+
+		// if the client was busy, timed out, or crashed, return an empty map
+		// this will invoke default behavior of using DoNothingAction
+		if (teamActions == null) {
+			teamActions = new HashMap<UUID, AbstractAction>();
 		}
-		
-        Future<Map<UUID, AbstractAction>> future = executor.submit(
-        		new Callable<Map<UUID, AbstractAction>>(){
-        			public Map<UUID, AbstractAction> call() {
-        				Map<UUID, AbstractAction> teamActions = null;
-    					teamActions = teamClient.getMovementStart(clonedSpace, clonedActionableObjects);
-        				return teamActions;
-        			}
-        		});
-        
-        try {
-            //start
-            teamActions = future.get(SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT, TimeUnit.MILLISECONDS);
-            //finished in time
-        } catch (TimeoutException e) {
-            //was terminated
-        	//return empty map, this will invoke default behavior of using DoNothingAction
-        	teamActions = new HashMap<UUID, AbstractAction>();
-        	System.err.println(getTeamName() + " timed out in getTeamMovementStart");
-        } catch (InterruptedException e) {
-        	//we were interrupted (should not happen but lets be good programmers) 
-        	//return empty map, this will invoke default behavior of using DoNothingAction
-        	teamActions = new HashMap<UUID, AbstractAction>();
-			e.printStackTrace();
-		} catch (ExecutionException e) {
-			//the executor threw and exception (should not happen but lets be good programmers) 
-        	//return empty map, this will invoke default behavior of using DoNothingAction
-        	teamActions = new HashMap<UUID, AbstractAction>();
-			e.printStackTrace();
-		} catch (Exception e) {
-			// we shouldn't do this but it seems necessary to make
-			// the agent behave (do nothing) if it crashes
-			System.err.println("Error in agent, stack trace to follow");
-			e.printStackTrace();
-        	teamActions = new HashMap<UUID, AbstractAction>();
-		}
-
-
-        executor.shutdownNow();
-        
-        return teamActions;
-		
-// 		HashMap<UUID, AbstractAction> teamActions = teamClient.getAction(clonedSpace, clonedTeamShips);
-//		return teamActions;
+		return teamActions;
 	}
 
 	/**
 	 * Allows the client to do cleanup after an action and before
 	 * the next one (if needed)
 	 * 
-	 * @param simulatedSpace
+	 * @param space read-only snapshot of space (made for this team)
 	 * @return
 	 */
 	public void getTeamMovementEnd(Toroidal2DPhysics space) {
-		final Toroidal2DPhysics clonedSpace = space.deepClone();
-		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjectsClone(space);
-
-		// if the previous thread call hasn't finished, then just return default
-		if (executor == null || executor.isTerminated()) {
-			executor = Executors.newSingleThreadExecutor();
-		} else {
-			return;
-		}
-
-		//System.out.println("exec " + executor.isTerminated());
-        Future<Boolean> future = executor.submit(
-        		new Callable<Boolean>(){
-        			public Boolean call() throws Exception {
-        				teamClient.getMovementEnd(clonedSpace, clonedActionableObjects);
-        				return true;
-        			}
-        		});
-        
-        Boolean didReturn = false;
-        try {
-            //start
-        	didReturn = future.get(SpaceSettlersSimulator.TEAM_END_ACTION_TIMEOUT, TimeUnit.MILLISECONDS);
-            //finished in time
-        } catch (TimeoutException e) {
-            //was terminated
-        	//set didReturn false
-        	System.out.println(getTeamName() + " timed out in getTeamMovementEnd");
-        	didReturn = false;
-        } catch (InterruptedException e) {
-        	//we were interrupted (should not happen but lets be good programmers) 
-        	//set didReturn false
-        	didReturn = false;
-			e.printStackTrace();
-		} catch (ExecutionException e) {
-			//the executor threw and exception (should not happen but lets be good programmers) 
-			//set didReturn false
-        	didReturn = false;
-			e.printStackTrace();
-		} catch (RejectedExecutionException e) {
-			System.err.println("exec" + executor.isTerminated());
-			e.printStackTrace();
-		}catch (Exception e) {
-			// we shouldn't do this but it seems necessary to make
-			// the agent behave (do nothing) if it crashes
-        	didReturn = false;
-        	System.err.println("Error in agent.  Printing stack trace.");
-			e.printStackTrace();
-		}
-
-        executor.shutdownNow();
+		final Toroidal2DPhysics clonedSpace = getReadOnlySpace(space);
+		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjects(clonedSpace);
+
+		worker.call(new Callable<Boolean>(){
+			public Boolean call() throws Exception {
+				teamClient.getMovementEnd(clonedSpace, clonedActionableObjects);
+				return true;
+			}
+		}, SpaceSettlersSimulator.TEAM_END_ACTION_TIMEOUT, "getTeamMovementEnd");
 		
 		// figure out how many beacons the team has collected
 		// figure out how many hitsInflicted and killsInflicted the team has
@@ -494,63 +458,28 @@ public class Team {
 	 * Ask the team if they want to purchase anything this turn.  You can only 
 	 * purchase one item per turn and only if you have enough resourcesAvailable.
 	 * 
-	 * @param space
+	 * @param space read-only snapshot of space (made for this team)
 	 * @return
 	 */
 	public Map<UUID,PurchaseTypes> getTeamPurchases(Toroidal2DPhysics space) {
-        Map<UUID,PurchaseTypes> purchase = new HashMap<UUID,PurchaseTypes>();
-
-		final Toroidal2DPhysics clonedSpace = space.deepClone();
-		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjectsClone(space);
+		final Toroidal2DPhysics clonedSpace = getReadOnlySpace(space);
+		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjects(clonedSpace);
 		final PurchaseCosts clonedPurchaseCost = getPurchaseCostClone();
 		final ResourcePile clonedResources = new ResourcePile(availableResources);
 		
-        // if the previous thread call hasn't finished, then just return default
-		if (executor == null || executor.isTerminated()) {
-			executor = Executors.newSingleThreadExecutor();
-		} else {
-			return purchase;
-		}
-
-		//System.out.println("exec " + executor.isTerminated());
-        Future<Map<UUID,PurchaseTypes>> future = executor.submit(
-        		new Callable<Map<UUID,PurchaseTypes>>(){
-        			public Map<UUID,PurchaseTypes> call() throws Exception {
-        				return teamClient.getTeamPurchases(clonedSpace, 
-        						clonedActionableObjects, clonedResources , clonedPurchaseCost);
-        			}
-        		});
-        
-        try {
-            //start
-        	purchase = future.get(SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT, TimeUnit.MILLISECONDS);
-            //finished in time
-        } catch (TimeoutException e) {
-            //was terminated
-        	//return empty map, don't buy anything
-        	System.out.println(getTeamName() + " timed out in getTeamPurchases");
-        	purchase = new HashMap<UUID,PurchaseTypes>();
-        } catch (InterruptedException e) {
-        	//we were interrupted (should not happen but lets be good programmers) 
-        	//return empty map, don't buy anything
-        	purchase = new HashMap<UUID,PurchaseTypes>();
-			e.printStackTrace();
-		} catch (ExecutionException e) {
-			//the executor threw and exception (should not happen but lets be good programmers) 
-        	//return empty map, don't buy anything
-        	purchase = new HashMap<UUID,PurchaseTypes>();
-			e.printStackTrace();
-		} catch (RejectedExecutionException e) {
-			System.err.println("exec" + executor.isTerminated());
-			e.printStackTrace();
-		} catch (Exception e) {
-        	purchase = new HashMap<UUID,PurchaseTypes>();
-			e.printStackTrace();
+		Map<UUID,PurchaseTypes> purchase = worker.call(
+				new Callable<Map<UUID,PurchaseTypes>>(){
+					public Map<UUID,PurchaseTypes> call() throws Exception {
+						return teamClient.getTeamPurchases(clonedSpace, 
+								clonedActionableObjects, clonedResources , clonedPurchaseCost);
+					}
+				}, SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT, "getTeamPurchases");
+
+		// return empty map, don't buy anything
+		if (purchase == null) {
+			purchase = new HashMap<UUID,PurchaseTypes>();
 		}
-
-        executor.shutdownNow();
-        
-        return purchase;
+		return purchase;
 	}
 
 	/**
@@ -564,111 +493,87 @@ public class Team {
 	/**
 	 * Get the weapons or power ups for the team this turn
 	 * 
-	 * @param space
+	 * @param space read-only snapshot of space (made for this team)
 	 * @return
 	 */
 	public Map<UUID, SpaceSettlersPowerupEnum> getTeamPowerups(Toroidal2DPhysics space) {
-        Map<UUID, SpaceSettlersPowerupEnum> powerups = new HashMap<UUID,SpaceSettlersPowerupEnum>();
-
-		final Toroidal2DPhysics clonedSpace = space.deepClone();
-		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjectsClone(space);
+		final Toroidal2DPhysics clonedSpace = getReadOnlySpace(space);
+		final Set<AbstractActionableObject> clonedActionableObjects = getTeamActionableObjects(clonedSpace);
 		
-        // if the previous thread call hasn't finished, then just return default
-		if (executor == null || executor.isTerminated()) {
-			executor = Executors.newSingleThreadExecutor();
-		} else {
-			return powerups;
-		}
-
-		//System.out.println("exec " + executor.isTerminated());
-        Future<Map<UUID,SpaceSettlersPowerupEnum>> future = executor.submit(
-        		new Callable<Map<UUID,SpaceSettlersPowerupEnum>>(){
-        			public Map<UUID,SpaceSettlersPowerupEnum> call() throws Exception {
-        				return teamClient.getPowerups(clonedSpace, clonedActionableObjects);
-        			}
-        		});
-        
-        try {
-            //start
-        	powerups = future.get(SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT, TimeUnit.MILLISECONDS);
-            //finished in time
-        } catch (TimeoutException e) {
-            //was terminated
-        	//return empty map, don't buy anything
-        	System.out.println(getTeamName() + " timed out in getTeamPowerups");
-        	powerups = new HashMap<UUID,SpaceSettlersPowerupEnum>();
-        } catch (InterruptedException e) {
-        	//we were interrupted (should not happen but lets be good programmers) 
-        	//return empty map, don't buy anything
-        	powerups = new HashMap<UUID,SpaceSettlersPowerupEnum>();
-			e.printStackTrace();
-		} catch (ExecutionException e) {
-			//the executor threw and exception (should not happen but lets be good programmers) 
-        	//return empty map, don't buy anything
+		Map<UUID, SpaceSettlersPowerupEnum> powerups = worker.call(
+				new Callable<Map<UUID,SpaceSettlersPowerupEnum>>(){
+					public Map<UUID,SpaceSettlersPowerupEnum> call() throws Exception {
+						return teamClient.getPowerups(clonedSpace, clonedActionableObjects);
+					}
+				}, SpaceSettlersSimulator.TEAM_ACTION_TIMEOUT, "getTeamPowerups");
+
+		// return empty map, don't use any power ups
+		if (powerups == null) {
 			powerups = new HashMap<UUID,SpaceSettlersPowerupEnum>();
-			e.printStackTrace();
-		} catch (Exception e) {
-			System.err.println("Error in agent.  Printing stack trace");
-        	powerups = new HashMap<UUID,SpaceSettlersPowerupEnum>();
-			e.printStackTrace();
 		}
-
-        executor.shutdownNow();
-        
-        return powerups;
+		return powerups;
 	}
 
 
 	/**
-	 * Get any graphics the team client wants to draw
+	 * Get any graphics the team client wants to draw.  If the client doesn't answer in time
+	 * (or is still busy with an earlier call), the graphics from the last answer are used.
 	 * 
 	 * @return  
 	 */
 	public Set<SpacewarGraphics> getGraphics() {
-        Set<SpacewarGraphics> graphics = new HashSet<SpacewarGraphics>();
-
-        // if the previous thread call hasn't finished, then just return default
-		if (executor == null || executor.isTerminated()) {
-			executor = Executors.newSingleThreadExecutor();
-		} else {
-			return graphics;
+		Set<SpacewarGraphics> graphics = worker.call(
+				new Callable<Set<SpacewarGraphics>>(){
+					public Set<SpacewarGraphics> call() throws Exception {
+						return teamClient.getGraphics();
+					}
+				}, SpaceSettlersSimulator.TEAM_GRAPHICS_TIMEOUT, "getTeamGraphics");
+
+		if (graphics != null) {
+			latestGraphics = new HashSet<SpacewarGraphics>(graphics);
 		}
+		return getLatestGraphics();
+	}
 
-		Future<Set<SpacewarGraphics>> future = executor.submit(
-        		new Callable<Set<SpacewarGraphics>>(){
-        			public Set<SpacewarGraphics> call() throws Exception {
-        				return teamClient.getGraphics();
-        			}
-        		});
-        
-        try {
-            //start
-        	graphics = future.get(SpaceSettlersSimulator.TEAM_GRAPHICS_TIMEOUT, TimeUnit.MILLISECONDS);
-            //finished in time
-        } catch (TimeoutException e) {
-            //was terminated
-        	//set empty array of graphics
-        	System.out.println(getTeamName() + " timed out in getTeamGraphics");
-        	graphics = new HashSet<SpacewarGraphics>();
-        } catch (InterruptedException e) {
-        	//we were interrupted (should not happen but lets be good programmers) 
-        	//set empty array of graphics
-        	graphics = new HashSet<SpacewarGraphics>();
-			e.printStackTrace();
-		} catch (ExecutionException e) {
-			//the executor threw and exception (should not happen but lets be good programmers) 
-			//set empty array of graphics
-        	graphics = new HashSet<SpacewarGraphics>();
-			e.printStackTrace();
-		} catch (Exception e) {
-			System.err.println("Error in agent.  Printing stack trace");
-        	graphics = new HashSet<SpacewarGraphics>();
-			e.printStackTrace();
+	/**
+	 * Get the graphics the team client handed back the last time it was asked (this doesn't
+	 * call the client)
+	 * 
+	 * @return the graphics (empty if the client hasn't been asked yet)
+	 */
+	public Set<SpacewarGraphics> getLatestGraphics() {
+		if (latestGraphics == null) {
+			return new HashSet<SpacewarGraphics>();
 		}
+		return latestGraphics;
+	}
 
-        executor.shutdownNow();
-        
-		return graphics;
+	/**
+	 * Is the team's client still busy with a previous call (because it ran past its timeout)?
+	 * 
+	 * @return true if the client has not returned from its last call
+	 */
+	public boolean isClientBusy() {
+		return worker.isBusy();
+	}
+
+	/**
+	 * Call the client directly on the simulator thread (turbo mode).  There are no timeouts
+	 * in this mode so it is only for trusted clients.
+	 * 
+	 * @param directCalls
+	 */
+	public void setDirectCalls(boolean directCalls) {
+		worker.setDirect(directCalls);
+	}
+
+	/**
+	 * Returns the latency and timeout counts for the calls into this team's client
+	 * 
+	 * @return a copy of the stats for each method called on the client
+	 */
+	public Map<String, ClientCallStats> getClientCallStats() {
+		return worker.getCallStats();
 	}
 
 	/**
@@ -801,6 +706,21 @@ public class Team {
 	 */
 	public void shutdownClients(Toroidal2DPhysics space) {
 		teamClient.shutDown(space.deepClone());
+		worker.shutdown();
+	}
+
+	/**
+	 * Attach a new client to the team (used when a team is restored from a replay keyframe,
+	 * which doesn't save the client or its worker thread)
+	 * 
+	 * @param teamClient
+	 */
+	public void attachClient(TeamClient teamClient) {
+		if (worker != null) {
+			worker.shutdown();
+		}
+		this.teamClient = teamClient;
+		worker = new TeamWorker(teamName);
 	}
 
 	/**
@@ -0,0 +1,72 @@
+package spacesettlers.clients;
+
+import java.awt.Color;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable description of a team (name, color, ladder name, and the ids of its bases)
+ * that bases and flags keep instead of the team itself.  Copies of bases and flags all
+ * share the same descriptor, so copying a base doesn't copy the team and its ships.
+ *
+ * The team makes a new descriptor when any of these change, so a descriptor describes
+ * the team at the time it was handed out.
+ *
+ * @author amy
+ */
+public class TeamDescriptor {
+	/**
+	 * Name of the team
+	 */
+	final String teamName;
+
+	/**
+	 * The team color (used by the GUI)
+	 */
+	final Color teamColor;
+
+	/**
+	 * The name that shows up in the ladder
+	 */
+	final String ladderName;
+
+	/**
+	 * The ids of the team's bases
+	 */
+	final Set<UUID> baseIDs;
+
+	/**
+	 * Describe the team as it is now
+	 *
+	 * @param team
+	 */
+	TeamDescriptor(Team team) {
+		teamName = team.teamName;
+		teamColor = team.teamColor;
+		ladderName = team.ladderName;
+		baseIDs = Collections.unmodifiableSet(new LinkedHashSet<UUID>(team.teamBaseIDs));
+	}
+
+	public String getTeamName() {
+		return teamName;
+	}
+
+	public Color getTeamColor() {
+		return teamColor;
+	}
+
+	public String getLadderName() {
+		return ladderName;
+	}
+
+	/**
+	 * Returns the ids of the team's bases
+	 * @return an unmodifiable set of base ids
+	 */
+	public Set<UUID> getBaseIDs() {
+		return baseIDs;
+	}
+
+}
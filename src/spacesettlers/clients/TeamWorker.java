@@ -0,0 +1,219 @@
+package spacesettlers.clients;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A long-lived worker thread for one team.  All calls into a team client are run on this
+ * thread with a deadline.  The thread is created once and reused for the whole game
+ * (rather than making a new thread for every call).
+ *
+ * If a call overruns its deadline, the worker thread is interrupted and the caller gets
+ * no result.  A client that ignores the interrupt keeps the worker busy and every call
+ * is skipped until the client finally returns.
+ *
+ * @author amy
+ */
+class TeamWorker {
+	/**
+	 * The name of the team (for error messages and the thread name)
+	 */
+	String teamName;
+
+	/**
+	 * Single thread that runs all of the calls to this team
+	 */
+	ExecutorService executor;
+
+	/**
+	 * The thread inside the executor (so it can be interrupted on a timeout)
+	 */
+	volatile Thread workerThread;
+
+	/**
+	 * The most recent call to the client (if it isn't done the worker is busy)
+	 */
+	Future<?> lastCall;
+
+	/**
+	 * If true, calls are made directly on the calling thread with no deadline (turbo mode
+	 * for trusted clients)
+	 */
+	boolean direct;
+
+	/**
+	 * Latency and timeout counts for each method called on the client
+	 */
+	Map<String, ClientCallStats> callStats;
+
+	/**
+	 * Create the worker for a team.  The thread is not started until the first call.
+	 *
+	 * @param teamName
+	 */
+	TeamWorker(String teamName) {
+		this.teamName = teamName;
+		this.callStats = new LinkedHashMap<String, ClientCallStats>();
+	}
+
+	/**
+	 * Run a call on the worker thread and wait up to the timeout for the result.
+	 *
+	 * @param call the call into the client
+	 * @param timeoutMillis how long to wait (in MILLISECONDS)
+	 * @param methodName name of the method being called (used in error messages)
+	 * @return the result of the call or null if the worker was busy, the call timed out, or the client
+	 * threw an exception
+	 */
+	<T> T call(Callable<T> call, int timeoutMillis, String methodName) {
+		long startTime = System.nanoTime();
+
+		// trusted clients are called directly (no thread hand off and no timeout)
+		if (direct) {
+			try {
+				T result = call.call();
+				recordCall(methodName, startTime, false, false);
+				return result;
+			} catch (Exception e) {
+				recordCall(methodName, startTime, false, true);
+				System.err.println("Error in agent " + teamName + " in " + methodName + ".  Printing stack trace.");
+				e.printStackTrace();
+				return null;
+			}
+		}
+
+		Future<T> future;
+
+		// if the previous call hasn't finished, then just return default
+		synchronized (this) {
+			if (lastCall != null && !lastCall.isDone()) {
+				getStats(methodName).numSkipped++;
+				return null;
+			}
+
+			if (executor == null) {
+				executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Team " + teamName);
+						thread.setDaemon(true);
+						workerThread = thread;
+						return thread;
+					}
+				});
+			}
+
+			future = executor.submit(call);
+			lastCall = future;
+		}
+
+		try {
+			T result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			recordCall(methodName, startTime, false, false);
+			return result;
+		} catch (TimeoutException e) {
+			recordCall(methodName, startTime, true, false);
+			// interrupt the client but keep the thread (it stays busy until the client returns)
+			Thread thread = workerThread;
+			if (thread != null) {
+				thread.interrupt();
+			}
+			System.err.println(teamName + " timed out in " + methodName);
+		} catch (InterruptedException e) {
+			//we were interrupted (should not happen but lets be good programmers)
+			e.printStackTrace();
+		} catch (ExecutionException e) {
+			recordCall(methodName, startTime, false, true);
+			// the client threw an exception
+			System.err.println("Error in agent " + teamName + " in " + methodName + ".  Printing stack trace.");
+			e.getCause().printStackTrace();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Record the latency and outcome of a call
+	 *
+	 * @param methodName
+	 * @param startTime when the call started (from System.nanoTime)
+	 * @param timedOut
+	 * @param error
+	 */
+	private synchronized void recordCall(String methodName, long startTime, boolean timedOut, boolean error) {
+		ClientCallStats stats = getStats(methodName);
+		stats.recordCall(System.nanoTime() - startTime);
+		if (timedOut) {
+			stats.numTimeouts++;
+		}
+		if (error) {
+			stats.numErrors++;
+		}
+	}
+
+	/**
+	 * Get the stats for a method (making them the first time the method is called).
+	 * Must be called while holding the lock on this worker.
+	 *
+	 * @param methodName
+	 * @return
+	 */
+	private ClientCallStats getStats(String methodName) {
+		ClientCallStats stats = callStats.get(methodName);
+		if (stats == null) {
+			stats = new ClientCallStats(methodName);
+			callStats.put(methodName, stats);
+		}
+		return stats;
+	}
+
+	/**
+	 * Return a copy of the latency and timeout stats for each method called so far
+	 *
+	 * @return stats for each method (in the order the methods were first called)
+	 */
+	synchronized Map<String, ClientCallStats> getCallStats() {
+		Map<String, ClientCallStats> copy = new LinkedHashMap<String, ClientCallStats>();
+		for (ClientCallStats stats : callStats.values()) {
+			copy.put(stats.getMethodName(), stats.deepCopy());
+		}
+		return copy;
+	}
+
+	/**
+	 * Is the worker still running a previous call?
+	 *
+	 * @return true if the last call has not returned yet
+	 */
+	synchronized boolean isBusy() {
+		return lastCall != null && !lastCall.isDone();
+	}
+
+	/**
+	 * Turn direct calls on or off.  When on, the client runs on the thread that calls it
+	 * and can't be timed out, so this should only be used for trusted clients.
+	 *
+	 * @param direct
+	 */
+	void setDirect(boolean direct) {
+		this.direct = direct;
+	}
+
+	/**
+	 * Stop the worker thread (called at the end of the game)
+	 */
+	synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+			workerThread = null;
+		}
+	}
+}
@@ -78,8 +78,22 @@ public class BaseConfig {
 	public int getBoundingBoxLRY() {
 		return boundingBoxLRY;
 	}
-	
-	
-	
-	
+
+	/**
+	 * Make a copy of this base config
+	 * 
+	 * @return
+	 */
+	public BaseConfig deepCopy() {
+		BaseConfig copy = new BaseConfig(teamName);
+		copy.fixedLocation = fixedLocation;
+		copy.x = x;
+		copy.y = y;
+		copy.boundingBoxULX = boundingBoxULX;
+		copy.boundingBoxULY = boundingBoxULY;
+		copy.boundingBoxLRX = boundingBoxLRX;
+		copy.boundingBoxLRY = boundingBoxLRY;
+		return copy;
+	}
+
 }
@@ -29,8 +29,18 @@ public class FlagConfig {
 	public void setTeamName(String teamName) {
 		this.teamName = teamName;
 	}
-	
-	
 
-	
+	/**
+	 * Make a copy of this flag config
+	 * 
+	 * @return
+	 */
+	public FlagConfig deepCopy() {
+		FlagConfig copy = new FlagConfig();
+		copy.teamName = teamName;
+		copy.startX = (startX == null) ? null : startX.clone();
+		copy.startY = (startY == null) ? null : startY.clone();
+		return copy;
+	}
+
 }
@@ -72,8 +72,21 @@ public class HighLevelTeamConfig {
 		this.initialRegionLRY = initialRegionLRY;
 	}
 
-	
-	
-	
+	/**
+	 * Make a copy of this team config (the simulator sets the initial region
+	 * on the config so each game needs its own copy)
+	 * 
+	 * @return
+	 */
+	public HighLevelTeamConfig deepCopy() {
+		HighLevelTeamConfig copy = new HighLevelTeamConfig();
+		copy.teamName = teamName;
+		copy.configFile = configFile;
+		copy.initialRegionULX = initialRegionULX;
+		copy.initialRegionULY = initialRegionULY;
+		copy.initialRegionLRX = initialRegionLRX;
+		copy.initialRegionLRY = initialRegionLRY;
+		return copy;
+	}
 
 }
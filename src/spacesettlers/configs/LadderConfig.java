@@ -21,6 +21,14 @@ public class LadderConfig {
 	 */
 	String outputFileName;
 
+	/**
+	 * The maximum number of games to run at the same time.  Each game gets its own
+	 * simulator and copy of the config.  0 or 1 runs the games one at a time.
+	 * Note that clients that keep state in static fields can't safely play in
+	 * two games at once.
+	 */
+	int numParallelMatches;
+
 	public void setVariableTeams(HighLevelTeamConfig[] variableTeams) {
 		this.variableTeams = variableTeams;
 	}
@@ -55,6 +63,14 @@ public class LadderConfig {
 		return numRepeatMatches;
 	}
 
+	public int getNumParallelMatches() {
+		return numParallelMatches;
+	}
+
+	public void setNumParallelMatches(int numParallelMatches) {
+		this.numParallelMatches = numParallelMatches;
+	}
+
 	/**
 	 * Make the player names automatically generated for the ladder unique
 	 */
@@ -63,5 +63,13 @@ public class RandomAsteroidConfig {
 		return probabilityMetalsType;
 	}
 
+	public void setNumberInitialAsteroids(int numberInitialAsteroids) {
+		this.numberInitialAsteroids = numberInitialAsteroids;
+	}
+
+	public void setMaximumNumberAsteroids(int maximumNumberAsteroids) {
+		this.maximumNumberAsteroids = maximumNumberAsteroids;
+	}
+
 	
 }
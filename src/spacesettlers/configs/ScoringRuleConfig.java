@@ -0,0 +1,40 @@
+package spacesettlers.configs;
+
+/**
+ * A custom scoring rule from the simulator config: every time the event happens
+ * (see spacesettlers.simulator.SimulationEvent.Type for the names), the team it happened
+ * to gets the points times the amount of the event (e.g. the resources deposited or
+ * the damage inflicted, 1 for events that are just counted).  If allTeams is true,
+ * every team gets the points instead (for cooperative games).
+ *
+ * @author amy
+ */
+public class ScoringRuleConfig {
+	/**
+	 * Name of the event the rule scores
+	 */
+	String event;
+
+	/**
+	 * Points for each unit of the event (can be negative)
+	 */
+	double points;
+
+	/**
+	 * True if every team gets the points and false if only the team the event happened to does
+	 */
+	boolean allTeams;
+
+	public String getEvent() {
+		return event;
+	}
+
+	public double getPoints() {
+		return points;
+	}
+
+	public boolean isAllTeams() {
+		return allTeams;
+	}
+
+}
@@ -73,6 +73,41 @@ public class SpaceSettlersConfig {
 	 */
 	String scoringMethod;
 	
+	/**
+	 * Custom scoring rules scored on top of the scoring method (optional)
+	 */
+	ScoringRuleConfig[] scoringRules;
+	
+	/**
+	 * If true, collision detection checks every pair of objects (the original 
+	 * reference implementation) instead of using the spatial hash grid.  Both give the 
+	 * same results but the grid is much faster with many objects.  Defaults to false.
+	 */
+	boolean pairwiseCollisionDetection;
+	
+	/**
+	 * If true, the asteroids, weapons, and other moveable objects that aren't controlled
+	 * by a client are moved using packed arrays instead of one object at a time.  Both give
+	 * the same positions but the arrays are faster with many objects.  Defaults to false.
+	 */
+	boolean arrayIntegration;
+	
+	/**
+	 * If true, the teams' ship actions are asked for their movements at the same time
+	 * (one thread per core, each team against its own snapshot of space taken before anything
+	 * moves).  Otherwise each ship sees the ships that moved before it in the step.  The
+	 * movements are applied in the same order either way.  The actions of different teams
+	 * must not share any changing state to use this.  Defaults to false.
+	 */
+	boolean parallelShipMovement;
+	
+	/**
+	 * If true, the simulator records the time and allocation of each phase of every step
+	 * (see SimulatorProfiler) so it can be written out with the profileFile option.
+	 * Defaults to false.
+	 */
+	boolean profiling;
+	
 	/**
 	 * @return the height of the simulation environment.  This is measured in pixels.
 	 */
@@ -109,6 +144,15 @@ public class SpaceSettlersConfig {
 		return randomSeed;
 	}
 
+	/**
+	 * Set the random seed (used when a game is recorded without a seed so it can be replayed)
+	 * 
+	 * @param randomSeed
+	 */
+	public void setRandomSeed(long randomSeed) {
+		this.randomSeed = randomSeed;
+	}
+
 	/**
 	 * @return the numBeacons
 	 */
@@ -174,6 +218,46 @@ public class SpaceSettlersConfig {
 		return scoringMethod;
 	}
 
+	/**
+	 * 
+	 * @return the custom scoring rules (null if there aren't any)
+	 */
+	public ScoringRuleConfig[] getScoringRules() {
+		return scoringRules;
+	}
+
+	/**
+	 * 
+	 * @return true if collision detection should check every pair of objects
+	 */
+	public boolean isPairwiseCollisionDetection() {
+		return pairwiseCollisionDetection;
+	}
+
+	/**
+	 * 
+	 * @return true if the moveable objects should be moved using packed arrays
+	 */
+	public boolean isArrayIntegration() {
+		return arrayIntegration;
+	}
+
+	/**
+	 * 
+	 * @return true if the ships' movements should be found in parallel
+	 */
+	public boolean isParallelShipMovement() {
+		return parallelShipMovement;
+	}
+
+	/**
+	 * 
+	 * @return true if the simulator should profile each step
+	 */
+	public boolean isProfiling() {
+		return profiling;
+	}
+
 	public void setTeams(HighLevelTeamConfig[] teams) {
 		this.teams = teams;
 	}
@@ -181,4 +265,54 @@ public class SpaceSettlersConfig {
 	public void setBases(BaseConfig[] bases) {
 		this.bases = bases;
 	}
+
+	/**
+	 * Make a copy of this config that can be changed (and handed to its own simulator) 
+	 * without changing this one.  The teams, bases, and flags are copied because they are 
+	 * renamed/modified for each game.  The asteroid configs are only read so they are shared.
+	 * 
+	 * @return
+	 */
+	public SpaceSettlersConfig deepCopy() {
+		SpaceSettlersConfig copy = new SpaceSettlersConfig();
+		copy.height = height;
+		copy.width = width;
+		copy.simulationTimeStep = simulationTimeStep;
+		copy.simulationSteps = simulationSteps;
+		copy.randomSeed = randomSeed;
+		copy.numBeacons = numBeacons;
+		copy.maximumShipsPerTeam = maximumShipsPerTeam;
+		copy.maximumInitialShipsPerTeam = maximumInitialShipsPerTeam;
+		copy.randomAsteroids = randomAsteroids;
+		copy.fixedAsteroids = fixedAsteroids;
+		copy.scoringMethod = scoringMethod;
+		copy.scoringRules = scoringRules;
+		copy.pairwiseCollisionDetection = pairwiseCollisionDetection;
+		copy.arrayIntegration = arrayIntegration;
+		copy.parallelShipMovement = parallelShipMovement;
+		copy.profiling = profiling;
+
+		if (teams != null) {
+			copy.teams = new HighLevelTeamConfig[teams.length];
+			for (int i = 0; i < teams.length; i++) {
+				copy.teams[i] = teams[i].deepCopy();
+			}
+		}
+
+		if (bases != null) {
+			copy.bases = new BaseConfig[bases.length];
+			for (int i = 0; i < bases.length; i++) {
+				copy.bases[i] = bases[i].deepCopy();
+			}
+		}
+
+		if (flags != null) {
+			copy.flags = new FlagConfig[flags.length];
+			for (int i = 0; i < flags.length; i++) {
+				copy.flags[i] = flags[i].deepCopy();
+			}
+		}
+
+		return copy;
+	}
 }
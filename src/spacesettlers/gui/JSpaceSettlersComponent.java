@@ -11,16 +11,11 @@ import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
-import java.util.HashSet;
-import java.util.Set;
 
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 
-import spacesettlers.clients.Team;
 import spacesettlers.graphics.SpacewarGraphics;
-import spacesettlers.objects.AbstractObject;
-import spacesettlers.simulator.SpaceSettlersSimulator;
 import spacesettlers.utilities.Position;
 
 /**
@@ -45,9 +40,10 @@ public class JSpaceSettlersComponent extends JComponent {
 	AffineTransform scaleTransform;
 	
 	/**
-	 * Current state of the simulator
+	 * The latest frame captured by the simulation (replaced as a whole, so a paint always
+	 * draws one complete time step)
 	 */
-	SpaceSettlersSimulator simulator;
+	volatile RenderFrame frame;
 	
 	public JSpaceSettlersComponent(int height, int width) {
 		super();
@@ -82,32 +78,23 @@ public class JSpaceSettlersComponent extends JComponent {
         g.setColor(Color.BLACK);
         g.fillRect(0, 0, this.width, this.height);
 
-        // handle an annoying race condition in the GUI
-        if (simulator == null) {
+        // nothing to draw until the simulation captures its first frame
+        RenderFrame currentFrame = frame;
+        if (currentFrame == null) {
         	return;
         }
 
         // draw graphic for all the objects
-        Set<AbstractObject> allObjects = new HashSet<AbstractObject>(simulator.getAllObjects());
-
-        for (AbstractObject object : allObjects) {
-        	SpacewarGraphics graphic = object.getGraphic();
-        	if (graphic != null) {
-            	if (graphic.isDrawable()) {
-            		drawShadow(graphic, graphics);
-            	}
+        for (SpacewarGraphics graphic : currentFrame.objectGraphics) {
+        	if (graphic.isDrawable()) {
+        		drawShadow(graphic, graphics);
         	}
         }
         
         // and draw any team graphics from this round
-        for (Team team : simulator.getTeams()) {
-        	Set<SpacewarGraphics>teamShadows = team.getGraphics();
-        	if (teamShadows != null) {
-        		for (SpacewarGraphics graphic : teamShadows) {
-                	if (graphic.isDrawable()) {
-                		drawShadow(graphic, graphics);
-                	}
-        		}
+        for (SpacewarGraphics graphic : currentFrame.teamGraphics) {
+        	if (graphic.isDrawable()) {
+        		drawShadow(graphic, graphics);
         	}
         }
 	}
@@ -179,11 +166,11 @@ public class JSpaceSettlersComponent extends JComponent {
     }
 
     /**
-     * Set the current sim
-     * @param simulator
+     * Set the frame to draw on the next paint (called from the simulation thread)
+     * @param frame
      */
-	public void setSimulator(SpaceSettlersSimulator spacewarSimulator) {
-		this.simulator = spacewarSimulator;
+	void setFrame(RenderFrame frame) {
+		this.frame = frame;
 	}
 
 	/**
@@ -0,0 +1,63 @@
+package spacesettlers.gui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import spacesettlers.clients.Team;
+import spacesettlers.graphics.SpacewarGraphics;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.simulator.SpaceSettlersSimulator;
+
+/**
+ * Everything to draw for one time step.  The simulation thread captures a frame after each
+ * step and hands it to the main component, which just draws the latest frame.  The object
+ * graphics come from copies of the drawn objects and the team graphics are the ones each
+ * team last handed back (they are asked for in the background after each step, see
+ * SpaceSettlersSimulator), so capturing a frame never calls a team client.  Painting never
+ * touches the live objects or waits on a team client, and the simulation never waits on a
+ * repaint.
+ *
+ * @author amy
+ */
+class RenderFrame {
+	/**
+	 * Graphics for the objects in space (drawn first)
+	 */
+	final List<SpacewarGraphics> objectGraphics;
+
+	/**
+	 * Graphics the teams asked to draw (drawn over the objects)
+	 */
+	final List<SpacewarGraphics> teamGraphics;
+
+	/**
+	 * Capture the current state of the simulator.  Must be called on the simulation thread
+	 * between time steps.
+	 *
+	 * @param simulator
+	 */
+	RenderFrame(SpaceSettlersSimulator simulator) {
+		// the copies' graphics point at the copied objects, so the simulation can keep going while they are drawn.
+		// Only the objects that are drawn right now are copied (dead ones and spent weapons are skipped)
+		Set<AbstractObject> allObjects = simulator.getSimulatedSpace().getAllObjects();
+		List<SpacewarGraphics> objects = new ArrayList<SpacewarGraphics>(allObjects.size());
+		for (AbstractObject object : allObjects) {
+			if (object.getGraphic() == null || !object.getGraphic().isDrawable()) {
+				continue;
+			}
+			SpacewarGraphics graphic = object.copyForDrawing().getGraphic();
+			if (graphic != null) {
+				objects.add(graphic);
+			}
+		}
+		objectGraphics = Collections.unmodifiableList(objects);
+
+		List<SpacewarGraphics> teams = new ArrayList<SpacewarGraphics>();
+		for (Team team : simulator.getTeams()) {
+			teams.addAll(team.getLatestGraphics());
+		}
+		teamGraphics = Collections.unmodifiableList(teams);
+	}
+}
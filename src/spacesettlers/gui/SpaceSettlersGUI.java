@@ -285,14 +285,14 @@ public class SpaceSettlersGUI {
 
 	
 	/**
-	 * Redraws the graphics
-	 * @param simulator
+	 * Redraws the graphics.  Called from the simulation thread between time steps: the frame
+	 * to draw is captured here and the Swing thread paints it whenever it gets to it.
 	 */
 	public void redraw() {
 		infoPanel.setSimulator(simulator);
 		infoPanel.updateData();
 		//mainFrame.paintComponents(getGraphics());
-		mainComponent.setSimulator(simulator);
+		mainComponent.setFrame(new RenderFrame(simulator));
 		mainFrame.repaint();
 	}
 	
@@ -8,7 +8,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import spacesettlers.clients.Team;
 import spacesettlers.configs.*;
@@ -26,8 +30,6 @@ import com.thoughtworks.xstream.XStream;
 public class Ladder {
 	LadderConfig ladderConfig;
 
-	SpaceSettlersSimulator simulator;
-
 	SpaceSettlersConfig simConfig;
 
 	JSAPResult parserConfig;
@@ -74,6 +76,7 @@ public class Ladder {
 		xstream.alias("AsteroidConfig", RandomAsteroidConfig.class);
 		xstream.alias("FixedAsteroidConfig", FixedAsteroidConfig.class);
 		xstream.alias("FlagConfig", FlagConfig.class);
+		xstream.alias("ScoringRuleConfig", ScoringRuleConfig.class);
 
 
 		try { 
@@ -103,7 +106,9 @@ public class Ladder {
 	}
 
 	/**
-	 * Runs the ladder for the specified number of games
+	 * Runs the ladder for the specified number of games.  If the ladder config asks for parallel
+	 * matches (and graphics are off), up to that many games are run at the same time.  Either way
+	 * the results are added to the ladder in game order so the output is the same as a sequential run.
 	 * @throws SimulatorException 
 	 */
 	@SuppressWarnings("unchecked")
@@ -112,86 +117,23 @@ public class Ladder {
 		
 		int numGames = clientsPerMatch.size() * ladderConfig.getNumRepeatMatches();
 		System.out.println("Ladder will run " + numGames + " games");
-		int gameIndex = 0;
-
-		for (int repeat = 0; repeat < ladderConfig.getNumRepeatMatches(); repeat++) {
-			for (HighLevelTeamConfig[] teamsForMatch : clientsPerMatch) {
-				gameIndex++;
-				// setup the simulator for this match
-				simConfig.setTeams(teamsForMatch);
-
-				// set the bases to match the teams for this game.  Read in the ones
-				// from the config file first (and rename them)
-				// only make new ones if we don't have enough
-				BaseConfig[] defaultBases = simConfig.getBases();
-				BaseConfig[] baseConfig = new BaseConfig[teamsForMatch.length];
-				for (int i = 0; i < teamsForMatch.length; i++) {
-					if (i < defaultBases.length) {
-						baseConfig[i] = defaultBases[i];
-						baseConfig[i].setTeamName(teamsForMatch[i].getTeamName());
-					} else {
-						baseConfig[i] = new BaseConfig(teamsForMatch[i].getTeamName());
-					}
-				}
-				simConfig.setBases(baseConfig);
-				
-				// if there are flags, then set the flags to also match the teams for this game
-				FlagConfig[] flagConfigs = simConfig.getFlags();
-				if (flagConfigs != null && flagConfigs.length > 0) {
-					if (flagConfigs.length != teamsForMatch.length) {
-						throw new SimulatorException("Error: The number of flags in the config file doesn't match the number of teams for the match");
-					}
-					for (int i = 0; i < teamsForMatch.length; i++) {
-						flagConfigs[i].setTeamName(teamsForMatch[i].getTeamName());
-					}
-				}
-
-				// tell the user the match is about to begin
-				String str = "***Game " + gameIndex + " / " + numGames + " with teams ";
-				for (HighLevelTeamConfig team : teamsForMatch) {
-					str += (team.getTeamName() + " ");
-				}
-				str += "***";
-				System.out.println(str);
-				ladderOutputString.add(str);
-
-				try {
-					// try to make a simulator and run it
-					simulator = new SpaceSettlersSimulator(simConfig, parserConfig);
 
-					str = "***Game " + gameIndex + " / " + numGames + " with teams ";
-					Set<Team> teams = simulator.getTeams();
-					for (Team team : teams) {
-						str += (team.getTeamName() + " = " + team.getLadderName() + " ");
-					}
-					str += "***";
-					System.out.println(str);
-					ladderOutputString.add(str);
-
-					// run the game
-					simulator.run();
-
-					// get the teams and print out their scores
-					for (Team team : teams) {
-						str = "Team: " + team.getLadderName() + " scored " + team.getScore();
-						ladderOutputString.add(str);
-						System.out.println(str);
-						
-						TeamRecord thisRecord;
-						if (ladderResultsMap.containsKey(team.getLadderName())) {
-							thisRecord = ladderResultsMap.get(team.getLadderName());
-						} else {
-							thisRecord = new TeamRecord(team);
-						}
+		int numParallelMatches = Math.min(ladderConfig.getNumParallelMatches(), numGames);
+		if (numParallelMatches > 1 && parserConfig.getBoolean("graphics")) {
+			System.out.println("Graphics are on: running the ladder games one at a time");
+			numParallelMatches = 1;
+		}
 
-						thisRecord.update(team);
-						ladderResultsMap.put(team.getLadderName(), thisRecord);
-					}
-				} catch (Exception e) {
-					System.err.println("Error in match : skipping and moving to next one");
-					ladderOutputString.add("Error in match : skipping and moving to next one");
-					ladderOutputString.add(e.toString());
-					e.printStackTrace();
+		if (numParallelMatches > 1) {
+			runParallel(clientsPerMatch, numGames, numParallelMatches);
+		} else {
+			int gameIndex = 0;
+			for (int repeat = 0; repeat < ladderConfig.getNumRepeatMatches(); repeat++) {
+				for (HighLevelTeamConfig[] teamsForMatch : clientsPerMatch) {
+					gameIndex++;
+					LadderMatch match = new LadderMatch(gameIndex, numGames, createMatchConfig(teamsForMatch));
+					match.call();
+					recordMatch(match);
 				}
 			}
 		}
@@ -208,6 +150,228 @@ public class Ladder {
 		}
 	}
 
+	/**
+	 * Runs the games on a pool of numParallelMatches threads.  Each game has its own
+	 * simulator and config.  The results are only added to the ladder (on this thread) 
+	 * once each game is done and always in game order.
+	 * 
+	 * @param clientsPerMatch
+	 * @param numGames
+	 * @param numParallelMatches
+	 * @throws SimulatorException
+	 */
+	private void runParallel(ArrayList<HighLevelTeamConfig[]> clientsPerMatch, int numGames, 
+			int numParallelMatches) throws SimulatorException {
+		System.out.println("Running up to " + numParallelMatches + " games at a time");
+		ExecutorService matchExecutor = Executors.newFixedThreadPool(numParallelMatches);
+
+		try {
+			ArrayList<Future<LadderMatch>> futures = new ArrayList<Future<LadderMatch>>();
+			int gameIndex = 0;
+			for (int repeat = 0; repeat < ladderConfig.getNumRepeatMatches(); repeat++) {
+				for (HighLevelTeamConfig[] teamsForMatch : clientsPerMatch) {
+					gameIndex++;
+					futures.add(matchExecutor.submit(new LadderMatch(gameIndex, numGames, createMatchConfig(teamsForMatch))));
+				}
+			}
+
+			for (Future<LadderMatch> future : futures) {
+				try {
+					recordMatch(future.get());
+				} catch (InterruptedException e) {
+					throw new SimulatorException("Ladder was interrupted while waiting for a game");
+				} catch (ExecutionException e) {
+					// LadderMatch catches its own errors so this shouldn't happen
+					throw new SimulatorException("Error in ladder game " + e.getCause());
+				}
+			}
+		} finally {
+			matchExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Make the simulator config for a single game.  This is a copy of the simulator config
+	 * with the teams, bases, and flags set to the teams for this game.
+	 * 
+	 * @param teamsForMatch
+	 * @return
+	 * @throws SimulatorException
+	 */
+	protected SpaceSettlersConfig createMatchConfig(HighLevelTeamConfig[] teamsForMatch) throws SimulatorException {
+		SpaceSettlersConfig matchConfig = simConfig.deepCopy();
+
+		// the simulator changes the team configs so each game gets its own
+		HighLevelTeamConfig[] teams = new HighLevelTeamConfig[teamsForMatch.length];
+		for (int i = 0; i < teamsForMatch.length; i++) {
+			teams[i] = teamsForMatch[i].deepCopy();
+		}
+		matchConfig.setTeams(teams);
+
+		// set the bases to match the teams for this game.  Read in the ones
+		// from the config file first (and rename them)
+		// only make new ones if we don't have enough
+		BaseConfig[] defaultBases = matchConfig.getBases();
+		BaseConfig[] baseConfig = new BaseConfig[teams.length];
+		for (int i = 0; i < teams.length; i++) {
+			if (i < defaultBases.length) {
+				baseConfig[i] = defaultBases[i];
+				baseConfig[i].setTeamName(teams[i].getTeamName());
+			} else {
+				baseConfig[i] = new BaseConfig(teams[i].getTeamName());
+			}
+		}
+		matchConfig.setBases(baseConfig);
+
+		// if there are flags, then set the flags to also match the teams for this game
+		FlagConfig[] flagConfigs = matchConfig.getFlags();
+		if (flagConfigs != null && flagConfigs.length > 0) {
+			if (flagConfigs.length != teams.length) {
+				throw new SimulatorException("Error: The number of flags in the config file doesn't match the number of teams for the match");
+			}
+			for (int i = 0; i < teams.length; i++) {
+				flagConfigs[i].setTeamName(teams[i].getTeamName());
+			}
+		}
+
+		return matchConfig;
+	}
+
+	/**
+	 * Add the output and scores from a finished game to the ladder
+	 * 
+	 * @param match
+	 */
+	private void recordMatch(LadderMatch match) {
+		ladderOutputString.addAll(match.outputStrings);
+
+		if (match.teams == null) {
+			return;
+		}
+
+		for (Team team : match.teams) {
+			TeamRecord thisRecord;
+			if (ladderResultsMap.containsKey(team.getLadderName())) {
+				thisRecord = ladderResultsMap.get(team.getLadderName());
+			} else {
+				thisRecord = new TeamRecord(team);
+			}
+
+			thisRecord.update(team);
+			ladderResultsMap.put(team.getLadderName(), thisRecord);
+		}
+	}
+
+	/**
+	 * Add the game number to a file name (before the extension) so every game gets its own file
+	 * 
+	 * @param fileName
+	 * @param gameIndex
+	 * @return
+	 */
+	protected String getGameFileName(String fileName, int gameIndex) {
+		int extensionIndex = fileName.lastIndexOf('.');
+		if (extensionIndex <= fileName.lastIndexOf(File.separatorChar)) {
+			return fileName + "-game" + gameIndex;
+		}
+		return fileName.substring(0, extensionIndex) + "-game" + gameIndex + fileName.substring(extensionIndex);
+	}
+
+	/**
+	 * A single game of the ladder.  The game has its own simulator (and so its own
+	 * random number generator) and keeps its output until the ladder records it.
+	 * 
+	 * @author amy
+	 */
+	class LadderMatch implements Callable<LadderMatch> {
+		int gameIndex;
+		
+		int numGames;
+		
+		SpaceSettlersConfig matchConfig;
+		
+		/**
+		 * Output for this game (added to the ladder output in game order)
+		 */
+		ArrayList<String> outputStrings;
+		
+		/**
+		 * The teams (in the order of the config) and their final scores (null if the game failed)
+		 */
+		ArrayList<Team> teams;
+
+		public LadderMatch(int gameIndex, int numGames, SpaceSettlersConfig matchConfig) {
+			this.gameIndex = gameIndex;
+			this.numGames = numGames;
+			this.matchConfig = matchConfig;
+			this.outputStrings = new ArrayList<String>();
+		}
+
+		/**
+		 * Run the game and save its output
+		 */
+		public LadderMatch call() {
+			// tell the user the match is about to begin
+			String str = "***Game " + gameIndex + " / " + numGames + " with teams ";
+			for (HighLevelTeamConfig team : matchConfig.getTeams()) {
+				str += (team.getTeamName() + " ");
+			}
+			str += "***";
+			System.out.println(str);
+			outputStrings.add(str);
+
+			try {
+				// try to make a simulator and run it
+				SpaceSettlersSimulator simulator = new SpaceSettlersSimulator(matchConfig, parserConfig);
+
+				// list the teams in the config order
+				ArrayList<Team> simulatorTeams = new ArrayList<Team>();
+				for (HighLevelTeamConfig teamConfig : matchConfig.getTeams()) {
+					for (Team team : simulator.getTeams()) {
+						if (team.getTeamName().equals(teamConfig.getTeamName())) {
+							simulatorTeams.add(team);
+						}
+					}
+				}
+
+				str = "***Game " + gameIndex + " / " + numGames + " with teams ";
+				for (Team team : simulatorTeams) {
+					str += (team.getTeamName() + " = " + team.getLadderName() + " ");
+				}
+				str += "***";
+				System.out.println(str);
+				outputStrings.add(str);
+
+				// record the game if the user asked for it
+				if (parserConfig.contains("recordFile")) {
+					simulator.startRecording(getGameFileName(parserConfig.getString("recordFile"), gameIndex));
+				}
+
+				// run the game
+				simulator.run();
+
+				// write out the profile for this game if the user asked for it
+				if (parserConfig.contains("profileFile")) {
+					simulator.writeProfile(getGameFileName(parserConfig.getString("profileFile"), gameIndex));
+				}
+
+				// get the teams and print out their scores
+				for (Team team : simulatorTeams) {
+					str = "Team: " + team.getLadderName() + " scored " + team.getScore();
+					outputStrings.add(str);
+					System.out.println(str);
+				}
+				teams = simulatorTeams;
+			} catch (Exception e) {
+				System.err.println("Error in match : skipping and moving to next one");
+				outputStrings.add("Error in match : skipping and moving to next one");
+				outputStrings.add(e.toString());
+				e.printStackTrace();
+			}
+			return this;
+		}
+	}
+
 
 	/**
 	 * Return the results of the ladder
@@ -95,6 +95,18 @@ public class RunLadder {
 								JSAP.BOOLEAN_PARSER, "false", JSAP.REQUIRED,
 								JSAP.NO_SHORTFLAG, "debug",
 								"boolean stating if debugging mode (single threading) is on (true) or not (false)"),
+						new FlaggedOption("turbo",
+								JSAP.BOOLEAN_PARSER, "false", JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "turbo",
+								"boolean stating if trusted clients are called directly with no timeouts or graphics (true) or not (false)"),
+						new FlaggedOption("profileFile",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "profileFile",
+								"optional file to write the simulator profile (phase times and client latency) to at the end of each game (.json or .csv, the game number is added to the name, needs profiling turned on in the simulator config)"),
+						new FlaggedOption("recordFile",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "recordFile",
+								"optional file to record each game to so it can be replayed with RunReplay (the game number is added to the name)"),
 					});
 		} catch (JSAPException e) {
 			e.printStackTrace();
@@ -1,6 +1,7 @@
 package spacesettlers.objects;
 
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 import spacesettlers.graphics.SpacewarGraphics;
 import spacesettlers.objects.resources.ResourceFactory;
@@ -83,7 +84,7 @@ abstract public class AbstractObject {
 		this.originalMass = mass;
 		this.radius = radius;
 		position = new Position(0,0);
-		this.id = UUID.randomUUID();
+		this.id = newRandomId();
 		resources = new ResourcePile();
 		this.numFlags = 0;
 		this.respawn = true;
@@ -97,7 +98,7 @@ abstract public class AbstractObject {
 		this.originalMass = mass;
 		this.radius = radius;
 		this.position = position;
-		this.id = UUID.randomUUID();
+		this.id = newRandomId();
 		resources = new ResourcePile();
 		this.numFlags = 0;
 		this.respawn = true;
@@ -296,16 +297,49 @@ abstract public class AbstractObject {
 	 */
 	abstract public AbstractObject deepClone();
 
+	/**
+	 * Make a copy with what the object's graphic draws, for the GUI (which copies every
+	 * object it draws on every frame).  This is a deep copy unless an object can skip parts
+	 * its graphic never reads.  The copy is only for drawing, never hand it to a client.
+	 * 
+	 * @return
+	 */
+	public AbstractObject copyForDrawing() {
+		return deepClone();
+	}
+
 	@Override
 	public String toString() {
 		return "AbstractObject at " + position;
 	}
 	
+	/**
+	 * Make a new random id.  Every clone of space makes new objects (which get their id
+	 * replaced) so this uses a fast generator rather than UUID.randomUUID, which goes to the
+	 * secure random generator every time.
+	 * 
+	 * @return
+	 */
+	static UUID newRandomId() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return new UUID(random.nextLong(), random.nextLong());
+	}
+
 	/**
 	 * Resets the UUID of the object (for respawning)
 	 */
 	public void resetId() {
-		id = UUID.randomUUID();
+		id = newRandomId();
+	}
+
+	/**
+	 * Sets the UUID of the object to a specific id (used when the ids come from a seeded 
+	 * generator so games can be replayed)
+	 * 
+	 * @param newId
+	 */
+	public void resetId(UUID newId) {
+		id = newId;
 	}
 
 	/**
@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.UUID;
 
 import spacesettlers.clients.Team;
+import spacesettlers.clients.TeamDescriptor;
 import spacesettlers.graphics.BaseGraphics;
 import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
 import spacesettlers.objects.resources.ResourcePile;
@@ -31,9 +32,15 @@ public class Base extends AbstractActionableObject {
 	Color teamColor;
 	
 	/**
-	 * The team that owns this base
+	 * The team that owns this base (null in copies of the base, which only keep the descriptor)
 	 */
 	Team team;
+
+	/**
+	 * Description of the team for copies of the base (null in the simulator's base, which
+	 * asks the team)
+	 */
+	TeamDescriptor teamDescriptor;
 	
 	/**
 	 * true if this is a home base for a team (which therefore can't be killed) or false if it is a supplementary
@@ -48,15 +55,39 @@ public class Base extends AbstractActionableObject {
 	
 	
 	public Base(Position location, String teamName, Team team, boolean isHomeBase) {
+		this(location, teamName, team.getTeamColor(), isHomeBase);
+		this.team = team;
+	}
+
+	/**
+	 * Make a copy of a base for a team that is only known by its descriptor
+	 * 
+	 * @param location
+	 * @param teamDescriptor
+	 * @param isHomeBase
+	 */
+	private Base(Position location, TeamDescriptor teamDescriptor, boolean isHomeBase) {
+		this(location, teamDescriptor.getTeamName(), teamDescriptor.getTeamColor(), isHomeBase);
+		this.teamDescriptor = teamDescriptor;
+	}
+
+	/**
+	 * Set up everything except the team
+	 * 
+	 * @param location
+	 * @param teamName
+	 * @param teamColor
+	 * @param isHomeBase
+	 */
+	private Base(Position location, String teamName, Color teamColor, boolean isHomeBase) {
 		super(BASE_MASS, BASE_RADIUS, location);
 		this.teamName = teamName;
-		teamColor = team.getTeamColor();
+		this.teamColor = teamColor;
 		graphic = new BaseGraphics(this, teamColor);
 		energy = INITIAL_BASE_ENERGY;
 		setAlive(true);
 		setDrawable(true);
 		this.isMoveable = false;
-		this.team = team;
 		this.isHomeBase = isHomeBase;
 		this.maxEnergy = INITIAL_BASE_ENERGY;
 		healingIncrement = INITIAL_ENERGY_HEALING_INCREMENT;
@@ -64,10 +95,11 @@ public class Base extends AbstractActionableObject {
 	}
 
 	/**
-	 * Makes a deep copy (for security)
+	 * Makes a deep copy (for security).  The copy shares the team's descriptor rather 
+	 * than copying the team (and all of its ships).
 	 */
 	public Base deepClone() {
-		Base newBase = new Base(getPosition().deepCopy(), teamName, team.deepCopy(), isHomeBase);
+		Base newBase = new Base(getPosition().deepCopy(), getTeamDescriptor(), isHomeBase);
 		
 		newBase.energy = energy;
 		newBase.setAlive(isAlive);
@@ -83,13 +115,25 @@ public class Base extends AbstractActionableObject {
 	}
 
 	/**
-	 * Get the team
+	 * Get the team.  Only the simulator's bases have a team: the copies of bases in the
+	 * clients' copies of space return null (use getTeamDescriptor instead).
 	 * @return
 	 */
 	public Team getTeam() {
 		return team;
 	}
 
+	/**
+	 * Get the description of the team (name, color, ladder name, and base ids)
+	 * @return
+	 */
+	public TeamDescriptor getTeamDescriptor() {
+		if (team != null) {
+			return team.getDescriptor();
+		}
+		return teamDescriptor;
+	}
+
 	/**
 	 * Return half of the base's energy
 	 * @return the healingEnergy
@@ -132,9 +176,11 @@ public class Base extends AbstractActionableObject {
 	public void addResources(ResourcePile newResources) {
 		super.addResources(newResources);
 		
-		// and increment the resources for the entire team
-		team.incrementTotalResources(newResources);
-		team.incrementAvailableResources(newResources);
+		// and increment the resources for the entire team (copies of bases have no team to update)
+		if (team != null) {
+			team.incrementTotalResources(newResources);
+			team.incrementAvailableResources(newResources);
+		}
 	}
 	
 	/**
@@ -145,7 +191,9 @@ public class Base extends AbstractActionableObject {
 	public void addFlag(Flag flag) {
 		flag.depositFlag();
 		super.incrementFlags();
-		team.incrementTotalFlagsCollected();
+		if (team != null) {
+			team.incrementTotalFlagsCollected();
+		}
 	}
 	
 
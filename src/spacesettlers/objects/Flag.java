@@ -4,6 +4,7 @@ import java.awt.Color;
 import java.util.Random;
 
 import spacesettlers.clients.Team;
+import spacesettlers.clients.TeamDescriptor;
 import spacesettlers.graphics.BaseGraphics;
 import spacesettlers.graphics.FlagGraphics;
 import spacesettlers.utilities.Position;
@@ -33,9 +34,9 @@ public class Flag extends AbstractObject {
 	Color teamColor;
 	
 	/**
-	 * The team that owns this base
+	 * Description of the team that owns this flag (shared by all of the copies of the flag)
 	 */
-	Team team;
+	TeamDescriptor teamDescriptor;
 	
 	/**
 	 * The list of starting locations for the flag
@@ -61,10 +62,22 @@ public class Flag extends AbstractObject {
 	 * @param startingLocations
 	 */
 	public Flag(Position position, String teamName, Team team, Position[] startingLocations) {
+		this(position, teamName, team.getDescriptor(), startingLocations);
+	}
+
+	/**
+	 * Create a flag for a team that is only known by its descriptor (used for copies)
+	 * 
+	 * @param position
+	 * @param teamName
+	 * @param teamDescriptor
+	 * @param startingLocations
+	 */
+	private Flag(Position position, String teamName, TeamDescriptor teamDescriptor, Position[] startingLocations) {
 		super(FLAG_MASS, FLAG_RADIUS, position);
 		this.teamName = teamName;
-		this.team = team;
-		teamColor = team.getTeamColor();
+		this.teamDescriptor = teamDescriptor;
+		teamColor = teamDescriptor.getTeamColor();
 		graphic = new FlagGraphics(this, teamColor);
 		setAlive(true);
 		setDrawable(true);
@@ -79,7 +92,7 @@ public class Flag extends AbstractObject {
 	 * Make a deep copy of the current flag's state
 	 */
 	public Flag deepClone() {
-		Flag newFlag = new Flag(this.position.deepCopy(), this.teamName, team, this.startingLocations);
+		Flag newFlag = new Flag(this.position.deepCopy(), this.teamName, teamDescriptor, this.startingLocations);
 		newFlag.setAlive(isAlive);
 		newFlag.setDrawable(isDrawable);
 		newFlag.beingCarried = this.beingCarried;
@@ -99,6 +112,15 @@ public class Flag extends AbstractObject {
 		return teamName;
 	}
 
+	/**
+	 * Return the description of the team that this flag belongs to
+	 * 
+	 * @return
+	 */
+	public TeamDescriptor getTeamDescriptor() {
+		return teamDescriptor;
+	}
+
 	/**
 	 * Is the flag being carried?
 	 * 
@@ -131,7 +153,7 @@ public class Flag extends AbstractObject {
 		this.setDrawable(true);
 		this.setAlive(true);
 		this.setRespawn(false);
-		this.setPosition(carryingShip.getPosition());
+		this.setPosition(carryingShip.getPosition().deepCopy());
 		this.carryingShip = null;
 	}
 
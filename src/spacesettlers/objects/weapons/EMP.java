@@ -52,6 +52,20 @@ public final class EMP extends AbstractWeapon implements SpaceSettlersPowerup {
 		newEMP.position = position.deepCopy();
 		return newEMP;
 	}
+
+	/**
+	 * Copy the EMP for drawing (it shares the firing ship, the graphic only takes its
+	 * team color when it is made)
+	 */
+	@Override
+	public AbstractObject copyForDrawing() {
+		EMP newEMP = new EMP(position.deepCopy(), firingShip);
+		newEMP.setAlive(isAlive);
+		newEMP.id = id;
+		newEMP.freezeCount = freezeCount;
+		newEMP.position = position.deepCopy();
+		return newEMP;
+	}
 	
 	/**
 	 * Return the number of steps the EMP freezes a ship for
@@ -44,6 +44,18 @@ public final class Missile extends AbstractWeapon {
 		return newBullet;
 	}
 
+	/**
+	 * Copy the bullet for drawing (it shares the firing ship, which the graphic doesn't draw)
+	 */
+	@Override
+	public Missile copyForDrawing() {
+		Missile newBullet = new Missile(position.deepCopy(), firingShip);
+		newBullet.setAlive(isAlive);
+		newBullet.id = id;
+		newBullet.position = position.deepCopy();
+		return newBullet;
+	}
+
 	/**
 	 * Bullets do not respawn
 	 */
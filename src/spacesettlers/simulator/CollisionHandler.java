@@ -5,6 +5,7 @@ import spacesettlers.objects.Base;
 import spacesettlers.objects.Beacon;
 import spacesettlers.objects.Flag;
 import spacesettlers.objects.Ship;
+import spacesettlers.objects.AbstractActionableObject;
 import spacesettlers.objects.AbstractObject;
 import spacesettlers.objects.weapons.EMP;
 import spacesettlers.objects.weapons.Missile;
@@ -31,6 +32,36 @@ public class CollisionHandler {
 		double v1, v2;
 	}
 	
+	/**
+	 * Gets the events of the collisions (null for copies of space, which don't publish any).
+	 * It isn't saved with space since it belongs to the simulator.
+	 */
+	SimulationEventBus eventBus;
+	
+	/**
+	 * Set where the events of the collisions are published
+	 * 
+	 * @param eventBus
+	 */
+	public void setEventBus(SimulationEventBus eventBus) {
+		this.eventBus = eventBus;
+	}
+	
+	/**
+	 * Publish an event for the team of the object (if there is a bus)
+	 * 
+	 * @param type
+	 * @param object the object it happened to
+	 * @param otherObject the other object involved (can be null)
+	 * @param amount
+	 */
+	private void publishEvent(SimulationEvent.Type type, AbstractActionableObject object, AbstractObject otherObject, int amount) {
+		if (eventBus != null) {
+			eventBus.publish(type, object.getTeamName(), object.getId(), 
+					(otherObject == null) ? null : otherObject.getId(), amount);
+		}
+	}
+	
 	/**
 	 * Collide the objects and then take care of side effects based on object type
 	 * 
@@ -137,6 +168,7 @@ public class CollisionHandler {
 		} else {
 			ship.addFlag(flag);
 			flag.pickupFlag(ship);
+			publishEvent(SimulationEvent.Type.FLAG_PICKED_UP, ship, flag, 1);
 		}
 		
 	}
@@ -163,14 +195,19 @@ public class CollisionHandler {
 					// if you killed the ship, only count the final amount of damage needed to kill it 
 					firingShip.incrementDamageInflicted((int) initialEnergy);
 					ship.incrementDamageReceived(-(int) initialEnergy);
+					publishEvent(SimulationEvent.Type.DAMAGE_INFLICTED, firingShip, ship, (int) initialEnergy);
+					publishEvent(SimulationEvent.Type.DAMAGE_RECEIVED, ship, firingShip, -(int) initialEnergy);
 				} else {
 					// otherwise a missile is a fixed amount of damage
 					firingShip.incrementDamageInflicted(-missile.getDamage());
 					ship.incrementDamageReceived(missile.getDamage());
+					publishEvent(SimulationEvent.Type.DAMAGE_INFLICTED, firingShip, ship, -missile.getDamage());
+					publishEvent(SimulationEvent.Type.DAMAGE_RECEIVED, ship, firingShip, missile.getDamage());
 				}
 
 				// it hit a ship
 				firingShip.incrementHitsInflicted();
+				publishEvent(SimulationEvent.Type.HIT, firingShip, ship, 1);
 			}
 			
 			// if the bullet killed the ship, credit the ship that hit it
@@ -180,6 +217,7 @@ public class CollisionHandler {
 				// it killed a ship
 				firingShip.incrementKillsInflicted();
 				ship.incrementKillsReceived();
+				publishEvent(SimulationEvent.Type.KILL, firingShip, ship, 1);
 			}
 
 		}
@@ -197,15 +235,20 @@ public class CollisionHandler {
 					// if the base is dead, you can only count the energy it had prior to being dead
 					firingShip.incrementDamageInflicted((int) initialEnergy);
 					base.incrementDamageReceived(-(int) initialEnergy);
+					publishEvent(SimulationEvent.Type.DAMAGE_INFLICTED, firingShip, base, (int) initialEnergy);
+					publishEvent(SimulationEvent.Type.BASE_DAMAGE_RECEIVED, base, firingShip, -(int) initialEnergy);
 					//System.out.println("Firing at a dead base - should give only " + (int) -initialEnergy + " in damage");
 				} else {
 					// otherwise the missles count constant
 					firingShip.incrementDamageInflicted(-missile.getDamage());
 					base.incrementDamageReceived(missile.getDamage());
+					publishEvent(SimulationEvent.Type.DAMAGE_INFLICTED, firingShip, base, -missile.getDamage());
+					publishEvent(SimulationEvent.Type.BASE_DAMAGE_RECEIVED, base, firingShip, missile.getDamage());
 				}
 
 				// it hit a base
 				firingShip.incrementHitsInflicted();
+				publishEvent(SimulationEvent.Type.HIT, firingShip, base, 1);
 			}
 			
 		}
@@ -238,10 +281,13 @@ public class CollisionHandler {
 			if (!ship.isShielded()) {
 				ship.updateEnergy(emp.getDamage());
 				ship.incrementDamageReceived(emp.getDamage());
+				publishEvent(SimulationEvent.Type.DAMAGE_RECEIVED, ship, firingShip, emp.getDamage());
+				publishEvent(SimulationEvent.Type.EMP_FREEZE, ship, firingShip, emp.getFreezeCount());
 				ship.setFreezeCount(emp.getFreezeCount());
 
 				// it hit a ship
 				firingShip.incrementHitsInflicted();
+				publishEvent(SimulationEvent.Type.HIT, firingShip, ship, 1);
 			}
 			
 		}
@@ -253,10 +299,13 @@ public class CollisionHandler {
 			if (!base.isShielded()) {
 				base.updateEnergy(emp.getDamage());
 				base.incrementDamageReceived(emp.getDamage());
+				publishEvent(SimulationEvent.Type.BASE_DAMAGE_RECEIVED, base, firingShip, emp.getDamage());
+				publishEvent(SimulationEvent.Type.EMP_FREEZE, base, firingShip, emp.getFreezeCount());
 				base.setFreezeCount(emp.getFreezeCount());
 
 				// it hit a base
 				firingShip.incrementHitsInflicted();
+				publishEvent(SimulationEvent.Type.HIT, firingShip, base, 1);
 			}
 			
 		}
@@ -287,6 +336,7 @@ public class CollisionHandler {
 		
 		// if a ship ran into it, it "mines" the asteroid
 		ship.addResources(asteroid.getResources());
+		publishEvent(SimulationEvent.Type.ASTEROID_MINED, ship, asteroid, asteroid.getResources().getTotal());
 		asteroid.setAlive(false);
 		//System.out.println("ship " + ship.getTeamName() + ship.getId() +" now has resourcesAvailable " + ship.getMoney());
 	}
@@ -300,6 +350,7 @@ public class CollisionHandler {
 		double penalty = -Math.abs(COLLISION_PENALTY * ship.getPosition().getTotalTranslationalVelocity());
 		ship.updateEnergy((int)(penalty));
 		ship.incrementDamageReceived((int)(penalty));
+		publishEvent(SimulationEvent.Type.DAMAGE_RECEIVED, ship, null, (int)(penalty));
 	}
 
 	/**
@@ -314,6 +365,7 @@ public class CollisionHandler {
 		if (object.getClass() == Ship.class) {
 			Ship ship = (Ship) object;
 			ship.incrementBeaconCount();
+			publishEvent(SimulationEvent.Type.BEACON_COLLECTED, ship, beacon, 1);
 			ship.updateEnergy(Beacon.BEACON_ENERGY_BOOST);
 		}
 	}
@@ -330,12 +382,17 @@ public class CollisionHandler {
 			
 			if (ship.getTeamName().equalsIgnoreCase(base.getTeamName())) {
 				// deposit the resources
+				int depositedResources = ship.getResources().getTotal();
+				if (depositedResources > 0) {
+					publishEvent(SimulationEvent.Type.RESOURCES_DEPOSITED, ship, base, depositedResources);
+				}
 				base.addResources(ship.getResources());
 				ship.resetResources();
 				
 				// deposit the flag (if there is one)
 				if (ship.isCarryingFlag()) {
 					base.addFlag(ship.getFlag());
+					publishEvent(SimulationEvent.Type.FLAG_DEPOSITED, ship, base, 1);
 					ship.depositFlag();
 				}
 
@@ -0,0 +1,94 @@
+package spacesettlers.simulator;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.utilities.Position;
+
+/**
+ * Narrow phase for collision detection: decides whether two objects are touching.
+ * It gives exactly the same answer as comparing findShortestDistance to the sum of
+ * the radii, but most pairs are rejected without a square root or a new vector:
+ *
+ * 1) the same object never collides with itself (checked by reference)
+ * 2) if the toroidal distance along either axis alone is at least the summed radii,
+ *    the objects can't be touching
+ * 3) otherwise the squared distance is compared to the squared summed radii
+ *
+ * Only pairs that are actually touching take a square root, which keeps objects that
+ * are exactly on the boundary on the same side of it as the distance comparison.
+ *
+ * @author amy
+ */
+public class CollisionNarrowPhase {
+	/**
+	 * Size of the toroidal space and half of it (distances past half wrap around)
+	 */
+	final int width, height;
+	final double halfWidth, halfHeight;
+
+	/**
+	 * Create the narrow phase for a toroidal space
+	 *
+	 * @param width
+	 * @param height
+	 */
+	public CollisionNarrowPhase(int width, int height) {
+		this.width = width;
+		this.height = height;
+		halfWidth = width / 2.0;
+		halfHeight = height / 2.0;
+	}
+
+	/**
+	 * Are the two objects touching?  Doesn't check whether they are alive.
+	 *
+	 * @param object1
+	 * @param object2
+	 * @return true if they are different objects closer than the sum of their radii
+	 */
+	public boolean isColliding(AbstractObject object1, AbstractObject object2) {
+		if (object1 == object2) {
+			return false;
+		}
+
+		Position position1 = object1.getPosition();
+		Position position2 = object2.getPosition();
+		double radii = object1.getRadius() + object2.getRadius();
+
+		// the distance can't be shorter than its distance along either axis
+		double x = wrap(position2.getX() - position1.getX(), width, halfWidth);
+		if (x >= radii || x <= -radii) {
+			return false;
+		}
+
+		double y = wrap(position2.getY() - position1.getY(), height, halfHeight);
+		if (y >= radii || y <= -radii) {
+			return false;
+		}
+
+		double distanceSquared = x*x + y*y;
+		if (distanceSquared >= radii * radii) {
+			return false;
+		}
+
+		// a distance just under the radii can still round up to them
+		return Math.sqrt(distanceSquared) < radii;
+	}
+
+	/**
+	 * The shortest toroidal difference along one axis (the same as Toroidal2DPhysics)
+	 *
+	 * @param difference
+	 * @param size
+	 * @param halfSize
+	 * @return
+	 */
+	private static double wrap(double difference, int size, double halfSize) {
+		if (difference > halfSize) {
+			return difference - size;
+		} else if (difference < -halfSize) {
+			return difference + size;
+		} else {
+			return difference;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package spacesettlers.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.utilities.Position;
+
+/**
+ * Occupancy index over the objects in one copy of space used to find free locations
+ * (for placing, buying, and respawning objects) without checking every object.  Every object
+ * takes up space whether it is alive or dead, the same as isLocationFree has always done.
+ *
+ * Queries don't change the index, so several team threads sharing one read-only snapshot
+ * can use it.  Toroidal2DPhysics throws it away whenever objects are added, removed, or moved
+ * and builds a new one on the next query, except while respawning, where each object that
+ * moves is updated in place (see objectMoved).  A client moving an object in its own copy
+ * of space doesn't throw it away, so the answers for that copy go stale.
+ *
+ * @author amy
+ */
+class FreeSpaceIndex {
+	/**
+	 * Most points the fallback lattice checks (the points are spread further apart in
+	 * large regions so a search stays bounded)
+	 */
+	static final int MAX_LATTICE_POINTS = 65536;
+
+	/**
+	 * The objects in the grid (in the order of space's allObjects)
+	 */
+	AbstractObject[] objects;
+	int numObjects;
+
+	/**
+	 * Spatial index of all of the objects (dead or alive)
+	 */
+	SpatialHashGrid grid;
+
+	/**
+	 * Scratch space for the grid queries (one per thread since the index is shared)
+	 */
+	ThreadLocal<int[]> candidates;
+
+	/**
+	 * Index the current objects in space
+	 *
+	 * @param space
+	 */
+	FreeSpaceIndex(Toroidal2DPhysics space) {
+		numObjects = space.allObjects.size();
+		objects = space.allObjects.toArray(new AbstractObject[numObjects]);
+		grid = new SpatialHashGrid(space.width, space.height);
+		grid.rebuild(objects, numObjects, true);
+
+		final int size = numObjects;
+		candidates = new ThreadLocal<int[]>() {
+			@Override
+			protected int[] initialValue() {
+				return new int[size];
+			}
+		};
+	}
+
+	/**
+	 * Is the location free (no object within the radius plus the object's radius)?
+	 * Gives the same answer as checking every object in space.
+	 *
+	 * @param space the space the index was built from
+	 * @param location
+	 * @param radius
+	 * @return
+	 */
+	boolean isLocationFree(Toroidal2DPhysics space, Position location, int radius) {
+		int[] indices = candidates.get();
+		int count = grid.findCandidates(location.getX(), location.getY(), radius + grid.getMaxRadius(), indices);
+
+		for (int c = 0; c < count; c++) {
+			AbstractObject object = objects[indices[c]];
+			if (space.findShortestDistance(object.getPosition(), location) <= (radius + object.getRadius())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Move an object to the cell matching its current position (called when respawning
+	 * moves an object so the rest of the respawns see it)
+	 *
+	 * @param index the index of the object in space's allObjects
+	 */
+	void objectMoved(int index) {
+		grid.update(index);
+	}
+
+	/**
+	 * Find the free points of an evenly spaced lattice over a box of space (the fallback
+	 * when random locations keep landing on objects).  The points are the radius apart
+	 * (or further in large boxes) and are wrapped into space.
+	 *
+	 * @param space the space the index was built from
+	 * @param lowX
+	 * @param lowY
+	 * @param boxWidth
+	 * @param boxHeight
+	 * @param radius the radius around each point that must be free
+	 * @return the free points in row order
+	 */
+	List<Position> findFreePoints(Toroidal2DPhysics space, double lowX, double lowY,
+			double boxWidth, double boxHeight, int radius) {
+		double spacing = Math.max(radius, 1.0);
+		spacing = Math.max(spacing, Math.sqrt(boxWidth * boxHeight / MAX_LATTICE_POINTS));
+
+		List<Position> freePoints = new ArrayList<Position>();
+		for (double y = lowY + spacing / 2; y < lowY + boxHeight; y += spacing) {
+			for (double x = lowX + spacing / 2; x < lowX + boxWidth; x += spacing) {
+				Position point = new Position(x, y);
+				space.toroidalWrap(point);
+				if (isLocationFree(space, point, radius)) {
+					freePoints.add(point);
+				}
+			}
+		}
+		return freePoints;
+	}
+}
@@ -0,0 +1,111 @@
+package spacesettlers.simulator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import spacesettlers.clients.ImmutableTeamInfo;
+import spacesettlers.clients.Team;
+import spacesettlers.objects.Ship;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.reflection.Sun14ReflectionProvider;
+
+/**
+ * The full state of a game at the start of a time step (space, the teams, and the simulator's
+ * random number generator).  Recordings save one every few hundred steps so a replay can
+ * seek without playing the whole game from the beginning.
+ *
+ * The clients, their worker threads, and the ships' current actions are not saved (a replay
+ * supplies its own client and the recorded movements).  Neither are the event bus, the
+ * movement executor, or the caches space keeps to speed up a step.
+ *
+ * @author amy
+ */
+class GameKeyframe {
+	/**
+	 * The time step this keyframe was taken at (before the step was played)
+	 */
+	int timestep;
+
+	/**
+	 * All of the objects in space
+	 */
+	Toroidal2DPhysics space;
+
+	/**
+	 * The teams (in the simulator's order)
+	 */
+	ArrayList<Team> teams;
+
+	/**
+	 * The simulator's random number generator (respawns, new asteroids, purchases)
+	 */
+	Random random;
+
+	/**
+	 * Take a keyframe of the current state of the simulator
+	 *
+	 * @param simulator
+	 */
+	GameKeyframe(SpaceSettlersSimulator simulator) {
+		timestep = simulator.timestep;
+		space = simulator.simulatedSpace;
+		teams = new ArrayList<Team>(simulator.teams);
+		random = simulator.random;
+	}
+
+	/**
+	 * The XStream used for keyframes (the fields that can't or shouldn't be saved are left out).
+	 * Most of the objects in space have no no-args constructor, so the reflection provider is
+	 * set explicitly rather than left to XStream's guess about the JVM.
+	 *
+	 * @return
+	 */
+	static XStream createXStream() {
+		XStream xstream = new XStream(new Sun14ReflectionProvider());
+		xstream.alias("GameKeyframe", GameKeyframe.class);
+		xstream.omitField(Team.class, "teamClient");
+		xstream.omitField(Team.class, "worker");
+		xstream.omitField(Team.class, "latestGraphics");
+		xstream.omitField(Ship.class, "currentAction");
+		xstream.omitField(CollisionHandler.class, "eventBus");
+		xstream.omitField(Toroidal2DPhysics.class, "teamInfo");
+		xstream.omitField(Toroidal2DPhysics.class, "eventBus");
+		xstream.omitField(Toroidal2DPhysics.class, "movementExecutor");
+		xstream.omitField(Toroidal2DPhysics.class, "appliedMovements");
+
+		// caches that space rebuilds the next time it needs them
+		xstream.omitField(Toroidal2DPhysics.class, "moveableArrays");
+		xstream.omitField(Toroidal2DPhysics.class, "collisionGrid");
+		xstream.omitField(Toroidal2DPhysics.class, "narrowPhase");
+		xstream.omitField(Toroidal2DPhysics.class, "collisionObjects");
+		xstream.omitField(Toroidal2DPhysics.class, "collisionCandidates");
+		xstream.omitField(Toroidal2DPhysics.class, "deadCollisionObjects");
+		xstream.omitField(Toroidal2DPhysics.class, "queryIndex");
+		xstream.omitField(Toroidal2DPhysics.class, "freeSpaceIndex");
+		return xstream;
+	}
+
+	/**
+	 * Save the keyframe as xml
+	 *
+	 * @return
+	 */
+	String toXML() {
+		return createXStream().toXML(this);
+	}
+
+	/**
+	 * Load a keyframe saved with toXML.  Space is ready to use but the teams still need
+	 * clients attached to them.
+	 *
+	 * @param xml
+	 * @return
+	 */
+	static GameKeyframe fromXML(String xml) {
+		GameKeyframe keyframe = (GameKeyframe) createXStream().fromXML(xml);
+		keyframe.space.teamInfo = new HashSet<ImmutableTeamInfo>();
+		return keyframe;
+	}
+}
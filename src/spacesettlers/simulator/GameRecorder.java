@@ -0,0 +1,265 @@
+package spacesettlers.simulator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import spacesettlers.actions.PurchaseTypes;
+import spacesettlers.clients.Team;
+import spacesettlers.configs.BaseConfig;
+import spacesettlers.configs.FixedAsteroidConfig;
+import spacesettlers.configs.FlagConfig;
+import spacesettlers.configs.HighLevelTeamConfig;
+import spacesettlers.configs.RandomAsteroidConfig;
+import spacesettlers.configs.ScoringRuleConfig;
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.utilities.Movement;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Records a game so it can be replayed without the clients (see GameReplayer).  For every
+ * time step, the movement each ship's action returned, the power ups that were used, and the
+ * purchases each team asked for are written out.  Those (plus the seeded random numbers) are
+ * everything that decides what happens in a game.  Every keyframeInterval steps the full
+ * state of the game is saved as well so a replay can seek.
+ *
+ * The file is a gzipped binary stream: a header (with the simulator config), then one record
+ * per keyframe and time step, and an end record with the final scores.
+ *
+ * @author amy
+ */
+public class GameRecorder {
+	/**
+	 * Marks the start of a recording file ("SSRP") and the version of the format (the
+	 * keyframes save the objects' fields, so this changes when they do)
+	 */
+	static final int MAGIC = 0x53535250;
+	static final int VERSION = 2;
+
+	/**
+	 * Types of the records in the file
+	 */
+	static final byte KEYFRAME_RECORD = 1;
+	static final byte STEP_RECORD = 2;
+	static final byte END_RECORD = 3;
+
+	/**
+	 * Number of steps between keyframes unless another interval is given
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 500;
+
+	/**
+	 * Where the recording is written
+	 */
+	DataOutputStream out;
+
+	/**
+	 * Name of the file (for error messages)
+	 */
+	String fileName;
+
+	/**
+	 * Number of steps between keyframes
+	 */
+	int keyframeInterval;
+
+	/**
+	 * What happened in the current time step (written out at the end of the step)
+	 */
+	int currentStep;
+	Map<UUID, SpaceSettlersPowerupEnum> stepPowerups;
+	Map<String, Map<UUID, PurchaseTypes>> stepPurchases;
+	Map<UUID, Movement> stepMovements;
+
+	/**
+	 * Start recording a game
+	 *
+	 * @param fileName file to write the recording to
+	 * @param simConfig the config of the game being recorded (the random seed must be set)
+	 * @param keyframeInterval number of steps between keyframes
+	 * @throws IOException
+	 */
+	public GameRecorder(String fileName, SpaceSettlersConfig simConfig, int keyframeInterval) throws IOException {
+		this.fileName = fileName;
+		this.keyframeInterval = keyframeInterval;
+		out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(fileName))));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(keyframeInterval);
+		writeString(createConfigXStream().toXML(simConfig));
+
+		stepPowerups = new LinkedHashMap<UUID, SpaceSettlersPowerupEnum>();
+		stepPurchases = new LinkedHashMap<String, Map<UUID, PurchaseTypes>>();
+	}
+
+	/**
+	 * The XStream used to read and write the simulator config (same aliases as the config files)
+	 *
+	 * @return
+	 */
+	static XStream createConfigXStream() {
+		XStream xstream = new XStream();
+		xstream.alias("SpaceSettlersConfig", SpaceSettlersConfig.class);
+		xstream.alias("HighLevelTeamConfig", HighLevelTeamConfig.class);
+		xstream.alias("BaseConfig", BaseConfig.class);
+		xstream.alias("AsteroidConfig", RandomAsteroidConfig.class);
+		xstream.alias("FixedAsteroidConfig", FixedAsteroidConfig.class);
+		xstream.alias("FlagConfig", FlagConfig.class);
+		xstream.alias("ScoringRuleConfig", ScoringRuleConfig.class);
+		return xstream;
+	}
+
+	/**
+	 * Start recording a time step.  The keyframe is saved before anything in the step happens.
+	 *
+	 * @param simulator
+	 * @throws IOException
+	 */
+	void beginStep(SpaceSettlersSimulator simulator) throws IOException {
+		currentStep = simulator.getTimestep();
+		stepPowerups.clear();
+		stepPurchases.clear();
+		stepMovements = null;
+
+		if (currentStep % keyframeInterval == 0) {
+			out.writeByte(KEYFRAME_RECORD);
+			out.writeInt(currentStep);
+			writeString(new GameKeyframe(simulator).toXML());
+		}
+	}
+
+	/**
+	 * Record the power ups used in this step (after they have been checked)
+	 *
+	 * @param powerups
+	 */
+	void recordPowerups(Map<UUID, SpaceSettlersPowerupEnum> powerups) {
+		stepPowerups.putAll(powerups);
+	}
+
+	/**
+	 * Record the movement each ship's action returned in this step
+	 *
+	 * @param movements
+	 */
+	void recordMovements(Map<UUID, Movement> movements) {
+		stepMovements = movements;
+	}
+
+	/**
+	 * Record the purchases a team asked for (before they are checked, in the order the
+	 * simulator will try them)
+	 *
+	 * @param teamName
+	 * @param purchases
+	 */
+	void recordPurchases(String teamName, Map<UUID, PurchaseTypes> purchases) {
+		if (purchases != null && !purchases.isEmpty()) {
+			stepPurchases.put(teamName, new LinkedHashMap<UUID, PurchaseTypes>(purchases));
+		}
+	}
+
+	/**
+	 * Write out everything recorded for this step
+	 *
+	 * @throws IOException
+	 */
+	void endStep() throws IOException {
+		out.writeByte(STEP_RECORD);
+		out.writeInt(currentStep);
+
+		if (stepMovements == null) {
+			out.writeInt(0);
+		} else {
+			out.writeInt(stepMovements.size());
+			for (Map.Entry<UUID, Movement> entry : stepMovements.entrySet()) {
+				writeId(entry.getKey());
+				Movement movement = entry.getValue();
+				out.writeDouble(movement.getTranslationalAcceleration().getXValue());
+				out.writeDouble(movement.getTranslationalAcceleration().getYValue());
+				out.writeDouble(movement.getAngularAccleration());
+			}
+		}
+
+		out.writeInt(stepPowerups.size());
+		for (Map.Entry<UUID, SpaceSettlersPowerupEnum> entry : stepPowerups.entrySet()) {
+			writeId(entry.getKey());
+			out.writeByte(entry.getValue().ordinal());
+		}
+
+		out.writeInt(stepPurchases.size());
+		for (Map.Entry<String, Map<UUID, PurchaseTypes>> teamEntry : stepPurchases.entrySet()) {
+			out.writeUTF(teamEntry.getKey());
+			out.writeInt(teamEntry.getValue().size());
+			for (Map.Entry<UUID, PurchaseTypes> entry : teamEntry.getValue().entrySet()) {
+				writeId(entry.getKey());
+				out.writeByte(entry.getValue().ordinal());
+			}
+		}
+	}
+
+	/**
+	 * Write the final scores and close the file
+	 *
+	 * @param teams
+	 * @throws IOException
+	 */
+	void close(Collection<Team> teams) throws IOException {
+		out.writeByte(END_RECORD);
+		out.writeInt(teams.size());
+		for (Team team : teams) {
+			out.writeUTF(team.getTeamName());
+			out.writeDouble(team.getScore());
+		}
+		out.close();
+	}
+
+	/**
+	 * Stop recording without writing the end of the game (the recording can still be
+	 * replayed up to the last step written)
+	 */
+	void abort() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			System.err.println("Error closing the recording " + fileName);
+		}
+	}
+
+	/**
+	 * Write an id as two longs
+	 * @param id
+	 * @throws IOException
+	 */
+	private void writeId(UUID id) throws IOException {
+		out.writeLong(id.getMostSignificantBits());
+		out.writeLong(id.getLeastSignificantBits());
+	}
+
+	/**
+	 * Write a string that may be longer than writeUTF allows
+	 * @param str
+	 * @throws IOException
+	 */
+	private void writeString(String str) throws IOException {
+		byte[] bytes = str.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+}
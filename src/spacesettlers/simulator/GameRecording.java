@@ -0,0 +1,263 @@
+package spacesettlers.simulator;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import spacesettlers.actions.PurchaseTypes;
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.utilities.Movement;
+import spacesettlers.utilities.Vector2D;
+
+/**
+ * A game recorded by GameRecorder, loaded into memory so it can be replayed and seeked.
+ * A recording that was cut off (e.g. the game crashed) can still be replayed up to the
+ * last step that was written.
+ *
+ * @author amy
+ */
+public class GameRecording {
+	/**
+	 * Everything the clients decided in one time step
+	 */
+	static class RecordedStep {
+		/**
+		 * The movement each ship's action returned (in the order the ships moved)
+		 */
+		Map<UUID, Movement> movements = new LinkedHashMap<UUID, Movement>();
+
+		/**
+		 * The power ups used this step
+		 */
+		Map<UUID, SpaceSettlersPowerupEnum> powerups = new LinkedHashMap<UUID, SpaceSettlersPowerupEnum>();
+
+		/**
+		 * The purchases each team asked for (indexed by team name)
+		 */
+		Map<String, Map<UUID, PurchaseTypes>> purchases = new LinkedHashMap<String, Map<UUID, PurchaseTypes>>();
+	}
+
+	/**
+	 * The config the game was played with
+	 */
+	SpaceSettlersConfig simConfig;
+
+	/**
+	 * Number of steps between keyframes
+	 */
+	int keyframeInterval;
+
+	/**
+	 * The saved keyframes (as xml) indexed by time step
+	 */
+	TreeMap<Integer, String> keyframes;
+
+	/**
+	 * The recorded steps (indexed by time step)
+	 */
+	ArrayList<RecordedStep> steps;
+
+	/**
+	 * The scores at the end of the game (indexed by team name, null if the recording was cut off)
+	 */
+	Map<String, Double> finalScores;
+
+	GameRecording() {
+		keyframes = new TreeMap<Integer, String>();
+		steps = new ArrayList<RecordedStep>();
+	}
+
+	/**
+	 * Load a recording from a file
+	 *
+	 * @param fileName
+	 * @return
+	 * @throws IOException if the file can't be read or isn't a recording
+	 */
+	public static GameRecording load(String fileName) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(fileName))));
+		try {
+			if (in.readInt() != GameRecorder.MAGIC) {
+				throw new IOException(fileName + " is not a space settlers recording");
+			}
+			int version = in.readInt();
+			if (version != GameRecorder.VERSION) {
+				throw new IOException(fileName + " is version " + version + " of the recording format but only version " +
+						GameRecorder.VERSION + " can be read");
+			}
+
+			GameRecording recording = new GameRecording();
+			recording.keyframeInterval = in.readInt();
+			recording.simConfig = (SpaceSettlersConfig) GameRecorder.createConfigXStream().fromXML(readString(in));
+
+			while (true) {
+				byte type;
+				try {
+					type = in.readByte();
+				} catch (EOFException e) {
+					// the game was cut off (only the steps written so far can be replayed)
+					break;
+				}
+
+				if (type == GameRecorder.KEYFRAME_RECORD) {
+					int step = in.readInt();
+					recording.keyframes.put(step, readString(in));
+				} else if (type == GameRecorder.STEP_RECORD) {
+					int step = in.readInt();
+					if (step != recording.steps.size()) {
+						throw new IOException("Step " + step + " is out of order in " + fileName);
+					}
+					recording.steps.add(readStep(in));
+				} else if (type == GameRecorder.END_RECORD) {
+					recording.finalScores = new LinkedHashMap<String, Double>();
+					int numTeams = in.readInt();
+					for (int i = 0; i < numTeams; i++) {
+						String teamName = in.readUTF();
+						recording.finalScores.put(teamName, in.readDouble());
+					}
+					break;
+				} else {
+					throw new IOException("Unknown record type " + type + " in " + fileName);
+				}
+			}
+
+			if (recording.keyframes.isEmpty()) {
+				throw new IOException(fileName + " has no keyframes");
+			}
+			return recording;
+		} catch (EOFException e) {
+			throw new IOException(fileName + " ends in the middle of a record");
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Read one time step
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static RecordedStep readStep(DataInputStream in) throws IOException {
+		RecordedStep step = new RecordedStep();
+
+		int numMovements = in.readInt();
+		for (int i = 0; i < numMovements; i++) {
+			UUID id = readId(in);
+			Movement movement = new Movement();
+			movement.setTranslationalAcceleration(new Vector2D(in.readDouble(), in.readDouble()));
+			movement.setAngularAccleration(in.readDouble());
+			step.movements.put(id, movement);
+		}
+
+		SpaceSettlersPowerupEnum[] powerupTypes = SpaceSettlersPowerupEnum.values();
+		int numPowerups = in.readInt();
+		for (int i = 0; i < numPowerups; i++) {
+			UUID id = readId(in);
+			step.powerups.put(id, powerupTypes[in.readByte()]);
+		}
+
+		PurchaseTypes[] purchaseTypes = PurchaseTypes.values();
+		int numTeams = in.readInt();
+		for (int t = 0; t < numTeams; t++) {
+			String teamName = in.readUTF();
+			Map<UUID, PurchaseTypes> purchases = new LinkedHashMap<UUID, PurchaseTypes>();
+			int numPurchases = in.readInt();
+			for (int i = 0; i < numPurchases; i++) {
+				UUID id = readId(in);
+				purchases.put(id, purchaseTypes[in.readByte()]);
+			}
+			step.purchases.put(teamName, purchases);
+		}
+
+		return step;
+	}
+
+	/**
+	 * Read an id written as two longs
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static UUID readId(DataInputStream in) throws IOException {
+		long mostSignificant = in.readLong();
+		long leastSignificant = in.readLong();
+		return new UUID(mostSignificant, leastSignificant);
+	}
+
+	/**
+	 * Read a string written by GameRecorder.writeString
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	/**
+	 * Returns the config the game was played with
+	 * @return
+	 */
+	public SpaceSettlersConfig getSimConfig() {
+		return simConfig;
+	}
+
+	/**
+	 * Returns the number of steps that can be replayed
+	 * @return
+	 */
+	public int getNumSteps() {
+		return steps.size();
+	}
+
+	/**
+	 * Returns the time steps that have keyframes (in order)
+	 * @return
+	 */
+	public Iterable<Integer> getKeyframeSteps() {
+		return keyframes.keySet();
+	}
+
+	/**
+	 * Returns the scores at the end of the game
+	 * @return the scores indexed by team name (null if the recording was cut off)
+	 */
+	public Map<String, Double> getFinalScores() {
+		return finalScores;
+	}
+
+	/**
+	 * Returns the latest keyframe at or before a time step
+	 * @param step
+	 * @return
+	 */
+	GameKeyframe getKeyframeBefore(int step) {
+		Map.Entry<Integer, String> entry = keyframes.floorEntry(step);
+		if (entry == null) {
+			entry = keyframes.firstEntry();
+		}
+		return GameKeyframe.fromXML(entry.getValue());
+	}
+
+	/**
+	 * Returns what the clients decided in a time step
+	 * @param step
+	 * @return
+	 */
+	RecordedStep getStep(int step) {
+		return steps.get(step);
+	}
+}
@@ -0,0 +1,192 @@
+package spacesettlers.simulator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import spacesettlers.clients.Team;
+import spacesettlers.gui.SpaceSettlersGUI;
+
+/**
+ * Replays a recorded game (see GameRecorder) without loading any of the team clients.
+ * The simulator is restored from the nearest keyframe and then each step is played again
+ * with the recorded movements, power ups, and purchases, so the physics, collisions, and
+ * random events come out exactly as they did in the recorded game.  The replay runs in
+ * turbo mode (no timeouts or threads) unless graphics are turned on.
+ *
+ * @author amy
+ */
+public class GameReplayer {
+	/**
+	 * The game being replayed
+	 */
+	GameRecording recording;
+
+	/**
+	 * The simulator the game is played in again
+	 */
+	SpaceSettlersSimulator simulator;
+
+	/**
+	 * The stand in clients for each team (they hand back the recorded steps)
+	 */
+	ArrayList<ReplayTeamClient> clients;
+
+	/**
+	 * The GUI (null unless graphics are on)
+	 */
+	SpaceSettlersGUI gui;
+
+	/**
+	 * Make a replayer that starts at the beginning of the recorded game
+	 *
+	 * @param recording
+	 */
+	public GameReplayer(GameRecording recording) {
+		this.recording = recording;
+		simulator = new SpaceSettlersSimulator(recording.getSimConfig());
+		clients = new ArrayList<ReplayTeamClient>();
+		restore(recording.getKeyframeBefore(0));
+	}
+
+	/**
+	 * Turn on graphics (the replay can be paused and slowed down like a live game)
+	 */
+	public void createGUI() {
+		simulator.turbo = false;
+		gui = new SpaceSettlersGUI(simulator.simConfig, simulator);
+		gui.redraw();
+	}
+
+	/**
+	 * Put the simulator into the state saved in a keyframe
+	 *
+	 * @param keyframe
+	 */
+	private void restore(GameKeyframe keyframe) {
+		for (Team team : simulator.teams) {
+			team.shutdownClients(simulator.simulatedSpace);
+		}
+
+		simulator.simulatedSpace = keyframe.space;
+		simulator.simulatedSpace.setEventBus(simulator.eventBus);
+		simulator.simulatedSpace.setMovementExecutor(simulator.movementExecutor);
+		simulator.random = keyframe.random;
+		simulator.timestep = keyframe.timestep;
+		simulator.teams.clear();
+		simulator.teams.addAll(keyframe.teams);
+
+		clients.clear();
+		for (Team team : keyframe.teams) {
+			ReplayTeamClient client = new ReplayTeamClient();
+			client.setTeamName(team.getTeamName());
+			client.setTeamColor(team.getTeamColor());
+			team.attachClient(client);
+			team.setDirectCalls(true);
+			clients.add(client);
+		}
+	}
+
+	/**
+	 * Move the replay to the start of a time step.  Going forward plays the steps in between
+	 * (starting from a later keyframe if there is one) and going back restarts from the last
+	 * keyframe before the step.
+	 *
+	 * @param step the time step to go to (0 to the number of recorded steps)
+	 */
+	public void seek(int step) {
+		if (step < 0 || step > recording.getNumSteps()) {
+			throw new IllegalArgumentException("Step " + step + " is not in the recording (0 to " +
+					recording.getNumSteps() + ")");
+		}
+
+		int keyframeStep = recording.keyframes.floorKey(step);
+		if (step < simulator.timestep || keyframeStep > simulator.timestep) {
+			restore(recording.getKeyframeBefore(step));
+		}
+
+		while (simulator.timestep < step) {
+			playStep();
+		}
+	}
+
+	/**
+	 * Play the next recorded step
+	 *
+	 * @return false if the recording has no more steps
+	 */
+	public boolean step() {
+		if (simulator.timestep >= recording.getNumSteps()) {
+			return false;
+		}
+
+		playStep();
+
+		if (gui != null) {
+			gui.redraw();
+			SpaceSettlersSimulator.mySleep(simulator.getGraphicsSleep());
+			while (simulator.isPaused()) {
+				SpaceSettlersSimulator.mySleep(50);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Play the step at the current time step
+	 */
+	private void playStep() {
+		GameRecording.RecordedStep recordedStep = recording.getStep(simulator.timestep);
+		for (ReplayTeamClient client : clients) {
+			client.setStep(recordedStep);
+		}
+		simulator.advanceTime();
+		simulator.timestep++;
+	}
+
+	/**
+	 * Play the rest of the recorded game
+	 */
+	public void run() {
+		while (step()) {
+			if (simulator.timestep % 5000 == 0) {
+				System.out.println("Replayed time step " + simulator.timestep);
+			}
+		}
+	}
+
+	/**
+	 * Returns the current time step of the replay
+	 * @return
+	 */
+	public int getTimestep() {
+		return simulator.timestep;
+	}
+
+	/**
+	 * Returns the simulator the game is being replayed in (for looking at space and the teams)
+	 * @return
+	 */
+	public SpaceSettlersSimulator getSimulator() {
+		return simulator;
+	}
+
+	/**
+	 * Returns the current scores
+	 * @return the scores indexed by team name
+	 */
+	public Map<String, Double> getScores() {
+		Map<String, Double> scores = new LinkedHashMap<String, Double>();
+		for (Team team : simulator.teams) {
+			scores.put(team.getTeamName(), team.getScore());
+		}
+		return scores;
+	}
+
+	/**
+	 * Shut down the stand in clients
+	 */
+	public void shutdown() {
+		simulator.shutdownTeams();
+	}
+}
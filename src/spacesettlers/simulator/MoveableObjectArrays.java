@@ -0,0 +1,161 @@
+package spacesettlers.simulator;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.utilities.Position;
+
+/**
+ * Structure of arrays integrator for the moveable objects that aren't controlled by a
+ * client (asteroids, weapons, and dropped flags).  The state of each object is copied into
+ * parallel primitive arrays indexed by a dense slot, all of the objects are moved in one
+ * tight loop, and the new state is written back into each object's existing Position when
+ * the simulator gets to it.  Nothing is allocated once the arrays have grown to the size
+ * of the world.
+ *
+ * The math is exactly the same as Toroidal2DPhysics.moveOneTimestep so both give the same
+ * positions.  Velocities don't change while moving so they are never written back.
+ *
+ * @author amy
+ */
+class MoveableObjectArrays {
+	/**
+	 * The object in each slot
+	 */
+	AbstractObject[] objects;
+
+	/**
+	 * Position, velocity and orientation of the object in each slot
+	 */
+	double[] x, y, velocityX, velocityY, orientation, angularVelocity;
+
+	/**
+	 * Number of slots in use
+	 */
+	int numObjects;
+
+	/**
+	 * Make empty arrays
+	 */
+	MoveableObjectArrays() {
+		allocate(16);
+	}
+
+	/**
+	 * Make new arrays of the specified size (keeping anything already stored)
+	 *
+	 * @param capacity
+	 */
+	private void allocate(int capacity) {
+		AbstractObject[] newObjects = new AbstractObject[capacity];
+		double[] newX = new double[capacity];
+		double[] newY = new double[capacity];
+		double[] newVelocityX = new double[capacity];
+		double[] newVelocityY = new double[capacity];
+		double[] newOrientation = new double[capacity];
+		double[] newAngularVelocity = new double[capacity];
+
+		if (objects != null) {
+			System.arraycopy(objects, 0, newObjects, 0, numObjects);
+			System.arraycopy(x, 0, newX, 0, numObjects);
+			System.arraycopy(y, 0, newY, 0, numObjects);
+			System.arraycopy(velocityX, 0, newVelocityX, 0, numObjects);
+			System.arraycopy(velocityY, 0, newVelocityY, 0, numObjects);
+			System.arraycopy(orientation, 0, newOrientation, 0, numObjects);
+			System.arraycopy(angularVelocity, 0, newAngularVelocity, 0, numObjects);
+		}
+
+		objects = newObjects;
+		x = newX;
+		y = newY;
+		velocityX = newVelocityX;
+		velocityY = newVelocityY;
+		orientation = newOrientation;
+		angularVelocity = newAngularVelocity;
+	}
+
+	/**
+	 * Empty all of the slots (the arrays are kept for the next step)
+	 */
+	void clear() {
+		numObjects = 0;
+	}
+
+	/**
+	 * Copy an object's state into the next slot
+	 *
+	 * @param object
+	 * @return the slot for the object
+	 */
+	int add(AbstractObject object) {
+		if (numObjects == objects.length) {
+			allocate(objects.length * 2);
+		}
+
+		Position position = object.getPosition();
+		int slot = numObjects;
+		objects[slot] = object;
+		x[slot] = position.getX();
+		y[slot] = position.getY();
+		velocityX[slot] = position.getTranslationalVelocityX();
+		velocityY[slot] = position.getTranslationalVelocityY();
+		orientation[slot] = position.getOrientation();
+		angularVelocity[slot] = position.getAngularVelocity();
+		numObjects++;
+		return slot;
+	}
+
+	/**
+	 * Move every object one time step using its velocity (wrapping around the toroidal space)
+	 *
+	 * @param timeStep
+	 * @param width
+	 * @param height
+	 */
+	void integrate(double timeStep, int width, int height) {
+		for (int i = 0; i < numObjects; i++) {
+			double newOrientation = orientation[i] + (angularVelocity[i] * timeStep);
+
+			// make sure orientation wraps correctly (-pi to pi)
+			if (newOrientation > Math.PI) {
+				newOrientation -= (2 * Math.PI);
+			} else if (newOrientation < -Math.PI) {
+				newOrientation += (2 * Math.PI);
+			}
+			orientation[i] = newOrientation;
+
+			double newX = x[i] + (velocityX[i] * timeStep);
+			while (newX < 0) {
+				newX += width;
+			}
+			x[i] = newX % width;
+
+			double newY = y[i] + (velocityY[i] * timeStep);
+			while (newY < 0) {
+				newY += height;
+			}
+			y[i] = newY % height;
+		}
+	}
+
+	/**
+	 * Is this the object stored in the slot?
+	 *
+	 * @param slot
+	 * @param object
+	 * @return
+	 */
+	boolean isInSlot(int slot, AbstractObject object) {
+		return slot < numObjects && objects[slot] == object;
+	}
+
+	/**
+	 * Write the new state of the object in a slot back into its position
+	 *
+	 * @param slot
+	 */
+	void writeBack(int slot) {
+		Position position = objects[slot].getPosition();
+		position.setX(x[slot]);
+		position.setY(y[slot]);
+		position.setOrientation(orientation[slot]);
+	}
+}
@@ -0,0 +1,118 @@
+package spacesettlers.simulator;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import spacesettlers.actions.AbstractAction;
+import spacesettlers.actions.PurchaseCosts;
+import spacesettlers.actions.PurchaseTypes;
+import spacesettlers.clients.TeamClient;
+import spacesettlers.graphics.SpacewarGraphics;
+import spacesettlers.objects.AbstractActionableObject;
+import spacesettlers.objects.Ship;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.objects.resources.ResourcePile;
+import spacesettlers.utilities.Movement;
+import spacesettlers.utilities.Vector2D;
+
+/**
+ * Stands in for a team's client during a replay.  It hands back whatever was recorded
+ * for the current step (the ships move exactly as they did in the recorded game).
+ *
+ * @author amy
+ */
+class ReplayTeamClient extends TeamClient {
+	/**
+	 * The step being replayed (set by the replayer before each step)
+	 */
+	GameRecording.RecordedStep step;
+
+	/**
+	 * Set the step being replayed
+	 * @param step
+	 */
+	void setStep(GameRecording.RecordedStep step) {
+		this.step = step;
+	}
+
+	/**
+	 * Every ship gets an action that returns its recorded movement (the simulator only
+	 * uses the ones for this team)
+	 */
+	@Override
+	public Map<UUID, AbstractAction> getMovementStart(Toroidal2DPhysics space,
+			Set<AbstractActionableObject> actionableObjects) {
+		Map<UUID, AbstractAction> actions = new LinkedHashMap<UUID, AbstractAction>();
+		for (Map.Entry<UUID, Movement> entry : step.movements.entrySet()) {
+			actions.put(entry.getKey(), new RecordedMovementAction(entry.getValue()));
+		}
+		return actions;
+	}
+
+	/**
+	 * The recorded power ups (the simulator only uses the ones for this team)
+	 */
+	@Override
+	public Map<UUID, SpaceSettlersPowerupEnum> getPowerups(Toroidal2DPhysics space,
+			Set<AbstractActionableObject> actionableObjects) {
+		return new LinkedHashMap<UUID, SpaceSettlersPowerupEnum>(step.powerups);
+	}
+
+	/**
+	 * The purchases this team asked for
+	 */
+	@Override
+	public Map<UUID, PurchaseTypes> getTeamPurchases(Toroidal2DPhysics space,
+			Set<AbstractActionableObject> actionableObjects,
+			ResourcePile resourcesAvailable, PurchaseCosts purchaseCosts) {
+		Map<UUID, PurchaseTypes> purchases = step.purchases.get(getTeamName());
+		if (purchases == null) {
+			return new LinkedHashMap<UUID, PurchaseTypes>();
+		}
+		return new LinkedHashMap<UUID, PurchaseTypes>(purchases);
+	}
+
+	@Override
+	public void getMovementEnd(Toroidal2DPhysics space, Set<AbstractActionableObject> actionableObjects) {
+	}
+
+	@Override
+	public void initialize(Toroidal2DPhysics space) {
+	}
+
+	@Override
+	public void shutDown(Toroidal2DPhysics space) {
+	}
+
+	@Override
+	public Set<SpacewarGraphics> getGraphics() {
+		return new HashSet<SpacewarGraphics>();
+	}
+
+	/**
+	 * Action that returns the movement recorded for a ship
+	 */
+	static class RecordedMovementAction extends AbstractAction {
+		Movement movement;
+
+		RecordedMovementAction(Movement movement) {
+			this.movement = movement;
+		}
+
+		@Override
+		public Movement getMovement(Toroidal2DPhysics space, Ship ship) {
+			Movement copy = new Movement();
+			copy.setTranslationalAcceleration(new Vector2D(movement.getTranslationalAcceleration()));
+			copy.setAngularAccleration(movement.getAngularAccleration());
+			return copy;
+		}
+
+		@Override
+		public boolean isMovementFinished(Toroidal2DPhysics space) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package spacesettlers.simulator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import spacesettlers.clients.Team;
+
+/**
+ * Scores a game with a list of rules, each giving points for every unit of one type of
+ * event (e.g. 1000 points per kill).  The built in scoring methods are all made this way
+ * (see forName) and custom rules from the simulator config are added the same way.
+ *
+ * @author amy
+ */
+public class RuleScoringMethod implements ScoringMethod {
+	/**
+	 * Points for one type of event
+	 */
+	static class Rule {
+		final SimulationEvent.Type type;
+		final double points;
+		final boolean allTeams;
+
+		Rule(SimulationEvent.Type type, double points, boolean allTeams) {
+			this.type = type;
+			this.points = points;
+			this.allTeams = allTeams;
+		}
+	}
+
+	/**
+	 * The rules (in the order they were added)
+	 */
+	ArrayList<Rule> rules;
+
+	/**
+	 * Make a scoring method with no rules (every score stays 0 until rules are added)
+	 */
+	public RuleScoringMethod() {
+		rules = new ArrayList<Rule>();
+	}
+
+	/**
+	 * Add a rule
+	 *
+	 * @param type the event being scored
+	 * @param points the points for each unit of the event
+	 * @param allTeams true if every team gets the points and false if only the team the
+	 * event happened to does
+	 */
+	public void addRule(SimulationEvent.Type type, double points, boolean allTeams) {
+		rules.add(new Rule(type, points, allTeams));
+	}
+
+	/**
+	 * Make one of the built in scoring methods
+	 *
+	 * @param scoringMethod the name from the simulator config (case doesn't matter)
+	 * @return the method or null if the name isn't one of the built in ones
+	 */
+	public static RuleScoringMethod forName(String scoringMethod) {
+		if (scoringMethod == null) {
+			return null;
+		}
+
+		RuleScoringMethod method = new RuleScoringMethod();
+		if (scoringMethod.equalsIgnoreCase("Resources")) {
+			method.addRule(SimulationEvent.Type.RESOURCES_DEPOSITED, 1, false);
+		} else if (scoringMethod.equalsIgnoreCase("Beacons")) {
+			method.addRule(SimulationEvent.Type.BEACON_COLLECTED, 1, false);
+		} else if (scoringMethod.equalsIgnoreCase("Kills")) {
+			method.addRule(SimulationEvent.Type.KILL, 1, false);
+		} else if (scoringMethod.equalsIgnoreCase("Hits")) {
+			method.addRule(SimulationEvent.Type.HIT, 1, false);
+		} else if (scoringMethod.equalsIgnoreCase("Damage")) {
+			method.addRule(SimulationEvent.Type.DAMAGE_INFLICTED, 1, false);
+		} else if (scoringMethod.equalsIgnoreCase("DamageCorrected")) {
+			// adding the damage received because it is a negative number (inflicted is positive).
+			// Only the ships' damage counts, the bases' damage never reached the team totals
+			method.addRule(SimulationEvent.Type.KILL, 1000, false);
+			method.addRule(SimulationEvent.Type.DAMAGE_INFLICTED, 1, false);
+			method.addRule(SimulationEvent.Type.DAMAGE_RECEIVED, 1, false);
+		} else if (scoringMethod.equalsIgnoreCase("Flags")) {
+			// this scores by the raw number of flags collected (competitive ladder)
+			method.addRule(SimulationEvent.Type.FLAG_DEPOSITED, 1, false);
+		} else if (scoringMethod.equalsIgnoreCase("TotalFlags")) {
+			// this score sums the flags for the two sides (cooperative ladder)
+			method.addRule(SimulationEvent.Type.FLAG_DEPOSITED, 1, true);
+		} else {
+			return null;
+		}
+		return method;
+	}
+
+	@Override
+	public void scoreEvent(SimulationEvent event, Team team, Collection<Team> teams) {
+		for (Rule rule : rules) {
+			if (rule.type != event.getType()) {
+				continue;
+			}
+
+			double points = rule.points * event.getAmount();
+			if (rule.allTeams) {
+				for (Team otherTeam : teams) {
+					otherTeam.setScore(otherTeam.getScore() + points);
+				}
+			} else if (team != null) {
+				team.setScore(team.getScore() + points);
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package spacesettlers.simulator;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+
+/**
+ * Replays a game recorded with --recordFile (from RunSimulator or RunLadder).  None of the
+ * team clients are loaded so a replay runs much faster than the game did.  The replay can
+ * start part way through the game and the scores are checked against the recorded ones
+ * at the end.
+ *
+ * @author amy
+ */
+public class RunReplay {
+	JSAPResult config;
+
+	/**
+	 * Parse the command line arguments.  If they fail to parse, this will die
+	 * before moving on.
+	 * @param args
+	 */
+	public RunReplay(String[] args) {
+		SimpleJSAP parser = initializeParser();
+		config = parser.parse(args);
+		if (parser.messagePrinted()) {
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Initialize the parser with all of the command line arguments
+	 * @return
+	 */
+	private SimpleJSAP initializeParser() {
+		SimpleJSAP parser = null;
+
+		try {
+			parser = new SimpleJSAP(
+					"Replay",
+					"Replay a recorded Space Settlers game",
+					new Parameter[] {
+						new FlaggedOption("replayFile",
+								JSAP.STRING_PARSER, null, JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "replayFile",
+								"the recorded game to replay"),
+						new FlaggedOption("graphics",
+								JSAP.BOOLEAN_PARSER, "false", JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "graphics",
+								"boolean stating if graphics are on (true) or off (false)"),
+						new FlaggedOption("startStep",
+								JSAP.INTEGER_PARSER, "0", JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "startStep",
+								"time step to start watching the replay from"),
+					});
+		} catch (JSAPException e) {
+			e.printStackTrace();
+			System.err.println("Error in the parser - exiting");
+			System.exit(-1);
+		}
+		return parser;
+	}
+
+	/**
+	 * Replay the game
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		RunReplay runReplay = new RunReplay(args);
+		String fileName = runReplay.config.getString("replayFile");
+
+		GameRecording recording;
+		try {
+			recording = GameRecording.load(fileName);
+		} catch (IOException e) {
+			System.err.println("Error loading the recording " + fileName + ": " + e.getMessage());
+			System.exit(-1);
+			return;
+		}
+		System.out.println("Loaded " + recording.getNumSteps() + " steps from " + fileName);
+
+		long startTime = System.nanoTime();
+		GameReplayer replayer = new GameReplayer(recording);
+		replayer.seek(runReplay.config.getInt("startStep"));
+		if (runReplay.config.getBoolean("graphics")) {
+			replayer.createGUI();
+		}
+		replayer.run();
+		replayer.shutdown();
+
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		System.out.println("Replayed " + replayer.getTimestep() + " steps in " + String.format("%.2f", seconds) + " seconds");
+
+		Map<String, Double> scores = replayer.getScores();
+		for (String teamName : scores.keySet()) {
+			System.out.println("Team: " + teamName + " scored " + scores.get(teamName));
+		}
+
+		if (recording.getFinalScores() == null) {
+			System.out.println("The recording was cut off so there are no final scores to check");
+		} else if (recording.getFinalScores().equals(scores)) {
+			System.out.println("The replayed scores match the recorded game");
+		} else {
+			System.out.println("Warning: the replayed scores do not match the recorded game " + recording.getFinalScores());
+		}
+		System.exit(0);
+	}
+}
@@ -52,6 +52,18 @@ public class RunSimulator {
 								JSAP.BOOLEAN_PARSER, "false", JSAP.REQUIRED,
 								JSAP.NO_SHORTFLAG, "debug",
 								"boolean stating if debugging mode (single threading) is on (true) or not (false)"),
+						new FlaggedOption("turbo",
+								JSAP.BOOLEAN_PARSER, "false", JSAP.REQUIRED,
+								JSAP.NO_SHORTFLAG, "turbo",
+								"boolean stating if trusted clients are called directly with no timeouts or graphics (true) or not (false)"),
+						new FlaggedOption("profileFile",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "profileFile",
+								"optional file to write the simulator profile (phase times and client latency) to at the end of the game (.json or .csv, needs profiling turned on in the simulator config)"),
+						new FlaggedOption("recordFile",
+								JSAP.STRING_PARSER, null, JSAP.NOT_REQUIRED,
+								JSAP.NO_SHORTFLAG, "recordFile",
+								"optional file to record the game to so it can be replayed with RunReplay"),
 					});
 		} catch (JSAPException e) {
 			e.printStackTrace();
@@ -103,7 +115,14 @@ public class RunSimulator {
 		RunSimulator runSim = new RunSimulator(args);
 	
 		SpaceSettlersSimulator simulator = new SpaceSettlersSimulator(runSim.config);
+		if (runSim.config.getString("recordFile") != null) {
+			simulator.startRecording(runSim.config.getString("recordFile"));
+		}
 		simulator.run();
+
+		if (runSim.config.getString("profileFile") != null) {
+			simulator.writeProfile(runSim.config.getString("profileFile"));
+		}
 	}
 
 
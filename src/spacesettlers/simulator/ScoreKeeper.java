@@ -0,0 +1,139 @@
+package spacesettlers.simulator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import spacesettlers.clients.Team;
+import spacesettlers.configs.ScoringRuleConfig;
+import spacesettlers.configs.SpaceSettlersConfig;
+
+/**
+ * Keeps the team scores up to date from the events of the game (see SimulationEventBus) instead
+ * of adding up the counters of every team and ship each step.  The scoring method named in
+ * the simulator config is looked up once when the simulator is made, along with any custom
+ * scoring rules in the config (which are scored on top of the method).  The simulator adds it
+ * to its bus before any other listener, so the scores are up to date when the others get the events.
+ *
+ * @author amy
+ */
+public class ScoreKeeper implements SimulationEventListener {
+	/**
+	 * The scoring methods for the game (the named method and then the custom rules)
+	 */
+	ArrayList<ScoringMethod> scoringMethods;
+
+	/**
+	 * The teams in the game (the simulator's own collection, so it stays up to date
+	 * when a replay restores a keyframe)
+	 */
+	Collection<Team> teams;
+
+	/**
+	 * Make the score keeper for a game
+	 *
+	 * @param simConfig the config with the scoring method and rules
+	 * @param teams the teams being scored
+	 */
+	public ScoreKeeper(SpaceSettlersConfig simConfig, Collection<Team> teams) {
+		this.teams = teams;
+		scoringMethods = new ArrayList<ScoringMethod>();
+
+		ScoringMethod scoringMethod = createScoringMethod(simConfig.getScoringMethod());
+		if (scoringMethod != null) {
+			scoringMethods.add(scoringMethod);
+		}
+
+		RuleScoringMethod customRules = createCustomRules(simConfig.getScoringRules());
+		if (customRules != null) {
+			scoringMethods.add(customRules);
+		}
+
+		if (scoringMethods.isEmpty()) {
+			System.err.println("Error: Scoring method " + simConfig.getScoringMethod() + " is not recognized.  Scores will all be 0.");
+		}
+	}
+
+	/**
+	 * Make the scoring method named in the config
+	 *
+	 * @param scoringMethod one of the built in methods or the full name of a ScoringMethod class
+	 * @return the method or null if there isn't one by that name
+	 */
+	static ScoringMethod createScoringMethod(String scoringMethod) {
+		ScoringMethod method = RuleScoringMethod.forName(scoringMethod);
+		if (method != null || scoringMethod == null || !scoringMethod.contains(".")) {
+			return method;
+		}
+
+		try {
+			return (ScoringMethod) Class.forName(scoringMethod).newInstance();
+		} catch (Exception e) {
+			System.err.println("Error: Unable to make the scoring method " + scoringMethod + ": " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Make the custom rules from the config (rules with an unknown event are skipped)
+	 *
+	 * @param ruleConfigs
+	 * @return the rules or null if there aren't any
+	 */
+	static RuleScoringMethod createCustomRules(ScoringRuleConfig[] ruleConfigs) {
+		if (ruleConfigs == null || ruleConfigs.length == 0) {
+			return null;
+		}
+
+		RuleScoringMethod customRules = new RuleScoringMethod();
+		for (ScoringRuleConfig ruleConfig : ruleConfigs) {
+			SimulationEvent.Type type;
+			try {
+				type = SimulationEvent.Type.valueOf(ruleConfig.getEvent().toUpperCase());
+			} catch (Exception e) {
+				System.err.println("Error: Scoring rule event " + ruleConfig.getEvent() + " is not recognized.  The rule is skipped.");
+				continue;
+			}
+			customRules.addRule(type, ruleConfig.getPoints(), ruleConfig.isAllTeams());
+		}
+		return customRules;
+	}
+
+	/**
+	 * Score an event
+	 *
+	 * @param event
+	 */
+	public void simulationEvent(SimulationEvent event) {
+		Team team = getTeam(event.getTeamName());
+		for (int i = 0; i < scoringMethods.size(); i++) {
+			scoringMethods.get(i).scoreEvent(event, team, teams);
+		}
+	}
+
+	/**
+	 * Find a team by name
+	 *
+	 * @param teamName
+	 * @return the team or null if there isn't one by that name
+	 */
+	private Team getTeam(String teamName) {
+		if (teamName == null) {
+			return null;
+		}
+
+		for (Team team : teams) {
+			if (team.getTeamName().equalsIgnoreCase(teamName)) {
+				return team;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the scoring methods used for the game (the named method and then the custom rules)
+	 * @return
+	 */
+	public ArrayList<ScoringMethod> getScoringMethods() {
+		return scoringMethods;
+	}
+}
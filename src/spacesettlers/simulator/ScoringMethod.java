@@ -0,0 +1,24 @@
+package spacesettlers.simulator;
+
+import java.util.Collection;
+
+import spacesettlers.clients.Team;
+
+/**
+ * A way of scoring a game.  The scores start at 0 and are changed as each event of the
+ * game happens (see ScoreKeeper).  The built in methods are RuleScoringMethods.  Other methods can be
+ * used by giving the full name of the class in the scoringMethod of the simulator config
+ * (it needs a constructor with no arguments).
+ *
+ * @author amy
+ */
+public interface ScoringMethod {
+	/**
+	 * Change the scores for an event
+	 *
+	 * @param event what happened
+	 * @param team the team it happened to (null if it wasn't one of the teams)
+	 * @param teams all of the teams in the game
+	 */
+	public void scoreEvent(SimulationEvent event, Team team, Collection<Team> teams);
+}
@@ -0,0 +1,147 @@
+package spacesettlers.simulator;
+
+import java.util.UUID;
+
+import spacesettlers.actions.PurchaseTypes;
+
+/**
+ * Something that happened in the game (see SimulationEventBus).  The events are slots in the
+ * bus's ring buffer that are written over by later events, so a listener has to copy anything
+ * it wants to keep after simulationEvent returns (see copy).
+ *
+ * @author amy
+ */
+public class SimulationEvent {
+	/**
+	 * The kinds of events, with the object, other object, and amount of each
+	 */
+	public enum Type {
+		/** a ship mined an asteroid (the ship, the asteroid, the resources it picked up) */
+		ASTEROID_MINED,
+		/** a ship dropped off its resources at its base (the ship, the base, the resources) */
+		RESOURCES_DEPOSITED,
+		/** a ship picked up a beacon (the ship, the beacon, 1) */
+		BEACON_COLLECTED,
+		/** a missile or EMP hit an unshielded ship or base (the firing ship, what it hit, 1) */
+		HIT,
+		/** a missile killed a ship (the firing ship, the ship it killed, 1) */
+		KILL,
+		/** a missile damaged a ship or base (the firing ship, what it hit, the damage as a positive number) */
+		DAMAGE_INFLICTED,
+		/** a ship was damaged (the ship, the object that damaged it or null, the damage as a negative number) */
+		DAMAGE_RECEIVED,
+		/** a base was damaged (the base, the firing ship, the damage as a negative number) */
+		BASE_DAMAGE_RECEIVED,
+		/** an EMP froze a ship or base (what it froze, the firing ship, the number of steps it is frozen) */
+		EMP_FREEZE,
+		/** a ship picked up the flag of another team (the ship, the flag, 1) */
+		FLAG_PICKED_UP,
+		/** a ship brought a flag back to its base (the ship, the base, 1) */
+		FLAG_DEPOSITED,
+		/** a ship ran out of energy (the ship, null, 1) */
+		SHIP_DESTROYED,
+		/** a base ran out of energy and was removed (the base, null, 1) */
+		BASE_DESTROYED,
+		/** a dead object came back to life (the object, null, 1) */
+		RESPAWN,
+		/** a team bought something (the object it was bought at, null, the resources it cost) */
+		PURCHASE
+	}
+
+	/**
+	 * What happened
+	 */
+	Type type;
+
+	/**
+	 * The time step it happened in
+	 */
+	int timestep;
+
+	/**
+	 * Name of the team it happened to (null if it didn't happen to a team, e.g. an asteroid respawning)
+	 */
+	String teamName;
+
+	/**
+	 * The object it happened to and the other object involved (see the types, either can be null)
+	 */
+	UUID objectId;
+	UUID otherObjectId;
+
+	/**
+	 * How much of it happened (see the types)
+	 */
+	int amount;
+
+	/**
+	 * What was bought (only for purchases)
+	 */
+	PurchaseTypes purchase;
+
+	/**
+	 * Make an empty event (the bus fills them in)
+	 */
+	SimulationEvent() {
+	}
+
+	/**
+	 * Fill in the event
+	 */
+	void set(Type type, int timestep, String teamName, UUID objectId, UUID otherObjectId, int amount, PurchaseTypes purchase) {
+		this.type = type;
+		this.timestep = timestep;
+		this.teamName = teamName;
+		this.objectId = objectId;
+		this.otherObjectId = otherObjectId;
+		this.amount = amount;
+		this.purchase = purchase;
+	}
+
+	/**
+	 * Make a copy that isn't part of the bus (so it can be kept)
+	 * @return
+	 */
+	public SimulationEvent copy() {
+		SimulationEvent copy = new SimulationEvent();
+		copy.set(type, timestep, teamName, objectId, otherObjectId, amount, purchase);
+		return copy;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getTimestep() {
+		return timestep;
+	}
+
+	public String getTeamName() {
+		return teamName;
+	}
+
+	public UUID getObjectId() {
+		return objectId;
+	}
+
+	public UUID getOtherObjectId() {
+		return otherObjectId;
+	}
+
+	public int getAmount() {
+		return amount;
+	}
+
+	public PurchaseTypes getPurchase() {
+		return purchase;
+	}
+
+	@Override
+	public String toString() {
+		String str = timestep + " " + type + " " + teamName + " " + amount;
+		if (purchase != null) {
+			str += " " + purchase;
+		}
+		return str;
+	}
+}
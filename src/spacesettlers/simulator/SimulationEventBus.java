@@ -0,0 +1,177 @@
+package spacesettlers.simulator;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import spacesettlers.actions.PurchaseTypes;
+
+/**
+ * Carries the events of the game (mining, hits, purchases, respawns, ...) from the parts of the
+ * simulator where they happen to anything that wants them (scoring, metrics, the GUI, ...).
+ *
+ * The events are written into a ring buffer of events that are made once, so publishing an event
+ * during the physics step doesn't make any new objects.  The listeners are called at the end of
+ * each step (see dispatch) in the order the events happened, or early if the ring fills up before
+ * then.  The most recent events can also be read from the ring at any time (see getEvent).
+ *
+ * The bus is only used from the simulator thread.  Listeners must not publish events and must copy
+ * any event they want to keep, since the slot is written over by later events.
+ *
+ * @author amy
+ */
+public class SimulationEventBus {
+	/**
+	 * Number of events the ring holds unless another size is given
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * The ring of events (the size is a power of 2 so the index is a mask of the sequence number)
+	 */
+	final SimulationEvent[] events;
+	final int mask;
+
+	/**
+	 * Number of events published and number handed to the listeners so far
+	 */
+	long published, dispatched;
+
+	/**
+	 * The time step the events being published happen in
+	 */
+	int timestep;
+
+	/**
+	 * Everything that gets the events
+	 */
+	ArrayList<SimulationEventListener> listeners;
+
+	/**
+	 * Make a bus with the default capacity
+	 */
+	public SimulationEventBus() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Make a bus that holds at least the given number of events
+	 *
+	 * @param capacity
+	 */
+	public SimulationEventBus(int capacity) {
+		int size = Integer.highestOneBit(Math.max(1, capacity));
+		if (size < capacity) {
+			size *= 2;
+		}
+
+		events = new SimulationEvent[size];
+		for (int i = 0; i < size; i++) {
+			events[i] = new SimulationEvent();
+		}
+		mask = size - 1;
+		listeners = new ArrayList<SimulationEventListener>();
+	}
+
+	/**
+	 * Set the time step for the events published from now on
+	 *
+	 * @param timestep
+	 */
+	public void setTimestep(int timestep) {
+		this.timestep = timestep;
+	}
+
+	/**
+	 * Publish an event (see SimulationEvent.Type for what the objects and amount are)
+	 *
+	 * @param type
+	 * @param teamName
+	 * @param objectId
+	 * @param otherObjectId
+	 * @param amount
+	 */
+	public void publish(SimulationEvent.Type type, String teamName, UUID objectId, UUID otherObjectId, int amount) {
+		publish(type, teamName, objectId, otherObjectId, amount, null);
+	}
+
+	/**
+	 * Publish an event (see SimulationEvent.Type for what the objects and amount are)
+	 *
+	 * @param type
+	 * @param teamName
+	 * @param objectId
+	 * @param otherObjectId
+	 * @param amount
+	 * @param purchase what was bought (null unless it is a purchase)
+	 */
+	public void publish(SimulationEvent.Type type, String teamName, UUID objectId, UUID otherObjectId, int amount,
+			PurchaseTypes purchase) {
+		// if the ring is full, the listeners get the oldest events before they are written over
+		if (published - dispatched == events.length) {
+			dispatch();
+		}
+
+		events[(int) (published & mask)].set(type, timestep, teamName, objectId, otherObjectId, amount, purchase);
+		published++;
+	}
+
+	/**
+	 * Hand the events published since the last dispatch to the listeners (in order)
+	 */
+	public void dispatch() {
+		while (dispatched < published) {
+			SimulationEvent event = events[(int) (dispatched & mask)];
+			dispatched++;
+			for (int i = 0; i < listeners.size(); i++) {
+				listeners.get(i).simulationEvent(event);
+			}
+		}
+	}
+
+	/**
+	 * Add something that gets every event (listeners are called in the order they were added)
+	 *
+	 * @param listener
+	 */
+	public void addListener(SimulationEventListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Stop handing the events to a listener
+	 *
+	 * @param listener
+	 */
+	public void removeListener(SimulationEventListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns the number of events published so far (the sequence number of the next event)
+	 * @return
+	 */
+	public long getNumPublished() {
+		return published;
+	}
+
+	/**
+	 * Returns one of the most recent events
+	 *
+	 * @param sequence the number of events published before it
+	 * @return the event or null if it hasn't been published or was written over
+	 */
+	public SimulationEvent getEvent(long sequence) {
+		if (sequence < 0 || sequence >= published || published - sequence > events.length) {
+			return null;
+		}
+		return events[(int) (sequence & mask)];
+	}
+
+	/**
+	 * Returns the number of events the ring holds
+	 * @return
+	 */
+	public int getCapacity() {
+		return events.length;
+	}
+}
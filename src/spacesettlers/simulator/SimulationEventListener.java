@@ -0,0 +1,16 @@
+package spacesettlers.simulator;
+
+/**
+ * Gets the events of the game from a SimulationEventBus
+ *
+ * @author amy
+ */
+public interface SimulationEventListener {
+	/**
+	 * Called for each event, in the order they happened.  The event is written over
+	 * after this returns (use SimulationEvent.copy to keep it).
+	 *
+	 * @param event
+	 */
+	public void simulationEvent(SimulationEvent event);
+}
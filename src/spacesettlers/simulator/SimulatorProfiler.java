@@ -0,0 +1,358 @@
+package spacesettlers.simulator;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+
+import spacesettlers.clients.ClientCallStats;
+import spacesettlers.clients.Team;
+
+/**
+ * Records the wall clock time and memory allocated in each phase of a simulator step.
+ * The simulator calls beginStep before a step, endPhase after each phase (each phase starts
+ * when the previous one ends), and endStep once the step is done.
+ *
+ * Allocation is measured for the simulator thread only (team clients run on their own threads
+ * and their time shows up in the per-team call stats instead).  It is only available on JVMs
+ * that support thread allocation counting (e.g. HotSpot), which is looked up at run time so
+ * the simulator still builds and runs on other JVMs.
+ *
+ * A disabled profiler (see the profiling option in SpaceSettlersConfig) ignores every call
+ * and its counts stay at 0.
+ *
+ * @author amy
+ */
+public class SimulatorProfiler {
+	/**
+	 * The phases of a simulator step (in the order they happen in advanceTime)
+	 */
+	public enum Phase {
+		TEAM_INFO,
+		MOVEMENT_START,
+		POWERUPS,
+		PHYSICS,
+		MOVEMENT_END,
+		PURCHASES,
+		WEAPON_CLEANUP,
+		RESPAWN,
+		SCORING
+	}
+
+	/**
+	 * Total and maximum time spent in each phase (in nanoseconds, indexed by phase ordinal)
+	 */
+	long[] totalNanos, maxNanos;
+
+	/**
+	 * Total bytes allocated in each phase (indexed by phase ordinal)
+	 */
+	long[] allocatedBytes;
+
+	/**
+	 * Number of steps profiled and the total time for all of them
+	 */
+	int numSteps;
+	long totalStepNanos;
+
+	/**
+	 * When the current phase and step started
+	 */
+	long phaseStartNanos, stepStartNanos, phaseStartBytes;
+
+	/**
+	 * Is the profiler recording anything?
+	 */
+	boolean enabled;
+
+	/**
+	 * The thread bean used to count the allocations and getThreadAllocatedBytes(long) on it 
+	 * (null if the JVM can't do it)
+	 */
+	ThreadMXBean threadBean;
+	MethodHandle allocatedBytesHandle;
+
+	/**
+	 * Make a new profiler with all of the counts at 0
+	 */
+	public SimulatorProfiler() {
+		this(true);
+	}
+
+	/**
+	 * Make a new profiler with all of the counts at 0
+	 * 
+	 * @param enabled false to make a profiler that doesn't record anything
+	 */
+	public SimulatorProfiler(boolean enabled) {
+		this.enabled = enabled;
+		int numPhases = Phase.values().length;
+		totalNanos = new long[numPhases];
+		maxNanos = new long[numPhases];
+		allocatedBytes = new long[numPhases];
+
+		if (enabled) {
+			findAllocationCounter();
+		}
+	}
+
+	/**
+	 * Turn on allocation counting if the JVM's thread bean can do it (the HotSpot extension
+	 * com.sun.management.ThreadMXBean)
+	 */
+	private void findAllocationCounter() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		try {
+			Class<?> extendedBean = Class.forName("com.sun.management.ThreadMXBean");
+			if (!extendedBean.isInstance(bean)) {
+				return;
+			}
+
+			Method isSupported = extendedBean.getMethod("isThreadAllocatedMemorySupported");
+			if (!((Boolean) isSupported.invoke(bean))) {
+				return;
+			}
+			extendedBean.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(bean, true);
+
+			MethodHandle handle = MethodHandles.publicLookup().findVirtual(extendedBean, 
+					"getThreadAllocatedBytes", MethodType.methodType(long.class, long.class));
+			allocatedBytesHandle = handle.asType(MethodType.methodType(long.class, ThreadMXBean.class, long.class));
+			threadBean = bean;
+		} catch (Exception e) {
+			// no allocation counting on this JVM
+			allocatedBytesHandle = null;
+			threadBean = null;
+		}
+	}
+
+	/**
+	 * Start timing a step (and its first phase)
+	 */
+	public void beginStep() {
+		if (!enabled) {
+			return;
+		}
+		stepStartNanos = System.nanoTime();
+		phaseStartNanos = stepStartNanos;
+		phaseStartBytes = getAllocatedBytes();
+	}
+
+	/**
+	 * Record the end of a phase (the next phase starts now)
+	 *
+	 * @param phase the phase that just finished
+	 */
+	public void endPhase(Phase phase) {
+		if (!enabled) {
+			return;
+		}
+		long now = System.nanoTime();
+		long bytes = getAllocatedBytes();
+		int index = phase.ordinal();
+
+		long elapsed = now - phaseStartNanos;
+		totalNanos[index] += elapsed;
+		if (elapsed > maxNanos[index]) {
+			maxNanos[index] = elapsed;
+		}
+		allocatedBytes[index] += bytes - phaseStartBytes;
+
+		phaseStartNanos = now;
+		phaseStartBytes = bytes;
+	}
+
+	/**
+	 * Record the end of a step
+	 */
+	public void endStep() {
+		if (!enabled) {
+			return;
+		}
+		numSteps++;
+		totalStepNanos += System.nanoTime() - stepStartNanos;
+	}
+
+	/**
+	 * Bytes allocated by the current thread so far
+	 * @return
+	 */
+	private long getAllocatedBytes() {
+		if (allocatedBytesHandle == null) {
+			return 0;
+		}
+		try {
+			return (long) allocatedBytesHandle.invokeExact(threadBean, Thread.currentThread().getId());
+		} catch (Throwable e) {
+			throw new IllegalStateException("Unable to count the allocated bytes", e);
+		}
+	}
+
+	/**
+	 * Is allocation being measured on this JVM?
+	 * @return true if the allocated bytes are real and false if they are always 0
+	 */
+	public boolean isAllocationSupported() {
+		return allocatedBytesHandle != null;
+	}
+
+	/**
+	 * Is the profiler recording the steps?
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public int getNumSteps() {
+		return numSteps;
+	}
+
+	public long getTotalStepNanos() {
+		return totalStepNanos;
+	}
+
+	public long getTotalNanos(Phase phase) {
+		return totalNanos[phase.ordinal()];
+	}
+
+	public long getMaxNanos(Phase phase) {
+		return maxNanos[phase.ordinal()];
+	}
+
+	/**
+	 * Average time spent in a phase for each step
+	 * @param phase
+	 * @return the average in nanoseconds (0 if no steps have been profiled)
+	 */
+	public double getAverageNanos(Phase phase) {
+		if (numSteps == 0) {
+			return 0;
+		}
+		return (double) totalNanos[phase.ordinal()] / numSteps;
+	}
+
+	public long getAllocatedBytes(Phase phase) {
+		return allocatedBytes[phase.ordinal()];
+	}
+
+	/**
+	 * Write the phase and team stats to a file.  If the file name ends in .json, the results
+	 * are written as json and otherwise they are written as comma separated values.
+	 *
+	 * @param fileName
+	 * @param teams the teams whose client call stats are written out
+	 * @throws IOException
+	 */
+	public void writeResults(String fileName, Collection<Team> teams) throws IOException {
+		FileWriter writer = new FileWriter(fileName);
+		try {
+			if (fileName.toLowerCase().endsWith(".json")) {
+				writer.write(toJSON(teams));
+			} else {
+				writer.write(toCSV(teams));
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Return the phase and team stats as comma separated values (one table for the phases
+	 * and one for the teams)
+	 *
+	 * @param teams
+	 * @return
+	 */
+	public String toCSV(Collection<Team> teams) {
+		StringBuilder str = new StringBuilder();
+		str.append("phase,steps,totalMillis,averageMicros,maxMicros,allocatedBytes\n");
+		for (Phase phase : Phase.values()) {
+			str.append(phase).append(",");
+			str.append(numSteps).append(",");
+			str.append(getTotalNanos(phase) / 1e6).append(",");
+			str.append(getAverageNanos(phase) / 1e3).append(",");
+			str.append(getMaxNanos(phase) / 1e3).append(",");
+			str.append(getAllocatedBytes(phase)).append("\n");
+		}
+
+		str.append("\nteam,method,calls,averageMicros,maxMicros,timeouts,skipped,errors\n");
+		for (Team team : teams) {
+			for (ClientCallStats stats : team.getClientCallStats().values()) {
+				str.append(team.getTeamName()).append(",");
+				str.append(stats.getMethodName()).append(",");
+				str.append(stats.getNumCalls()).append(",");
+				str.append(stats.getAverageNanos() / 1e3).append(",");
+				str.append(stats.getMaxNanos() / 1e3).append(",");
+				str.append(stats.getNumTimeouts()).append(",");
+				str.append(stats.getNumSkipped()).append(",");
+				str.append(stats.getNumErrors()).append("\n");
+			}
+		}
+		return str.toString();
+	}
+
+	/**
+	 * Return the phase and team stats as json
+	 *
+	 * @param teams
+	 * @return
+	 */
+	public String toJSON(Collection<Team> teams) {
+		StringBuilder str = new StringBuilder();
+		str.append("{\n");
+		str.append("  \"steps\": ").append(numSteps).append(",\n");
+		str.append("  \"totalStepMillis\": ").append(totalStepNanos / 1e6).append(",\n");
+		str.append("  \"allocationSupported\": ").append(isAllocationSupported()).append(",\n");
+		str.append("  \"phases\": [\n");
+		Phase[] phases = Phase.values();
+		for (int i = 0; i < phases.length; i++) {
+			Phase phase = phases[i];
+			str.append("    {\"phase\": \"").append(phase).append("\", ");
+			str.append("\"totalMillis\": ").append(getTotalNanos(phase) / 1e6).append(", ");
+			str.append("\"averageMicros\": ").append(getAverageNanos(phase) / 1e3).append(", ");
+			str.append("\"maxMicros\": ").append(getMaxNanos(phase) / 1e3).append(", ");
+			str.append("\"allocatedBytes\": ").append(getAllocatedBytes(phase)).append("}");
+			str.append(i < phases.length - 1 ? ",\n" : "\n");
+		}
+		str.append("  ],\n");
+
+		str.append("  \"teams\": [\n");
+		int teamIndex = 0;
+		for (Team team : teams) {
+			str.append("    {\"team\": \"").append(escapeJSON(team.getTeamName())).append("\", \"calls\": [\n");
+			Map<String, ClientCallStats> callStats = team.getClientCallStats();
+			int statsIndex = 0;
+			for (ClientCallStats stats : callStats.values()) {
+				str.append("      {\"method\": \"").append(escapeJSON(stats.getMethodName())).append("\", ");
+				str.append("\"calls\": ").append(stats.getNumCalls()).append(", ");
+				str.append("\"averageMicros\": ").append(stats.getAverageNanos() / 1e3).append(", ");
+				str.append("\"maxMicros\": ").append(stats.getMaxNanos() / 1e3).append(", ");
+				str.append("\"timeouts\": ").append(stats.getNumTimeouts()).append(", ");
+				str.append("\"skipped\": ").append(stats.getNumSkipped()).append(", ");
+				str.append("\"errors\": ").append(stats.getNumErrors()).append("}");
+				statsIndex++;
+				str.append(statsIndex < callStats.size() ? ",\n" : "\n");
+			}
+			teamIndex++;
+			str.append("    ]}").append(teamIndex < teams.size() ? ",\n" : "\n");
+		}
+		str.append("  ]\n");
+		str.append("}\n");
+		return str.toString();
+	}
+
+	/**
+	 * Escape quotes and backslashes for a json string
+	 * @param value
+	 * @return
+	 */
+	private static String escapeJSON(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+}
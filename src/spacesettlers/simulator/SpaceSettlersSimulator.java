@@ -2,8 +2,10 @@ package spacesettlers.simulator;
 
 import java.awt.Color;
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -13,6 +15,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeoutException;
 
 import com.martiansoftware.jsap.JSAPResult;
@@ -34,6 +37,7 @@ import spacesettlers.objects.Beacon;
 import spacesettlers.objects.Flag;
 import spacesettlers.objects.Ship;
 import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.objects.resources.ResourcePile;
 import spacesettlers.utilities.Position;
 import spacesettlers.utilities.Vector2D;
 
@@ -70,7 +74,7 @@ public final class SpaceSettlersSimulator {
 	HashMap<String,TeamClient> clientMap;
 
 	/**
-	 * A list of all teams that can control agents (not indexed)
+	 * A list of all teams that can control agents (not indexed, kept in the order of the config)
 	 */
 	Set<Team> teams;
 
@@ -84,6 +88,12 @@ public final class SpaceSettlersSimulator {
 	 */
 	Random random;
 
+	/**
+	 * Random number generator handed to the clients (separate from the game's so the
+	 * clients can't change what happens in the world by using random numbers)
+	 */
+	Random clientRandom;
+
 	/**
 	 * The configuration for this simulation
 	 */
@@ -94,6 +104,17 @@ public final class SpaceSettlersSimulator {
 	 */
 	Toroidal2DPhysics simulatedSpace;
 
+	/**
+	 * Carries the events of the game (collisions, deaths, respawns, and purchases) to the
+	 * score keeper and anything else listening
+	 */
+	SimulationEventBus eventBus;
+
+	/**
+	 * Keeps the scores up to date from the events
+	 */
+	ScoreKeeper scoreKeeper;
+
 	/**
 	 * Current timestep of the simulator
 	 */
@@ -104,6 +125,28 @@ public final class SpaceSettlersSimulator {
 	 */
 	boolean debug = false;
 
+	/**
+	 * If turbo mode is true, the clients are trusted and called directly on the simulator
+	 * thread (no timeouts) and there are no graphics or pauses
+	 */
+	boolean turbo = false;
+
+	/**
+	 * Speed of the last call to run (in steps per second of wall clock time)
+	 */
+	double stepsPerSecond;
+
+	/**
+	 * Records the time and allocation for each phase of a step (does nothing unless profiling
+	 * is turned on in the config)
+	 */
+	SimulatorProfiler profiler;
+
+	/**
+	 * Records the game so it can be replayed (null if the game isn't being recorded)
+	 */
+	GameRecorder recorder;
+
 	/**
 	 * True if the simulation is paused and false otherwise
 	 */
@@ -114,6 +157,30 @@ public final class SpaceSettlersSimulator {
 	 */
 	int graphicsSleep = 40;
 
+	/**
+	 * Threads used to ask all of the teams for their actions at the same time (made once
+	 * and reused for every time step)
+	 */
+	ExecutorService teamExecutor;
+
+	/**
+	 * Threads used to ask the teams for their graphics for the GUI (made the first time the
+	 * graphics are asked for)
+	 */
+	ExecutorService graphicsExecutor;
+
+	/**
+	 * The graphics call of each team that is still running (the next one isn't asked for
+	 * until it returns)
+	 */
+	Map<Team, Future<?>> graphicsFutures = new HashMap<Team, Future<?>>();
+
+	/**
+	 * Threads used to find the ships' movements in parallel (one per core, only made if the
+	 * config asks for parallel ship movement and then reused for every time step)
+	 */
+	ExecutorService movementExecutor;
+
 	/**
 	 * Create a simulator with the command line arguments already parsed.  
 	 * @param args
@@ -123,13 +190,16 @@ public final class SpaceSettlersSimulator {
 		// load in all the configuration
 		simConfig = loadConfigFiles(parserConfig);
 
-		teams = new HashSet<Team>();
+		teams = new LinkedHashSet<Team>();
 		clientMap = new HashMap<String, TeamClient>();
+		createEventBus();
 
 		if (simConfig.getRandomSeed() == 0) {
 			random = new Random();
+			clientRandom = new Random();
 		} else {
 			random = new Random(simConfig.getRandomSeed());
+			clientRandom = new Random(Long.reverse(simConfig.getRandomSeed()));
 		}
 
 		// and use it to make agents and the world
@@ -145,6 +215,9 @@ public final class SpaceSettlersSimulator {
 			TEAM_GRAPHICS_TIMEOUT = Integer.MAX_VALUE;
 		}
 
+		// see if turbo mode is on (trusted clients are called directly with no timeouts)
+		setTurbo(parserConfig);
+
 		// create the GUI after everything is created in the simulator
 		System.out.println(this);
 		createGUI(parserConfig);
@@ -160,20 +233,26 @@ public final class SpaceSettlersSimulator {
 		// load in all the configuration
 		this.simConfig = simConfig;
 
-		teams = new HashSet<Team>();
+		teams = new LinkedHashSet<Team>();
 		clientMap = new HashMap<String, TeamClient>();
+		createEventBus();
 
 		if (simConfig.getRandomSeed() == 0) {
 			random = new Random();
+			clientRandom = new Random();
 		} else {
 			random = new Random(simConfig.getRandomSeed());
+			clientRandom = new Random(Long.reverse(simConfig.getRandomSeed()));
 		}
 
 		// and use it to make agents and the world
 		initializeSimulation(parserConfig);
 
+		// see if turbo mode is on (trusted clients are called directly with no timeouts)
+		setTurbo(parserConfig);
+
 		// create the GUI if the user asked for it
-		if (parserConfig.getBoolean("graphics")) {
+		if (parserConfig.getBoolean("graphics") && !turbo) {
 			gui = new SpaceSettlersGUI(simConfig, this);
 		}
 
@@ -191,19 +270,58 @@ public final class SpaceSettlersSimulator {
 		createGUI(parserConfig);
 	}
 
+	/**
+	 * Turn on turbo mode if the user asked for it and have every team call its client
+	 * directly (must be called after the teams are made)
+	 * 
+	 * @param parserConfig
+	 */
+	private void setTurbo(JSAPResult parserConfig) {
+		if (parserConfig.getBoolean("turbo")) {
+			turbo = true;
+			for (Team team : teams) {
+				team.setDirectCalls(true);
+			}
+		}
+	}
+
 	/**
 	 * Create the GUI after the simulator has been initialize
 	 * 
 	 * @param parserConfig
 	 */
 	public void createGUI(JSAPResult parserConfig) {
-		// create the GUI if the user asked for it
-		if (parserConfig.getBoolean("graphics")) {
+		// create the GUI if the user asked for it (turbo mode is always headless)
+		if (parserConfig.getBoolean("graphics") && !turbo) {
 			gui = new SpaceSettlersGUI(simConfig, this);
 		}
 	}
 
 
+	/**
+	 * Make an empty simulator for a replay (GameReplayer fills in space and the teams from
+	 * a keyframe and no clients are loaded)
+	 * 
+	 * @param simConfig the config the recorded game was played with
+	 */
+	SpaceSettlersSimulator(SpaceSettlersConfig simConfig) {
+		this.simConfig = simConfig;
+		teams = new LinkedHashSet<Team>();
+		clientMap = new HashMap<String, TeamClient>();
+		createEventBus();
+		profiler = new SimulatorProfiler(simConfig.isProfiling());
+		turbo = true;
+	}
+
+	/**
+	 * Make the event bus with the score keeper as its first listener
+	 */
+	private void createEventBus() {
+		eventBus = new SimulationEventBus();
+		scoreKeeper = new ScoreKeeper(simConfig, teams);
+		eventBus.addListener(scoreKeeper);
+	}
+
 	/**
 	 * Sleep so the gui can update (From Andy Fagg's tree code)
 	 * @param i
@@ -223,6 +341,13 @@ public final class SpaceSettlersSimulator {
 	 */
 	void initializeSimulation(JSAPResult parserConfig) throws SimulatorException {
 		simulatedSpace = new Toroidal2DPhysics(simConfig);
+		simulatedSpace.setEventBus(eventBus);
+		profiler = new SimulatorProfiler(simConfig.isProfiling());
+
+		// with a seed, the objects get the same ids every time the game is played
+		if (simConfig.getRandomSeed() != 0) {
+			simulatedSpace.setObjectIdSeed(~simConfig.getRandomSeed());
+		}
 
 		// place the beacons
 		for (int b = 0; b < simConfig.getNumBeacons(); b++) {
@@ -298,11 +423,7 @@ public final class SpaceSettlersSimulator {
 			TeamClient teamClient = createTeamClient(teamConfig, teamClientConfig);
 			
 			// make the team inside the simulator for this team
-			Team team = createTeam(teamConfig, teamClient, teamClientConfig);
-
-			for (Ship ship : team.getShips()) {
-				simulatedSpace.addObject(ship);
-			}
+			createTeam(teamConfig, teamClient, teamClientConfig);
 
 			clientMap.put(teamConfig.getTeamName(), teamClient);
 		}
@@ -488,6 +609,8 @@ public final class SpaceSettlersSimulator {
 					teamConfig.getInitialRegionLRX(), teamConfig.getInitialRegionLRY());
 			System.out.println("Starting ship for team " + team.getTeamName() + " in location " + freeLocation);
 			Ship ship = new Ship(teamConfig.getTeamName(), team.getTeamColor(), freeLocation);
+			// the ship has to be in space before the team notes its id (space sets the id)
+			simulatedSpace.addObject(ship);
 			team.addShip(ship);
 		}
 
@@ -543,7 +666,7 @@ public final class SpaceSettlersSimulator {
 			newTeamClient.setTeamColor(teamColor);
 			newTeamClient.setTeamName(teamConfig.getTeamName());
 			newTeamClient.setKnowledgeFile(teamClientConfig.getKnowledgeFile());
-			newTeamClient.setRandom(random);
+			newTeamClient.setRandom(clientRandom);
 			newTeamClient.setMaxNumberShips(simConfig.getMaximumShipsPerTeam());
 			newTeamClient.initialize(simulatedSpace.deepClone());
 			return newTeamClient;
@@ -582,6 +705,7 @@ public final class SpaceSettlersSimulator {
 		xstream.alias("AsteroidConfig", RandomAsteroidConfig.class);
 		xstream.alias("FixedAsteroidConfig", FixedAsteroidConfig.class);
 		xstream.alias("FlagConfig", FlagConfig.class);
+		xstream.alias("ScoringRuleConfig", ScoringRuleConfig.class);
 
 		try { 
 			simConfig = (SpaceSettlersConfig) xstream.fromXML(new File(configFile));
@@ -595,35 +719,55 @@ public final class SpaceSettlersSimulator {
 	 * Advance time one step
 	 */
 	void advanceTime() {
+		profiler.beginStep();
+		eventBus.setTimestep(timestep);
+
+		if (recorder != null) {
+			try {
+				recorder.beginStep(this);
+			} catch (IOException e) {
+				stopRecording(e);
+			}
+		}
+
 		// update the team info (to send into the space for use by other teams)
 		updateTeamInfo();
+		profiler.endPhase(SimulatorProfiler.Phase.TEAM_INFO);
 
-		ExecutorService teamExecutor;
-		if (debug) {
-			teamExecutor = Executors.newSingleThreadExecutor();
-		} else {
-			teamExecutor = Executors.newCachedThreadPool();
-		}
+		// get the actions from each team (in parallel unless the clients are called directly in turbo mode)
 		Map<Team, Future<Map<UUID,AbstractAction>>> clientActionFutures = 
 				new HashMap<Team, Future<Map<UUID,AbstractAction>>>();
+		if (!turbo) {
+			// the pool is made once and reused for every step
+			if (teamExecutor == null) {
+				if (debug) {
+					teamExecutor = Executors.newSingleThreadExecutor(daemonThreads("Team clients"));
+				} else {
+					teamExecutor = Executors.newFixedThreadPool(Math.max(1, teams.size()), daemonThreads("Team clients"));
+				}
+			}
 
-		// get the actions from each team
-		for (Team team : teams) {
-			clientActionFutures.put(team, teamExecutor.submit(new AdvanceTimeCallable(team)));
+			for (Team team : teams) {
+				clientActionFutures.put(team, teamExecutor.submit(new AdvanceTimeCallable(team, simulatedSpace.createReadOnlySnapshot())));
+			}
 		}
 
 		for (Team team : teams) {
 			Map<UUID, AbstractAction> teamActions;
 
-			try {
-				teamActions = clientActionFutures.get(team).get();
-			} catch (InterruptedException e) {
-				//something went wrong...return empty map
-				teamActions = new HashMap<UUID, AbstractAction>();
-			} catch (ExecutionException e) {
-				//something went wrong...return empty map
-				teamActions = new HashMap<UUID, AbstractAction>();
-			} 
+			if (turbo) {
+				teamActions = team.getTeamMovementStart(simulatedSpace.createReadOnlySnapshot());
+			} else {
+				try {
+					teamActions = clientActionFutures.get(team).get();
+				} catch (InterruptedException e) {
+					//something went wrong...return empty map
+					teamActions = new HashMap<UUID, AbstractAction>();
+				} catch (ExecutionException e) {
+					//something went wrong...return empty map
+					teamActions = new HashMap<UUID, AbstractAction>();
+				} 
+			}
 
 
 			// get the actions for each ship
@@ -638,12 +782,12 @@ public final class SpaceSettlersSimulator {
 
 		}
 
-		teamExecutor.shutdown();
+		profiler.endPhase(SimulatorProfiler.Phase.MOVEMENT_START);
 
 		// get the power ups being used on this turn
 		Map<UUID, SpaceSettlersPowerupEnum> allPowerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
 		for (Team team : teams) {
-			Map<UUID, SpaceSettlersPowerupEnum> powerups = team.getTeamPowerups(simulatedSpace);
+			Map<UUID, SpaceSettlersPowerupEnum> powerups = team.getTeamPowerups(simulatedSpace.createReadOnlySnapshot());
 			if (powerups != null) {
 				for (UUID key : powerups.keySet()) {
 					// verify power ups belong to this team
@@ -666,23 +810,48 @@ public final class SpaceSettlersSimulator {
 			}
 		}
 
+		if (recorder != null) {
+			recorder.recordPowerups(allPowerups);
+		}
+
+		profiler.endPhase(SimulatorProfiler.Phase.POWERUPS);
+
+		// the ships' movements are found in parallel if asked for (but not when debugging the clients)
+		if (movementExecutor == null && simConfig.isParallelShipMovement() && !debug) {
+			movementExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), 
+					daemonThreads("Ship movement"));
+			simulatedSpace.setMovementExecutor(movementExecutor);
+		}
+
 		// now update the physics on all objects
 		simulatedSpace.advanceTime(this.getTimestep(), allPowerups);
+		if (recorder != null) {
+			recorder.recordMovements(simulatedSpace.getAppliedMovements());
+		}
+		profiler.endPhase(SimulatorProfiler.Phase.PHYSICS);
 
 		// and end any actions inside the team
 		for (Team team : teams) {
-			team.getTeamMovementEnd(simulatedSpace);
+			team.getTeamMovementEnd(simulatedSpace.createReadOnlySnapshot());
 		}
 
+		profiler.endPhase(SimulatorProfiler.Phase.MOVEMENT_END);
+
 		// handle purchases at the end of a turn (so ships will have movements next turn)
 		for (Team team : teams) {
 			// now get purchases for the team
-			Map<UUID, PurchaseTypes> purchases = team.getTeamPurchases(simulatedSpace);
+			Map<UUID, PurchaseTypes> purchases = team.getTeamPurchases(simulatedSpace.createReadOnlySnapshot());
+			if (recorder != null) {
+				recorder.recordPurchases(team.getTeamName(), purchases);
+			}
 			handlePurchases(team, purchases);
 		}
 
+		profiler.endPhase(SimulatorProfiler.Phase.PURCHASES);
+
 		// cleanup and remove dead weapons
 		simulatedSpace.cleanupDeadWeapons();
+		profiler.endPhase(SimulatorProfiler.Phase.WEAPON_CLEANUP);
 
 		// respawn any objects that died (and that should respawn - this includes Flags)
 		final double asteroidMaxVelocity = simConfig.getRandomAsteroids().getMaxInitialVelocity();
@@ -698,10 +867,20 @@ public final class SpaceSettlersSimulator {
 				simulatedSpace.addObject(asteroid);
 			}
 		}
+		profiler.endPhase(SimulatorProfiler.Phase.RESPAWN);
 
-		
+		// the scores (and everything else listening) are updated from the events of the step
+		eventBus.dispatch();
+		profiler.endPhase(SimulatorProfiler.Phase.SCORING);
 
-		updateScores();
+		if (recorder != null) {
+			try {
+				recorder.endStep();
+			} catch (IOException e) {
+				stopRecording(e);
+			}
+		}
+		profiler.endStep();
 
 		//		for (Team team : teams) {
 		//			for (Ship ship : team.getShips()) {
@@ -765,8 +944,7 @@ public final class SpaceSettlersSimulator {
 					simulatedSpace.addObject(base);
 					team.addBase(base);
 					// charge the team for the purchase
-					team.decrementAvailableResources(team.getCurrentCost(purchase));
-					team.updateCost(purchase);
+					chargeForPurchase(team, purchasingObject, purchase);
 				}
 				break;
 			case SHIP:
@@ -788,8 +966,7 @@ public final class SpaceSettlersSimulator {
 					simulatedSpace.addObject(ship);
 					team.addShip(ship);
 					// charge the team for the purchase
-					team.decrementAvailableResources(team.getCurrentCost(purchase));
-					team.updateCost(purchase);
+					chargeForPurchase(team, purchasingObject, purchase);
 				}
 
 				break;
@@ -797,9 +974,7 @@ public final class SpaceSettlersSimulator {
 			case POWERUP_SHIELD:
 				purchasingObject.addPowerup(SpaceSettlersPowerupEnum.TOGGLE_SHIELD);
 				// charge the team for the purchase
-				team.decrementAvailableResources(team.getCurrentCost(purchase));
-				team.updateCost(purchase);
-				System.out.println("Buying a shield");
+				chargeForPurchase(team, purchasingObject, purchase);
 				break;
 
 			case POWERUP_EMP_LAUNCHER:
@@ -807,9 +982,7 @@ public final class SpaceSettlersSimulator {
 				if (purchasingObject instanceof Ship) {
 					purchasingObject.addPowerup(SpaceSettlersPowerupEnum.FIRE_EMP);
 					// charge the team for the purchase
-					team.decrementAvailableResources(team.getCurrentCost(purchase));
-					team.updateCost(purchase);
-					System.out.println("Buying a emp launcher");
+					chargeForPurchase(team, purchasingObject, purchase);
 				}
 				break;
 
@@ -818,26 +991,20 @@ public final class SpaceSettlersSimulator {
 				if (purchasingObject instanceof Base) {
 					purchasingObject.addPowerup(SpaceSettlersPowerupEnum.DOUBLE_BASE_HEALING_SPEED);
 					// charge the team for the purchase
-					team.decrementAvailableResources(team.getCurrentCost(purchase));
-					team.updateCost(purchase);
-					System.out.println("Buying a healing doubler for a base");
+					chargeForPurchase(team, purchasingObject, purchase);
 				}
 				break;
 
 			case POWERUP_DOUBLE_MAX_ENERGY:
 				purchasingObject.addPowerup(SpaceSettlersPowerupEnum.DOUBLE_MAX_ENERGY);
 				// charge the team for the purchase
-				team.decrementAvailableResources(team.getCurrentCost(purchase));
-				team.updateCost(purchase);
-				System.out.println("Buying a energy doubler");
+				chargeForPurchase(team, purchasingObject, purchase);
 				break;
 
 			case POWERUP_DOUBLE_WEAPON_CAPACITY:
 				purchasingObject.addPowerup(SpaceSettlersPowerupEnum.DOUBLE_WEAPON_CAPACITY);
 				// charge the team for the purchase
-				team.decrementAvailableResources(team.getCurrentCost(purchase));
-				team.updateCost(purchase);
-				System.out.println("Buying a weapons doubler");
+				chargeForPurchase(team, purchasingObject, purchase);
 				break;
 
 			case NOTHING:
@@ -855,56 +1022,44 @@ public final class SpaceSettlersSimulator {
 	}
 
 	/**
-	 * Updates the scores for the teams
+	 * Charge a team for a purchase (the next one of the same type costs more)
+	 * 
+	 * @param team
+	 * @param purchasingObject where it was bought
+	 * @param purchase
 	 */
-	private void updateScores() {
-		if (simConfig.getScoringMethod().equalsIgnoreCase("Resources")) {
-			for (Team team : teams) {
-				team.setScore(team.getSummedTotalResources());
+	private void chargeForPurchase(Team team, AbstractActionableObject purchasingObject, PurchaseTypes purchase) {
+		ResourcePile cost = team.getCurrentCost(purchase);
+		int totalCost = cost.getTotal();
+		team.decrementAvailableResources(cost);
+		team.updateCost(purchase);
+		eventBus.publish(SimulationEvent.Type.PURCHASE, team.getTeamName(), purchasingObject.getId(), null, totalCost, purchase);
+	}
+
+	/**
+	 * Ask each team for its graphics for the GUI in the background.  Nothing waits on these
+	 * calls: the frames draw whatever each team handed back last, so a slow client only
+	 * draws late and doesn't slow down the time steps.  A team still drawing when the next
+	 * step starts is busy like any client that overran a call, so it misses that step's
+	 * actions (the call is cut off after TEAM_GRAPHICS_TIMEOUT).
+	 */
+	private void requestTeamGraphics() {
+		if (graphicsExecutor == null) {
+			graphicsExecutor = Executors.newFixedThreadPool(Math.max(1, teams.size()), daemonThreads("Team graphics"));
+		}
+
+		for (final Team team : teams) {
+			Future<?> previous = graphicsFutures.get(team);
+			if (previous != null && !previous.isDone()) {
+				continue;
 			}
-		} else if (simConfig.getScoringMethod().equalsIgnoreCase("Beacons")) {
-			for (Team team : teams) {
-				int beacons = 0;
-				for (Ship ship : team.getShips()) {
-					beacons += ship.getNumBeacons();
+
+			graphicsFutures.put(team, graphicsExecutor.submit(new Runnable() {
+				public void run() {
+					team.getGraphics();
 				}
-				team.setScore(beacons);
-			}
-		} else if (simConfig.getScoringMethod().equalsIgnoreCase("Kills")) {
-			for (Team team : teams) {
-				team.setScore(team.getTotalKillsInflicted());
-			}
-		} else if (simConfig.getScoringMethod().equalsIgnoreCase("Hits")) {
-			for (Team team : teams) {
-				team.setScore(team.getTotalHitsInflicted());
-			}
-		} else if (simConfig.getScoringMethod().equalsIgnoreCase("Damage")) {
-			for (Team team : teams) {
-				team.setScore(team.getTotalDamageInflicted());
-			}
-		} else if (simConfig.getScoringMethod().equalsIgnoreCase("DamageCorrected")) {
-			for (Team team : teams) {
-				// not subtracting damage received because it is a negative number (inflicted is positive)
-				team.setScore(1000* team.getTotalKillsInflicted() + team.getTotalDamageInflicted() + team.getTotalDamageReceived());
-			}
-		} else if (simConfig.getScoringMethod().equalsIgnoreCase("Flags")) {
-			// this scores by the raw number of flags collected (competitive ladder)
-			for (Team team : teams) {
-				team.setScore(team.getTotalFlagsCollected());
-			}
-		} else if (simConfig.getScoringMethod().equalsIgnoreCase("TotalFlags")) {
-			// this score sums the flags for the two sides (cooperative ladder)
-			int totalFlags = 0;
-			for (Team team : teams) {
-				totalFlags += team.getTotalFlagsCollected();
-			}
-			for (Team team : teams) {
-				team.setScore(totalFlags);
-			}
-		} else {
-			System.err.println("Error: Scoring method " + simConfig.getScoringMethod() + " is not recognized.  Scores will all be 0.");
+			}));
 		}
-
 	}
 
 	/**
@@ -916,16 +1071,19 @@ public final class SpaceSettlersSimulator {
 			gui.redraw();
 		}
 
+		long startTime = System.nanoTime();
+
 		// run the game loop until the maximum time has elapsed
-		// if the pause is activated, just wait
+		// if the pause is activated, just wait (there is no pausing in turbo mode)
 		for (timestep = 0; timestep < simConfig.getSimulationSteps(); timestep++) {
-			while (isPaused()) {
+			while (!turbo && isPaused()) {
 				mySleep(50);
 			}
 
 			advanceTime();
 
 			if (gui != null) {
+				requestTeamGraphics();
 				gui.redraw();
 				mySleep(graphicsSleep);
 			}
@@ -945,8 +1103,132 @@ public final class SpaceSettlersSimulator {
 		// update the team info (to send into the space for use by other teams)
 		updateTeamInfo();
 
+		// finish the recording (with the final scores)
+		if (recorder != null) {
+			try {
+				recorder.close(teams);
+				System.out.println("Recorded the game to " + recorder.getFileName());
+			} catch (IOException e) {
+				System.err.println("Error finishing the recording " + recorder.getFileName());
+				e.printStackTrace();
+			}
+			recorder = null;
+		}
+
 		// shutdown all the teams
 		shutdownTeams();
+
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		stepsPerSecond = (seconds > 0) ? timestep / seconds : 0;
+		if (turbo) {
+			System.out.println("Turbo mode ran " + timestep + " steps in " + String.format("%.2f", seconds) + 
+					" seconds (" + String.format("%.1f", stepsPerSecond) + " steps/second)");
+		}
+	}
+
+	/**
+	 * Returns the profiler with the time and allocation for each phase of the steps so far
+	 * (the per-team client stats are in each Team)
+	 * @return
+	 */
+	public SimulatorProfiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Returns the score keeper
+	 * @return
+	 */
+	public ScoreKeeper getScoreKeeper() {
+		return scoreKeeper;
+	}
+
+	/**
+	 * Returns the event bus (add a SimulationEventListener to it to get the events of the game)
+	 * @return
+	 */
+	public SimulationEventBus getEventBus() {
+		return eventBus;
+	}
+
+	/**
+	 * Write the profile of the game so far (phases and client calls for every team).
+	 * Files ending in .json are written as json and all others as comma separated values.
+	 * 
+	 * @param fileName
+	 */
+	public void writeProfile(String fileName) {
+		if (!profiler.isEnabled()) {
+			System.err.println("Profiling is turned off in the simulator config so there is no profile to write to " + fileName);
+			return;
+		}
+
+		try {
+			profiler.writeResults(fileName, teams);
+			System.out.println("Wrote the simulator profile to " + fileName);
+		} catch (IOException e) {
+			System.err.println("Error writing the simulator profile to " + fileName);
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Record the game to a file so it can be replayed without the clients (see GameReplayer).
+	 * Must be called before run.
+	 * 
+	 * @param fileName
+	 * @throws SimulatorException if the file can't be written
+	 */
+	public void startRecording(String fileName) throws SimulatorException {
+		// the ids of new objects have to come from a generator that is saved in the keyframes
+		if (simulatedSpace.idRandom == null) {
+			simulatedSpace.setObjectIdSeed(new Random().nextLong());
+		}
+		simulatedSpace.setRecordMovements(true);
+
+		try {
+			recorder = new GameRecorder(fileName, simConfig, GameRecorder.DEFAULT_KEYFRAME_INTERVAL);
+		} catch (IOException e) {
+			throw new SimulatorException("Unable to record the game to " + fileName + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stop recording because the recording couldn't be written (the game keeps going)
+	 * 
+	 * @param e
+	 */
+	private void stopRecording(IOException e) {
+		System.err.println("Error writing the recording " + recorder.getFileName() + " - recording stopped");
+		e.printStackTrace();
+		recorder.abort();
+		recorder = null;
+		simulatedSpace.setRecordMovements(false);
+	}
+
+	/**
+	 * Returns the speed of the last call to run
+	 * @return steps per second of wall clock time
+	 */
+	public double getStepsPerSecond() {
+		return stepsPerSecond;
+	}
+
+	/**
+	 * Make daemon threads for the executors so a game that dies with an exception 
+	 * (and never shuts down the teams) doesn't keep the JVM running
+	 * 
+	 * @param name the name of the threads
+	 * @return
+	 */
+	private static ThreadFactory daemonThreads(final String name) {
+		return new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
 	}
 
 	/**
@@ -956,6 +1238,22 @@ public final class SpaceSettlersSimulator {
 		for (Team team : teams) {
 			team.shutdownClients(simulatedSpace);
 		}
+
+		if (teamExecutor != null) {
+			teamExecutor.shutdownNow();
+			teamExecutor = null;
+		}
+
+		if (graphicsExecutor != null) {
+			graphicsExecutor.shutdownNow();
+			graphicsExecutor = null;
+		}
+
+		if (movementExecutor != null) {
+			movementExecutor.shutdownNow();
+			movementExecutor = null;
+			simulatedSpace.setMovementExecutor(null);
+		}
 	}
 
 	/**
@@ -981,14 +1279,16 @@ public final class SpaceSettlersSimulator {
 	 */
 	class AdvanceTimeCallable implements  Callable<Map<UUID,AbstractAction>>{
 		private Team team;
+		private Toroidal2DPhysics snapshot;
 
-		AdvanceTimeCallable(Team team){
+		AdvanceTimeCallable(Team team, Toroidal2DPhysics snapshot){
 			this.team = team;
+			this.snapshot = snapshot;
 		}
 
 		public Map<UUID,AbstractAction> call() throws Exception {
 			if(this.team != null){
-				return this.team.getTeamMovementStart(simulatedSpace);
+				return this.team.getTeamMovementStart(snapshot);
 			}else{
 				//something went wrong...lets return empty map
 				return new HashMap<UUID, AbstractAction>();
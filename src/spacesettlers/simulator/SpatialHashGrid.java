@@ -0,0 +1,273 @@
+package spacesettlers.simulator;
+
+import java.util.Arrays;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.utilities.Position;
+
+/**
+ * Uniform grid (cell list) over the toroidal space used as a broad phase for
+ * collision detection.  Objects are stored by their index into an array of objects
+ * (the same array the pairwise collision loop walks) and the cells wrap at the
+ * width/height edges, so a query near one edge returns objects near the opposite edge.
+ *
+ * Cells are sized so that any two objects that could be touching are in the same
+ * or adjacent cells.  Each cell holds a doubly linked list of object indices so
+ * that an object can be moved between cells in constant time when a collision
+ * changes its position.
+ *
+ * The arrays are reused between calls to rebuild so the grid does not allocate once it
+ * has grown to the size of the world.
+ *
+ * @author amy
+ */
+public class SpatialHashGrid {
+	/**
+	 * Marks an empty cell or the end of a cell list
+	 */
+	private static final int NONE = -1;
+
+	/**
+	 * Extra distance added to every query so objects sitting exactly on a cell
+	 * boundary are never missed due to rounding
+	 */
+	private static final double QUERY_SLACK = 1.0;
+
+	/**
+	 * Size of the toroidal space
+	 */
+	int width, height;
+
+	/**
+	 * Number of cells in each direction and the size of each cell
+	 */
+	int cellsX, cellsY;
+	double cellWidth, cellHeight;
+
+	/**
+	 * The objects indexed by the grid (not copied)
+	 */
+	AbstractObject[] objects;
+	int numObjects;
+
+	/**
+	 * First object index in each cell
+	 */
+	int[] cellHead;
+
+	/**
+	 * Linked list pointers and current cell for each object (NONE if the object is not in the grid)
+	 */
+	int[] next, prev, objectCell;
+
+	/**
+	 * Largest radius of any object in the grid
+	 */
+	int maxRadius;
+
+	/**
+	 * Create an empty grid for a space of the specified size
+	 *
+	 * @param width
+	 * @param height
+	 */
+	public SpatialHashGrid(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.cellHead = new int[0];
+		this.next = new int[0];
+		this.prev = new int[0];
+		this.objectCell = new int[0];
+	}
+
+	/**
+	 * Rebuild the grid for the specified objects.  Dead objects are not added to the
+	 * grid (they can't come back to life inside a single collision pass).
+	 *
+	 * @param objects the objects to index (stored by their index in this array)
+	 * @param numObjects the number of objects in the array to use
+	 */
+	public void rebuild(AbstractObject[] objects, int numObjects) {
+		rebuild(objects, numObjects, false);
+	}
+
+	/**
+	 * Rebuild the grid for the specified objects
+	 *
+	 * @param objects the objects to index (stored by their index in this array)
+	 * @param numObjects the number of objects in the array to use
+	 * @param includeDead true to add the dead objects to the grid as well
+	 */
+	public void rebuild(AbstractObject[] objects, int numObjects, boolean includeDead) {
+		this.objects = objects;
+		this.numObjects = numObjects;
+
+		// find the largest object to size the cells
+		maxRadius = 0;
+		for (int i = 0; i < numObjects; i++) {
+			if ((includeDead || objects[i].isAlive()) && objects[i].getRadius() > maxRadius) {
+				maxRadius = objects[i].getRadius();
+			}
+		}
+
+		// cells are at least as big as the largest possible collision distance
+		double minCellSize = Math.max(2.0 * maxRadius, 1.0);
+		cellsX = Math.max(1, (int) (width / minCellSize));
+		cellsY = Math.max(1, (int) (height / minCellSize));
+		cellWidth = (double) width / cellsX;
+		cellHeight = (double) height / cellsY;
+
+		int numCells = cellsX * cellsY;
+		if (cellHead.length < numCells) {
+			cellHead = new int[numCells];
+		}
+		Arrays.fill(cellHead, 0, numCells, NONE);
+
+		if (next.length < numObjects) {
+			next = new int[numObjects];
+			prev = new int[numObjects];
+			objectCell = new int[numObjects];
+		}
+
+		for (int i = 0; i < numObjects; i++) {
+			objectCell[i] = NONE;
+			if (includeDead || objects[i].isAlive()) {
+				insert(i, cellIndex(objects[i].getPosition()));
+			}
+		}
+	}
+
+	/**
+	 * Move the object at the specified index into the cell matching its current position
+	 * (called after something changes the position of an object in the grid)
+	 *
+	 * @param index
+	 */
+	public void update(int index) {
+		if (objectCell[index] == NONE) {
+			return;
+		}
+
+		int newCell = cellIndex(objects[index].getPosition());
+		if (newCell != objectCell[index]) {
+			remove(index);
+			insert(index, newCell);
+		}
+	}
+
+	/**
+	 * Return the largest radius of any object in the grid
+	 * @return
+	 */
+	public int getMaxRadius() {
+		return maxRadius;
+	}
+
+	/**
+	 * Find the index of every object in the grid that could be within reach of
+	 * the specified location.  This is conservative: it returns every object whose
+	 * center is within reach (toroidally) and may return others that are further away.
+	 * Each object is returned once.  Queries don't change the grid, so several threads
+	 * can query a grid that is no longer being rebuilt or updated.
+	 *
+	 * @param x
+	 * @param y
+	 * @param reach
+	 * @param results array to fill in with object indices (must be at least the number of objects long)
+	 * @return the number of indices written into results
+	 */
+	public int findCandidates(double x, double y, double reach, int[] results) {
+		reach += QUERY_SLACK;
+		int lowX = (int) Math.floor((x - reach) / cellWidth);
+		int highX = (int) Math.floor((x + reach) / cellWidth);
+		int lowY = (int) Math.floor((y - reach) / cellHeight);
+		int highY = (int) Math.floor((y + reach) / cellHeight);
+
+		// if the query covers the whole space in one direction, only visit each column/row once
+		// (otherwise the range is narrower than the grid and never wraps onto the same cell twice)
+		if (highX - lowX + 1 >= cellsX) {
+			lowX = 0;
+			highX = cellsX - 1;
+		}
+		if (highY - lowY + 1 >= cellsY) {
+			lowY = 0;
+			highY = cellsY - 1;
+		}
+
+		int count = 0;
+		for (int cy = lowY; cy <= highY; cy++) {
+			int row = wrap(cy, cellsY) * cellsX;
+			for (int cx = lowX; cx <= highX; cx++) {
+				int index = cellHead[row + wrap(cx, cellsX)];
+				while (index != NONE) {
+					results[count++] = index;
+					index = next[index];
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Compute the cell for a position (positions are assumed to be toroidally wrapped
+	 * but anything out of range is wrapped again here to be safe)
+	 *
+	 * @param position
+	 * @return
+	 */
+	private int cellIndex(Position position) {
+		int cx = wrap((int) Math.floor(position.getX() / cellWidth), cellsX);
+		int cy = wrap((int) Math.floor(position.getY() / cellHeight), cellsY);
+		return cy * cellsX + cx;
+	}
+
+	/**
+	 * Wrap a cell coordinate into the range [0, numCells)
+	 *
+	 * @param cell
+	 * @param numCells
+	 * @return
+	 */
+	private static int wrap(int cell, int numCells) {
+		int wrapped = cell % numCells;
+		if (wrapped < 0) {
+			wrapped += numCells;
+		}
+		return wrapped;
+	}
+
+	/**
+	 * Add an object to the front of a cell list
+	 *
+	 * @param index
+	 * @param cell
+	 */
+	private void insert(int index, int cell) {
+		objectCell[index] = cell;
+		prev[index] = NONE;
+		next[index] = cellHead[cell];
+		if (cellHead[cell] != NONE) {
+			prev[cellHead[cell]] = index;
+		}
+		cellHead[cell] = index;
+	}
+
+	/**
+	 * Unlink an object from its cell list
+	 *
+	 * @param index
+	 */
+	private void remove(int index) {
+		int cell = objectCell[index];
+		if (prev[index] != NONE) {
+			next[prev[index]] = next[index];
+		} else {
+			cellHead[cell] = next[index];
+		}
+		if (next[index] != NONE) {
+			prev[next[index]] = prev[index];
+		}
+		objectCell[index] = NONE;
+	}
+
+}
@@ -0,0 +1,271 @@
+package spacesettlers.simulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Base;
+import spacesettlers.objects.Ship;
+import spacesettlers.utilities.Position;
+
+/**
+ * Index over the objects in one copy of space used to answer the queries clients make
+ * every step (nearest objects of a type, objects within a radius, a team's ships and bases,
+ * mineable asteroids) without scanning every object.  The spatial part is the same
+ * SpatialHashGrid the collision detection uses.
+ *
+ * The index is built once and never changed afterwards, so several threads of a client can
+ * query it through the client's read-only snapshot of space.  Toroidal2DPhysics throws it away
+ * whenever objects are added, removed, or moved and builds a new one on the next query.
+ *
+ * @author amy
+ */
+class SpatialQueryIndex {
+	/**
+	 * The objects in the grid (in the order of space's allObjects)
+	 */
+	AbstractObject[] objects;
+	int numObjects;
+
+	/**
+	 * Spatial index of the living objects
+	 */
+	SpatialHashGrid grid;
+
+	/**
+	 * Largest distance between two points in the space (a query this far covers everything)
+	 */
+	double maxDistance;
+
+	/**
+	 * Distance the nearest object search starts with
+	 */
+	double initialReach;
+
+	/**
+	 * Ships and bases by team name and the mineable asteroids
+	 */
+	Map<String, Set<Ship>> teamShips;
+	Map<String, Set<Base>> teamBases;
+	Set<Asteroid> mineableAsteroids;
+
+	/**
+	 * Scratch space for the grid queries (one per thread since the index is shared)
+	 */
+	ThreadLocal<int[]> candidates;
+
+	/**
+	 * Index the current objects in space
+	 *
+	 * @param space
+	 */
+	SpatialQueryIndex(Toroidal2DPhysics space) {
+		numObjects = space.allObjects.size();
+		objects = space.allObjects.toArray(new AbstractObject[numObjects]);
+		grid = new SpatialHashGrid(space.width, space.height);
+		grid.rebuild(objects, numObjects);
+
+		maxDistance = Math.sqrt(space.halfWidth * space.halfWidth + space.halfHeight * space.halfHeight);
+		initialReach = Math.max(grid.cellWidth, grid.cellHeight);
+
+		teamShips = new HashMap<String, Set<Ship>>();
+		for (Ship ship : space.ships) {
+			Set<Ship> ships = teamShips.get(ship.getTeamName());
+			if (ships == null) {
+				ships = new LinkedHashSet<Ship>();
+				teamShips.put(ship.getTeamName(), ships);
+			}
+			ships.add(ship);
+		}
+		for (String teamName : teamShips.keySet()) {
+			teamShips.put(teamName, Collections.unmodifiableSet(teamShips.get(teamName)));
+		}
+
+		teamBases = new HashMap<String, Set<Base>>();
+		for (Base base : space.bases) {
+			Set<Base> bases = teamBases.get(base.getTeamName());
+			if (bases == null) {
+				bases = new LinkedHashSet<Base>();
+				teamBases.put(base.getTeamName(), bases);
+			}
+			bases.add(base);
+		}
+		for (String teamName : teamBases.keySet()) {
+			teamBases.put(teamName, Collections.unmodifiableSet(teamBases.get(teamName)));
+		}
+
+		Set<Asteroid> mineable = new LinkedHashSet<Asteroid>();
+		for (Asteroid asteroid : space.asteroids) {
+			if (asteroid.isMineable()) {
+				mineable.add(asteroid);
+			}
+		}
+		mineableAsteroids = Collections.unmodifiableSet(mineable);
+
+		final int size = numObjects;
+		candidates = new ThreadLocal<int[]>() {
+			@Override
+			protected int[] initialValue() {
+				return new int[size];
+			}
+		};
+	}
+
+	/**
+	 * Find the k living objects of a type nearest to a position
+	 *
+	 * @param space the space the index was built from
+	 * @param position
+	 * @param type
+	 * @param k
+	 * @return up to k objects ordered by distance (ties in the order they were added to space)
+	 */
+	<T extends AbstractObject> List<T> findNearest(Toroidal2DPhysics space, Position position, Class<T> type, int k) {
+		if (k <= 0) {
+			return new ArrayList<T>();
+		}
+
+		// widen the search until it holds k objects or covers all of space.  Objects
+		// further away than the reach may not have been found, so only the ones inside
+		// it are known to be nearest.
+		double reach = initialReach;
+		while (true) {
+			boolean coversSpace = reach >= maxDistance;
+			List<Candidate> found = findCandidates(space, position, reach, type);
+			int inReach = 0;
+			for (Candidate candidate : found) {
+				if (coversSpace || candidate.distance <= reach) {
+					inReach++;
+				}
+			}
+
+			if (inReach >= k || coversSpace) {
+				Collections.sort(found, CANDIDATE_ORDER);
+				int count = Math.min(k, inReach);
+				List<T> nearest = new ArrayList<T>(count);
+				for (int i = 0; i < count; i++) {
+					nearest.add(type.cast(found.get(i).object));
+				}
+				return nearest;
+			}
+			reach *= 2;
+		}
+	}
+
+	/**
+	 * Find the living objects of a type whose centers are within a radius of a position
+	 *
+	 * @param space the space the index was built from
+	 * @param position
+	 * @param radius
+	 * @param type
+	 * @return the objects ordered by distance (ties in the order they were added to space)
+	 */
+	<T extends AbstractObject> List<T> findWithinRadius(Toroidal2DPhysics space, Position position, double radius, Class<T> type) {
+		List<Candidate> found = findCandidates(space, position, radius, type);
+		Collections.sort(found, CANDIDATE_ORDER);
+
+		List<T> within = new ArrayList<T>();
+		for (Candidate candidate : found) {
+			if (candidate.distance > radius) {
+				break;
+			}
+			within.add(type.cast(candidate.object));
+		}
+		return within;
+	}
+
+	/**
+	 * Collect the objects of a type the grid returns for a query along with their distances
+	 *
+	 * @param space
+	 * @param position
+	 * @param reach
+	 * @param type
+	 * @return
+	 */
+	private List<Candidate> findCandidates(Toroidal2DPhysics space, Position position, double reach, Class<?> type) {
+		int[] indices = candidates.get();
+		int count = grid.findCandidates(position.getX(), position.getY(), reach, indices);
+
+		List<Candidate> found = new ArrayList<Candidate>();
+		for (int c = 0; c < count; c++) {
+			AbstractObject object = objects[indices[c]];
+			if (type.isInstance(object)) {
+				double distance = space.findShortestDistance(position, object.getPosition());
+				found.add(new Candidate(object, indices[c], distance));
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the ships on a team
+	 * @param teamName
+	 * @return
+	 */
+	Set<Ship> getTeamShips(String teamName) {
+		Set<Ship> ships = teamShips.get(teamName);
+		if (ships == null) {
+			return Collections.emptySet();
+		}
+		return ships;
+	}
+
+	/**
+	 * Returns the bases on a team
+	 * @param teamName
+	 * @return
+	 */
+	Set<Base> getTeamBases(String teamName) {
+		Set<Base> bases = teamBases.get(teamName);
+		if (bases == null) {
+			return Collections.emptySet();
+		}
+		return bases;
+	}
+
+	/**
+	 * Returns the mineable asteroids
+	 * @return
+	 */
+	Set<Asteroid> getMineableAsteroids() {
+		return mineableAsteroids;
+	}
+
+	/**
+	 * An object found by a query and its distance from the query position
+	 */
+	static class Candidate {
+		AbstractObject object;
+		int index;
+		double distance;
+
+		Candidate(AbstractObject object, int index, double distance) {
+			this.object = object;
+			this.index = index;
+			this.distance = distance;
+		}
+	}
+
+	/**
+	 * Orders candidates by distance and then by their order in space
+	 */
+	static final Comparator<Candidate> CANDIDATE_ORDER = new Comparator<Candidate>() {
+		@Override
+		public int compare(Candidate candidate1, Candidate candidate2) {
+			int compare = Double.compare(candidate1.distance, candidate2.distance);
+			if (compare != 0) {
+				return compare;
+			}
+			return candidate1.index < candidate2.index ? -1 : (candidate1.index == candidate2.index ? 0 : 1);
+		}
+	};
+}
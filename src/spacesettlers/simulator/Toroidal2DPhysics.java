@@ -1,12 +1,22 @@
 package spacesettlers.simulator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import spacesettlers.actions.DoNothingAction;
 import spacesettlers.actions.AbstractAction;
@@ -45,7 +55,8 @@ public class Toroidal2DPhysics {
 	float halfHeight, halfWidth;
 
 	/**
-	 * All objects in the space
+	 * All objects in the space (the sets keep the order the objects were added in so
+	 * a game with the same seed visits the objects in the same order every time)
 	 */
 	Set<AbstractObject> allObjects;
 
@@ -105,6 +116,11 @@ public class Toroidal2DPhysics {
 	 * Handles collisions between spacewar objects
 	 */
 	CollisionHandler collisionHandler;
+
+	/**
+	 * Gets the events in space (null unless this is the simulator's space, not saved with space)
+	 */
+	SimulationEventBus eventBus;
 	
 	/**
 	 * Maximum time step
@@ -116,6 +132,96 @@ public class Toroidal2DPhysics {
 	 */
 	Set<ImmutableTeamInfo> teamInfo;
 
+	/**
+	 * If true, collisions are found by checking every pair of objects (the original
+	 * reference implementation).  Otherwise a spatial hash grid is used to only check
+	 * nearby pairs.  Both produce the same collisions in the same order.
+	 */
+	boolean pairwiseCollisionDetection;
+
+	/**
+	 * If true, the moveable objects that aren't controlled by a client are moved using
+	 * packed arrays (see MoveableObjectArrays) rather than a new Position per object.
+	 * Both produce the same positions.
+	 */
+	boolean arrayIntegration;
+
+	/**
+	 * Packed state of the moveable objects for the array integration (reused across time steps)
+	 */
+	MoveableObjectArrays moveableArrays;
+
+	/**
+	 * If set, the ships' actions are all asked for their movements at once on these threads
+	 * (against a snapshot of space for each team) and the movements are then applied in the usual order.
+	 * Otherwise the actions are asked one at a time as the ships move.  Owned by the simulator
+	 * and not copied into clones of space.
+	 */
+	ExecutorService movementExecutor;
+
+	/**
+	 * If set, objects added to space get their ids from this generator (so a game with the
+	 * same seed has the same ids every time, which replays rely on).  Otherwise ids are random.
+	 */
+	Random idRandom;
+
+	/**
+	 * The movement each ship's action returned in the last time step (only kept while a
+	 * game is being recorded, null otherwise)
+	 */
+	Map<UUID, Movement> appliedMovements;
+
+	/**
+	 * Broad phase for collision detection (reused across time steps)
+	 */
+	SpatialHashGrid collisionGrid;
+
+	/**
+	 * Narrow phase for collision detection (used by both the pairwise loop and the grid)
+	 */
+	CollisionNarrowPhase narrowPhase;
+
+	/**
+	 * Scratch arrays for collision detection (reused across time steps)
+	 */
+	AbstractObject[] collisionObjects;
+	int[] collisionCandidates, deadCollisionObjects;
+
+	/**
+	 * Index for the object queries (built on the first query and thrown away whenever
+	 * objects are added, removed, or moved)
+	 */
+	volatile SpatialQueryIndex queryIndex;
+
+	/**
+	 * Index for finding free locations (built on the first search and thrown away whenever
+	 * objects are added, removed, or moved)
+	 */
+	volatile FreeSpaceIndex freeSpaceIndex;
+
+	/**
+	 * Number of random locations tried before a free location is picked from the free points
+	 * of a lattice instead
+	 */
+	static final int MAX_FREE_LOCATION_ATTEMPTS = 1000;
+
+	/**
+	 * True if this is a read-only snapshot handed to the clients.  Objects can't be
+	 * added or removed from a snapshot and the sets it returns can't be modified.
+	 */
+	boolean readOnly;
+
+	/**
+	 * Unmodifiable views of the sets (only created for read-only snapshots)
+	 */
+	Set<AbstractObject> allObjectsView;
+	Set<Beacon> beaconsView;
+	Set<Asteroid> asteroidsView;
+	Set<Base> basesView;
+	Set<Ship> shipsView;
+	Set<Flag> flagsView;
+	Set<AbstractWeapon> weaponsView;
+
 	/**
 	 * Constructor for the regular game
 	 * @param simConfig
@@ -125,18 +231,20 @@ public class Toroidal2DPhysics {
 		width = simConfig.getWidth();
 		halfHeight = height / 2.0f;
 		halfWidth = width / 2.0f;
-		allObjects = new HashSet<AbstractObject>();
+		allObjects = new LinkedHashSet<AbstractObject>();
 		timeStep = simConfig.getSimulationTimeStep();
 		collisionHandler = new CollisionHandler();
-		beacons = new HashSet<Beacon>();
-		asteroids = new HashSet<Asteroid>();
-		bases = new HashSet<Base>();
-		ships = new HashSet<Ship>();
-		flags = new HashSet<Flag>();
-		weapons = new HashSet<AbstractWeapon>();
+		beacons = new LinkedHashSet<Beacon>();
+		asteroids = new LinkedHashSet<Asteroid>();
+		bases = new LinkedHashSet<Base>();
+		ships = new LinkedHashSet<Ship>();
+		flags = new LinkedHashSet<Flag>();
+		weapons = new LinkedHashSet<AbstractWeapon>();
 		objectsById = new HashMap<UUID, AbstractObject>();
 		maxTime = simConfig.getSimulationSteps();
 		teamInfo = new HashSet<ImmutableTeamInfo>();
+		pairwiseCollisionDetection = simConfig.isPairwiseCollisionDetection();
+		arrayIntegration = simConfig.isArrayIntegration();
 	}
 
 	/**
@@ -152,14 +260,14 @@ public class Toroidal2DPhysics {
 		this.timeStep = timeStep;
 		halfHeight = height / 2.0f;
 		halfWidth = width / 2.0f;
-		allObjects = new HashSet<AbstractObject>();
+		allObjects = new LinkedHashSet<AbstractObject>();
 		collisionHandler = new CollisionHandler();
-		beacons = new HashSet<Beacon>();
-		asteroids = new HashSet<Asteroid>();
-		bases = new HashSet<Base>();
-		ships = new HashSet<Ship>();
-		flags = new HashSet<Flag>();
-		weapons = new HashSet<AbstractWeapon>();
+		beacons = new LinkedHashSet<Beacon>();
+		asteroids = new LinkedHashSet<Asteroid>();
+		bases = new LinkedHashSet<Base>();
+		ships = new LinkedHashSet<Ship>();
+		flags = new LinkedHashSet<Flag>();
+		weapons = new LinkedHashSet<AbstractWeapon>();
 		objectsById = new HashMap<UUID, AbstractObject>();
 		teamInfo = new HashSet<ImmutableTeamInfo>();
 	}
@@ -179,17 +287,19 @@ public class Toroidal2DPhysics {
 		this.currentTimeStep = other.currentTimeStep;
 		halfHeight = height / 2.0f;
 		halfWidth = width / 2.0f;
-		allObjects = new HashSet<AbstractObject>();
+		allObjects = new LinkedHashSet<AbstractObject>();
 		collisionHandler = new CollisionHandler();
-		beacons = new HashSet<Beacon>();
-		asteroids = new HashSet<Asteroid>();
-		bases = new HashSet<Base>();
-		ships = new HashSet<Ship>();
-		flags = new HashSet<Flag>();
-		weapons = new HashSet<AbstractWeapon>();
+		beacons = new LinkedHashSet<Beacon>();
+		asteroids = new LinkedHashSet<Asteroid>();
+		bases = new LinkedHashSet<Base>();
+		ships = new LinkedHashSet<Ship>();
+		flags = new LinkedHashSet<Flag>();
+		weapons = new LinkedHashSet<AbstractWeapon>();
 		objectsById = new HashMap<UUID, AbstractObject>();
 		maxTime = other.maxTime;
 		teamInfo = new HashSet<ImmutableTeamInfo>(other.teamInfo);
+		pairwiseCollisionDetection = other.pairwiseCollisionDetection;
+		arrayIntegration = other.arrayIntegration;
 	}
 	
 	
@@ -199,6 +309,31 @@ public class Toroidal2DPhysics {
 	 * @param obj
 	 */
 	public void addObject(AbstractObject obj) {
+		checkWritable();
+		if (idRandom != null) {
+			obj.resetId(newObjectId());
+		}
+		insertObject(obj);
+	}
+
+	/**
+	 * Make a new id for an object (from the id generator if there is one)
+	 * @return
+	 */
+	UUID newObjectId() {
+		if (idRandom == null) {
+			return UUID.randomUUID();
+		}
+		return new UUID(idRandom.nextLong(), idRandom.nextLong());
+	}
+
+	/**
+	 * Add an object to all of the sets it belongs in
+	 * @param obj
+	 */
+	private void insertObject(AbstractObject obj) {
+		queryIndex = null;
+		freeSpaceIndex = null;
 		allObjects.add(obj);
 
 		if (obj instanceof Beacon) {
@@ -234,6 +369,17 @@ public class Toroidal2DPhysics {
 	 * @param obj
 	 */
 	public void removeObject(AbstractObject obj) {
+		checkWritable();
+		deleteObject(obj);
+	}
+
+	/**
+	 * Remove an object from all of the sets it belongs in
+	 * @param obj
+	 */
+	private void deleteObject(AbstractObject obj) {
+		queryIndex = null;
+		freeSpaceIndex = null;
 		allObjects.remove(obj);
 
 		if (obj.getClass() == Beacon.class) {
@@ -263,6 +409,15 @@ public class Toroidal2DPhysics {
 		objectsById.remove(obj.getId());
 	}
 
+	/**
+	 * Throw an exception if someone tries to change a read-only snapshot
+	 */
+	private void checkWritable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("Objects can not be added to or removed from a read-only snapshot of space");
+		}
+	}
+
 	/**
 	 *  return object by its ID
 	 * @param id
@@ -277,7 +432,7 @@ public class Toroidal2DPhysics {
 	 * @return
 	 */
 	public Set<Asteroid> getAsteroids() {
-		return asteroids;
+		return readOnly ? asteroidsView : asteroids;
 	}
 	
 	/**
@@ -286,7 +441,7 @@ public class Toroidal2DPhysics {
 	 * @return
 	 */
 	public Set<Beacon> getBeacons() {
-		return beacons;
+		return readOnly ? beaconsView : beacons;
 	}
 	
 	/**
@@ -295,7 +450,7 @@ public class Toroidal2DPhysics {
 	 * @return
 	 */
 	public Set<Base> getBases() {
-		return bases;
+		return readOnly ? basesView : bases;
 	}
 
 	/**
@@ -303,7 +458,7 @@ public class Toroidal2DPhysics {
 	 * @return
 	 */
 	public Set<Ship> getShips() {
-		return ships;
+		return readOnly ? shipsView : ships;
 	}
 	
 	/**
@@ -311,7 +466,7 @@ public class Toroidal2DPhysics {
 	 * @return
 	 */
 	public Set<AbstractWeapon> getWeapons() {
-		return weapons;
+		return readOnly ? weaponsView : weapons;
 	}
 	
 	
@@ -320,7 +475,117 @@ public class Toroidal2DPhysics {
 	 * @return
 	 */
 	public Set<Flag> getFlags() {
-		return flags;
+		return readOnly ? flagsView : flags;
+	}
+
+	/**
+	 * Return the query index for the current objects, building it if anything has
+	 * changed since the last query.  A client's own threads can query its snapshot at
+	 * the same time so only one of them builds the index.
+	 *
+	 * @return
+	 */
+	private SpatialQueryIndex getQueryIndex() {
+		SpatialQueryIndex index = queryIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = queryIndex;
+				if (index == null) {
+					index = new SpatialQueryIndex(this);
+					queryIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Return the index for finding free locations, building it if anything has changed
+	 * since the last search
+	 *
+	 * @return
+	 */
+	private FreeSpaceIndex getFreeSpaceIndex() {
+		FreeSpaceIndex index = freeSpaceIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = freeSpaceIndex;
+				if (index == null) {
+					index = new FreeSpaceIndex(this);
+					freeSpaceIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Return the k living objects of a type nearest to a position (using the shortest
+	 * toroidal distance between centers).  Use AbstractObject.class for any type.
+	 *
+	 * The index behind this and the other queries is rebuilt when the simulator changes space,
+	 * but not when a client moves an object in its copy of space itself.
+	 *
+	 * @param position
+	 * @param type
+	 * @param k
+	 * @return up to k objects, nearest first
+	 */
+	public <T extends AbstractObject> List<T> getNearestObjects(Position position, Class<T> type, int k) {
+		return getQueryIndex().findNearest(this, position, type, k);
+	}
+
+	/**
+	 * Return the living object of a type nearest to a position
+	 *
+	 * @param position
+	 * @param type
+	 * @return the nearest object or null if there are none
+	 */
+	public <T extends AbstractObject> T getNearestObject(Position position, Class<T> type) {
+		List<T> nearest = getNearestObjects(position, type, 1);
+		return nearest.isEmpty() ? null : nearest.get(0);
+	}
+
+	/**
+	 * Return the living objects of a type whose centers are within a radius of a position
+	 *
+	 * @param position
+	 * @param radius
+	 * @param type
+	 * @return the objects, nearest first
+	 */
+	public <T extends AbstractObject> List<T> getObjectsWithinRadius(Position position, double radius, Class<T> type) {
+		return getQueryIndex().findWithinRadius(this, position, radius, type);
+	}
+
+	/**
+	 * Return the ships on a team (dead or alive)
+	 *
+	 * @param teamName
+	 * @return an unmodifiable set of the team's ships
+	 */
+	public Set<Ship> getTeamShips(String teamName) {
+		return getQueryIndex().getTeamShips(teamName);
+	}
+
+	/**
+	 * Return the bases on a team
+	 *
+	 * @param teamName
+	 * @return an unmodifiable set of the team's bases
+	 */
+	public Set<Base> getTeamBases(String teamName) {
+		return getQueryIndex().getTeamBases(teamName);
+	}
+
+	/**
+	 * Return the asteroids that can be mined (dead or alive)
+	 *
+	 * @return an unmodifiable set of the mineable asteroids
+	 */
+	public Set<Asteroid> getMineableAsteroids() {
+		return getQueryIndex().getMineableAsteroids();
 	}
 
 	/**
@@ -356,7 +621,8 @@ public class Toroidal2DPhysics {
 	}
 	
 	/**
-	 * Returns a new random free location in space
+	 * Returns a new random free location in space.  If many random locations are taken,
+	 * one of the free points of a lattice over space is picked instead.
 	 * 
 	 * @param rand Random number generator
 	 * @param radius the radius around the new location that must be free
@@ -364,8 +630,16 @@ public class Toroidal2DPhysics {
 	 */
 	public Position getRandomFreeLocation(Random rand, int radius) {
 		Position randLocation = new Position(rand.nextFloat() * width, rand.nextFloat() * height);
+		int attempts = 1;
 
 		while (!isLocationFree(randLocation, radius)) {
+			if (attempts++ == MAX_FREE_LOCATION_ATTEMPTS) {
+				Position freeLocation = pickFreeLatticePoint(rand, radius, 
+						new Position(halfWidth, halfHeight), halfWidth, halfHeight, Double.MAX_VALUE);
+				if (freeLocation != null) {
+					return freeLocation;
+				}
+			}
 			randLocation = new Position(rand.nextFloat() * width, rand.nextFloat() * height);
 		}
 
@@ -373,7 +647,8 @@ public class Toroidal2DPhysics {
 	}
 
 	/**
-	 * Returns a new random free location in space
+	 * Returns a new random free location in space.  If many random locations are taken,
+	 * one of the free points of a lattice over the region is picked instead.
 	 * 
 	 * @param rand Random number generator
 	 * @param freeRadius the radius around the object that must be free
@@ -386,8 +661,16 @@ public class Toroidal2DPhysics {
 		double newY = ((2 * rand.nextDouble()) - 1) * maxDistance + centerY;
 		Position randLocation = new Position(newX, newY);
 		toroidalWrap(randLocation);
+		int attempts = 1;
 
 		while (!isLocationFree(randLocation, freeRadius) || findShortestDistance(centerPosition, randLocation) > maxDistance) {
+			if (attempts++ == MAX_FREE_LOCATION_ATTEMPTS) {
+				Position freeLocation = pickFreeLatticePoint(rand, freeRadius, 
+						centerPosition, maxDistance, maxDistance, maxDistance);
+				if (freeLocation != null) {
+					return freeLocation;
+				}
+			}
 			newX = ((2 * rand.nextDouble()) - 1) * maxDistance + centerX;
 			newY = ((2 * rand.nextDouble()) - 1) * maxDistance + centerY;
 			randLocation = new Position(newX, newY);
@@ -417,8 +700,16 @@ public class Toroidal2DPhysics {
 		double newY = ((2 * rand.nextDouble()) - 1) * (boxHeight / 2.0) + centerPosition.getY();
 		Position randLocation = new Position(newX, newY);
 		toroidalWrap(randLocation);
+		int attempts = 1;
 
 		while (!isLocationFree(randLocation, freeRadius)) {
+			if (attempts++ == MAX_FREE_LOCATION_ATTEMPTS) {
+				Position freeLocation = pickFreeLatticePoint(rand, freeRadius, 
+						centerPosition, boxWidth / 2.0, boxHeight / 2.0, Double.MAX_VALUE);
+				if (freeLocation != null) {
+					return freeLocation;
+				}
+			}
 			newX = ((2 * rand.nextDouble()) - 1) * (boxWidth / 2.0) + centerPosition.getX();
 			newY = ((2 * rand.nextDouble()) - 1) * (boxHeight / 2.0) + centerPosition.getY();
 			randLocation = new Position(newX, newY);
@@ -433,17 +724,45 @@ public class Toroidal2DPhysics {
 	/**
 	 * Is the specified location free (within the specified radius)?
 	 * 
+	 * The index behind this and the searches for random free locations is rebuilt when the
+	 * simulator changes space, but not when a client moves an object in its copy of space itself.
+	 * 
 	 * @param location
 	 * @param radius
 	 * @return true if the location is free and false otherwise
 	 */
 	public boolean isLocationFree(Position location, int radius) {
-		for (AbstractObject object : allObjects) {
-			if (findShortestDistanceVector(object.getPosition(), location).getMagnitude() <= (radius + object.getRadius())) {
-				return false;
+		return getFreeSpaceIndex().isLocationFree(this, location, radius);
+	}
+
+	/**
+	 * Pick one of the free points of a lattice over a box of space (used once random 
+	 * locations have missed too many times)
+	 * 
+	 * @param rand Random number generator
+	 * @param freeRadius the radius around the point that must be free
+	 * @param center the center of the box
+	 * @param boxHalfWidth
+	 * @param boxHalfHeight
+	 * @param maxDistance points further than this from the center are skipped
+	 * @return a free point or null if none of the points are free
+	 */
+	private Position pickFreeLatticePoint(Random rand, int freeRadius, Position center, 
+			double boxHalfWidth, double boxHalfHeight, double maxDistance) {
+		List<Position> freePoints = getFreeSpaceIndex().findFreePoints(this, center.getX() - boxHalfWidth, 
+				center.getY() - boxHalfHeight, 2 * boxHalfWidth, 2 * boxHalfHeight, freeRadius);
+
+		List<Position> inRange = new ArrayList<Position>();
+		for (Position point : freePoints) {
+			if (findShortestDistance(center, point) <= maxDistance) {
+				inRange.add(point);
 			}
 		}
-		return true;
+
+		if (inRange.isEmpty()) {
+			return null;
+		}
+		return inRange.get(rand.nextInt(inRange.size()));
 	}
 
 	/**
@@ -456,7 +775,7 @@ public class Toroidal2DPhysics {
 	 * @return shortest distance vector pointing from location1 to location2
 	 */
 	public Vector2D findShortestDistanceVector(Position location1, Position location2) {
-		return findShortestDistanceVector(location1, location2, width, height, halfWidth, halfHeight);
+		return new Vector2D(findShortestDeltaX(location1, location2), findShortestDeltaY(location1, location2));
 	}
 
 	/**
@@ -470,51 +789,71 @@ public class Toroidal2DPhysics {
 	 * @return shortest distance length (magnitude of the vector pointing from location1 to location2)
 	 */
 	public double findShortestDistance(Position location1, Position location2) {
-		Vector2D shortDist = findShortestDistanceVector(location1, location2, width, height, halfWidth, halfHeight);
-		return shortDist.getMagnitude();
+		return Math.sqrt(findShortestDistanceSquared(location1, location2));
 	}
 
+	/**
+	 * The square of the shortest toroidal distance from one location to another.  Nothing
+	 * is allocated, so it is the one to use in loops that only compare distances (compare
+	 * it to the square of the distance you care about).
+	 * 
+	 * @param location1
+	 * @param location2
+	 * @return shortest distance squared
+	 */
+	public double findShortestDistanceSquared(Position location1, Position location2) {
+		double x = findShortestDeltaX(location1, location2);
+		double y = findShortestDeltaY(location1, location2);
+		return x*x + y*y;
+	}
 
 	/**
-	 * Finds the shortest distance in toroidal space. Returns a vector
-	 * pointing from the start to the target location and getMagnitude can be used
-	 * to find the distance and the angle.
+	 * Same as findShortestDistanceVector but writes the vector into the destination instead
+	 * of making a new one.
+	 * 
+	 * @param location1
+	 * @param location2
+	 * @param destination the vector to write the result into
+	 * @return the destination, pointing from location1 to location2
+	 */
+	public Vector2D findShortestDistanceVector(Position location1, Position location2, Vector2D destination) {
+		destination.set(findShortestDeltaX(location1, location2), findShortestDeltaY(location1, location2));
+		return destination;
+	}
+
+	/**
+	 * The x component of the shortest distance vector pointing from location1 to location2
 	 * 
 	 * @param location1
 	 * @param location2
-	 * @param width
-	 * @param height
-	 * @param halfWidth
-	 * @param halfHeight
 	 * @return
 	 */
-	private Vector2D findShortestDistanceVector(Position location1,
-			Position location2, float width, float height,
-			float halfWidth, float halfHeight) {
+	public double findShortestDeltaX(Position location1, Position location2) {
 		double x = location2.getX() - location1.getX();
-		double y = location2.getY() - location1.getY();
 		if (x > halfWidth) {
-			if (y > halfHeight) {
-				return new Vector2D(x - width, y - height);
-			} else if (y < -halfHeight) {
-				return new Vector2D(x - width, y + height);
-			} else {
-				return new Vector2D(x - width, y);
-			}
+			return x - width;
 		} else if (x < -halfWidth) {
-			if (y > halfHeight) {
-				return new Vector2D(x + width, y - height);
-			} else if (y < -halfHeight) {
-				return new Vector2D(x + width, y + height);
-			} else {
-				return new Vector2D(x + width, y);
-			}
-		} else if (y > halfHeight) {
-			return new Vector2D(x, y - height);
+			return x + width;
+		} else {
+			return x;
+		}
+	}
+
+	/**
+	 * The y component of the shortest distance vector pointing from location1 to location2
+	 * 
+	 * @param location1
+	 * @param location2
+	 * @return
+	 */
+	public double findShortestDeltaY(Position location1, Position location2) {
+		double y = location2.getY() - location1.getY();
+		if (y > halfHeight) {
+			return y - height;
 		} else if (y < -halfHeight) {
-			return new Vector2D(x, y + height);
+			return y + height;
 		} else {
-			return new Vector2D(x, y);
+			return y;
 		}
 	}
 
@@ -524,6 +863,8 @@ public class Toroidal2DPhysics {
 	public void advanceTime(int currentTimeStep, Map<UUID, SpaceSettlersPowerupEnum> powerups) {
 		
 		this.currentTimeStep = currentTimeStep;
+		queryIndex = null;
+		freeSpaceIndex = null;
 		
 		// heal any base injuries
 		for (Base base : bases) {
@@ -545,6 +886,29 @@ public class Toroidal2DPhysics {
 			handlePowerup((AbstractActionableObject)swobject, powerups.get(key));
 		}
 
+		// the actions of each team see their own snapshot of space that is brought up to date
+		// with the objects that have moved so far this step (rather than a full clone for each
+		// ship), so one team's actions can't change what another team's actions see
+		Map<String, Toroidal2DPhysics> teamActionSpaces = new HashMap<String, Toroidal2DPhysics>();
+		Map<String, Integer> teamRefreshCounts = new HashMap<String, Integer>();
+		ArrayList<AbstractObject> movedObjects = new ArrayList<AbstractObject>();
+		if (appliedMovements != null) {
+			appliedMovements.clear();
+		}
+
+		// in parallel, every action sees space as it is before anything moves
+		Map<String, Future<Map<UUID, Movement>>> shipMovements = null;
+		if (movementExecutor != null) {
+			shipMovements = submitShipMovements();
+		}
+
+		// with the array integration, everything that isn't a ship is moved at once up front and
+		// the new positions are written back in the same order as the loop below visits them
+		int nextSlot = 0;
+		if (arrayIntegration) {
+			integrateMoveableObjects();
+		}
+
 		// now move all objects that are moveable (which may include weapons)
 		for (AbstractObject object : allObjects) {
 			// skip non-moveable objects or dead object
@@ -558,16 +922,29 @@ public class Toroidal2DPhysics {
 			if (object.isControllable()) {
 
 				Ship ship = (Ship) object;
-				AbstractAction action = ship.getCurrentAction();
-				
-				// handle a null action
-				if (action == null) {
-					action = new DoNothingAction();
-				}
+				Movement actionMovement;
 
-				// need to clone the ship and space because otherwise the ship can affect
-				// itself inside AbstractAction
-				Movement actionMovement = action.getMovement(this.deepClone(), ship.deepClone());
+				if (shipMovements != null) {
+					actionMovement = getShipMovement(shipMovements.get(ship.getTeamName()), ship);
+				} else {
+					// need to clone the ship and space because otherwise the ship can affect
+					// itself inside AbstractAction
+					String teamName = ship.getTeamName();
+					Toroidal2DPhysics actionSpace = teamActionSpaces.get(teamName);
+					if (actionSpace == null) {
+						actionSpace = createReadOnlySnapshot();
+						teamActionSpaces.put(teamName, actionSpace);
+					} else {
+						for (int m = teamRefreshCounts.get(teamName); m < movedObjects.size(); m++) {
+							refreshSnapshotObject(actionSpace, movedObjects.get(m));
+						}
+					}
+					teamRefreshCounts.put(teamName, movedObjects.size());
+					actionMovement = getShipAction(ship).getMovement(actionSpace, ship.deepClone());
+				}
+				if (appliedMovements != null) {
+					appliedMovements.put(ship.getId(), actionMovement);
+				}
 
 				Position newPosition = applyMovement(currentPosition, actionMovement, timeStep);
 				if (newPosition.isValid()) {
@@ -598,8 +975,12 @@ public class Toroidal2DPhysics {
 				
 			} else {
 				// move all other types of objects
-				Position newPosition = moveOneTimestep(currentPosition);
-				object.setPosition(newPosition);
+				if (arrayIntegration && moveableArrays.isInSlot(nextSlot, object)) {
+					moveableArrays.writeBack(nextSlot);
+					nextSlot++;
+				} else {
+					moveOneTimestep(currentPosition, currentPosition);
+				}
 			}
 
 			// if any ships or bases are frozen, decrement their frozen count
@@ -608,10 +989,11 @@ public class Toroidal2DPhysics {
 				actionable.decrementFreezeCount();
 			}
 
+			movedObjects.add(object);
 		}
 		
 		// go through and see if any bases have died
-		Set<Base> basesClone = new HashSet<Base>(bases);
+		Set<Base> basesClone = new LinkedHashSet<Base>(bases);
 		for (Base base : basesClone) {
 			// this isn't the most general fix but it will work for now (also has to be done for bases)
 			if (base.isShielded()) {
@@ -621,7 +1003,13 @@ public class Toroidal2DPhysics {
 			if (!base.isAlive()) {
 				base.setAlive(false);
 				removeObject(base);
-				base.getTeam().removeBase(base);
+				if (eventBus != null) {
+					eventBus.publish(SimulationEvent.Type.BASE_DESTROYED, base.getTeamName(), base.getId(), null, 1);
+				}
+				// copies of space made by clients have no teams to update
+				if (base.getTeam() != null) {
+					base.getTeam().removeBase(base);
+				}
 			}
 		}
 		
@@ -646,8 +1034,15 @@ public class Toroidal2DPhysics {
 				
 				// set the ship to dead last (so we can grab its resources first)
 				ship.setAlive(false);
+				if (eventBus != null) {
+					eventBus.publish(SimulationEvent.Type.SHIP_DESTROYED, ship.getTeamName(), ship.getId(), null, 1);
+				}
 			}
 		}
+
+		// everything has moved so the next query needs a new index
+		queryIndex = null;
+		freeSpaceIndex = null;
 	}
 
 	/**
@@ -746,11 +1141,13 @@ public class Toroidal2DPhysics {
 	}
 
 	/**
-	 * Advances one time step using the set velocities
-	 * @param currentPosition
-	 * @return
+	 * Advances one time step using the set velocities, writing the result into the destination
+	 * (which can be the position itself).  The destination gets the same velocity vector.
+	 * 
+	 * @param position
+	 * @param destination
 	 */
-	private Position moveOneTimestep(Position position) {
+	private void moveOneTimestep(Position position, Position destination) {
 		double angularVelocity = position.getAngularVelocity();
 		double orientation =  position.getOrientation() + (angularVelocity * timeStep);
 
@@ -765,11 +1162,121 @@ public class Toroidal2DPhysics {
 		double newX = position.getX() + (position.getTranslationalVelocityX() * timeStep);
 		double newY = position.getY() + (position.getTranslationalVelocityY() * timeStep);
 
-		Position newPosition = new Position(newX, newY, orientation);
-		newPosition.setAngularVelocity(angularVelocity);
-		newPosition.setTranslationalVelocity(position.getTranslationalVelocity());
-		toroidalWrap(newPosition);
-		return newPosition;
+		destination.setX(newX);
+		destination.setY(newY);
+		destination.setOrientation(orientation);
+		destination.setAngularVelocity(angularVelocity);
+		destination.setTranslationalVelocity(position.getTranslationalVelocity());
+		toroidalWrap(destination);
+	}
+
+	/**
+	 * Returns the current action of a ship (or a DoNothingAction if it doesn't have one)
+	 * 
+	 * @param ship
+	 * @return
+	 */
+	private AbstractAction getShipAction(Ship ship) {
+		AbstractAction action = ship.getCurrentAction();
+		if (action == null) {
+			action = new DoNothingAction();
+		}
+		return action;
+	}
+
+	/**
+	 * Ask the actions of all of the living ships for their movements on the movement
+	 * executor.  Each team gets one task that asks its ships in order against the team's
+	 * own read-only snapshot of space (nothing has moved yet this step), and each ship is
+	 * a clone, so the movements don't depend on the order the threads run in.
+	 * 
+	 * @return the movements of each team's ships (by ship id) once its actions return
+	 */
+	private Map<String, Future<Map<UUID, Movement>>> submitShipMovements() {
+		Map<String, List<Ship>> teamShips = new LinkedHashMap<String, List<Ship>>();
+		for (AbstractObject object : allObjects) {
+			if (!object.isMoveable() || !object.isAlive() || !object.isControllable()) {
+				continue;
+			}
+
+			Ship ship = (Ship) object;
+			List<Ship> ships = teamShips.get(ship.getTeamName());
+			if (ships == null) {
+				ships = new ArrayList<Ship>();
+				teamShips.put(ship.getTeamName(), ships);
+			}
+			ships.add(ship);
+		}
+
+		Map<String, Future<Map<UUID, Movement>>> shipMovements = new HashMap<String, Future<Map<UUID, Movement>>>();
+		for (Map.Entry<String, List<Ship>> entry : teamShips.entrySet()) {
+			final Toroidal2DPhysics actionSpace = createReadOnlySnapshot();
+			final List<AbstractAction> actions = new ArrayList<AbstractAction>();
+			final List<Ship> shipClones = new ArrayList<Ship>();
+			for (Ship ship : entry.getValue()) {
+				actions.add(getShipAction(ship));
+				shipClones.add(ship.deepClone());
+			}
+
+			shipMovements.put(entry.getKey(), movementExecutor.submit(new Callable<Map<UUID, Movement>>() {
+				public Map<UUID, Movement> call() throws Exception {
+					Map<UUID, Movement> movements = new HashMap<UUID, Movement>();
+					for (int s = 0; s < actions.size(); s++) {
+						Ship shipClone = shipClones.get(s);
+						movements.put(shipClone.getId(), actions.get(s).getMovement(actionSpace, shipClone));
+					}
+					return movements;
+				}
+			}));
+		}
+
+		return shipMovements;
+	}
+
+	/**
+	 * Wait for the movement of a ship found by submitShipMovements.  An exception thrown by
+	 * an action is thrown here (the same as if the action had been called directly).
+	 * 
+	 * @param teamMovements the movements of the ship's team
+	 * @param ship
+	 * @return
+	 */
+	private Movement getShipMovement(Future<Map<UUID, Movement>> teamMovements, Ship ship) {
+		try {
+			return teamMovements.get().get(ship.getId());
+		} catch (InterruptedException e) {
+			// the simulator is being stopped so the ship doesn't move
+			Thread.currentThread().interrupt();
+			return new Movement();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Copy the moveable objects that aren't controlled by a client into the packed arrays
+	 * (in the order of allObjects) and move them all one time step.  The new positions are
+	 * written back by advanceTime.
+	 */
+	private void integrateMoveableObjects() {
+		if (moveableArrays == null) {
+			moveableArrays = new MoveableObjectArrays();
+		}
+		moveableArrays.clear();
+
+		for (AbstractObject object : allObjects) {
+			if (object.isMoveable() && object.isAlive() && !object.isControllable()) {
+				moveableArrays.add(object);
+			}
+		}
+
+		moveableArrays.integrate(timeStep, width, height);
 	}
 
 	/**
@@ -777,7 +1284,22 @@ public class Toroidal2DPhysics {
 	 * call the collision handler for those objects.  Sometimes you bounce (asteroids)
 	 * and sometimes you pick the object up (beacons), etc.
 	 */
-	private void detectCollisions() {
+	void detectCollisions() {
+		if (narrowPhase == null) {
+			narrowPhase = new CollisionNarrowPhase(width, height);
+		}
+
+		if (pairwiseCollisionDetection) {
+			detectCollisionsPairwise();
+		} else {
+			detectCollisionsSpatialHash();
+		}
+	}
+
+	/**
+	 * Reference collision detection that checks every pair of objects
+	 */
+	private void detectCollisionsPairwise() {
 		// would prefer to iterate over the set (as this is inefficient) but
 		// the set iterator collides a with b and then b with a, allowing them to 
 		// pass through one another!
@@ -797,18 +1319,192 @@ public class Toroidal2DPhysics {
 					continue;
 				}
 				
-				// skip them if they are the same object
-				if (object1.equals(object2)) {
+				// the narrow phase also skips them if they are the same object
+				if (narrowPhase.isColliding(object1, object2)) {
+					collisionHandler.collide(object1, object2, this);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collision detection using a spatial hash grid as the broad phase.  This walks the
+	 * objects in the same order as detectCollisionsPairwise and only skips pairs that are
+	 * too far apart to touch, so the collision handler is called on exactly the same pairs
+	 * in exactly the same order.  Collisions can move both objects, so the grid is updated
+	 * and the remaining candidates are recomputed after each one.
+	 * 
+	 * Dead objects are in the grid too, since a collision can bring one back to life
+	 * (a ship that dies drops the flag it was carrying where it died).  The objects that
+	 * were dead are moved to their current cells after each collision.
+	 */
+	private void detectCollisionsSpatialHash() {
+		int numObjects = allObjects.size();
+		if (collisionObjects == null || collisionObjects.length < numObjects) {
+			collisionObjects = new AbstractObject[numObjects];
+			collisionCandidates = new int[numObjects];
+			deadCollisionObjects = new int[numObjects];
+		}
+		if (collisionGrid == null) {
+			collisionGrid = new SpatialHashGrid(width, height);
+		}
+
+		AbstractObject[] allObjectsArray = allObjects.toArray(collisionObjects);
+		collisionGrid.rebuild(allObjectsArray, numObjects, true);
+		int maxRadius = collisionGrid.getMaxRadius();
+
+		int numDead = 0;
+		for (int i = 0; i < numObjects; i++) {
+			if (!allObjectsArray[i].isAlive()) {
+				deadCollisionObjects[numDead++] = i;
+			}
+		}
+
+		for (int i = 0; i < numObjects; i++) {
+			AbstractObject object1 = allObjectsArray[i];
+			if (!object1.isAlive()) {
+				continue;
+			}
+
+			int numCandidates = findCollisionCandidates(object1, maxRadius, i);
+			int c = 0;
+			while (c < numCandidates) {
+				int j = collisionCandidates[c++];
+				AbstractObject object2 = allObjectsArray[j];
+
+				if (!object2.isAlive()) {
 					continue;
 				}
-				
-				double distance = findShortestDistance(object1.getPosition(), object2.getPosition());
 
-				if (distance < (object1.getRadius() + object2.getRadius())) {
+				// the narrow phase also skips them if they are the same object
+				if (narrowPhase.isColliding(object1, object2)) {
 					collisionHandler.collide(object1, object2, this);
+
+					// the collision may have moved either object so find the rest of the pairs again
+					collisionGrid.update(i);
+					collisionGrid.update(j);
+					for (int d = 0; d < numDead; d++) {
+						collisionGrid.update(deadCollisionObjects[d]);
+					}
+					numCandidates = findCollisionCandidates(object1, maxRadius, j);
+					c = 0;
 				}
 			}
 		}
+
+		// don't hold onto objects that may be removed later
+		Arrays.fill(collisionObjects, 0, numObjects, null);
+	}
+
+	/**
+	 * Fill in collisionCandidates with the indices of the objects that could be touching
+	 * the specified object, keeping only indices after the specified index and sorted
+	 * into the order the pairwise loop would visit them.
+	 * 
+	 * @param object
+	 * @param maxRadius largest radius of any object in the collision grid
+	 * @param afterIndex only indices greater than this are kept
+	 * @return the number of candidates found
+	 */
+	private int findCollisionCandidates(AbstractObject object, int maxRadius, int afterIndex) {
+		Position position = object.getPosition();
+		int found = collisionGrid.findCandidates(position.getX(), position.getY(), 
+				object.getRadius() + maxRadius, collisionCandidates);
+
+		int numCandidates = 0;
+		for (int c = 0; c < found; c++) {
+			if (collisionCandidates[c] > afterIndex) {
+				collisionCandidates[numCandidates++] = collisionCandidates[c];
+			}
+		}
+		Arrays.sort(collisionCandidates, 0, numCandidates);
+		return numCandidates;
+	}
+
+	/**
+	 * Choose between the pairwise (reference) collision detection and the spatial hash grid
+	 * 
+	 * @param pairwiseCollisionDetection true to check every pair of objects
+	 */
+	public void setPairwiseCollisionDetection(boolean pairwiseCollisionDetection) {
+		this.pairwiseCollisionDetection = pairwiseCollisionDetection;
+	}
+
+	/**
+	 * Is the pairwise (reference) collision detection being used?
+	 * @return
+	 */
+	public boolean isPairwiseCollisionDetection() {
+		return pairwiseCollisionDetection;
+	}
+
+	/**
+	 * Choose between moving the moveable objects one at a time or with the packed arrays
+	 * 
+	 * @param arrayIntegration true to move the objects that aren't controlled using packed arrays
+	 */
+	public void setArrayIntegration(boolean arrayIntegration) {
+		this.arrayIntegration = arrayIntegration;
+	}
+
+	/**
+	 * Are the moveable objects being moved with the packed arrays?
+	 * @return
+	 */
+	public boolean isArrayIntegration() {
+		return arrayIntegration;
+	}
+
+	/**
+	 * Set the threads used to find the ships' movements in parallel (null to find them one 
+	 * at a time as the ships move).  The caller owns the threads and shuts them down.
+	 * 
+	 * @param movementExecutor
+	 */
+	public void setMovementExecutor(ExecutorService movementExecutor) {
+		this.movementExecutor = movementExecutor;
+	}
+
+	/**
+	 * Are the ships' movements being found in parallel?
+	 * @return
+	 */
+	public boolean isParallelShipMovement() {
+		return movementExecutor != null;
+	}
+
+	/**
+	 * Give the objects added from now on ids from a generator with this seed (instead of 
+	 * random ids) so a game played again with the same seed has the same ids.  The id 
+	 * generator isn't copied into clones of space.
+	 * 
+	 * @param seed
+	 */
+	public void setObjectIdSeed(long seed) {
+		idRandom = new Random(seed);
+	}
+
+	/**
+	 * Turn on or off keeping the movement each ship's action returned (used to record games)
+	 * 
+	 * @param recordMovements
+	 */
+	public void setRecordMovements(boolean recordMovements) {
+		if (recordMovements) {
+			appliedMovements = new LinkedHashMap<UUID, Movement>();
+		} else {
+			appliedMovements = null;
+		}
+	}
+
+	/**
+	 * Returns the movement each ship's action returned in the last time step, in the order 
+	 * the ships moved (null unless setRecordMovements is on)
+	 * 
+	 * @return
+	 */
+	public Map<UUID, Movement> getAppliedMovements() {
+		return appliedMovements;
 	}
 
 	/**
@@ -819,6 +1515,21 @@ public class Toroidal2DPhysics {
 	 * @return
 	 */
 	public Position applyMovement(Position position, Movement movement, double timeStep) {
+		return applyMovement(position, movement, timeStep, new Position(0, 0));
+	}
+
+	/**
+	 * Same as applyMovement but writes the moved position into the destination instead of
+	 * making a new one.  The velocity vector of the destination is written in place, so it 
+	 * must not be shared with another position (it can't be the position being moved).
+	 * 
+	 * @param position
+	 * @param movement
+	 * @param timeStep
+	 * @param destination the position to write the result into
+	 * @return the destination
+	 */
+	public Position applyMovement(Position position, Movement movement, double timeStep, Position destination) {
 		double translationalAccelX = movement.getTranslationalAcceleration().getXValue();
 		double translationalAccelY = movement.getTranslationalAcceleration().getYValue();
 		double angularAccel = movement.getAngularAccleration();
@@ -833,11 +1544,14 @@ public class Toroidal2DPhysics {
 		translationalVelocityY = checkTranslationalVelocity(translationalVelocityY);
 		angularVelocity = checkAngularVelocity(angularVelocity);
 
-		Position newPosition = new Position(position.getX(), position.getY(), position.getOrientation());
-		newPosition.setTranslationalVelocity(new Vector2D(translationalVelocityX, translationalVelocityY));
-		newPosition.setAngularVelocity(angularVelocity);
+		destination.setX(position.getX());
+		destination.setY(position.getY());
+		destination.setOrientation(position.getOrientation());
+		destination.getTranslationalVelocity().set(translationalVelocityX, translationalVelocityY);
+		destination.setAngularVelocity(angularVelocity);
 
-		return moveOneTimestep(newPosition);
+		moveOneTimestep(destination, destination);
+		return destination;
 	}
 
 	/**
@@ -894,7 +1608,14 @@ public class Toroidal2DPhysics {
 	 * have a delay before they can respawn.
 	 */
 	public void respawnDeadObjects(Random random, double asteroidMaxVelocity) {
+		queryIndex = null;
+
+		// the free space index is kept up to date as each object respawns (instead of
+		// being built again for every object)
+		FreeSpaceIndex freeSpace = getFreeSpaceIndex();
+		int index = -1;
 		for (AbstractObject object : allObjects) {
+			index++;
 			if (!object.isAlive() && object.canRespawn()) {
 				Position newPosition = null;
 				
@@ -905,7 +1626,17 @@ public class Toroidal2DPhysics {
 
 					// ensure their starting location is free (to handle the thought bug the class
 					// introduced of putting a ship or a base where the flag should spawn)
+					Position startingPosition = newPosition.deepCopy();
+					int attempts = 1;
 					while (!this.isLocationFree(newPosition, flag.getRadius())) {
+						if (attempts++ == MAX_FREE_LOCATION_ATTEMPTS) {
+							Position freeLocation = pickFreeLatticePoint(random, flag.getRadius(), startingPosition, 
+									flag.getRadius() * 10.0, flag.getRadius() * 10.0, Double.MAX_VALUE);
+							if (freeLocation != null) {
+								newPosition = freeLocation;
+								break;
+							}
+						}
 						double offset = ((random.nextDouble() * 2.0) - 1.0) * (flag.getRadius() * 5.0);
 						newPosition.setX(newPosition.getX() + offset);
 						offset = ((random.nextDouble() * 2.0) - 1.0) * (flag.getRadius() * 5.0);
@@ -917,12 +1648,13 @@ public class Toroidal2DPhysics {
 				}
 				
 				object.setPosition(newPosition);
+				freeSpace.objectMoved(index);
 				object.setAlive(true);
 				object.setDrawable(true);
 
 				// reset the UUID if it is a asteroid or beacon
 				if (object instanceof Asteroid || object instanceof Beacon) {
-					object.resetId();
+					object.resetId(newObjectId());
 				}
 
 				// make moveable asteroids move again when they respawn
@@ -931,12 +1663,31 @@ public class Toroidal2DPhysics {
                     object.getPosition().setTranslationalVelocity(randomMotion);
                 }
 
+				if (eventBus != null) {
+					eventBus.publish(SimulationEvent.Type.RESPAWN, getTeamName(object), object.getId(), null, 1);
+				}
+
 			}
 		}
 		
 
 	}
 
+	/**
+	 * The team an object belongs to (for the events)
+	 * 
+	 * @param object
+	 * @return the name of the team or null for objects that don't belong to a team
+	 */
+	private static String getTeamName(AbstractObject object) {
+		if (object instanceof AbstractActionableObject) {
+			return ((AbstractActionableObject) object).getTeamName();
+		} else if (object instanceof Flag) {
+			return ((Flag) object).getTeamName();
+		}
+		return null;
+	}
+
 	/**
 	 * Clones all the objects in space (used for security so the teams can't manipulate other ships)
 	 * +
@@ -954,6 +1705,55 @@ public class Toroidal2DPhysics {
 		return newSpace;
 	}
 
+	/**
+	 * Make a read-only snapshot of space for one team for one phase of a time step.  Every
+	 * object is deep cloned (so the client can't change the simulator) and the snapshot can't
+	 * have objects added or removed, but the cloned objects themselves can still be changed.
+	 * So a snapshot must never be handed to more than one team: each team gets its own, and
+	 * a time step still clones space once per team in every team phase.
+	 * 
+	 * Calling deepClone on a snapshot returns a normal (modifiable) copy of space.
+	 * 
+	 * @return a read-only copy of space
+	 */
+	public Toroidal2DPhysics createReadOnlySnapshot() {
+		Toroidal2DPhysics snapshot = deepClone();
+		snapshot.readOnly = true;
+		snapshot.allObjectsView = Collections.unmodifiableSet(snapshot.allObjects);
+		snapshot.beaconsView = Collections.unmodifiableSet(snapshot.beacons);
+		snapshot.asteroidsView = Collections.unmodifiableSet(snapshot.asteroids);
+		snapshot.basesView = Collections.unmodifiableSet(snapshot.bases);
+		snapshot.shipsView = Collections.unmodifiableSet(snapshot.ships);
+		snapshot.flagsView = Collections.unmodifiableSet(snapshot.flags);
+		snapshot.weaponsView = Collections.unmodifiableSet(snapshot.weapons);
+		snapshot.teamInfo = Collections.unmodifiableSet(snapshot.teamInfo);
+		return snapshot;
+	}
+
+	/**
+	 * Is this a read-only snapshot of space?
+	 * @return
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * Replace the copy of an object inside a snapshot with a fresh clone of the
+	 * original.  Used to keep a snapshot up to date when only a few objects change
+	 * instead of making a new snapshot.
+	 * 
+	 * @param snapshot the read-only snapshot to update
+	 * @param object the (simulator) object that has changed
+	 */
+	void refreshSnapshotObject(Toroidal2DPhysics snapshot, AbstractObject object) {
+		AbstractObject oldObject = snapshot.objectsById.get(object.getId());
+		if (oldObject != null) {
+			snapshot.deleteObject(oldObject);
+		}
+		snapshot.insertObject(object.deepClone());
+	}
+
 	/**
 	 * Loop through all weapons and remove any dead ones
 	 */
@@ -985,7 +1785,7 @@ public class Toroidal2DPhysics {
 	 * @return
 	 */
 	public Set<AbstractObject> getAllObjects() {
-		return allObjects;
+		return readOnly ? allObjectsView : allObjects;
 	}
 
 	/**
@@ -1000,39 +1800,119 @@ public class Toroidal2DPhysics {
 	 * @return Whether or not a straight line path between two positions contains obstructions from a given set
 	 */
 	public boolean isPathClearOfObstructions(Position startPosition, Position goalPosition, Set<AbstractObject> obstructions, int freeRadius) {
-		Vector2D pathToGoal = findShortestDistanceVector(startPosition,  goalPosition); 	// Shortest straight line path from startPosition to goalPosition
-		double distanceToGoal = pathToGoal.getMagnitude();										// Distance of straight line path
+		double pathX = findShortestDeltaX(startPosition, goalPosition);	// Shortest straight line path from startPosition to goalPosition
+		double pathY = findShortestDeltaY(startPosition, goalPosition);
+		double pathLengthSq = pathX * pathX + pathY * pathY;
 
-		boolean pathIsClear = true; // Boolean showing whether or not the path is clear
-		
-		// Calculate distance between obstruction center and path (including buffer for ship movement)
-		// Uses hypotenuse * sin(theta) = opposite (on a right hand triangle)
-		Vector2D pathToObstruction; // Vector from start position to obstruction
-		double angleBetween; 		// Angle between vector from start position to obstruction
-		
 		// Loop through obstructions
 		for (AbstractObject obstruction: obstructions) {
-			// If the distance to the obstruction is greater than the distance to the end goal, ignore the obstruction
-			pathToObstruction = findShortestDistanceVector(startPosition, obstruction.getPosition());
-		    if (pathToObstruction.getMagnitude() > distanceToGoal) {
-				continue;
+			if (isObstructingPath(startPosition, pathX, pathY, pathLengthSq, obstruction, freeRadius * 1.5)) {
+				return false;
 			}
-		    
-			// Ignore angles > 90 degrees
-			angleBetween = Math.abs(pathToObstruction.angleBetween(pathToGoal));
-			if (angleBetween > Math.PI/2) {
-				continue;
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Check many straight line paths against the same set of obstructions at once (each path 
+	 * gets the same answer as isPathClearOfObstructions).  The obstructions are put into a 
+	 * spatial hash grid once so each path only looks at the obstructions near it.
+	 * 
+	 * @param startPositions the starting location of each path
+	 * @param goalPositions the ending location of each path (one for each start)
+	 * @param obstructions the objects that block the paths
+	 * @param freeRadius used to determine free space buffer size
+	 * @return the paths that are clear (bit i is set if the path from start i to goal i is clear)
+	 */
+	public BitSet arePathsClearOfObstructions(List<Position> startPositions, List<Position> goalPositions, 
+			Set<AbstractObject> obstructions, int freeRadius) {
+		if (startPositions.size() != goalPositions.size()) {
+			throw new IllegalArgumentException("There are " + startPositions.size() + " start positions but " + 
+					goalPositions.size() + " goal positions");
+		}
+
+		BitSet clearPaths = new BitSet(startPositions.size());
+		if (obstructions.isEmpty()) {
+			clearPaths.set(0, startPositions.size());
+			return clearPaths;
+		}
+
+		AbstractObject[] obstructionArray = obstructions.toArray(new AbstractObject[obstructions.size()]);
+		SpatialHashGrid grid = new SpatialHashGrid(width, height);
+		grid.rebuild(obstructionArray, obstructionArray.length, true);
+		int[] candidates = new int[obstructionArray.length];
+		double freeBuffer = freeRadius * 1.5;
+		double maxClearance = grid.getMaxRadius() + freeBuffer;
+
+		for (int i = 0; i < startPositions.size(); i++) {
+			Position startPosition = startPositions.get(i);
+			double pathX = findShortestDeltaX(startPosition, goalPositions.get(i));
+			double pathY = findShortestDeltaY(startPosition, goalPositions.get(i));
+			double pathLengthSq = pathX * pathX + pathY * pathY;
+
+			// anything that can block the path is within this distance of the middle of the path
+			double reach = Math.sqrt(pathLengthSq / 4 + maxClearance * maxClearance);
+			int count = grid.findCandidates(startPosition.getX() + pathX / 2, startPosition.getY() + pathY / 2, 
+					reach, candidates);
+
+			boolean pathIsClear = true;
+			for (int c = 0; c < count; c++) {
+				if (isObstructingPath(startPosition, pathX, pathY, pathLengthSq, obstructionArray[candidates[c]], freeBuffer)) {
+					pathIsClear = false;
+					break;
+				}
 			}
 
-			// Compare distance between obstruction and path with buffer distance
-			if (pathToObstruction.getMagnitude() * Math.sin(angleBetween) < obstruction.getRadius() + freeRadius*1.5) {
-				pathIsClear = false;
-				break;
+			if (pathIsClear) {
+				clearPaths.set(i);
 			}
 		}
-		
-		return pathIsClear;
-		
+
+		return clearPaths;
+	}
+
+	/**
+	 * Is an obstruction in the way of a straight line path?  Obstructions further from the start
+	 * than the goal or behind the start are ignored and the rest block the path if their center is 
+	 * closer to it than their radius plus the buffer.  Only squared distances are used (no
+	 * trigonometry or square roots).
+	 * 
+	 * @param startPosition the starting location of the path
+	 * @param pathX the shortest path from the start to the goal
+	 * @param pathY
+	 * @param pathLengthSq the squared length of the path
+	 * @param obstruction
+	 * @param freeBuffer the distance to keep from the obstruction
+	 * @return true if the obstruction blocks the path
+	 */
+	private boolean isObstructingPath(Position startPosition, double pathX, double pathY, double pathLengthSq, 
+			AbstractObject obstruction, double freeBuffer) {
+		double obstructionX = findShortestDeltaX(startPosition, obstruction.getPosition());
+		double obstructionY = findShortestDeltaY(startPosition, obstruction.getPosition());
+		double distanceSq = obstructionX * obstructionX + obstructionY * obstructionY;
+
+		// If the distance to the obstruction is greater than the distance to the end goal, ignore the obstruction
+		if (distanceSq > pathLengthSq) {
+			return false;
+		}
+
+		// an obstruction right at the start is always in the way
+		if (distanceSq == 0) {
+			return true;
+		}
+
+		// Ignore obstructions at 90 degrees or more from the path
+		double along = obstructionX * pathX + obstructionY * pathY;
+		if (along <= 0) {
+			return false;
+		}
+
+		// the obstruction is no further away than the goal, so the closest point of the path is 
+		// beside it and the squared distance between them is cross^2 / pathLengthSq
+		double cross = obstructionX * pathY - obstructionY * pathX;
+		double clearance = obstruction.getRadius() + freeBuffer;
+		return cross * cross < clearance * clearance * pathLengthSq;
 	}
 
 	/**
@@ -1051,6 +1931,16 @@ public class Toroidal2DPhysics {
 		return teamInfo;
 	}
 
+	/**
+	 * Publish the events in space (collisions, deaths, and respawns) to the simulator's bus
+	 * (only the simulator's own space has a bus, copies of it don't publish anything)
+	 * @param eventBus
+	 */
+	public void setEventBus(SimulationEventBus eventBus) {
+		this.eventBus = eventBus;
+		collisionHandler.setEventBus(eventBus);
+	}
+
 
 
 	
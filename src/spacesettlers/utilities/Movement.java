@@ -53,6 +53,32 @@ public final class Movement {
 		}
 	}
 
+	/**
+	 * Set the acceleration and respect the max/mins, writing into this movement's own
+	 * vector instead of keeping a new one
+	 * @param translationalAccelerationX
+	 * @param translationalAccelerationY
+	 */
+	public void setTranslationalAcceleration(double translationalAccelerationX, double translationalAccelerationY) {
+		translationalAcceleration.set(clampTranslationalAcceleration(translationalAccelerationX), 
+				clampTranslationalAcceleration(translationalAccelerationY));
+	}
+
+	/**
+	 * Respect the max/mins of one component of the translational acceleration
+	 * @param acceleration
+	 * @return
+	 */
+	private static double clampTranslationalAcceleration(double acceleration) {
+		if (acceleration > MAX_TRANSLATIONAL_ACCELERATION) {
+			return MAX_TRANSLATIONAL_ACCELERATION;
+		} else if (acceleration < -MAX_TRANSLATIONAL_ACCELERATION) {
+			return -MAX_TRANSLATIONAL_ACCELERATION;
+		} else {
+			return acceleration;
+		}
+	}
+
 	public double getAngularAccleration() {
 		return angularAccleration;
 	}
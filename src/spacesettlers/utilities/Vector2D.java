@@ -133,6 +133,18 @@ public final class Vector2D implements Serializable, Cloneable {
     	this.y = y;
     }
     
+    /**
+     * Set both values (and forget the cached magnitude), for reusing a vector
+     * instead of making a new one
+     * @param x
+     * @param y
+     */
+    public void set(double x, double y) {
+    	this.x = x;
+    	this.y = y;
+    	magnitude = Double.NaN;
+    }
+    
     /**
      * return the unit vector
      * @return
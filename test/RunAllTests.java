@@ -1,7 +1,9 @@
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import dani6621.Dani6621Tests;
 import spacesettlers.actions.ActionTests;
+import spacesettlers.clients.TestTeamWorker;
 import spacesettlers.simulator.SimulatorTests;
 import spacesettlers.utilities.UtilitiesTest;
 import spacesettlers.ladder.TestLadder;
@@ -10,8 +12,10 @@ import spacesettlers.ladder.TestLadder;
 @Suite.SuiteClasses({
   ActionTests.class,
   SimulatorTests.class,
+  TestTeamWorker.class,
   TestLadder.class,
   UtilitiesTest.class,
+  Dani6621Tests.class,
 })
 
 public class RunAllTests {
@@ -0,0 +1,17 @@
+package dani6621;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+  TestGridSearchEngine.class,
+  TestHierarchicalSearchEngine.class,
+  TestPathCache.class,
+  TestPersistentMap.class,
+  TestPlanner.class,
+})
+
+public class Dani6621Tests {
+
+}
@@ -0,0 +1,192 @@
+package dani6621;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.simulator.Toroidal2DPhysics;
+import spacesettlers.utilities.Position;
+
+/**
+ * Checks the costs of the A* search against Dijkstra's algorithm over the
+ * same connections
+ */
+public class TestGridSearchEngine {
+
+	/**
+	 * Size of space used by the tests
+	 */
+	private static final int HEIGHT = 1080;
+	private static final int WIDTH = 1600;
+
+	/**
+	 * Function will make a map with random asteroids and every connection formed
+	 *
+	 * @param random the random number generator
+	 * @param count the number of asteroids
+	 * @return the map
+	 */
+	private NavigationMap buildMap(Random random, int count) {
+		Toroidal2DPhysics space = new Toroidal2DPhysics(HEIGHT, WIDTH, 0.05);
+		Set<AbstractObject> obstacles = new HashSet<AbstractObject>();
+		for(int i = 0; i < count; ++i) {
+			Asteroid asteroid = new Asteroid(new Position(random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT),
+					false, 10 + random.nextInt(20), false, 0, 0, 0);
+			space.addObject(asteroid);
+			obstacles.add(asteroid);
+		}
+
+		NavigationMap map = new NavigationMap(space, false);
+		map.update(space, obstacles);
+		for(int index = 0; index < map.getVertexCount(); ++index) {
+			map.formConnections(index);
+		}
+		return map;
+	}
+
+	/**
+	 * Function will find the cost of the cheapest path with Dijkstra's algorithm
+	 *
+	 * @param map the map with its connections formed
+	 * @param startIndex the index of the start vertex
+	 * @param goalIndex the index of the goal vertex
+	 * @return the cost, or -1 if the goal can't be reached
+	 */
+	private int dijkstraCost(NavigationMap map, int startIndex, int goalIndex) {
+		int[] cost = new int[map.getVertexCount()];
+		Arrays.fill(cost, Integer.MAX_VALUE);
+		PriorityQueue<Long> open = new PriorityQueue<Long>(); // Cost in the high bits, vertex in the low bits
+		cost[startIndex] = 0;
+		open.add(Long.valueOf(startIndex));
+
+		while(!(open.isEmpty())) {
+			long entry = open.poll();
+			int index = (int) entry;
+			if((int) (entry >>> 32) != cost[index]) // Already found cheaper
+				continue;
+			if(index == goalIndex)
+				return cost[index];
+
+			for(int direction = 0; direction < NavigationMap.DIRECTIONS; ++direction) {
+				if(!(map.isConnected(index, direction)))
+					continue;
+				int neighbor = map.getNeighborIndex(index, direction);
+				int neighborCost = cost[index] + map.getConnectionWeight(index, direction);
+				if(neighborCost < cost[neighbor]) {
+					cost[neighbor] = neighborCost;
+					open.add(((long) neighborCost << 32) | neighbor);
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Function will check that the parents lead back to the start over
+	 * connections that add up to the cost found
+	 *
+	 * @param map the map searched
+	 * @param engine the engine after the search
+	 * @param startIndex the index of the start vertex
+	 * @param foundIndex the index the search ended at
+	 */
+	private void assertPathMatchesCost(NavigationMap map, GridSearchEngine engine, int startIndex, int foundIndex) {
+		int cost = 0;
+		int index = foundIndex;
+		while(engine.getParent(index) != -1) {
+			int parent = engine.getParent(index);
+			int weight = -1;
+			for(int direction = 0; direction < NavigationMap.DIRECTIONS; ++direction) {
+				if(map.getNeighborIndex(parent, direction) == index && map.isConnected(parent, direction))
+					weight = map.getConnectionWeight(parent, direction);
+			}
+			assertTrue(weight > 0);
+			cost += weight;
+			index = parent;
+		}
+		assertEquals(startIndex, index);
+		assertEquals(engine.getGCost(foundIndex), cost);
+	}
+
+	/**
+	 * The costs of the paths found are the cheapest over the same connections
+	 */
+	@Test
+	public void testCostsMatchDijkstra() {
+		Random random = new Random(3);
+		NavigationMap map = buildMap(random, 40);
+		GridSearchEngine engine = map.getSearchEngine();
+		int found = 0;
+
+		for(int query = 0; query < 300; ++query) {
+			int start = random.nextInt(map.getVertexCount());
+			int goal = random.nextInt(map.getVertexCount());
+			int expected = dijkstraCost(map, start, goal);
+			int foundIndex = engine.aStarSearch(map, start, goal, 0, Integer.MAX_VALUE);
+
+			if(expected < 0) {
+				assertEquals(-1, foundIndex);
+				continue;
+			}
+			++found;
+			assertEquals(goal, foundIndex);
+			assertEquals("query " + query, expected, engine.getGCost(foundIndex));
+			assertPathMatchesCost(map, engine, start, foundIndex);
+		}
+		assertTrue(found > 200);
+	}
+
+	/**
+	 * The search only finds the cheapest path here by lowering the cost of a
+	 * vertex that is already open (the path found without that costs 747)
+	 */
+	@Test
+	public void testLowersCostOfOpenVertex() {
+		NavigationMap map = buildMap(new Random(7), 20);
+		GridSearchEngine engine = map.getSearchEngine();
+
+		int foundIndex = engine.aStarSearch(map, 550, 268, 0, Integer.MAX_VALUE);
+		assertEquals(268, foundIndex);
+		assertEquals(dijkstraCost(map, 550, 268), engine.getGCost(foundIndex));
+		assertEquals(736, engine.getGCost(foundIndex));
+		assertPathMatchesCost(map, engine, 550, foundIndex);
+	}
+
+	/**
+	 * Once the search stamp wraps around, the vertices closed by an earlier
+	 * search with the stamp that is reused must not count as closed
+	 */
+	@Test
+	public void testStampWrapsAround() throws Exception {
+		NavigationMap map = buildMap(new Random(5), 20);
+		GridSearchEngine engine = new GridSearchEngine(map.getVertexCount());
+		int start = map.getVertexIndex(2, 2);
+		int goal = map.getVertexIndex(30, 20);
+		assertTrue(dijkstraCost(map, start, goal) > 0);
+		assertTrue(dijkstraCost(map, goal, start) > 0);
+
+		// First search uses stamp 1 and closes most of the map
+		int foundIndex = engine.aStarSearch(map, goal, start, 0, Integer.MAX_VALUE);
+		assertEquals(start, foundIndex);
+
+		// Next search wraps the stamp around to 0, which starts over at 1
+		Field stamp = GridSearchEngine.class.getDeclaredField("stamp");
+		stamp.setAccessible(true);
+		stamp.setInt(engine, -1);
+		foundIndex = engine.aStarSearch(map, start, goal, 0, Integer.MAX_VALUE);
+		assertEquals(1, stamp.getInt(engine));
+		assertEquals(goal, foundIndex);
+		assertEquals(dijkstraCost(map, start, goal), engine.getGCost(foundIndex));
+		assertPathMatchesCost(map, engine, start, foundIndex);
+	}
+}
@@ -0,0 +1,183 @@
+package dani6621;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.simulator.Toroidal2DPhysics;
+import spacesettlers.utilities.Position;
+
+/**
+ * Checks the paths of the hierarchical search (and the grid search sharing
+ * its map) against a map built fresh for the same obstacles
+ */
+public class TestHierarchicalSearchEngine {
+
+	/**
+	 * Size of space used by the tests
+	 */
+	private static final int HEIGHT = 1080;
+	private static final int WIDTH = 1600;
+
+	/**
+	 * Function will place random asteroids in space
+	 *
+	 * @param space the space to add to
+	 * @param random the random number generator
+	 * @param count the number of asteroids
+	 * @return the asteroids
+	 */
+	private Set<AbstractObject> addAsteroids(Toroidal2DPhysics space, Random random, int count) {
+		Set<AbstractObject> obstacles = new HashSet<AbstractObject>();
+		for(int i = 0; i < count; ++i) {
+			Asteroid asteroid = new Asteroid(new Position(random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT),
+					false, 10 + random.nextInt(20), false, 0, 0, 0);
+			space.addObject(asteroid);
+			obstacles.add(asteroid);
+		}
+		return obstacles;
+	}
+
+	/**
+	 * Function will count the hops of a path that a freshly built map
+	 * doesn't have a connection for
+	 *
+	 * @param fresh a map built for the current obstacles only
+	 * @param path the vertices of the path
+	 * @return the number of bad hops
+	 */
+	private int countBadHops(NavigationMap fresh, int[] path) {
+		int badHops = 0;
+		for(int i = 1; i < path.length; ++i) {
+			fresh.formConnections(path[i - 1]);
+			boolean connected = false;
+			for(int direction = 0; direction < NavigationMap.DIRECTIONS; ++direction) {
+				if(fresh.getNeighborIndex(path[i - 1], direction) == path[i] && fresh.isConnected(path[i - 1], direction))
+					connected = true;
+			}
+			if(!(connected))
+				++badHops;
+		}
+		return badHops;
+	}
+
+	/**
+	 * Function will make a map for the obstacles with every connection formed
+	 *
+	 * @param space the space
+	 * @param obstacles the obstacles
+	 * @return the map
+	 */
+	private NavigationMap buildFreshMap(Toroidal2DPhysics space, Set<AbstractObject> obstacles) {
+		NavigationMap fresh = new NavigationMap(space, false);
+		fresh.update(space, obstacles);
+		return fresh;
+	}
+
+	/**
+	 * Every hop of a hierarchical path (and of the grid searches that share
+	 * the map afterwards) has to be a connection of a freshly built map,
+	 * including after obstacles move
+	 */
+	@Test
+	public void testPathsUseConnectionsOfFreshMap() {
+		for(long seed = 1; seed <= 2; ++seed) {
+			Random random = new Random(seed);
+			Toroidal2DPhysics space = new Toroidal2DPhysics(HEIGHT, WIDTH, 0.05);
+			Set<AbstractObject> obstacles = addAsteroids(space, random, 40);
+			NavigationMap map = new NavigationMap(space, false);
+			int vertexCount = map.getVertexCount();
+			int paths = 0;
+
+			for(int round = 0; round < 3; ++round) {
+				map.update(space, obstacles);
+				NavigationMap fresh = buildFreshMap(space, obstacles);
+
+				for(int query = 0; query < 100; ++query) {
+					int start = random.nextInt(vertexCount);
+					int goal = random.nextInt(vertexCount);
+					int[] path = map.getHierarchicalSearchEngine().search(start, goal);
+					if(path == null)
+						continue;
+
+					++paths;
+					assertEquals(start, path[0]);
+					assertEquals(goal, path[path.length - 1]);
+					assertEquals("seed " + seed + " round " + round + " query " + query, 0, countBadHops(fresh, path));
+				}
+
+				// The grid search shares the connections the hierarchical search formed
+				GridSearchEngine engine = map.getSearchEngine();
+				for(int query = 0; query < 50; ++query) {
+					int start = random.nextInt(vertexCount);
+					int foundIndex = engine.aStarSearch(map, start, random.nextInt(vertexCount), 0, Integer.MAX_VALUE);
+					if(foundIndex < 0)
+						continue;
+
+					int length = 0;
+					for(int index = foundIndex; index != -1; index = engine.getParent(index)) {
+						++length;
+					}
+					int[] path = new int[length];
+					for(int index = foundIndex; index != -1; index = engine.getParent(index)) {
+						path[--length] = index;
+					}
+					assertEquals(start, path[0]);
+					assertEquals(0, countBadHops(fresh, path));
+				}
+
+				// Move some of the asteroids so the map has to update around them
+				int moved = 0;
+				for(AbstractObject obstacle : obstacles) {
+					if(moved++ % 4 == 0)
+						obstacle.getPosition().setX(random.nextDouble() * WIDTH);
+				}
+			}
+			assertTrue(paths > 100);
+		}
+	}
+
+	/**
+	 * A search from a vertex too close to an obstacle can leave it, but the
+	 * other vertices can't be routed through it afterwards
+	 */
+	@Test
+	public void testBlockedVertexOnlyConnectsOneWay() {
+		Toroidal2DPhysics space = new Toroidal2DPhysics(HEIGHT, WIDTH, 0.05);
+		NavigationMap map = new NavigationMap(space, false);
+		int blocked = map.getVertexIndex(10, 10);
+		Position position = map.getPositionOfVertex(10, 10);
+
+		// Obstacle just off the vertex so it blocks it without blocking its neighbors' edges entirely
+		Asteroid asteroid = new Asteroid(new Position(position.getX() + 5, position.getY()), false, 4, false, 0, 0, 0);
+		space.addObject(asteroid);
+		Set<AbstractObject> obstacles = new HashSet<AbstractObject>();
+		obstacles.add(asteroid);
+		map.update(space, obstacles);
+		assertTrue(map.isBlocked(blocked));
+
+		map.formConnections(blocked);
+		for(int direction = 0; direction < NavigationMap.DIRECTIONS; ++direction) {
+			int neighbor = map.getNeighborIndex(blocked, direction);
+			map.formConnections(neighbor);
+			assertTrue(!(map.isConnected(neighbor, (NavigationMap.DIRECTIONS - 1) - direction)));
+		}
+
+		// Once the obstacle is gone the vertex connects both ways again
+		map.update(space, new HashSet<AbstractObject>());
+		assertTrue(!(map.isBlocked(blocked)));
+		map.formConnections(blocked);
+		for(int direction = 0; direction < NavigationMap.DIRECTIONS; ++direction) {
+			int neighbor = map.getNeighborIndex(blocked, direction);
+			assertTrue(map.isConnected(blocked, direction));
+			assertTrue(map.isConnected(neighbor, (NavigationMap.DIRECTIONS - 1) - direction));
+		}
+	}
+}
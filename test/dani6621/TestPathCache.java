@@ -0,0 +1,131 @@
+package dani6621;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.simulator.Toroidal2DPhysics;
+import spacesettlers.utilities.Position;
+import spacesettlers.utilities.Vector2D;
+
+/**
+ * Checks that the path cache only gives back paths that can still be followed
+ */
+public class TestPathCache {
+
+	/**
+	 * Size of space used by the tests
+	 */
+	private static final int HEIGHT = 1080;
+	private static final int WIDTH = 1600;
+
+	private Toroidal2DPhysics space;
+	private NavigationMap map;
+	private PathCache cache;
+
+	/**
+	 * A path along a row that turns back diagonally after its fourth vertex
+	 */
+	private int[] path;
+
+	@Before
+	public void setUp() {
+		space = new Toroidal2DPhysics(HEIGHT, WIDTH, 0.05);
+		map = new NavigationMap(space, false);
+		map.update(space, new HashSet<AbstractObject>());
+		cache = map.getPathCache();
+
+		path = new int[] {map.getVertexIndex(10, 10), map.getVertexIndex(11, 10), map.getVertexIndex(12, 10),
+				map.getVertexIndex(13, 10), map.getVertexIndex(12, 11), map.getVertexIndex(11, 12)};
+		for(int index : path) {
+			map.formConnections(index);
+		}
+	}
+
+	/**
+	 * Function will check that each hop of the path is connected
+	 *
+	 * @param vertexPath the vertices of the path
+	 * @return <code>true</code> if every hop is connected
+	 */
+	private boolean isConnectedPath(int[] vertexPath) {
+		for(int i = 1; i < vertexPath.length; ++i) {
+			boolean connected = false;
+			for(int direction = 0; direction < NavigationMap.DIRECTIONS; ++direction) {
+				if(map.getNeighborIndex(vertexPath[i - 1], direction) == vertexPath[i] && map.isConnected(vertexPath[i - 1], direction))
+					connected = true;
+			}
+			if(!(connected))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * A path is found from any vertex along it while nothing changed
+	 */
+	@Test
+	public void testPathFoundFromEveryVertexAlongIt() {
+		assertTrue(isConnectedPath(path));
+		int goal = path[path.length - 1];
+		cache.put(goal, path);
+
+		for(int i = 0; i < path.length - 1; ++i) {
+			int[] found = cache.get(path[i], goal);
+			assertEquals(path.length - i, found.length);
+			assertEquals(path[i], found[0]);
+		}
+		assertEquals(path.length - 1, cache.getHits());
+		assertEquals(0, cache.getMisses());
+
+		// An update that doesn't touch the path keeps it
+		Set<AbstractObject> obstacles = new HashSet<AbstractObject>();
+		Asteroid asteroid = new Asteroid(map.getPositionOfVertex(30, 20), false, 10, false, 0, 0, 0);
+		space.addObject(asteroid);
+		obstacles.add(asteroid);
+		map.update(space, obstacles);
+		assertArrayEquals(path, cache.get(path[0], goal));
+	}
+
+	/**
+	 * Blocking a vertex in the middle of the path also removes the edge into it from the
+	 * vertex before, even when the obstacle is too far from that vertex to reset it
+	 */
+	@Test
+	public void testMissWhenInteriorVertexIsBlocked() {
+		int goal = path[path.length - 1];
+		cache.put(goal, path);
+		assertArrayEquals(path, cache.get(path[0], goal));
+
+		// Just past the turn, on the far side from the vertex before it
+		int previous = path[2];
+		int blocked = path[3];
+		Position previousPosition = map.getPositionOfVertex(12, 10);
+		Position blockedPosition = map.getPositionOfVertex(13, 10);
+		Vector2D step = space.findShortestDistanceVector(previousPosition, blockedPosition);
+		Position obstaclePosition = new Position(blockedPosition.getX() + step.getXValue() * 25 / NavigationMap.SPACING,
+				blockedPosition.getY() + step.getYValue() * 25 / NavigationMap.SPACING);
+		int previousReset = map.getLastReset(previous);
+
+		Asteroid asteroid = new Asteroid(obstaclePosition, false, 4, false, 0, 0, 0);
+		space.addObject(asteroid);
+		Set<AbstractObject> obstacles = new HashSet<AbstractObject>();
+		obstacles.add(asteroid);
+		map.update(space, obstacles);
+		assertTrue(map.isBlocked(blocked));
+		assertEquals(previousReset, map.getLastReset(previous));
+
+		int misses = cache.getMisses();
+		assertNull(cache.get(path[0], goal));
+		assertEquals(misses + 1, cache.getMisses());
+	}
+}
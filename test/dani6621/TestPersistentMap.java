@@ -0,0 +1,110 @@
+package dani6621;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the persistent map against a <code>HashMap</code>, including the
+ * versions of the map from before later changes
+ */
+public class TestPersistentMap {
+
+	/**
+	 * Function will check that the map has exactly the keys and values of
+	 * the expected map
+	 *
+	 * @param expected the expected keys and values
+	 * @param map the map to check
+	 * @param keyRange the keys are all less than this
+	 */
+	private void assertSameContents(Map<Integer, Integer> expected, PersistentMap<Integer, Integer> map, int keyRange) {
+		assertEquals(expected.size(), map.size());
+		for(int key = 0; key < keyRange; ++key) {
+			assertEquals(expected.get(key), map.get(key));
+			assertEquals(expected.containsKey(key), map.containsKey(key));
+		}
+	}
+
+	/**
+	 * Random puts and removes give the same map as a <code>HashMap</code>, and
+	 * every version kept along the way still has its old contents afterwards
+	 */
+	@Test
+	public void testMatchesHashMapAndKeepsOldVersions() {
+		Random random = new Random(11);
+		int keyRange = 500;
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		PersistentMap<Integer, Integer> map = PersistentMap.empty();
+		List<Map<Integer, Integer>> expectedVersions = new ArrayList<Map<Integer, Integer>>();
+		List<PersistentMap<Integer, Integer>> versions = new ArrayList<PersistentMap<Integer, Integer>>();
+
+		for(int operation = 0; operation < 100000; ++operation) {
+			Integer key = random.nextInt(keyRange);
+			if(random.nextInt(3) == 0) {
+				expected.remove(key);
+				map = map.remove(key);
+			}
+			else {
+				Integer value = random.nextInt(10);
+				expected.put(key, value);
+				map = map.put(key, value);
+			}
+			assertEquals(expected.get(key), map.get(key));
+			assertEquals(expected.size(), map.size());
+
+			if(operation % 1000 == 0) {
+				expectedVersions.add(new HashMap<Integer, Integer>(expected));
+				versions.add(map);
+			}
+		}
+		assertSameContents(expected, map, keyRange);
+
+		// Later changes don't show up in the versions kept
+		for(int i = 0; i < versions.size(); ++i) {
+			assertSameContents(expectedVersions.get(i), versions.get(i), keyRange);
+		}
+	}
+
+	/**
+	 * Changes that don't change anything give back the same map
+	 */
+	@Test
+	public void testUnchangedMapIsReused() {
+		Integer value = Integer.valueOf(1000);
+		PersistentMap<Integer, Integer> map = PersistentMap.<Integer, Integer>empty().put(1, value).put(2, 3);
+
+		assertSame(map, map.put(1, value));
+		assertSame(map, map.remove(5));
+		assertTrue(map != map.put(1, Integer.valueOf(1000)));
+		assertEquals(0, PersistentMap.<Integer, Integer>empty().size());
+	}
+
+	/**
+	 * Keys with the same hash code (and so the same priority) are still
+	 * kept apart
+	 */
+	@Test
+	public void testKeysWithSameHashCode() {
+		PersistentMap<String, Integer> map = PersistentMap.empty();
+		map = map.put("Aa", 1).put("BB", 2).put("AaAa", 3).put("BBBB", 4).put("AaBB", 5);
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+
+		PersistentMap<String, Integer> removed = map.remove("BB");
+		assertEquals(5, map.size());
+		assertEquals(Integer.valueOf(2), map.get("BB"));
+		assertEquals(4, removed.size());
+		assertNull(removed.get("BB"));
+		assertEquals(Integer.valueOf(1), removed.get("Aa"));
+		assertEquals(Integer.valueOf(5), removed.get("AaBB"));
+	}
+}
@@ -0,0 +1,220 @@
+package dani6621;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.clients.DoNothingTeamClient;
+import spacesettlers.clients.Team;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Base;
+import spacesettlers.objects.Ship;
+import spacesettlers.objects.resources.ResourcePile;
+import spacesettlers.simulator.Toroidal2DPhysics;
+import spacesettlers.utilities.Position;
+
+/**
+ * Checks the asteroid gathering plans of the planner, with and without a
+ * planning budget that runs out
+ */
+public class TestPlanner {
+
+	/**
+	 * Name of the team the planner plans for
+	 */
+	private static final String TEAM_NAME = "dani6621";
+
+	/**
+	 * Number of asteroids in space, each with 300 resources (so three fill a ship)
+	 */
+	private static final int ASTEROIDS = 10;
+
+	private Toroidal2DPhysics space;
+	private Planner planner;
+	private Ship shipOne;
+	private Ship shipTwo;
+	private Base base;
+
+	/**
+	 * The asteroids, closest to the ships first
+	 */
+	private List<Asteroid> asteroids;
+
+	@Before
+	public void setUp() {
+		WorldKnowledge.setTeamName(TEAM_NAME);
+		space = new Toroidal2DPhysics(1080, 1600, 0.05);
+
+		DoNothingTeamClient client = new DoNothingTeamClient();
+		client.setTeamName(TEAM_NAME);
+		client.setTeamColor(Color.RED);
+		Team team = new Team(client, TEAM_NAME, 4);
+		base = new Base(new Position(100, 100), TEAM_NAME, team, true);
+		space.addObject(base);
+
+		// Both ships start in the same place so they want the same asteroids
+		shipOne = new Ship(TEAM_NAME, Color.RED, new Position(200, 500));
+		shipTwo = new Ship(TEAM_NAME, Color.RED, new Position(200, 500));
+		space.addObject(shipOne);
+		space.addObject(shipTwo);
+
+		asteroids = new ArrayList<Asteroid>();
+		for(int i = 0; i < ASTEROIDS; ++i) {
+			Asteroid asteroid = new Asteroid(new Position(300 + i * 100, 500), true, 10, false, new ResourcePile(100, 100, 100));
+			space.addObject(asteroid);
+			asteroids.add(asteroid);
+		}
+
+		planner = new Planner(new StateRepresentation());
+		planner.assignShipToActionQueue(shipOne.getId());
+		planner.assignShipToActionQueue(shipTwo.getId());
+	}
+
+	/**
+	 * Function will use up the planning budget so each search only
+	 * expands one node before it stops
+	 */
+	private void runOutOfPlanningTime() throws InterruptedException {
+		planner.setPlanningBudget(1);
+		planner.startPlanningStep();
+		Thread.sleep(5);
+	}
+
+	/**
+	 * Function will retrieve the goal objects of the actions planned for a ship
+	 *
+	 * @param shipID the UUID of the ship
+	 * @return the goal objects in the order they are performed
+	 */
+	private List<UUID> getPlannedGoals(UUID shipID) {
+		List<UUID> goals = new ArrayList<UUID>();
+		for(Planner.HighLevelAction action : planner.getPlannedActions(shipID)) {
+			goals.add(action.goalObject);
+		}
+		return goals;
+	}
+
+	/**
+	 * Function will create the goal objects of a plan to get the asteroids
+	 * and return them to the base
+	 *
+	 * @param first the first asteroid of the plan
+	 * @return the goal objects
+	 */
+	private List<UUID> asteroidPlan(int first) {
+		List<UUID> goals = new ArrayList<UUID>();
+		for(int i = first; i < first + 3; ++i) {
+			goals.add(asteroids.get(i).getId());
+		}
+		goals.add(base.getId());
+		return goals;
+	}
+
+	/**
+	 * Without a budget the search finishes at once, with the closest
+	 * asteroids until the ship is full, then the base
+	 */
+	@Test
+	public void testZeroBudgetFinishesPlan() {
+		planner.formulatePlan(space, shipOne.getId());
+
+		assertFalse(planner.isPlanUnfinished(shipOne.getId()));
+		assertEquals(asteroidPlan(0), getPlannedGoals(shipOne.getId()));
+		List<Planner.HighLevelAction> plan = planner.getPlannedActions(shipOne.getId());
+		assertEquals(Planner.ActionEnum.GET_ASTEROID, plan.get(0).actionType);
+		assertEquals(Planner.ActionEnum.RETURN_TO_BASE, plan.get(3).actionType);
+	}
+
+	/**
+	 * A search out of time hands out the longest plan it found so far and
+	 * continues from its frontier on the next step, ending with the same plan
+	 * as a search without a budget
+	 */
+	@Test
+	public void testOutOfTimeGivesPartialPlanThenResumes() throws InterruptedException {
+		runOutOfPlanningTime();
+		planner.formulatePlan(space, shipOne.getId());
+		assertTrue(planner.isPlanUnfinished(shipOne.getId()));
+		assertEquals(0, planner.getPlannedActions(shipOne.getId()).size()); // Only the root was expanded
+
+		List<UUID> fullPlan = asteroidPlan(0);
+		for(int length = 1; length <= 3; ++length) {
+			planner.resumeUnfinishedPlans(space);
+			assertTrue(planner.isPlanUnfinished(shipOne.getId()));
+			assertEquals(fullPlan.subList(0, length), getPlannedGoals(shipOne.getId()));
+		}
+
+		planner.resumeUnfinishedPlans(space);
+		assertFalse(planner.isPlanUnfinished(shipOne.getId()));
+		assertEquals(fullPlan, getPlannedGoals(shipOne.getId()));
+	}
+
+	/**
+	 * A search whose partial plan was replaced by another ship's plan starts
+	 * over from the new state instead of taking the other ship's asteroids
+	 */
+	@Test
+	public void testResumedSearchRestartsWhenStateReplaced() throws InterruptedException {
+		runOutOfPlanningTime();
+		planner.formulatePlan(space, shipOne.getId());
+		planner.resumeUnfinishedPlans(space);
+		planner.resumeUnfinishedPlans(space);
+		assertEquals(asteroidPlan(0).subList(0, 2), getPlannedGoals(shipOne.getId()));
+
+		// The other ship plans around the partial plan (two asteroids taken)
+		planner.setPlanningBudget(0);
+		planner.formulatePlan(space, shipTwo.getId());
+		assertEquals(asteroidPlan(2), getPlannedGoals(shipTwo.getId()));
+
+		// Starting over only expands the root again
+		runOutOfPlanningTime();
+		planner.resumeUnfinishedPlans(space);
+		assertTrue(planner.isPlanUnfinished(shipOne.getId()));
+		assertEquals(0, planner.getPlannedActions(shipOne.getId()).size());
+
+		for(int step = 0; step < 10 && planner.isPlanUnfinished(shipOne.getId()); ++step) {
+			planner.resumeUnfinishedPlans(space);
+		}
+		assertFalse(planner.isPlanUnfinished(shipOne.getId()));
+		Set<UUID> shared = new HashSet<UUID>(getPlannedGoals(shipOne.getId()));
+		shared.retainAll(getPlannedGoals(shipTwo.getId()));
+		shared.remove(base.getId());
+		assertTrue(shared.isEmpty());
+	}
+
+	/**
+	 * Actions the ship completed from a partial plan aren't handed out again,
+	 * by the longer partial plans or by the finished plan
+	 */
+	@Test
+	public void testCompletedActionsAreSkipped() throws InterruptedException {
+		runOutOfPlanningTime();
+		planner.formulatePlan(space, shipOne.getId());
+		planner.resumeUnfinishedPlans(space);
+		planner.resumeUnfinishedPlans(space);
+		List<UUID> fullPlan = asteroidPlan(0);
+		assertEquals(fullPlan.subList(0, 2), getPlannedGoals(shipOne.getId()));
+
+		// The ship mines the first asteroid
+		asteroids.get(0).setAlive(false);
+		planner.checkCurrentAction(space, shipOne.getId());
+		assertEquals(fullPlan.subList(1, 2), getPlannedGoals(shipOne.getId()));
+
+		planner.resumeUnfinishedPlans(space);
+		assertEquals(fullPlan.subList(1, 3), getPlannedGoals(shipOne.getId()));
+
+		planner.resumeUnfinishedPlans(space);
+		assertFalse(planner.isPlanUnfinished(shipOne.getId()));
+		assertEquals(fullPlan.subList(1, 4), getPlannedGoals(shipOne.getId()));
+	}
+}
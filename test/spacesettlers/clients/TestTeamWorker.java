@@ -0,0 +1,173 @@
+package spacesettlers.clients;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestTeamWorker {
+	TeamWorker worker;
+
+	@Before
+	public void setUp() throws Exception {
+		worker = new TeamWorker("testTeam");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		worker.shutdown();
+	}
+
+	@Test
+	public void testCallReturnsResult() {
+		Integer result = worker.call(new Callable<Integer>() {
+			public Integer call() {
+				return 42;
+			}
+		}, 1000, "testCallReturnsResult");
+		
+		assertEquals(42, result.intValue());
+		assertFalse(worker.isBusy());
+	}
+
+	@Test
+	public void testCallReusesThread() {
+		Callable<Thread> getThread = new Callable<Thread>() {
+			public Thread call() {
+				return Thread.currentThread();
+			}
+		};
+		
+		Thread first = worker.call(getThread, 1000, "testCallReusesThread");
+		Thread second = worker.call(getThread, 1000, "testCallReusesThread");
+		assertTrue(first == second);
+	}
+
+	@Test
+	public void testExceptionReturnsNull() {
+		Integer result = worker.call(new Callable<Integer>() {
+			public Integer call() {
+				throw new IllegalStateException("client crashed");
+			}
+		}, 1000, "testExceptionReturnsNull");
+		
+		assertNull(result);
+		assertFalse(worker.isBusy());
+	}
+
+	/**
+	 * A client that ignores the interrupt after a timeout keeps the worker busy
+	 * and is skipped until it returns
+	 */
+	@Test
+	public void testOverrunningClientIsSkipped() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		Integer result = worker.call(new Callable<Integer>() {
+			public Integer call() {
+				boolean done = false;
+				while (!done) {
+					try {
+						done = release.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						// ignore the interrupt like a badly behaved client
+					}
+				}
+				return 1;
+			}
+		}, 50, "testOverrunningClientIsSkipped");
+		assertNull(result);
+		assertTrue(worker.isBusy());
+		
+		Callable<Integer> quickCall = new Callable<Integer>() {
+			public Integer call() {
+				return 2;
+			}
+		};
+		
+		// still busy so this call is skipped
+		assertNull(worker.call(quickCall, 50, "testOverrunningClientIsSkipped"));
+		
+		// once the client returns, calls work again
+		release.countDown();
+		while (worker.isBusy()) {
+			Thread.sleep(5);
+		}
+		assertEquals(2, worker.call(quickCall, 1000, "testOverrunningClientIsSkipped").intValue());
+	}
+
+	/**
+	 * In turbo mode the client runs on the calling thread
+	 */
+	@Test
+	public void testDirectCallRunsOnCallingThread() {
+		worker.setDirect(true);
+		
+		Thread thread = worker.call(new Callable<Thread>() {
+			public Thread call() {
+				return Thread.currentThread();
+			}
+		}, 1, "testDirectCallRunsOnCallingThread");
+		assertTrue(thread == Thread.currentThread());
+		
+		Integer result = worker.call(new Callable<Integer>() {
+			public Integer call() {
+				throw new IllegalStateException("client crashed");
+			}
+		}, 1, "testDirectCallRunsOnCallingThread");
+		assertNull(result);
+		assertFalse(worker.isBusy());
+	}
+
+	@Test
+	public void testCallStatsCountTimeoutsAndErrors() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		Callable<Integer> slowCall = new Callable<Integer>() {
+			public Integer call() {
+				boolean done = false;
+				while (!done) {
+					try {
+						done = release.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						// ignore the interrupt so the worker stays busy
+					}
+				}
+				return 1;
+			}
+		};
+		Callable<Integer> badCall = new Callable<Integer>() {
+			public Integer call() {
+				throw new IllegalStateException("client crashed");
+			}
+		};
+
+		worker.call(badCall, 1000, "getTeamPurchases");
+		worker.call(slowCall, 20, "getTeamMovementStart");
+		worker.call(slowCall, 20, "getTeamMovementStart");
+		release.countDown();
+		while (worker.isBusy()) {
+			Thread.sleep(5);
+		}
+		worker.call(slowCall, 1000, "getTeamMovementStart");
+
+		Map<String, ClientCallStats> stats = worker.getCallStats();
+		ClientCallStats movementStats = stats.get("getTeamMovementStart");
+		assertEquals(2, movementStats.getNumCalls());
+		assertEquals(1, movementStats.getNumTimeouts());
+		assertEquals(1, movementStats.getNumSkipped());
+		assertTrue(movementStats.getMaxNanos() >= 20000000);
+
+		ClientCallStats purchaseStats = stats.get("getTeamPurchases");
+		assertEquals(1, purchaseStats.getNumCalls());
+		assertEquals(1, purchaseStats.getNumErrors());
+	}
+}
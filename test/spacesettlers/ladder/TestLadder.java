@@ -8,8 +8,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import spacesettlers.configs.BaseConfig;
 import spacesettlers.configs.HighLevelTeamConfig;
 import spacesettlers.configs.LadderConfig;
+import spacesettlers.configs.SpaceSettlersConfig;
 import spacesettlers.ladder.Ladder;
 
 public class TestLadder {
@@ -294,4 +296,41 @@ public class TestLadder {
 		assertEquals(ladder.calculateNChooseK(0, 0), 0, 0);
 	}
 
+	/**
+	 * Each game gets its own copy of the config so games can run at the same time
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testMatchConfigsAreIndependent() throws Exception {
+		ladderConfig.setMaximumNumberVariableTeams(1);
+		SpaceSettlersConfig simConfig = new SpaceSettlersConfig();
+		simConfig.setBases(new BaseConfig[]{new BaseConfig("base1"), new BaseConfig("base2")});
+		ladder.simConfig = simConfig;
+
+		ArrayList<HighLevelTeamConfig[]> clients = ladder.getAllClientsForAllMatches();
+		SpaceSettlersConfig match1 = ladder.createMatchConfig(clients.get(0));
+		SpaceSettlersConfig match2 = ladder.createMatchConfig(clients.get(1));
+
+		// the teams and bases are renamed for each game without changing the original
+		assertEquals("A", match1.getBases()[0].getTeamName());
+		assertEquals("B", match2.getBases()[0].getTeamName());
+		assertEquals("S1", match1.getBases()[1].getTeamName());
+		assertEquals("S2", match1.getBases()[2].getTeamName());
+		assertEquals("base1", simConfig.getBases()[0].getTeamName());
+
+		// the simulator changes the team configs so they can't be shared
+		assertNotSame(variableTeamConfig[0], match1.getTeams()[0]);
+		assertNotSame(match1.getTeams()[1], match2.getTeams()[1]);
+		match1.getTeams()[1].setInitialRegionULX(100);
+		assertEquals(0, match2.getTeams()[1].getInitialRegionULX());
+		assertEquals(0, staticTeamConfig[0].getInitialRegionULX());
+	}
+
+	@Test
+	public void testGameFileName() {
+		assertEquals("profile-game3.json", ladder.getGameFileName("profile.json", 3));
+		assertEquals("profile-game12", ladder.getGameFileName("profile", 12));
+	}
+
 }
@@ -7,6 +7,11 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
   TestToroidal2DPhysics.class,
   TestCollisionHandler.class,
+  TestCollisionNarrowPhase.class,
+  TestScoreKeeper.class,
+  TestSimulationEventBus.class,
+  TestSimulatorProfiler.class,
+  TestGameRecorder.class,
 })
 
 public class SimulatorTests {
@@ -0,0 +1,170 @@
+package spacesettlers.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.utilities.Position;
+
+public class TestCollisionNarrowPhase {
+	CollisionNarrowPhase narrowPhase;
+	Toroidal2DPhysics space;
+	int height = 480;
+	int width = 640;
+
+	@Before
+	public void setUp() throws Exception {
+		narrowPhase = new CollisionNarrowPhase(width, height);
+		space = new Toroidal2DPhysics(height, width, 0.05);
+	}
+
+	/**
+	 * Make an asteroid (any object with a position and radius will do)
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @return
+	 */
+	private Asteroid makeObject(double x, double y, int radius) {
+		return new Asteroid(new Position(x, y), false, radius, true, 0.3, 0.3, 0.4);
+	}
+
+	/**
+	 * The reference test the narrow phase has to agree with
+	 * @param object1
+	 * @param object2
+	 * @return
+	 */
+	private boolean referenceIsColliding(AbstractObject object1, AbstractObject object2) {
+		if (object1.equals(object2)) {
+			return false;
+		}
+		double distance = space.findShortestDistance(object1.getPosition(), object2.getPosition());
+		return distance < (object1.getRadius() + object2.getRadius());
+	}
+
+	@Test
+	public void testSameObjectNeverCollides() {
+		Asteroid asteroid = makeObject(100, 100, 10);
+		assertFalse(narrowPhase.isColliding(asteroid, asteroid));
+	}
+
+	@Test
+	public void testTouchingOnlyInsideTheRadii() {
+		// radii add up to 20
+		Asteroid asteroid1 = makeObject(100, 100, 10);
+
+		assertTrue(narrowPhase.isColliding(asteroid1, makeObject(119, 100, 10)));
+		assertFalse(narrowPhase.isColliding(asteroid1, makeObject(120, 100, 10)));
+		assertFalse(narrowPhase.isColliding(asteroid1, makeObject(100, 80, 10)));
+
+		// close on each axis but not along the diagonal
+		assertFalse(narrowPhase.isColliding(asteroid1, makeObject(115, 115, 10)));
+		assertTrue(narrowPhase.isColliding(asteroid1, makeObject(110, 110, 10)));
+	}
+
+	@Test
+	public void testCollidesAcrossWrappedEdges() {
+		Asteroid corner = makeObject(2, 2, 5);
+
+		assertTrue(narrowPhase.isColliding(corner, makeObject(width - 2, 2, 5)));
+		assertTrue(narrowPhase.isColliding(corner, makeObject(2, height - 2, 5)));
+		assertTrue(narrowPhase.isColliding(corner, makeObject(width - 2, height - 2, 5)));
+		assertFalse(narrowPhase.isColliding(corner, makeObject(width / 2, height / 2, 5)));
+	}
+
+	/**
+	 * Random pairs (many of them close together and many on the edges) have to give the
+	 * same answer as comparing the distance to the radii
+	 */
+	@Test
+	public void testMatchesDistanceComparison() {
+		Random rand = new Random(3);
+		int collisions = 0;
+
+		for (int i = 0; i < 100000; i++) {
+			double x = rand.nextDouble() * width;
+			double y = rand.nextDouble() * height;
+			Asteroid asteroid1 = makeObject(x, y, 1 + rand.nextInt(30));
+
+			// half the pairs are near each other (possibly across an edge)
+			double x2 = rand.nextBoolean() ? rand.nextDouble() * width : (x + rand.nextGaussian() * 30 + width) % width;
+			double y2 = rand.nextBoolean() ? rand.nextDouble() * height : (y + rand.nextGaussian() * 30 + height) % height;
+			Asteroid asteroid2 = makeObject(x2, y2, 1 + rand.nextInt(30));
+
+			boolean expected = referenceIsColliding(asteroid1, asteroid2);
+			assertEquals(expected, narrowPhase.isColliding(asteroid1, asteroid2));
+			assertEquals(expected, narrowPhase.isColliding(asteroid2, asteroid1));
+			if (expected) {
+				collisions++;
+			}
+		}
+
+		// make sure both answers were actually tested
+		assertTrue(collisions > 1000);
+	}
+
+	/**
+	 * Every pair of a world gives the same collisions as the distance comparison and the
+	 * narrow phase doesn't allocate anything (the timing is in the benchmarks)
+	 */
+	@Test
+	public void testAllPairsWithoutAllocating() {
+		Random rand = new Random(5);
+		int numObjects = 300;
+		AbstractObject[] objects = new AbstractObject[numObjects];
+		for (int i = 0; i < numObjects; i++) {
+			objects[i] = makeObject(rand.nextDouble() * width, rand.nextDouble() * height, 5 + rand.nextInt(20));
+		}
+
+		// run it a few times first so class loading and compiling aren't counted
+		int found = 0;
+		for (int round = 0; round < 5; round++) {
+			found = countNarrowPhaseCollisions(objects);
+		}
+
+		SimulatorProfiler profiler = new SimulatorProfiler();
+		profiler.beginStep();
+		for (int round = 0; round < 20; round++) {
+			found = countNarrowPhaseCollisions(objects);
+		}
+		profiler.endPhase(SimulatorProfiler.Phase.PHYSICS);
+		profiler.endStep();
+
+		assertEquals(countReferenceCollisions(objects), found);
+		if (profiler.isAllocationSupported()) {
+			assertTrue(profiler.getAllocatedBytes(SimulatorProfiler.Phase.PHYSICS) < 1024);
+		}
+	}
+
+	private int countReferenceCollisions(AbstractObject[] objects) {
+		int count = 0;
+		for (int i = 0; i < objects.length; i++) {
+			for (int j = i + 1; j < objects.length; j++) {
+				if (referenceIsColliding(objects[i], objects[j])) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private int countNarrowPhaseCollisions(AbstractObject[] objects) {
+		int count = 0;
+		for (int i = 0; i < objects.length; i++) {
+			for (int j = i + 1; j < objects.length; j++) {
+				if (narrowPhase.isColliding(objects[i], objects[j])) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+}
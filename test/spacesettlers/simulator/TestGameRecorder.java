@@ -0,0 +1,260 @@
+package spacesettlers.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.actions.PurchaseTypes;
+import spacesettlers.clients.Team;
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.objects.AbstractActionableObject;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Ship;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
+import spacesettlers.utilities.Movement;
+import spacesettlers.utilities.Position;
+import spacesettlers.utilities.Vector2D;
+
+public class TestGameRecorder {
+	SpaceSettlersSimulator simulator;
+	ArrayList<Ship> ships;
+	File file;
+
+	@Before
+	public void setUp() throws Exception {
+		Random rand = new Random(7);
+		Toroidal2DPhysics space = new Toroidal2DPhysics(480, 640, 0.05);
+		space.setObjectIdSeed(99);
+		ships = new ArrayList<Ship>();
+
+		for (int i = 0; i < 60; i++) {
+			Position pos = new Position(rand.nextDouble() * 640, rand.nextDouble() * 480);
+			pos.setTranslationalVelocity(new Vector2D(rand.nextDouble() * 100 - 50, rand.nextDouble() * 100 - 50));
+			if (i % 10 == 0) {
+				Ship ship = new Ship("team" + (i % 20), Color.RED, pos);
+				Movement movement = new Movement();
+				movement.setTranslationalAcceleration(new Vector2D(i, -i));
+				movement.setAngularAccleration(0.1);
+				ship.setCurrentAction(new ReplayTeamClient.RecordedMovementAction(movement));
+				space.addObject(ship);
+				ships.add(ship);
+			} else {
+				space.addObject(new Asteroid(pos, rand.nextBoolean(), 5 + rand.nextInt(15), true, 0.3, 0.3, 0.4));
+			}
+		}
+
+		simulator = new SpaceSettlersSimulator(new SpaceSettlersConfig());
+		simulator.simulatedSpace = space;
+		simulator.random = new Random(1);
+		space.setRecordMovements(true);
+
+		file = File.createTempFile("spacesettlers", ".rec");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+	}
+
+	/**
+	 * Record a few steps the way the simulator does
+	 */
+	private GameRecorder recordSteps(int numSteps, int keyframeInterval) throws Exception {
+		GameRecorder recorder = new GameRecorder(file.getPath(), simulator.simConfig, keyframeInterval);
+		for (int step = 0; step < numSteps; step++) {
+			simulator.timestep = step;
+			recorder.beginStep(simulator);
+
+			Map<UUID, SpaceSettlersPowerupEnum> powerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+			powerups.put(ships.get(0).getId(), SpaceSettlersPowerupEnum.FIRE_MISSILE);
+			recorder.recordPowerups(powerups);
+
+			simulator.simulatedSpace.advanceTime(step, new HashMap<UUID, SpaceSettlersPowerupEnum>());
+			recorder.recordMovements(simulator.simulatedSpace.getAppliedMovements());
+
+			Map<UUID, PurchaseTypes> purchases = new LinkedHashMap<UUID, PurchaseTypes>();
+			purchases.put(ships.get(1).getId(), PurchaseTypes.BASE);
+			purchases.put(ships.get(2).getId(), PurchaseTypes.POWERUP_SHIELD);
+			recorder.recordPurchases("team10", purchases);
+			recorder.endStep();
+		}
+		return recorder;
+	}
+
+	@Test
+	public void testRecordingRoundTrip() throws Exception {
+		GameRecorder recorder = recordSteps(5, 2);
+		recorder.close(simulator.teams);
+
+		GameRecording recording = GameRecording.load(file.getPath());
+		assertEquals(5, recording.getNumSteps());
+		assertEquals(2, recording.keyframeInterval);
+		assertEquals("[0, 2, 4]", recording.keyframes.keySet().toString());
+		assertTrue(recording.getFinalScores().isEmpty());
+
+		GameRecording.RecordedStep step = recording.getStep(3);
+		assertEquals(ships.size(), step.movements.size());
+		Movement movement = step.movements.get(ships.get(3).getId());
+		assertEquals(30, movement.getTranslationalAcceleration().getXValue(), 0);
+		assertEquals(-30, movement.getTranslationalAcceleration().getYValue(), 0);
+		assertEquals(0.1, movement.getAngularAccleration(), 0);
+
+		assertEquals(SpaceSettlersPowerupEnum.FIRE_MISSILE, step.powerups.get(ships.get(0).getId()));
+
+		// the purchases keep their order
+		Iterator<Map.Entry<UUID, PurchaseTypes>> purchases = step.purchases.get("team10").entrySet().iterator();
+		assertEquals(PurchaseTypes.BASE, purchases.next().getValue());
+		assertEquals(PurchaseTypes.POWERUP_SHIELD, purchases.next().getValue());
+	}
+
+	@Test
+	public void testCutOffRecordingCanBeLoaded() throws Exception {
+		GameRecorder recorder = recordSteps(3, 10);
+		recorder.abort();
+
+		GameRecording recording = GameRecording.load(file.getPath());
+		assertEquals(3, recording.getNumSteps());
+		assertNull(recording.getFinalScores());
+	}
+
+	/**
+	 * Space restored from a keyframe has to visit the objects in the same order and move
+	 * them exactly the same way as the original
+	 */
+	@Test
+	public void testKeyframeRestoresSpace() throws Exception {
+		GameKeyframe restored = GameKeyframe.fromXML(new GameKeyframe(simulator).toXML());
+		Toroidal2DPhysics restoredSpace = restored.space;
+		assertEquals(simulator.random.nextLong(), restored.random.nextLong());
+
+		// ships don't keep their actions in a keyframe
+		for (Ship ship : restoredSpace.getShips()) {
+			Ship original = (Ship) simulator.simulatedSpace.getObjectById(ship.getId());
+			ship.setCurrentAction(original.getCurrentAction());
+		}
+
+		for (int step = 0; step < 40; step++) {
+			simulator.simulatedSpace.advanceTime(step, new HashMap<UUID, SpaceSettlersPowerupEnum>());
+			restoredSpace.advanceTime(step, new HashMap<UUID, SpaceSettlersPowerupEnum>());
+		}
+
+		Iterator<AbstractObject> restoredObjects = restoredSpace.getAllObjects().iterator();
+		for (AbstractObject object : simulator.simulatedSpace.getAllObjects()) {
+			AbstractObject restoredObject = restoredObjects.next();
+			assertEquals(object.getId(), restoredObject.getId());
+			assertEquals(object.getPosition().getX(), restoredObject.getPosition().getX(), 0);
+			assertEquals(object.getPosition().getY(), restoredObject.getPosition().getY(), 0);
+		}
+
+		// new objects get the same ids too
+		assertEquals(simulator.simulatedSpace.newObjectId(), restoredSpace.newObjectId());
+	}
+
+	/**
+	 * None of the caches or the simulator's helpers end up in a keyframe
+	 */
+	@Test
+	public void testKeyframeLeavesOutCaches() throws Exception {
+		Toroidal2DPhysics space = simulator.simulatedSpace;
+		space.setEventBus(simulator.eventBus);
+		space.advanceTime(0, new HashMap<UUID, SpaceSettlersPowerupEnum>());
+		space.isLocationFree(new Position(10, 10), 5);
+		assertTrue(space.freeSpaceIndex != null);
+		assertTrue(space.narrowPhase != null);
+
+		String xml = new GameKeyframe(simulator).toXML();
+		String[] cacheFields = {"eventBus", "movementExecutor", "appliedMovements", "moveableArrays", "collisionGrid", 
+				"narrowPhase", "collisionObjects", "collisionCandidates", "deadCollisionObjects", "queryIndex", 
+				"freeSpaceIndex", "teamInfo"};
+		for (String field : cacheFields) {
+			assertFalse(field, xml.contains("<" + field));
+		}
+	}
+
+	/**
+	 * Compare two copies of space object by object (same objects in the same order, in the
+	 * same places, with the same energy)
+	 */
+	private void assertSameSpace(Toroidal2DPhysics expected, Toroidal2DPhysics actual) {
+		assertEquals(expected.getAllObjects().size(), actual.getAllObjects().size());
+		Iterator<AbstractObject> actualObjects = actual.getAllObjects().iterator();
+		for (AbstractObject object : expected.getAllObjects()) {
+			AbstractObject actualObject = actualObjects.next();
+			assertEquals(object.getId(), actualObject.getId());
+			assertEquals(object.isAlive(), actualObject.isAlive());
+			assertEquals(object.getPosition().getX(), actualObject.getPosition().getX(), 0);
+			assertEquals(object.getPosition().getY(), actualObject.getPosition().getY(), 0);
+			assertEquals(object.getPosition().getOrientation(), actualObject.getPosition().getOrientation(), 0);
+			if (object instanceof AbstractActionableObject) {
+				assertEquals(((AbstractActionableObject) object).getEnergy(), 
+						((AbstractActionableObject) actualObject).getEnergy(), 0);
+			}
+		}
+	}
+
+	/**
+	 * Record a real game with its clients, replay it, and check that the replay ends up in
+	 * the same state (going forward from the start and back from later keyframes)
+	 */
+	@Test
+	public void testRecordedGameReplaysTheSame() throws Exception {
+		RunSimulator runSim = new RunSimulator(new String[] {"--configPath", "config/benchmark/",
+				"--simulatorConfigFile", "SpaceSettlersConfig.xml", "--turbo", "true"});
+		SpaceSettlersSimulator game = new SpaceSettlersSimulator(runSim.config);
+		game.startRecording(file.getPath());
+		game.recorder = new GameRecorder(file.getPath(), game.simConfig, 100);
+
+		int numSteps = 350;
+		Map<Integer, Toroidal2DPhysics> midGame = new HashMap<Integer, Toroidal2DPhysics>();
+		try {
+			for (game.timestep = 0; game.timestep < numSteps; game.timestep++) {
+				game.advanceTime();
+				if (game.timestep == 149) {
+					midGame.put(150, game.getSimulatedSpace().deepClone());
+				}
+			}
+			game.recorder.close(game.teams);
+			game.recorder = null;
+		} finally {
+			game.shutdownTeams();
+		}
+
+		GameRecording recording = GameRecording.load(file.getPath());
+		assertEquals(numSteps, recording.getNumSteps());
+		assertEquals("[0, 100, 200, 300]", recording.keyframes.keySet().toString());
+
+		GameReplayer replayer = new GameReplayer(recording);
+		try {
+			replayer.seek(numSteps);
+			assertSameSpace(game.getSimulatedSpace(), replayer.getSimulator().getSimulatedSpace());
+
+			Map<String, Double> scores = replayer.getScores();
+			for (Team team : game.teams) {
+				assertEquals(team.getScore(), scores.get(team.getTeamName()), 0);
+			}
+			assertEquals(recording.getFinalScores(), scores);
+
+			// going back starts again from the keyframe at step 100
+			replayer.seek(150);
+			assertSameSpace(midGame.get(150), replayer.getSimulator().getSimulatedSpace());
+		} finally {
+			replayer.shutdown();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package spacesettlers.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.clients.DoNothingTeamClient;
+import spacesettlers.clients.Team;
+import spacesettlers.configs.SpaceSettlersConfig;
+import spacesettlers.objects.Beacon;
+import spacesettlers.objects.Ship;
+import spacesettlers.utilities.Position;
+
+public class TestScoreKeeper {
+	Set<Team> teams;
+	Team team1, team2;
+
+	@Before
+	public void setUp() throws Exception {
+		teams = new LinkedHashSet<Team>();
+		team1 = makeTeam("team1");
+		team2 = makeTeam("team2");
+	}
+
+	private Team makeTeam(String teamName) {
+		DoNothingTeamClient client = new DoNothingTeamClient();
+		client.setTeamName(teamName);
+		client.setTeamColor(Color.BLUE);
+		Team team = new Team(client, teamName, 4);
+		teams.add(team);
+		return team;
+	}
+
+	/**
+	 * Make a config the same way the simulator reads it
+	 * @param scoringMethod
+	 * @param rules the xml for the scoring rules (can be empty)
+	 * @return
+	 */
+	private SpaceSettlersConfig makeConfig(String scoringMethod, String rules) {
+		String xml = "<SpaceSettlersConfig><scoringMethod>" + scoringMethod + "</scoringMethod>" +
+				"<scoringRules>" + rules + "</scoringRules></SpaceSettlersConfig>";
+		return (SpaceSettlersConfig) GameRecorder.createConfigXStream().fromXML(xml);
+	}
+
+	/**
+	 * Make a bus with the score keeper listening (like the simulator)
+	 * @param scoreKeeper
+	 * @return
+	 */
+	private SimulationEventBus makeBus(ScoreKeeper scoreKeeper) {
+		SimulationEventBus bus = new SimulationEventBus();
+		bus.addListener(scoreKeeper);
+		return bus;
+	}
+
+	@Test
+	public void testDamageCorrected() {
+		ScoreKeeper scoreKeeper = new ScoreKeeper(makeConfig("DamageCorrected", ""), teams);
+		SimulationEventBus bus = makeBus(scoreKeeper);
+
+		bus.publish(SimulationEvent.Type.DAMAGE_INFLICTED, "team1", null, null, 200);
+		bus.publish(SimulationEvent.Type.DAMAGE_RECEIVED, "team2", null, null, -200);
+		bus.publish(SimulationEvent.Type.KILL, "team1", null, null, 1);
+		bus.publish(SimulationEvent.Type.HIT, "team1", null, null, 1);
+		bus.publish(SimulationEvent.Type.DAMAGE_RECEIVED, "team1", null, null, -13);
+		bus.publish(SimulationEvent.Type.BASE_DAMAGE_RECEIVED, "team2", null, null, -500);
+
+		// nothing changes until the events are dispatched at the end of the step
+		assertEquals(0, team1.getScore(), 0);
+		bus.dispatch();
+
+		assertEquals(1000 + 200 - 13, team1.getScore(), 0);
+		assertEquals(-200, team2.getScore(), 0);
+
+		// the events are only scored once
+		bus.dispatch();
+		assertEquals(1000 + 200 - 13, team1.getScore(), 0);
+	}
+
+	@Test
+	public void testTotalFlagsIsShared() {
+		ScoreKeeper scoreKeeper = new ScoreKeeper(makeConfig("TotalFlags", ""), teams);
+		SimulationEventBus bus = makeBus(scoreKeeper);
+
+		bus.publish(SimulationEvent.Type.FLAG_DEPOSITED, "team1", null, null, 1);
+		bus.publish(SimulationEvent.Type.FLAG_DEPOSITED, "team2", null, null, 1);
+		bus.publish(SimulationEvent.Type.FLAG_PICKED_UP, "team2", null, null, 1);
+		bus.dispatch();
+
+		assertEquals(2, team1.getScore(), 0);
+		assertEquals(2, team2.getScore(), 0);
+	}
+
+	@Test
+	public void testCustomRules() {
+		String rules = "<ScoringRuleConfig><event>beacon_collected</event><points>5</points></ScoringRuleConfig>" +
+				"<ScoringRuleConfig><event>PURCHASE</event><points>-0.5</points></ScoringRuleConfig>" +
+				"<ScoringRuleConfig><event>KILL</event><points>1</points><allTeams>true</allTeams></ScoringRuleConfig>" +
+				"<ScoringRuleConfig><event>NOT_AN_EVENT</event><points>1</points></ScoringRuleConfig>";
+		ScoreKeeper scoreKeeper = new ScoreKeeper(makeConfig("Resources", rules), teams);
+		SimulationEventBus bus = makeBus(scoreKeeper);
+		assertEquals(2, scoreKeeper.getScoringMethods().size());
+
+		bus.publish(SimulationEvent.Type.RESOURCES_DEPOSITED, "team1", null, null, 300);
+		bus.publish(SimulationEvent.Type.PURCHASE, "team1", null, null, 100);
+		bus.publish(SimulationEvent.Type.BEACON_COLLECTED, "team2", null, null, 1);
+		bus.publish(SimulationEvent.Type.KILL, "team2", null, null, 1);
+		bus.dispatch();
+
+		assertEquals(300 - 50 + 1, team1.getScore(), 0);
+		assertEquals(5 + 1, team2.getScore(), 0);
+	}
+
+	/**
+	 * A scoring method that isn't built in (loaded by its class name)
+	 */
+	public static class HitsTimesTen implements ScoringMethod {
+		public void scoreEvent(SimulationEvent event, Team team, Collection<Team> teams) {
+			if (event.getType() == SimulationEvent.Type.HIT && team != null) {
+				team.setScore(team.getScore() + 10 * event.getAmount());
+			}
+		}
+	}
+
+	@Test
+	public void testScoringMethodByClassName() {
+		ScoreKeeper scoreKeeper = new ScoreKeeper(makeConfig(HitsTimesTen.class.getName(), ""), teams);
+		SimulationEventBus bus = makeBus(scoreKeeper);
+
+		bus.publish(SimulationEvent.Type.HIT, "team2", null, null, 1);
+		bus.publish(SimulationEvent.Type.HIT, "not a team", null, null, 1);
+		bus.dispatch();
+
+		assertEquals(0, team1.getScore(), 0);
+		assertEquals(10, team2.getScore(), 0);
+	}
+
+	@Test
+	public void testUnknownMethodScoresNothing() {
+		ScoreKeeper scoreKeeper = new ScoreKeeper(makeConfig("NotAMethod", ""), teams);
+		SimulationEventBus bus = makeBus(scoreKeeper);
+		assertTrue(scoreKeeper.getScoringMethods().isEmpty());
+
+		bus.publish(SimulationEvent.Type.FLAG_DEPOSITED, "team1", null, null, 1);
+		bus.dispatch();
+		assertEquals(0, team1.getScore(), 0);
+	}
+
+	/**
+	 * Collisions in space send their events to the score keeper
+	 */
+	@Test
+	public void testCollisionsAddEvents() {
+		ScoreKeeper scoreKeeper = new ScoreKeeper(makeConfig("Beacons", ""), teams);
+		SimulationEventBus bus = makeBus(scoreKeeper);
+		Toroidal2DPhysics space = new Toroidal2DPhysics(480, 640, 0.05);
+		space.setEventBus(bus);
+
+		Ship ship = new Ship("team2", Color.BLUE, new Position(100, 100));
+		Beacon beacon = new Beacon(new Position(100, 100));
+		space.addObject(ship);
+		space.addObject(beacon);
+		space.collisionHandler.collide(ship, beacon, space);
+		bus.dispatch();
+
+		assertEquals(1, ship.getNumBeacons());
+		assertEquals(0, team1.getScore(), 0);
+		assertEquals(1, team2.getScore(), 0);
+	}
+}
@@ -0,0 +1,164 @@
+package spacesettlers.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.actions.PurchaseTypes;
+import spacesettlers.objects.Beacon;
+import spacesettlers.utilities.Position;
+
+public class TestSimulationEventBus {
+	SimulationEventBus bus;
+	ArrayList<SimulationEvent> heard;
+	SimulationEventListener listener;
+
+	@Before
+	public void setUp() throws Exception {
+		bus = new SimulationEventBus(5);
+		heard = new ArrayList<SimulationEvent>();
+		listener = new SimulationEventListener() {
+			public void simulationEvent(SimulationEvent event) {
+				heard.add(event.copy());
+			}
+		};
+		bus.addListener(listener);
+	}
+
+	@Test
+	public void testCapacityIsAPowerOfTwo() {
+		assertEquals(8, bus.getCapacity());
+		assertEquals(SimulationEventBus.DEFAULT_CAPACITY, new SimulationEventBus().getCapacity());
+		assertEquals(1, new SimulationEventBus(0).getCapacity());
+	}
+
+	@Test
+	public void testDispatchInOrder() {
+		UUID shipId = UUID.randomUUID();
+		UUID asteroidId = UUID.randomUUID();
+
+		bus.setTimestep(3);
+		bus.publish(SimulationEvent.Type.ASTEROID_MINED, "team1", shipId, asteroidId, 40);
+		bus.setTimestep(4);
+		bus.publish(SimulationEvent.Type.PURCHASE, "team2", shipId, null, 500, PurchaseTypes.BASE);
+
+		// nothing is heard until the end of the step
+		assertEquals(0, heard.size());
+		bus.dispatch();
+
+		assertEquals(2, heard.size());
+		SimulationEvent event = heard.get(0);
+		assertEquals(SimulationEvent.Type.ASTEROID_MINED, event.getType());
+		assertEquals(3, event.getTimestep());
+		assertEquals("team1", event.getTeamName());
+		assertEquals(shipId, event.getObjectId());
+		assertEquals(asteroidId, event.getOtherObjectId());
+		assertEquals(40, event.getAmount());
+		assertNull(event.getPurchase());
+
+		assertEquals("4 PURCHASE team2 500 BASE", heard.get(1).toString());
+
+		// the events are only heard once
+		bus.dispatch();
+		assertEquals(2, heard.size());
+	}
+
+	@Test
+	public void testFullRingDispatchesEarly() {
+		for (int i = 0; i < 10; i++) {
+			bus.publish(SimulationEvent.Type.HIT, "team1", null, null, i);
+		}
+
+		// the first 8 filled the ring and were heard before the 9th was published
+		assertEquals(8, heard.size());
+		bus.dispatch();
+
+		assertEquals(10, heard.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, heard.get(i).getAmount());
+		}
+	}
+
+	@Test
+	public void testGetRecentEvents() {
+		for (int i = 0; i < 11; i++) {
+			bus.publish(SimulationEvent.Type.BEACON_COLLECTED, "team1", null, null, i);
+		}
+		assertEquals(11, bus.getNumPublished());
+
+		// only the last 8 are still in the ring
+		assertNull(bus.getEvent(2));
+		for (int i = 3; i < 11; i++) {
+			assertEquals(i, bus.getEvent(i).getAmount());
+		}
+		assertNull(bus.getEvent(11));
+		assertNull(bus.getEvent(-1));
+	}
+
+	@Test
+	public void testRemoveListener() {
+		bus.removeListener(listener);
+		bus.publish(SimulationEvent.Type.KILL, "team1", null, null, 1);
+		bus.dispatch();
+		assertEquals(0, heard.size());
+	}
+
+	@Test
+	public void testRespawnIsPublished() {
+		Toroidal2DPhysics space = new Toroidal2DPhysics(480, 640, 0.05);
+		space.setEventBus(bus);
+		Beacon beacon = new Beacon(new Position(100, 100));
+		space.addObject(beacon);
+		beacon.setAlive(false);
+
+		space.respawnDeadObjects(new Random(3), 0);
+		bus.dispatch();
+
+		assertEquals(1, heard.size());
+		assertEquals(SimulationEvent.Type.RESPAWN, heard.get(0).getType());
+		assertEquals(beacon.getId(), heard.get(0).getObjectId());
+		assertNull(heard.get(0).getTeamName());
+	}
+
+	/**
+	 * Publishing and dispatching events must not make any new objects
+	 */
+	@Test
+	public void testPublishDoesNotAllocate() {
+		final int[] count = new int[1];
+		SimulationEventBus countingBus = new SimulationEventBus();
+		countingBus.addListener(new SimulationEventListener() {
+			public void simulationEvent(SimulationEvent event) {
+				count[0] += event.getAmount();
+			}
+		});
+		UUID shipId = UUID.randomUUID();
+
+		// warm up so the loop is compiled
+		for (int i = 0; i < 100000; i++) {
+			countingBus.publish(SimulationEvent.Type.HIT, "team1", shipId, null, 1);
+		}
+		countingBus.dispatch();
+
+		SimulatorProfiler profiler = new SimulatorProfiler();
+		profiler.beginStep();
+		for (int i = 0; i < 100000; i++) {
+			countingBus.publish(SimulationEvent.Type.HIT, "team1", shipId, null, 1);
+		}
+		countingBus.dispatch();
+		profiler.endPhase(SimulatorProfiler.Phase.PHYSICS);
+		profiler.endStep();
+
+		assertEquals(200000, count[0]);
+		if (profiler.isAllocationSupported()) {
+			assertTrue(profiler.getAllocatedBytes(SimulatorProfiler.Phase.PHYSICS) < 1024);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package spacesettlers.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spacesettlers.clients.Team;
+
+public class TestSimulatorProfiler {
+	SimulatorProfiler profiler;
+
+	@Before
+	public void setUp() throws Exception {
+		profiler = new SimulatorProfiler();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testPhasesAreRecorded() throws Exception {
+		for (int step = 0; step < 3; step++) {
+			profiler.beginStep();
+			Thread.sleep(2);
+			profiler.endPhase(SimulatorProfiler.Phase.TEAM_INFO);
+			profiler.endPhase(SimulatorProfiler.Phase.PHYSICS);
+			profiler.endStep();
+		}
+
+		assertEquals(3, profiler.getNumSteps());
+		assertTrue(profiler.getTotalNanos(SimulatorProfiler.Phase.TEAM_INFO) >= 6000000);
+		assertTrue(profiler.getMaxNanos(SimulatorProfiler.Phase.TEAM_INFO) >= 2000000);
+		assertTrue(profiler.getTotalNanos(SimulatorProfiler.Phase.PHYSICS) < profiler.getTotalNanos(SimulatorProfiler.Phase.TEAM_INFO));
+		assertEquals(profiler.getTotalNanos(SimulatorProfiler.Phase.TEAM_INFO) / 3.0, 
+				profiler.getAverageNanos(SimulatorProfiler.Phase.TEAM_INFO), 0.001);
+		assertEquals(0, profiler.getTotalNanos(SimulatorProfiler.Phase.SCORING));
+		assertTrue(profiler.getTotalStepNanos() >= profiler.getTotalNanos(SimulatorProfiler.Phase.TEAM_INFO));
+	}
+
+	@Test
+	public void testAllocationIsRecorded() {
+		if (!profiler.isAllocationSupported()) {
+			return;
+		}
+
+		profiler.beginStep();
+		ArrayList<int[]> garbage = new ArrayList<int[]>();
+		for (int i = 0; i < 100; i++) {
+			garbage.add(new int[1000]);
+		}
+		profiler.endPhase(SimulatorProfiler.Phase.RESPAWN);
+		profiler.endStep();
+
+		assertEquals(100, garbage.size());
+		assertTrue(profiler.getAllocatedBytes(SimulatorProfiler.Phase.RESPAWN) >= 400000);
+	}
+
+	@Test
+	public void testDisabledProfilerRecordsNothing() {
+		SimulatorProfiler disabled = new SimulatorProfiler(false);
+		assertFalse(disabled.isEnabled());
+		assertFalse(disabled.isAllocationSupported());
+		assertTrue(profiler.isEnabled());
+
+		disabled.beginStep();
+		disabled.endPhase(SimulatorProfiler.Phase.TEAM_INFO);
+		disabled.endStep();
+
+		assertEquals(0, disabled.getNumSteps());
+		assertEquals(0, disabled.getTotalNanos(SimulatorProfiler.Phase.TEAM_INFO));
+		assertEquals(0, disabled.getTotalStepNanos());
+	}
+
+	@Test
+	public void testResultsListEveryPhase() {
+		profiler.beginStep();
+		profiler.endPhase(SimulatorProfiler.Phase.TEAM_INFO);
+		profiler.endStep();
+
+		String csv = profiler.toCSV(new ArrayList<Team>());
+		String json = profiler.toJSON(new ArrayList<Team>());
+		for (SimulatorProfiler.Phase phase : SimulatorProfiler.Phase.values()) {
+			assertTrue(csv.contains("\n" + phase + ",1,"));
+			assertTrue(json.contains("\"phase\": \"" + phase + "\""));
+		}
+		assertTrue(json.contains("\"steps\": 1,"));
+	}
+}
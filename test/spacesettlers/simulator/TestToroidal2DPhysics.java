@@ -1,14 +1,43 @@
 package spacesettlers.simulator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import spacesettlers.actions.AbstractAction;
+import spacesettlers.actions.MoveAction;
+import spacesettlers.clients.DoNothingTeamClient;
+import spacesettlers.clients.Team;
+import spacesettlers.objects.AbstractObject;
+import spacesettlers.objects.Asteroid;
+import spacesettlers.objects.Base;
+import spacesettlers.objects.Beacon;
+import spacesettlers.objects.Flag;
+import spacesettlers.objects.Ship;
+import spacesettlers.objects.resources.ResourcePile;
+import spacesettlers.objects.powerups.SpaceSettlersPowerupEnum;
 import spacesettlers.simulator.Toroidal2DPhysics;
 import spacesettlers.utilities.Movement;
 import spacesettlers.utilities.Position;
@@ -343,6 +372,866 @@ public class TestToroidal2DPhysics {
 		dist = space.findShortestDistance(center, center);
 		assertEquals(dist, 0, 0.01);
 	}
+
+	/**
+	 * The versions that don't allocate have to give exactly the same answers (including 
+	 * across the wrapped edges)
+	 */
+	@Test
+	public void testAllocationFreeDistancesMatch() {
+		Random rand = new Random(11);
+		Vector2D destination = new Vector2D();
+		
+		for (int i = 0; i < 1000; i++) {
+			Position location1 = new Position(rand.nextDouble() * width, rand.nextDouble() * height);
+			Position location2 = new Position(rand.nextDouble() * width, rand.nextDouble() * height);
+			Vector2D expected = space.findShortestDistanceVector(location1, location2);
+			
+			assertSame(destination, space.findShortestDistanceVector(location1, location2, destination));
+			assertEquals(expected.getXValue(), destination.getXValue(), 0);
+			assertEquals(expected.getYValue(), destination.getYValue(), 0);
+			assertEquals(expected.getMagnitude(), destination.getMagnitude(), 0);
+			assertEquals(expected.getXValue(), space.findShortestDeltaX(location1, location2), 0);
+			assertEquals(expected.getYValue(), space.findShortestDeltaY(location1, location2), 0);
+			assertEquals(expected.getMagnitude(), space.findShortestDistance(location1, location2), 0);
+			assertEquals(expected.getMagnitude() * expected.getMagnitude(), 
+					space.findShortestDistanceSquared(location1, location2), 1e-6);
+		}
+	}
+
+	/**
+	 * Applying a movement into a destination has to match applying it into a new position
+	 */
+	@Test
+	public void testApplyMovementIntoDestination() {
+		Position start = new Position(width - 1, 5, 3);
+		start.setTranslationalVelocity(new Vector2D(4, -8));
+		start.setAngularVelocity(0.5);
+		Movement movement = new Movement();
+		movement.setTranslationalAcceleration(new Vector2D(2, -3));
+		movement.setAngularAccleration(0.25);
+		
+		Position expected = space.applyMovement(start, movement, timestep);
+		Position destination = new Position(0, 0);
+		assertSame(destination, space.applyMovement(start, movement, timestep, destination));
+		
+		assertEquals(expected.getX(), destination.getX(), 0);
+		assertEquals(expected.getY(), destination.getY(), 0);
+		assertEquals(expected.getOrientation(), destination.getOrientation(), 0);
+		assertEquals(expected.getAngularVelocity(), destination.getAngularVelocity(), 0);
+		assertEquals(expected.getTranslationalVelocity(), destination.getTranslationalVelocity());
+		
+		// the position being moved is left alone
+		assertEquals(width - 1, start.getX(), 0);
+		assertEquals(new Vector2D(4, -8), start.getTranslationalVelocity());
+	}
 	
 
+	/**
+	 * Collision handler that remembers every pair it was asked to collide (in order)
+	 */
+	class RecordingCollisionHandler extends CollisionHandler {
+		List<String> collisions = new ArrayList<String>();
+
+		@Override
+		public void collide(AbstractObject object1, AbstractObject object2, Toroidal2DPhysics space) {
+			collisions.add(object1.getId() + " " + object2.getId());
+			super.collide(object1, object2, space);
+		}
+	}
+
+	/**
+	 * Collision handler that also kills any ship carrying a flag that it collides (so the
+	 * flag is dropped and comes back to life in the middle of the collision pass)
+	 */
+	class FlagDroppingCollisionHandler extends RecordingCollisionHandler {
+		@Override
+		public void collide(AbstractObject object1, AbstractObject object2, Toroidal2DPhysics space) {
+			super.collide(object1, object2, space);
+			dropFlag(object1);
+			dropFlag(object2);
+		}
+
+		private void dropFlag(AbstractObject object) {
+			if (object instanceof Ship && ((Ship) object).isCarryingFlag()) {
+				object.setAlive(false);
+			}
+		}
+	}
+
+	/**
+	 * Add 300 random asteroids, beacons, and ships to space
+	 */
+	private void addRandomMovingObjects(Random rand, Toroidal2DPhysics space) {
+		for (int i = 0; i < 300; i++) {
+			Position pos = new Position(rand.nextDouble() * width, rand.nextDouble() * height);
+			pos.setTranslationalVelocity(new Vector2D(rand.nextDouble() * 200 - 100, rand.nextDouble() * 200 - 100));
+			switch (rand.nextInt(3)) {
+			case 0:
+				space.addObject(new Asteroid(pos, rand.nextBoolean(), 5 + rand.nextInt(20), true, 0.3, 0.3, 0.4));
+				break;
+			case 1:
+				space.addObject(new Beacon(pos));
+				break;
+			default:
+				space.addObject(new Ship("team" + rand.nextInt(2), Color.RED, pos));
+			}
+		}
+	}
+
+	/**
+	 * Run the same space with the pairwise loop and the grid and check the collision 
+	 * handlers were called on the same pairs in the same order
+	 */
+	private void assertGridCollisionsMatchPairwise(Toroidal2DPhysics pairwiseSpace, Toroidal2DPhysics gridSpace,
+			RecordingCollisionHandler pairwiseHandler, RecordingCollisionHandler gridHandler) {
+		pairwiseSpace.setPairwiseCollisionDetection(true);
+		gridSpace.setPairwiseCollisionDetection(false);
+		pairwiseSpace.collisionHandler = pairwiseHandler;
+		gridSpace.collisionHandler = gridHandler;
+		
+		HashMap<UUID, SpaceSettlersPowerupEnum> powerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+		for (int step = 0; step < 50; step++) {
+			pairwiseSpace.advanceTime(step, powerups);
+			gridSpace.advanceTime(step, powerups);
+		}
+		
+		assertTrue(pairwiseHandler.collisions.size() > 0);
+		assertEquals(pairwiseHandler.collisions, gridHandler.collisions);
+	}
+
+	/**
+	 * The spatial hash grid must call the collision handler on exactly the same 
+	 * pairs in exactly the same order as the pairwise loop
+	 */
+	@Test
+	public void testSpatialHashCollisionsMatchPairwise() {
+		Random rand = new Random(42);
+		Toroidal2DPhysics pairwiseSpace = new Toroidal2DPhysics(height, width, 0.05);
+		addRandomMovingObjects(rand, pairwiseSpace);
+
+		assertGridCollisionsMatchPairwise(pairwiseSpace, pairwiseSpace.deepClone(), 
+				new RecordingCollisionHandler(), new RecordingCollisionHandler());
+	}
+
+	/**
+	 * Make a capture the flag space where every team1 ship carries a team0 flag (copies of
+	 * space don't keep the ship carrying the flag, so the same space is made twice instead)
+	 */
+	private Toroidal2DPhysics makeFlagCarryingSpace() {
+		Random rand = new Random(43);
+		Toroidal2DPhysics flagSpace = new Toroidal2DPhysics(height, width, 0.05);
+		flagSpace.setObjectIdSeed(43);
+		addRandomMovingObjects(rand, flagSpace);
+
+		DoNothingTeamClient client = new DoNothingTeamClient();
+		client.setTeamName("team0");
+		client.setTeamColor(Color.RED);
+		Team team = new Team(client, "team0", 4);
+		Position[] startingLocations = new Position[] {new Position(50, 50)};
+
+		List<Ship> carriers = new ArrayList<Ship>();
+		for (Ship ship : flagSpace.getShips()) {
+			if (ship.getTeamName().equals("team1")) {
+				carriers.add(ship);
+			}
+		}
+
+		// the flags are dead while they are carried
+		for (Ship ship : carriers) {
+			Flag flag = new Flag(new Position(rand.nextDouble() * width, rand.nextDouble() * height), 
+					"team0", team, startingLocations);
+			flagSpace.addObject(flag);
+			ship.addFlag(flag);
+			flag.pickupFlag(ship);
+		}
+		return flagSpace;
+	}
+
+	/**
+	 * Capture the flag: flags dropped by ships that die in the middle of the collision 
+	 * pass have to be collided with the rest of the objects the same as the pairwise loop
+	 */
+	@Test
+	public void testSpatialHashCollisionsMatchPairwiseWithFlags() {
+		Toroidal2DPhysics pairwiseSpace = makeFlagCarryingSpace();
+		FlagDroppingCollisionHandler pairwiseHandler = new FlagDroppingCollisionHandler();
+		assertGridCollisionsMatchPairwise(pairwiseSpace, makeFlagCarryingSpace(), 
+				pairwiseHandler, new FlagDroppingCollisionHandler());
+
+		// the flags are after the ships in space so the dropped flags are collided in the same pass
+		boolean flagCollided = false;
+		for (Flag flag : pairwiseSpace.getFlags()) {
+			for (String collision : pairwiseHandler.collisions) {
+				if (collision.contains(flag.getId().toString())) {
+					flagCollided = true;
+				}
+			}
+		}
+		assertTrue(flagCollided);
+	}
+
+	/**
+	 * Moving the objects with the packed arrays has to end up with exactly the same
+	 * positions as moving them one at a time (including after collisions)
+	 */
+	@Test
+	public void testArrayIntegrationMatchesObjectIntegration() {
+		Random rand = new Random(42);
+		Toroidal2DPhysics objectSpace = new Toroidal2DPhysics(height, width, 0.05);
+
+		for (int i = 0; i < 300; i++) {
+			Position pos = new Position(rand.nextDouble() * width, rand.nextDouble() * height);
+			pos.setTranslationalVelocity(new Vector2D(rand.nextDouble() * 200 - 100, rand.nextDouble() * 200 - 100));
+			pos.setAngularVelocity(rand.nextDouble() * 2 - 1);
+			switch (rand.nextInt(3)) {
+			case 0:
+				objectSpace.addObject(new Asteroid(pos, rand.nextBoolean(), 5 + rand.nextInt(20), true, 0.3, 0.3, 0.4));
+				break;
+			case 1:
+				objectSpace.addObject(new Beacon(pos));
+				break;
+			default:
+				objectSpace.addObject(new Ship("team" + rand.nextInt(2), Color.RED, pos));
+			}
+		}
+
+		objectSpace.setArrayIntegration(false);
+		Toroidal2DPhysics arraySpace = objectSpace.deepClone();
+		arraySpace.setArrayIntegration(true);
+		assertTrue(arraySpace.deepClone().isArrayIntegration());
+
+		HashMap<UUID, SpaceSettlersPowerupEnum> powerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+		for (int step = 0; step < 50; step++) {
+			objectSpace.advanceTime(step, powerups);
+			arraySpace.advanceTime(step, powerups);
+		}
+
+		assertEquals(objectSpace.getAllObjects().size(), arraySpace.getAllObjects().size());
+		for (AbstractObject object : objectSpace.getAllObjects()) {
+			Position expected = object.getPosition();
+			Position actual = arraySpace.getObjectById(object.getId()).getPosition();
+			assertEquals(expected.getX(), actual.getX(), 0);
+			assertEquals(expected.getY(), actual.getY(), 0);
+			assertEquals(expected.getOrientation(), actual.getOrientation(), 0);
+			assertEquals(expected.getTranslationalVelocityX(), actual.getTranslationalVelocityX(), 0);
+			assertEquals(expected.getTranslationalVelocityY(), actual.getTranslationalVelocityY(), 0);
+		}
+	}
+
+	/**
+	 * Give every ship in space a move to the target with the same index
+	 */
+	private void setMoveActions(Toroidal2DPhysics space, List<Ship> ships, List<Position> targets) {
+		for (int i = 0; i < ships.size(); i++) {
+			Ship ship = (Ship) space.getObjectById(ships.get(i).getId());
+			ship.setCurrentAction(new MoveAction(space, ship.getPosition(), targets.get(i)));
+		}
+	}
+
+	/**
+	 * Finding the movements in parallel gives the same game as finding them one at a time
+	 * when the actions only depend on their own ship
+	 */
+	@Test
+	public void testParallelShipMovementMatchesSequential() {
+		Random rand = new Random(7);
+		Toroidal2DPhysics sequentialSpace = new Toroidal2DPhysics(height, width, 0.05);
+		List<Ship> ships = new ArrayList<Ship>();
+		List<Position> targets = new ArrayList<Position>();
+		for (int i = 0; i < 50; i++) {
+			Ship ship = new Ship("team" + (i % 5), Color.RED, new Position(rand.nextDouble() * width, rand.nextDouble() * height));
+			sequentialSpace.addObject(ship);
+			ships.add(ship);
+			targets.add(new Position(rand.nextDouble() * width, rand.nextDouble() * height));
+		}
+		for (int i = 0; i < 50; i++) {
+			sequentialSpace.addObject(new Asteroid(new Position(rand.nextDouble() * width, rand.nextDouble() * height), 
+					false, 10, true, 0.3, 0.3, 0.4));
+		}
+
+		Toroidal2DPhysics parallelSpace = sequentialSpace.deepClone();
+		setMoveActions(sequentialSpace, ships, targets);
+		setMoveActions(parallelSpace, ships, targets);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			parallelSpace.setMovementExecutor(executor);
+			assertTrue(parallelSpace.isParallelShipMovement());
+			assertFalse(sequentialSpace.isParallelShipMovement());
+			assertFalse(parallelSpace.deepClone().isParallelShipMovement());
+
+			HashMap<UUID, SpaceSettlersPowerupEnum> powerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+			for (int step = 0; step < 100; step++) {
+				sequentialSpace.advanceTime(step, powerups);
+				parallelSpace.advanceTime(step, powerups);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (AbstractObject object : sequentialSpace.getAllObjects()) {
+			AbstractObject parallelObject = parallelSpace.getObjectById(object.getId());
+			assertEquals(object.getPosition().getX(), parallelObject.getPosition().getX(), 0);
+			assertEquals(object.getPosition().getY(), parallelObject.getPosition().getY(), 0);
+			assertEquals(object.getPosition().getOrientation(), parallelObject.getPosition().getOrientation(), 0);
+			if (object instanceof Ship) {
+				assertEquals(((Ship) object).getEnergy(), ((Ship) parallelObject).getEnergy(), 0);
+			}
+		}
+	}
+
+	/**
+	 * In parallel every action sees space before any ship moves in the step.  One at a 
+	 * time, an action sees the ships that moved before it.
+	 */
+	@Test
+	public void testParallelShipMovementSeesSpaceBeforeMoving() {
+		final Ship leader = new Ship("team1", Color.RED, new Position(100, 100));
+		leader.getPosition().setTranslationalVelocity(new Vector2D(10, 0));
+		Ship follower = new Ship("team1", Color.RED, new Position(300, 300));
+		space.addObject(leader);
+		space.addObject(follower);
+
+		final List<Double> seenX = new ArrayList<Double>();
+		follower.setCurrentAction(new AbstractAction() {
+			public Movement getMovement(Toroidal2DPhysics space, Ship ship) {
+				seenX.add(space.getObjectById(leader.getId()).getPosition().getX());
+				return new Movement();
+			}
+
+			public boolean isMovementFinished(Toroidal2DPhysics space) {
+				return false;
+			}
+		});
+
+		HashMap<UUID, SpaceSettlersPowerupEnum> powerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+		space.advanceTime(0, powerups);
+		assertEquals(110, seenX.get(0), 1e-9);
+		assertEquals(110, leader.getPosition().getX(), 1e-9);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			space.setMovementExecutor(executor);
+			space.advanceTime(1, powerups);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(110, seenX.get(1), 1e-9);
+		assertEquals(120, leader.getPosition().getX(), 1e-9);
+	}
+
+	/**
+	 * A team's actions can change the objects in the space they are given but the other
+	 * teams' actions don't see the change (one at a time or in parallel)
+	 */
+	@Test
+	public void testShipActionsCantChangeOtherTeamsSpace() {
+		final Asteroid asteroid = new Asteroid(new Position(500, 500), false, 10, true, 0.3, 0.3, 0.4);
+		Ship meddler = new Ship("team1", Color.RED, new Position(100, 100));
+		Ship watcher = new Ship("team2", Color.BLUE, new Position(300, 300));
+		space.addObject(meddler);
+		space.addObject(watcher);
+		space.addObject(asteroid);
+
+		meddler.setCurrentAction(new AbstractAction() {
+			public Movement getMovement(Toroidal2DPhysics space, Ship ship) {
+				space.getObjectById(asteroid.getId()).setPosition(new Position(0, 0));
+				return new Movement();
+			}
+
+			public boolean isMovementFinished(Toroidal2DPhysics space) {
+				return false;
+			}
+		});
+
+		final List<Double> seenX = new ArrayList<Double>();
+		watcher.setCurrentAction(new AbstractAction() {
+			public Movement getMovement(Toroidal2DPhysics space, Ship ship) {
+				seenX.add(space.getObjectById(asteroid.getId()).getPosition().getX());
+				return new Movement();
+			}
+
+			public boolean isMovementFinished(Toroidal2DPhysics space) {
+				return false;
+			}
+		});
+
+		HashMap<UUID, SpaceSettlersPowerupEnum> powerups = new HashMap<UUID, SpaceSettlersPowerupEnum>();
+		space.advanceTime(0, powerups);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			space.setMovementExecutor(executor);
+			space.advanceTime(1, powerups);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(2, seenX.size());
+		assertEquals(500, seenX.get(0), 1e-9);
+		assertEquals(500, seenX.get(1), 1e-9);
+		assertEquals(500, asteroid.getPosition().getX(), 1e-9);
+	}
+
+	/**
+	 * Snapshots are copies of space that can't have objects added or removed
+	 */
+	@Test
+	public void testReadOnlySnapshot() {
+		Asteroid asteroid = new Asteroid(new Position(100, 100), true, 10, true, 0.3, 0.3, 0.4);
+		space.addObject(asteroid);
+		
+		Toroidal2DPhysics snapshot = space.createReadOnlySnapshot();
+		assertTrue(snapshot.isReadOnly());
+		assertEquals(1, snapshot.getAsteroids().size());
+		
+		// the objects are copies of the originals
+		AbstractObject snapshotAsteroid = snapshot.getObjectById(asteroid.getId());
+		assertNotSame(asteroid, snapshotAsteroid);
+		assertEquals(asteroid.getPosition().getX(), snapshotAsteroid.getPosition().getX(), 0);
+		
+		boolean addFailed = false;
+		try {
+			snapshot.addObject(new Beacon(new Position(200, 200)));
+		} catch (UnsupportedOperationException e) {
+			addFailed = true;
+		}
+		assertTrue(addFailed);
+
+		boolean removeFailed = false;
+		try {
+			snapshot.getAllObjects().remove(snapshotAsteroid);
+		} catch (UnsupportedOperationException e) {
+			removeFailed = true;
+		}
+		assertTrue(removeFailed);
+		
+		// cloning a snapshot gives back a normal copy of space
+		Toroidal2DPhysics clone = snapshot.deepClone();
+		assertFalse(clone.isReadOnly());
+		clone.addObject(new Beacon(new Position(200, 200)));
+		assertEquals(2, clone.getAllObjects().size());
+		assertEquals(1, space.getAllObjects().size());
+	}
+
+	/**
+	 * Seeding the object ids gives every run the same ids for the same objects
+	 */
+	@Test
+	public void testObjectIdSeedGivesSameIds() {
+		Toroidal2DPhysics space1 = new Toroidal2DPhysics(height, width, timestep);
+		Toroidal2DPhysics space2 = new Toroidal2DPhysics(height, width, timestep);
+		space1.setObjectIdSeed(42);
+		space2.setObjectIdSeed(42);
+
+		for (int i = 0; i < 10; i++) {
+			Beacon beacon1 = new Beacon(new Position(i, i));
+			Beacon beacon2 = new Beacon(new Position(i, i));
+			space1.addObject(beacon1);
+			space2.addObject(beacon2);
+			assertEquals(beacon1.getId(), beacon2.getId());
+			assertEquals(beacon1, space1.getObjectById(beacon1.getId()));
+		}
+	}
+
+	/**
+	 * Fill space with random asteroids, beacons, and ships for the query tests
+	 * @param rand
+	 */
+	private void addRandomObjects(Random rand) {
+		for (int i = 0; i < 300; i++) {
+			Position pos = new Position(rand.nextDouble() * width, rand.nextDouble() * height);
+			AbstractObject object;
+			if (i % 3 == 0) {
+				object = new Asteroid(pos, rand.nextBoolean(), 5 + rand.nextInt(20), true, 0.3, 0.3, 0.4);
+			} else if (i % 3 == 1) {
+				object = new Beacon(pos);
+			} else {
+				object = new Ship("team" + (i % 4), Color.RED, pos);
+			}
+			if (rand.nextInt(10) == 0) {
+				object.setAlive(false);
+			}
+			space.addObject(object);
+		}
+	}
+
+	/**
+	 * The nearest objects found with the index have to match a scan over every object
+	 * (including across the wrapped edges)
+	 */
+	@Test
+	public void testNearestObjectsMatchesScan() {
+		Random rand = new Random(11);
+		addRandomObjects(rand);
+
+		for (int q = 0; q < 100; q++) {
+			Position position = new Position(rand.nextDouble() * width, rand.nextDouble() * height);
+			int k = 1 + rand.nextInt(8);
+
+			List<Asteroid> expected = new ArrayList<Asteroid>();
+			for (Asteroid asteroid : space.getAsteroids()) {
+				if (asteroid.isAlive()) {
+					expected.add(asteroid);
+				}
+			}
+			final Position from = position;
+			Collections.sort(expected, new Comparator<Asteroid>() {
+				public int compare(Asteroid a1, Asteroid a2) {
+					return Double.compare(space.findShortestDistance(from, a1.getPosition()),
+							space.findShortestDistance(from, a2.getPosition()));
+				}
+			});
+
+			List<Asteroid> nearest = space.getNearestObjects(position, Asteroid.class, k);
+			assertEquals(expected.subList(0, k), nearest);
+			assertEquals(expected.get(0), space.getNearestObject(position, Asteroid.class));
+		}
+
+		// asking for more than there are returns all of them
+		assertEquals(space.getShips().size() - countDead(space.getShips()), 
+				space.getNearestObjects(new Position(0, 0), Ship.class, 1000).size());
+	}
+
+	private int countDead(Set<? extends AbstractObject> objects) {
+		int dead = 0;
+		for (AbstractObject object : objects) {
+			if (!object.isAlive()) {
+				dead++;
+			}
+		}
+		return dead;
+	}
+
+	@Test
+	public void testObjectsWithinRadiusMatchesScan() {
+		Random rand = new Random(12);
+		addRandomObjects(rand);
+
+		for (int q = 0; q < 100; q++) {
+			Position position = new Position(rand.nextDouble() * width, rand.nextDouble() * height);
+			double radius = rand.nextDouble() * 200;
+
+			int expected = 0;
+			for (AbstractObject object : space.getAllObjects()) {
+				if (object.isAlive() && space.findShortestDistance(position, object.getPosition()) <= radius) {
+					expected++;
+				}
+			}
+
+			List<AbstractObject> within = space.getObjectsWithinRadius(position, radius, AbstractObject.class);
+			assertEquals(expected, within.size());
+			for (AbstractObject object : within) {
+				assertTrue(space.findShortestDistance(position, object.getPosition()) <= radius);
+			}
+		}
+	}
+
+	@Test
+	public void testTeamAndMineableSets() {
+		Random rand = new Random(13);
+		addRandomObjects(rand);
+
+		DoNothingTeamClient client = new DoNothingTeamClient();
+		client.setTeamName("team2");
+		client.setTeamColor(Color.BLUE);
+		Team team = new Team(client, "team2", 4);
+		Base base = new Base(new Position(100, 100), "team2", team, true);
+		space.addObject(base);
+
+		int numShips = 0;
+		for (Ship ship : space.getShips()) {
+			if (ship.getTeamName().equals("team2")) {
+				assertTrue(space.getTeamShips("team2").contains(ship));
+				numShips++;
+			}
+		}
+		assertEquals(numShips, space.getTeamShips("team2").size());
+		assertEquals(1, space.getTeamBases("team2").size());
+		assertTrue(space.getTeamBases("team1").isEmpty());
+		assertTrue(space.getTeamShips("nobody").isEmpty());
+
+		int numMineable = 0;
+		for (Asteroid asteroid : space.getAsteroids()) {
+			if (asteroid.isMineable()) {
+				numMineable++;
+			}
+		}
+		assertEquals(numMineable, space.getMineableAsteroids().size());
+
+		// removing an object updates the index
+		space.removeObject(base);
+		assertTrue(space.getTeamBases("team2").isEmpty());
+		team.shutdownClients(space);
+	}
+
+	/**
+	 * Moving objects with the physics throws the old index away
+	 */
+	@Test
+	public void testQueriesFollowMovingObjects() {
+		Beacon beacon = new Beacon(new Position(100, 100));
+		Asteroid asteroid = new Asteroid(new Position(300, 100), false, 10, true, 0, 0, 0);
+		asteroid.getPosition().setTranslationalVelocity(new Vector2D(100, 0));
+		space.addObject(beacon);
+		space.addObject(asteroid);
+
+		Position position = new Position(210, 100);
+		assertEquals(asteroid, space.getNearestObject(position, AbstractObject.class));
+
+		space.advanceTime(1, new HashMap<UUID, SpaceSettlersPowerupEnum>());
+		assertEquals(beacon, space.getNearestObject(position, AbstractObject.class));
+	}
+
+	/**
+	 * Free locations found with the index have to match a scan over every object (dead
+	 * objects take up space too)
+	 */
+	@Test
+	public void testLocationFreeMatchesScan() {
+		Random rand = new Random(13);
+		addRandomObjects(rand);
+
+		for (int q = 0; q < 10000; q++) {
+			Position position = new Position(rand.nextDouble() * width, rand.nextDouble() * height);
+			int radius = rand.nextInt(40);
+
+			boolean expected = true;
+			for (AbstractObject object : space.getAllObjects()) {
+				if (space.findShortestDistance(object.getPosition(), position) <= (radius + object.getRadius())) {
+					expected = false;
+				}
+			}
+			assertEquals(expected, space.isLocationFree(position, radius));
+		}
+	}
+
+	/**
+	 * Fill a small space with asteroids except for one spot that a random location
+	 * almost never lands in
+	 */
+	private Toroidal2DPhysics makeCrowdedSpace() {
+		Toroidal2DPhysics crowdedSpace = new Toroidal2DPhysics(200, 200, 0.05);
+		for (int y = 5; y < 200; y += 20) {
+			for (int x = 5; x < 200; x += 20) {
+				if (x != 105 || y != 105) {
+					crowdedSpace.addObject(new Asteroid(new Position(x, y), false, 9, true, 0.3, 0.3, 0.4));
+				}
+			}
+		}
+		return crowdedSpace;
+	}
+
+	/**
+	 * When random locations keep missing, a free point is picked from a lattice (the
+	 * same one every time for the same seed)
+	 */
+	@Test
+	public void testCrowdedSpaceFindsFreeLocation() {
+		Toroidal2DPhysics crowdedSpace = makeCrowdedSpace();
+		Position pocket = new Position(105, 105);
+
+		for (long seed = 0; seed < 20; seed++) {
+			Position location = crowdedSpace.getRandomFreeLocation(new Random(seed), 10);
+			assertTrue(crowdedSpace.isLocationFree(location, 10));
+			assertTrue(crowdedSpace.findShortestDistance(pocket, location) <= 2);
+			assertTrue(location.equalsLocationOnly(crowdedSpace.getRandomFreeLocation(new Random(seed), 10)));
+
+			location = crowdedSpace.getRandomFreeLocationInRegion(new Random(seed), 10, 100, 100, 30);
+			assertTrue(crowdedSpace.isLocationFree(location, 10));
+			assertTrue(crowdedSpace.findShortestDistance(pocket, location) <= 2);
+
+			location = crowdedSpace.getRandomFreeLocationInRegion(new Random(seed), 10, 60, 60, 150, 150);
+			assertTrue(crowdedSpace.isLocationFree(location, 10));
+			assertTrue(crowdedSpace.findShortestDistance(pocket, location) <= 2);
+		}
+	}
+
+	/**
+	 * Objects that respawn take up space for the ones that respawn after them
+	 */
+	@Test
+	public void testRespawnedObjectsDontOverlap() {
+		Random rand = new Random(17);
+		List<Beacon> beacons = new ArrayList<Beacon>();
+		for (int i = 0; i < 200; i++) {
+			Beacon beacon = new Beacon(new Position(rand.nextDouble() * width, rand.nextDouble() * height));
+			beacon.setAlive(false);
+			space.addObject(beacon);
+			beacons.add(beacon);
+		}
+
+		space.respawnDeadObjects(rand, 0);
+
+		for (int i = 0; i < beacons.size(); i++) {
+			assertTrue(beacons.get(i).isAlive());
+			for (int j = i + 1; j < beacons.size(); j++) {
+				assertTrue(space.findShortestDistance(beacons.get(i).getPosition(), beacons.get(j).getPosition()) > 
+						beacons.get(i).getRadius() + beacons.get(j).getRadius());
+			}
+		}
+	}
+
+	/**
+	 * The path check as it was written with angles (to compare the squared distance test against)
+	 */
+	private boolean isPathClearByAngle(Position startPosition, Position goalPosition, Set<AbstractObject> obstructions, int freeRadius) {
+		Vector2D pathToGoal = space.findShortestDistanceVector(startPosition, goalPosition);
+		double distanceToGoal = pathToGoal.getMagnitude();
+
+		for (AbstractObject obstruction : obstructions) {
+			Vector2D pathToObstruction = space.findShortestDistanceVector(startPosition, obstruction.getPosition());
+			if (pathToObstruction.getMagnitude() > distanceToGoal) {
+				continue;
+			}
+			double angleBetween = Math.abs(pathToObstruction.angleBetween(pathToGoal));
+			if (angleBetween > Math.PI / 2) {
+				continue;
+			}
+			if (pathToObstruction.getMagnitude() * Math.sin(angleBetween) < obstruction.getRadius() + freeRadius * 1.5) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The batched path check gives the same answers as checking each path with angles 
+	 * (including paths that wrap around the edges)
+	 */
+	@Test
+	public void testPathsClearMatchesAngleCheck() {
+		Random rand = new Random(19);
+		addRandomObjects(rand);
+		Set<AbstractObject> obstructions = new LinkedHashSet<AbstractObject>();
+		for (AbstractObject object : space.getAllObjects()) {
+			if (rand.nextInt(4) == 0) {
+				obstructions.add(object);
+			}
+		}
+
+		List<Position> starts = new ArrayList<Position>();
+		List<Position> goals = new ArrayList<Position>();
+		for (int i = 0; i < 5000; i++) {
+			starts.add(new Position(rand.nextDouble() * width, rand.nextDouble() * height));
+			double length = rand.nextDouble() * (i % 2 == 0 ? 60 : 400);
+			double angle = rand.nextDouble() * 2 * Math.PI;
+			Position goal = new Position(starts.get(i).getX() + length * Math.cos(angle), 
+					starts.get(i).getY() + length * Math.sin(angle));
+			space.toroidalWrap(goal);
+			goals.add(goal);
+		}
+
+		BitSet clearPaths = space.arePathsClearOfObstructions(starts, goals, obstructions, Ship.SHIP_RADIUS);
+		int numClear = 0;
+		for (int i = 0; i < starts.size(); i++) {
+			boolean expected = isPathClearByAngle(starts.get(i), goals.get(i), obstructions, Ship.SHIP_RADIUS);
+			assertEquals(expected, clearPaths.get(i));
+			assertEquals(expected, space.isPathClearOfObstructions(starts.get(i), goals.get(i), obstructions, Ship.SHIP_RADIUS));
+			if (expected) {
+				numClear++;
+			}
+		}
+
+		// the paths have to include both kinds for the comparison to mean anything
+		assertTrue(numClear > 500);
+		assertTrue(numClear < 4500);
+	}
+
+	/**
+	 * Obstructions at the start, behind the start, and past the goal
+	 */
+	@Test
+	public void testPathsClearEdgeCases() {
+		Beacon beacon = new Beacon(new Position(100, 100));
+		Set<AbstractObject> obstructions = new LinkedHashSet<AbstractObject>();
+		obstructions.add(beacon);
+
+		List<Position> starts = new ArrayList<Position>();
+		List<Position> goals = new ArrayList<Position>();
+		// starts on the beacon
+		starts.add(new Position(100, 100));
+		goals.add(new Position(200, 100));
+		// goes right through it
+		starts.add(new Position(50, 100));
+		goals.add(new Position(150, 100));
+		// leads away from it
+		starts.add(new Position(110, 100));
+		goals.add(new Position(200, 100));
+		// stops well short of it
+		starts.add(new Position(0, 100));
+		goals.add(new Position(20, 100));
+		// goes through it the short way around the edge
+		starts.add(new Position(100, 470));
+		goals.add(new Position(100, 130));
+		// goes nowhere on top of it
+		starts.add(new Position(100, 100));
+		goals.add(new Position(100, 100));
+
+		BitSet clearPaths = space.arePathsClearOfObstructions(starts, goals, obstructions, 0);
+		for (int i = 0; i < starts.size(); i++) {
+			assertEquals(isPathClearByAngle(starts.get(i), goals.get(i), obstructions, 0), clearPaths.get(i));
+		}
+		assertFalse(clearPaths.get(0));
+		assertFalse(clearPaths.get(1));
+		assertTrue(clearPaths.get(2));
+		assertTrue(clearPaths.get(3));
+		assertFalse(clearPaths.get(4));
+		assertFalse(clearPaths.get(5));
+
+		// nothing is in the way of any path when there are no obstructions
+		assertEquals(starts.size(), space.arePathsClearOfObstructions(starts, goals, 
+				new LinkedHashSet<AbstractObject>(), 0).cardinality());
+	}
+
+	@Test
+	public void testPathsClearNeedsAGoalForEachStart() {
+		List<Position> starts = new ArrayList<Position>();
+		starts.add(new Position(0, 0));
+		try {
+			space.arePathsClearOfObstructions(starts, new ArrayList<Position>(), new LinkedHashSet<AbstractObject>(), 0);
+			fail("A start without a goal should not be accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Copies of bases share the team's descriptor instead of copying the team
+	 */
+	@Test
+	public void testBaseClonesShareTeamDescriptor() {
+		DoNothingTeamClient client = new DoNothingTeamClient();
+		client.setTeamName("team1");
+		client.setTeamColor(Color.BLUE);
+		Team team = new Team(client, "ladder1", 4);
+		team.addShip(new Ship("team1", Color.BLUE, new Position(10, 10)));
+		Base base = new Base(new Position(100, 100), "team1", team, true);
+		team.addBase(base);
+		space.addObject(base);
+
+		Toroidal2DPhysics snapshot = space.createReadOnlySnapshot();
+		Base baseCopy = (Base) snapshot.getObjectById(base.getId());
+		assertNull(baseCopy.getTeam());
+		assertSame(team.getDescriptor(), baseCopy.getTeamDescriptor());
+		assertSame(baseCopy.getTeamDescriptor(), baseCopy.deepClone().getTeamDescriptor());
+		assertEquals("team1", baseCopy.getTeamDescriptor().getTeamName());
+		assertEquals("ladder1", baseCopy.getTeamDescriptor().getLadderName());
+		assertEquals(Color.BLUE, baseCopy.getTeamDescriptor().getTeamColor());
+		assertTrue(baseCopy.getTeamDescriptor().getBaseIDs().contains(base.getId()));
+
+		// a copy of a base can't change the team
+		baseCopy.addResources(new ResourcePile(10, 10, 10));
+		assertEquals(0, team.getAvailableResources().getTotal());
+
+		// the team describes itself again once it changes
+		Base newBase = new Base(new Position(200, 200), "team1", team, false);
+		team.addBase(newBase);
+		assertEquals(2, team.getDescriptor().getBaseIDs().size());
+		assertEquals(1, baseCopy.getTeamDescriptor().getBaseIDs().size());
+		assertSame(team.getDescriptor(), base.getTeamDescriptor());
+		team.shutdownClients(space);
+	}
+
 }